@@ -0,0 +1,65 @@
+package com.trading.orderbook.benchmark;
+
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderBook;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cancels randomly chosen orders from a single price level of {@code queueDepth} orders. Each
+ * cancelled order is queued again at the back, so the depth stays constant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CancelBenchmark {
+
+  private static final int VICTIMS = 1 << 16;
+
+  @Param({"tree", "ladder"})
+  String book;
+
+  @Param({"1000", "100000"})
+  int queueDepth;
+
+  private OrderBook orderBook;
+  private Order[] queue;
+  private int[] victims;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    OrderFlow flow = new OrderFlow(42);
+    orderBook = OrderFlow.newBook(book, "AAPL");
+    queue = new Order[queueDepth];
+    for (int i = 0; i < queueDepth; i++) {
+      queue[i] = new BidOrder("AAPL", OrderFlow.price(OrderFlow.MID_TICKS), flow.quantity());
+      orderBook.addOrder(queue[i]);
+    }
+    victims = new int[VICTIMS];
+    for (int i = 0; i < VICTIMS; i++) {
+      victims[i] = flow.index(queueDepth);
+    }
+  }
+
+  @Benchmark
+  public Order cancelAndRequeue() {
+    Order victim = queue[victims[next++ & (VICTIMS - 1)]];
+    orderBook.cancelOrder(victim);
+    return orderBook.addOrder(victim);
+  }
+}
@@ -0,0 +1,63 @@
+package com.trading.orderbook.benchmark;
+
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.model.OrderBookDepth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Reads the depth of a book with {@code levels} price levels per side. */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DepthBenchmark {
+
+  @Param({"tree", "ladder"})
+  String book;
+
+  @Param({"100", "5000"})
+  int levels;
+
+  private OrderBook orderBook;
+
+  @Setup
+  public void setUp() {
+    OrderFlow flow = new OrderFlow(42);
+    orderBook = OrderFlow.newBook(book, "AAPL");
+    for (int level = 0; level < levels; level++) {
+      for (int i = 0; i < 3; i++) {
+        orderBook.addOrder(
+            new BidOrder(
+                "AAPL", OrderFlow.price(OrderFlow.MID_TICKS - 1 - level), flow.quantity()));
+        orderBook.addOrder(
+            new OfferOrder(
+                "AAPL", OrderFlow.price(OrderFlow.MID_TICKS + 1 + level), flow.quantity()));
+      }
+    }
+  }
+
+  @Benchmark
+  public List<OrderBookDepth> orderbookDepth() {
+    return orderBook.orderbookDepth();
+  }
+
+  @Benchmark
+  public List<OrderBookDepth> topTen() {
+    return orderBook.topN(10);
+  }
+}
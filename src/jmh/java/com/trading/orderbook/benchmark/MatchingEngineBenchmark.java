@@ -0,0 +1,108 @@
+package com.trading.orderbook.benchmark;
+
+import com.trading.orderbook.engine.Fills;
+import com.trading.orderbook.engine.MatchingEngine;
+import com.trading.orderbook.engine.OrderStorage;
+import com.trading.orderbook.model.OrderType;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Submit, match and cancel on the pooled {@link MatchingEngine}, with its orders on or off the
+ * heap. Run with the gc profiler, the allocation rate should be zero bytes per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingEngineBenchmark {
+
+  @Param({"1000", "100000"})
+  int restingOrders;
+
+  @Param({"10"})
+  int levels;
+
+  @Param({"HEAP", "OFF_HEAP"})
+  OrderStorage storage;
+
+  private MatchingEngine engine;
+  private MatchingEngine sweepEngine;
+  private final Fills fills = new Fills(256);
+  private long[] ids;
+  private OrderType[] sides;
+  private long[] prices;
+  private long[] quantities;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    OrderFlow flow = new OrderFlow(42);
+    engine = new MatchingEngine("AAPL", 2 * restingOrders + 1024, 1024, storage);
+    sweepEngine = new MatchingEngine("MSFT", 1024, 1024, storage);
+    ids = new long[restingOrders];
+    sides = new OrderType[2 * restingOrders];
+    prices = new long[sides.length];
+    quantities = new long[sides.length];
+    for (int i = 0; i < sides.length; i++) {
+      var order = flow.passive("AAPL", 100);
+      sides[i] = order.getType();
+      prices[i] = order.getPrice().unscaledValue().longValueExact();
+      quantities[i] = order.getQuantity();
+    }
+    for (int i = 0; i < restingOrders; i++) {
+      ids[i] = engine.submit(sides[i], prices[i], quantities[i], fills);
+    }
+    next = restingOrders;
+  }
+
+  @TearDown
+  public void tearDown() {
+    engine.close();
+    sweepEngine.close();
+  }
+
+  /**
+   * Adds a passive order and cancels the order added {@code restingOrders} operations earlier.
+   *
+   * @return the ID of the new order
+   */
+  @Benchmark
+  public long addAndCancel() {
+    int slot = next % ids.length;
+    engine.cancel(ids[slot]);
+    int order = next++ % sides.length;
+    ids[slot] = engine.submit(sides[order], prices[order], quantities[order], fills);
+    return ids[slot];
+  }
+
+  /**
+   * Rests five offers at each of {@code levels} prices just above the book and sweeps them with one
+   * bid.
+   *
+   * @return the quantity filled by the sweep
+   */
+  @Benchmark
+  public long sweep() {
+    for (int level = 0; level < levels; level++) {
+      for (int i = 0; i < 5; i++) {
+        sweepEngine.submit(OrderType.SELL, OrderFlow.MID_TICKS + level, 10, fills);
+      }
+    }
+    sweepEngine.submit(OrderType.BUY, OrderFlow.MID_TICKS + levels - 1, 50L * levels, fills);
+    return fills.totalQuantity();
+  }
+}
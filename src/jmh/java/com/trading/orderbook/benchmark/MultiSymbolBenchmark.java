@@ -0,0 +1,85 @@
+package com.trading.orderbook.benchmark;
+
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.service.OrderBookService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Four threads add and cancel passive orders across {@code symbols} symbols through {@link
+ * OrderBookService}, contending on the book registry and on the books themselves. Each thread keeps
+ * {@code restingOrders} of its own orders in the books.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MultiSymbolBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Exchange {
+
+    @Param({"1", "16"})
+    int symbols;
+
+    OrderBookService orderBookService;
+    String[] names;
+    final AtomicLong seeds = new AtomicLong(42);
+
+    @Setup
+    public void setUp() {
+      orderBookService = new OrderBookService();
+      names = new String[symbols];
+      for (int i = 0; i < symbols; i++) {
+        names[i] = "SYM" + i;
+        orderBookService.getOrderBook(names[i]);
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Trader {
+
+    @Param({"1000"})
+    int restingOrders;
+
+    Order[] orders;
+    int next;
+
+    @Setup
+    public void setUp(Exchange exchange) {
+      OrderFlow flow = new OrderFlow(exchange.seeds.getAndIncrement());
+      orders = new Order[2 * restingOrders];
+      for (int i = 0; i < orders.length; i++) {
+        orders[i] = flow.passive(exchange.names[flow.index(exchange.symbols)], 100);
+      }
+      for (int i = 0; i < restingOrders; i++) {
+        exchange.orderBookService.getOrderBook(orders[i].getSymbol()).addOrder(orders[i]);
+      }
+      next = restingOrders;
+    }
+  }
+
+  @Benchmark
+  public Order addAndCancel(Exchange exchange, Trader trader) {
+    Order[] orders = trader.orders;
+    exchange.orderBookService.cancelOrder(
+        orders[(trader.next - trader.restingOrders) % orders.length]);
+    Order order = orders[trader.next++ % orders.length];
+    return exchange.orderBookService.getOrderBook(order.getSymbol()).addOrder(order);
+  }
+}
@@ -0,0 +1,97 @@
+package com.trading.orderbook.benchmark;
+
+import com.trading.orderbook.engine.OrderStorage;
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.DefaultOrderBook;
+import com.trading.orderbook.model.EngineOrderBook;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.model.PriceLadderOrderBook;
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+
+/**
+ * Generates reproducible order flow around a mid price of 100.00 on a 0.01 tick grid. Distances
+ * from the touch follow a geometric distribution, so most orders rest near the best prices, and
+ * quantities follow a log-normal distribution with a median of about 20.
+ */
+final class OrderFlow {
+
+  static final BigDecimal TICK_SIZE = new BigDecimal("0.01");
+  static final long MID_TICKS = 10_000;
+
+  private static final BigDecimal[] PRICES = new BigDecimal[(int) (2 * MID_TICKS)];
+
+  static {
+    for (int ticks = 0; ticks < PRICES.length; ticks++) {
+      PRICES[ticks] = BigDecimal.valueOf(ticks, 2);
+    }
+  }
+
+  private final SplittableRandom random;
+
+  OrderFlow(long seed) {
+    random = new SplittableRandom(seed);
+  }
+
+  /**
+   * Creates an empty order book.
+   *
+   * @param kind {@code tree} for the default book, {@code ladder} for the price ladder book or
+   *     {@code engine} for the engine book
+   * @param symbol the symbol of the book
+   * @return the order book
+   */
+  static OrderBook newBook(String kind, String symbol) {
+    return switch (kind) {
+      case "tree" -> new DefaultOrderBook(symbol);
+      case "ladder" -> new PriceLadderOrderBook(symbol, TICK_SIZE, 1024);
+      case "engine" -> new EngineOrderBook(symbol, TICK_SIZE, 1 << 18, 1024, OrderStorage.HEAP);
+      default -> throw new IllegalArgumentException("Unknown book kind: " + kind);
+    };
+  }
+
+  /**
+   * Returns the price of a tick on the grid.
+   *
+   * @param ticks the number of ticks above zero
+   * @return the price
+   */
+  static BigDecimal price(long ticks) {
+    return PRICES[(int) ticks];
+  }
+
+  /**
+   * Draws an order that does not cross the mid price: bids below it and offers above it.
+   *
+   * @param symbol the symbol of the order
+   * @param maxLevels the maximum distance from the touch, in ticks
+   * @return the order
+   */
+  Order passive(String symbol, int maxLevels) {
+    int distance = Math.min(maxLevels - 1, (int) (-Math.log(1 - random.nextDouble()) * 4));
+    return random.nextBoolean()
+        ? new BidOrder(symbol, price(MID_TICKS - 1 - distance), quantity())
+        : new OfferOrder(symbol, price(MID_TICKS + 1 + distance), quantity());
+  }
+
+  /**
+   * Draws an order quantity.
+   *
+   * @return the quantity
+   */
+  int quantity() {
+    return (int) Math.max(1, Math.round(Math.exp(3 + 0.8 * random.nextGaussian())));
+  }
+
+  /**
+   * Draws an index below a bound.
+   *
+   * @param bound the exclusive upper bound
+   * @return the index
+   */
+  int index(int bound) {
+    return random.nextInt(bound);
+  }
+}
@@ -0,0 +1,61 @@
+package com.trading.orderbook.benchmark;
+
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderBook;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds passive orders to a book of a steady size: each operation adds an order and cancels the
+ * order added {@code restingOrders} operations earlier.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PassiveOrderBenchmark {
+
+  @Param({"tree", "ladder", "engine"})
+  String book;
+
+  @Param({"1000", "100000"})
+  int restingOrders;
+
+  private OrderBook orderBook;
+  private Order[] orders;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    OrderFlow flow = new OrderFlow(42);
+    orderBook = OrderFlow.newBook(book, "AAPL");
+    orders = new Order[2 * restingOrders];
+    for (int i = 0; i < orders.length; i++) {
+      orders[i] = flow.passive("AAPL", 100);
+    }
+    for (int i = 0; i < restingOrders; i++) {
+      orderBook.addOrder(orders[i]);
+    }
+    next = restingOrders;
+  }
+
+  @Benchmark
+  public Order addPassive() {
+    orderBook.cancelOrder(orders[(next - restingOrders) % orders.length]);
+    Order added = orderBook.addOrder(orders[next % orders.length]);
+    next++;
+    return added;
+  }
+}
@@ -0,0 +1,72 @@
+package com.trading.orderbook.benchmark;
+
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.risk.RiskEngine;
+import com.trading.orderbook.risk.RiskLimits;
+import com.trading.orderbook.risk.RiskProperties;
+import com.trading.orderbook.service.OrderBookService;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs every pre-trade check on an order of an account that already trades and has orders working
+ * in a book.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RiskCheckBenchmark {
+
+  private RiskEngine riskEngine;
+  private OrderBook orderBook;
+  private Order order;
+
+  @Setup
+  public void setUp() {
+    OrderBookService orderBookService = new OrderBookService();
+    RiskLimits limits =
+        new RiskLimits(
+            1_000, BigDecimal.valueOf(1_000_000), 100_000, 100_000, new BigDecimal("0.1"));
+    riskEngine = new RiskEngine(new RiskProperties(true, limits, Map.of()), orderBookService);
+    orderBook = orderBookService.getOrderBook("AAPL");
+    OrderFlow flow = new OrderFlow(42);
+    for (int i = 0; i < 100; i++) {
+      Order bid =
+          new BidOrder("AAPL", OrderFlow.price(OrderFlow.MID_TICKS - 1 - i), flow.quantity());
+      Order offer =
+          new OfferOrder("AAPL", OrderFlow.price(OrderFlow.MID_TICKS + 1 + i), flow.quantity());
+      bid.setAccount(i % 2 == 0 ? "ACME" : "OTHER");
+      offer.setAccount(i % 2 == 0 ? "OTHER" : "ACME");
+      orderBook.addOrder(bid);
+      orderBook.addOrder(offer);
+    }
+    Order taker = new BidOrder("AAPL", OrderFlow.price(OrderFlow.MID_TICKS + 1), 1);
+    taker.setAccount("ACME");
+    orderBook.addOrder(taker);
+    order = new BidOrder("AAPL", OrderFlow.price(OrderFlow.MID_TICKS - 2), 50);
+    order.setAccount("ACME");
+  }
+
+  @Benchmark
+  public Order check() {
+    riskEngine.check(orderBook, order);
+    return order;
+  }
+}
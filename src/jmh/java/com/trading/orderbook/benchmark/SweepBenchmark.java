@@ -0,0 +1,88 @@
+package com.trading.orderbook.benchmark;
+
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.risk.RiskEngine;
+import com.trading.orderbook.risk.RiskLimits;
+import com.trading.orderbook.risk.RiskProperties;
+import com.trading.orderbook.service.OrderBookService;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sweeps an aggressive bid through {@code levels} offer levels of {@code ordersPerLevel} orders
+ * each. The offers are put back before every invocation. With {@code risk} set, a {@link
+ * RiskEngine} follows the fills as the order listener of the book.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SweepBenchmark {
+
+  @Param({"tree", "ladder", "engine"})
+  String book;
+
+  @Param({"1", "10", "100", "1000"})
+  int levels;
+
+  @Param({"5"})
+  int ordersPerLevel;
+
+  @Param({"false", "true"})
+  boolean risk;
+
+  private OrderBook orderBook;
+  private Order[] offers;
+  private Order sweep;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    OrderFlow flow = new OrderFlow(42);
+    orderBook = OrderFlow.newBook(book, "AAPL");
+    if (risk) {
+      orderBook.setOrderListener(
+          new RiskEngine(
+              new RiskProperties(true, RiskLimits.none(), Map.of()), new OrderBookService()));
+    }
+    offers = new Order[levels * ordersPerLevel];
+    int totalQuantity = 0;
+    for (int i = 0; i < offers.length; i++) {
+      offers[i] =
+          new OfferOrder(
+              "AAPL", OrderFlow.price(OrderFlow.MID_TICKS + i / ordersPerLevel), flow.quantity());
+      totalQuantity += offers[i].getQuantity();
+    }
+    sweep = new BidOrder("AAPL", OrderFlow.price(OrderFlow.MID_TICKS + levels - 1), totalQuantity);
+  }
+
+  @Setup(Level.Invocation)
+  public void refill() {
+    for (Order offer : offers) {
+      offer.setUnfilledQuantity(offer.getQuantity());
+      orderBook.addOrder(offer);
+    }
+    sweep.setUnfilledQuantity(sweep.getQuantity());
+  }
+
+  @Benchmark
+  public Order sweep() {
+    return orderBook.addOrder(sweep);
+  }
+}
@@ -0,0 +1,109 @@
+package com.trading.orderbook.admission;
+
+import com.trading.orderbook.model.OrderBook;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounds the number of commands pending on the order book of each symbol. A command is pending from
+ * the moment it is admitted until it completes, whether it is waiting for the book's lock, queued
+ * on a matching shard or running. Once a symbol reaches the limit, further commands are rejected at
+ * once instead of queueing, so a burst on one hot symbol cannot tie up every request thread and
+ * clients are told when to retry.
+ *
+ * <p>Admission is a single atomic increment per command; no lock is held and nothing blocks.
+ */
+@Component
+@ConditionalOnProperty(prefix = "orderbook.admission", name = "enabled", havingValue = "true")
+public class AdmissionControl {
+
+  private final AdmissionProperties properties;
+  private final Map<String, AtomicInteger> pending = new ConcurrentHashMap<>();
+  private MeterRegistry registry;
+  private Counter rejected;
+
+  public AdmissionControl(AdmissionProperties properties) {
+    this.properties = properties;
+  }
+
+  /**
+   * Publishes the pending commands of each symbol and the number of rejected commands to
+   * Micrometer.
+   *
+   * @param registry the registry to publish to
+   */
+  @Autowired(required = false)
+  public void setMeterRegistry(MeterRegistry registry) {
+    this.registry = registry;
+    this.rejected = registry.counter("orderbook.admission.rejected");
+    pending.forEach(this::register);
+  }
+
+  /**
+   * Admits a command for an order book. Every admitted command must be followed by a call to {@link
+   * #release(OrderBook)} once it completes.
+   *
+   * @param orderBook the order book the command runs on
+   * @throws AdmissionRejectedException if the book already has the maximum of pending commands
+   */
+  public void acquire(OrderBook orderBook) {
+    AtomicInteger count = counter(orderBook.getSymbol());
+    if (count.incrementAndGet() > properties.maxPending()) {
+      count.decrementAndGet();
+      if (rejected != null) {
+        rejected.increment();
+      }
+      throw new AdmissionRejectedException(orderBook.getSymbol(), properties.retryAfter());
+    }
+  }
+
+  /**
+   * Releases a command admitted by {@link #acquire(OrderBook)}.
+   *
+   * @param orderBook the order book the command ran on
+   */
+  public void release(OrderBook orderBook) {
+    counter(orderBook.getSymbol()).decrementAndGet();
+  }
+
+  /**
+   * Returns the number of commands pending on the order book of a symbol.
+   *
+   * @param symbol the symbol
+   * @return the number of admitted commands that have not completed
+   */
+  public int getPending(String symbol) {
+    AtomicInteger count = pending.get(symbol);
+    return count != null ? count.get() : 0;
+  }
+
+  private AtomicInteger counter(String symbol) {
+    AtomicInteger count = pending.get(symbol);
+    if (count == null) {
+      count =
+          pending.computeIfAbsent(
+              symbol,
+              s -> {
+                AtomicInteger created = new AtomicInteger();
+                if (registry != null) {
+                  register(s, created);
+                }
+                return created;
+              });
+    }
+    return count;
+  }
+
+  private void register(String symbol, AtomicInteger count) {
+    Gauge.builder("orderbook.admission.pending", count, AtomicInteger::get)
+        .tag("symbol", symbol)
+        .register(registry);
+  }
+}
@@ -0,0 +1,19 @@
+package com.trading.orderbook.admission;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures admission control of order book commands.
+ *
+ * @param enabled whether commands beyond the limit are rejected
+ * @param maxPending the number of commands that may wait for or run on the order book of one
+ *     symbol at a time
+ * @param retryAfter the delay suggested to rejected clients
+ */
+@ConfigurationProperties(prefix = "orderbook.admission")
+public record AdmissionProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("1024") int maxPending,
+    @DefaultValue("1s") Duration retryAfter) {}
@@ -0,0 +1,31 @@
+package com.trading.orderbook.admission;
+
+import java.time.Duration;
+
+/** Thrown when an order book already has as many pending commands as admission control allows. */
+public class AdmissionRejectedException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String symbol;
+  private final Duration retryAfter;
+
+  public AdmissionRejectedException(String symbol, Duration retryAfter) {
+    super("Too many pending commands for symbol: " + symbol);
+    this.symbol = symbol;
+    this.retryAfter = retryAfter;
+  }
+
+  public String getSymbol() {
+    return symbol;
+  }
+
+  /**
+   * Returns the delay after which the client may retry.
+   *
+   * @return the suggested delay
+   */
+  public Duration getRetryAfter() {
+    return retryAfter;
+  }
+}
@@ -0,0 +1,15 @@
+package com.trading.orderbook.audit;
+
+/** The kinds of events recorded in the audit log. */
+public enum AuditEvent {
+  /** An order was accepted, after it matched against the book. */
+  CREATED,
+  /** An order was amended, after it matched at its new price. */
+  AMENDED,
+  /** An order was cancelled. */
+  CANCELLED,
+  /** An order traded against a resting order. */
+  TRADE,
+  /** An order left the book when its time in force ran out. */
+  EXPIRED
+}
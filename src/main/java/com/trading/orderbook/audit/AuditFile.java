@@ -0,0 +1,165 @@
+package com.trading.orderbook.audit;
+
+import com.trading.orderbook.model.OrderType;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Binary layout of audit files. A file is a sequence of records, each framed by an unsigned 16-bit
+ * length. All fields are big-endian:
+ *
+ * <pre>
+ * long sequence, byte event, long timestamp, byte symbolLength, symbol, long orderIdHigh,
+ *   long orderIdLow, byte side, long unscaledPrice, byte scale, int quantity, int unfilledQuantity,
+ *   then for trades: long counterpartyOrderIdHigh, long counterpartyOrderIdLow
+ * </pre>
+ *
+ * Files are named {@code audit-<index>.log} with a zero-padded index, so they sort in the order
+ * they were written.
+ */
+public final class AuditFile {
+
+  /** The largest encoded record, for a symbol of 255 bytes. */
+  static final int MAX_RECORD_SIZE = 2 + 8 + 1 + 8 + 1 + 255 + 16 + 1 + 8 + 1 + 4 + 4 + 16;
+
+  private static final String PREFIX = "audit-";
+  private static final String SUFFIX = ".log";
+  private static final AuditEvent[] EVENTS = AuditEvent.values();
+  private static final OrderType[] SIDES = OrderType.values();
+
+  private AuditFile() {}
+
+  /**
+   * Writes an event.
+   *
+   * @param buffer the buffer to write to, with at least {@link #MAX_RECORD_SIZE} bytes remaining
+   * @param sequence the sequence of the event
+   * @param slot the event
+   * @param symbol the encoded symbol of the event
+   * @throws ArithmeticException if the price does not fit a 64-bit unscaled value and 8-bit scale
+   * @throws IllegalArgumentException if the symbol is longer than 255 bytes
+   */
+  static void encode(ByteBuffer buffer, long sequence, AuditSlot slot, byte[] symbol) {
+    if (symbol.length > 255) {
+      throw new IllegalArgumentException("Symbol too long for the audit log: " + slot.symbol);
+    }
+    // a market order has no price and is recorded at 0
+    BigDecimal price = slot.price != null ? slot.price : BigDecimal.ZERO;
+    if (price.scale() < Byte.MIN_VALUE || price.scale() > Byte.MAX_VALUE) {
+      throw new ArithmeticException("Price scale out of range: " + price);
+    }
+    long unscaledPrice = price.unscaledValue().longValueExact();
+    int start = buffer.position();
+    buffer.position(start + 2);
+    buffer.putLong(sequence).put((byte) slot.event.ordinal()).putLong(slot.timestamp);
+    buffer.put((byte) symbol.length).put(symbol);
+    putId(buffer, slot.orderId);
+    buffer.put((byte) slot.side.ordinal());
+    buffer.putLong(unscaledPrice).put((byte) price.scale());
+    buffer.putInt(slot.quantity).putInt(slot.unfilledQuantity);
+    if (slot.event == AuditEvent.TRADE) {
+      putId(buffer, slot.counterpartyOrderId);
+    }
+    buffer.putShort(start, (short) (buffer.position() - start - 2));
+  }
+
+  /**
+   * Reads every record of an audit file, in the order they were written.
+   *
+   * @param file the audit file
+   * @param handler receives each record
+   * @throws IOException if the file cannot be read
+   */
+  public static void read(Path file, Consumer<AuditRecord> handler) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+    while (buffer.remaining() >= 2) {
+      handler.accept(decode(buffer));
+    }
+  }
+
+  /**
+   * Lists the audit files of a directory, oldest first.
+   *
+   * @param directory the audit directory
+   * @return the audit files, or an empty list if the directory does not exist
+   * @throws IOException if the directory cannot be listed
+   */
+  public static List<Path> list(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(
+              file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+              })
+          .sorted()
+          .toList();
+    }
+  }
+
+  /**
+   * Returns the name of the audit file with the given index.
+   *
+   * @param index the index of the file
+   * @return the file name
+   */
+  static String name(long index) {
+    return String.format("%s%012d%s", PREFIX, index, SUFFIX);
+  }
+
+  /**
+   * Returns the index of an audit file.
+   *
+   * @param file an audit file
+   * @return the index in its name
+   */
+  static long index(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+  }
+
+  private static AuditRecord decode(ByteBuffer buffer) {
+    int length = buffer.getShort() & 0xFFFF;
+    int end = buffer.position() + length;
+    long sequence = buffer.getLong();
+    AuditEvent event = EVENTS[buffer.get()];
+    long timestamp = buffer.getLong();
+    byte[] symbol = new byte[buffer.get() & 0xFF];
+    buffer.get(symbol);
+    UUID orderId = new UUID(buffer.getLong(), buffer.getLong());
+    OrderType side = SIDES[buffer.get()];
+    long unscaledPrice = buffer.getLong();
+    BigDecimal price = BigDecimal.valueOf(unscaledPrice, buffer.get());
+    int quantity = buffer.getInt();
+    int unfilledQuantity = buffer.getInt();
+    UUID counterpartyOrderId =
+        event == AuditEvent.TRADE ? new UUID(buffer.getLong(), buffer.getLong()) : null;
+    buffer.position(end);
+    return new AuditRecord(
+        sequence,
+        event,
+        timestamp,
+        new String(symbol, StandardCharsets.UTF_8),
+        orderId,
+        counterpartyOrderId,
+        side,
+        price,
+        quantity,
+        unfilledQuantity);
+  }
+
+  private static void putId(ByteBuffer buffer, UUID id) {
+    buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+  }
+}
@@ -0,0 +1,11 @@
+package com.trading.orderbook.audit;
+
+/** How much the audit log records. Each level includes the events of the levels before it. */
+public enum AuditLevel {
+  /** Nothing is recorded. */
+  OFF,
+  /** Order commands and the state of the order after each of them. */
+  ORDERS,
+  /** Order commands and every trade. */
+  TRADES
+}
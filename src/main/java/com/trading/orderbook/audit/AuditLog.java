@@ -0,0 +1,352 @@
+package com.trading.orderbook.audit;
+
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.Trade;
+import com.trading.orderbook.model.TradeEventBuffer;
+import com.trading.orderbook.service.OrderBookService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Asynchronous audit log of order events, written to rolling binary files described by {@link
+ * AuditFile}.
+ *
+ * <p>Order books record events under their lock into a pre-allocated ring: recording claims a
+ * sequence with one atomic operation and copies a few references and integers into the slot for
+ * that sequence, so it neither blocks nor allocates. When the writer falls a full ring behind,
+ * events are dropped and leave a gap in the sequence. A single writer thread encodes the published
+ * events into a direct buffer and writes them in batches, moving on to a new file when the current
+ * one exceeds its maximum size. At the {@link AuditLevel#TRADES} level the writer also follows the
+ * trade stream of every order book, so trades cost the matching path nothing.
+ *
+ * <p>Events of orders that are not sampled, and every event while the level is {@link
+ * AuditLevel#OFF}, are discarded before any work is done.
+ */
+@Component
+@ConditionalOnProperty(prefix = "orderbook.audit", name = "enabled", havingValue = "true")
+public class AuditLog implements SmartLifecycle {
+  private static final Logger logger = Logger.getLogger(AuditLog.class.getName());
+
+  private static final int PHASE = 0;
+  private static final int WRITE_BUFFER_SIZE = 1 << 16;
+  private static final int MAX_TRADES_PER_POLL = 1024;
+  private static final long IDLE_PARK_NANOS = 1_000_000;
+  private static final long SUBSCRIBE_INTERVAL_NANOS = 1_000_000_000;
+
+  private final AuditProperties properties;
+  private final OrderBookService orderBookService;
+  private final AuditSlot[] slots;
+  private final int mask;
+  private final AtomicLongArray published;
+  private final AtomicLong claimed = new AtomicLong();
+  private final AtomicLong consumed = new AtomicLong(-1);
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong written = new AtomicLong();
+  private final AuditSlot tradeSlot = new AuditSlot();
+  private final Map<String, byte[]> symbols = new HashMap<>();
+  private final Map<String, TradeEventBuffer.Subscription> trades = new HashMap<>();
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+  private volatile AuditLevel level;
+  private FileChannel channel;
+  private long fileIndex;
+  private int buffered;
+  private Thread thread;
+  private volatile boolean running;
+
+  public AuditLog(AuditProperties properties, OrderBookService orderBookService) {
+    int size = properties.bufferSize();
+    if (size <= 0 || Integer.bitCount(size) != 1) {
+      throw new IllegalArgumentException("Audit buffer size must be a power of two: " + size);
+    }
+    if (properties.sampleRate() < 1) {
+      throw new IllegalArgumentException("Audit sample rate must be positive");
+    }
+    this.properties = properties;
+    this.orderBookService = orderBookService;
+    this.level = properties.level();
+    slots = new AuditSlot[size];
+    published = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      slots[i] = new AuditSlot();
+      published.set(i, -1);
+    }
+    mask = size - 1;
+  }
+
+  /**
+   * Records the state of an order after a command. Safe to call from any number of threads; events
+   * of one order book are written in the order they were recorded.
+   *
+   * @param event the command that changed the order
+   * @param order the order
+   */
+  public void record(AuditEvent event, Order order) {
+    if (level == AuditLevel.OFF || !sampled(order.getId())) {
+      return;
+    }
+    long sequence;
+    do {
+      sequence = claimed.get();
+      if (sequence - slots.length > consumed.get()) {
+        dropped.incrementAndGet();
+        return;
+      }
+    } while (!claimed.compareAndSet(sequence, sequence + 1));
+    AuditSlot slot = slots[(int) (sequence & mask)];
+    slot.event = event;
+    slot.timestamp = System.currentTimeMillis();
+    slot.symbol = order.getSymbol();
+    slot.orderId = order.getId();
+    slot.side = order.getType();
+    slot.price = order.getPrice();
+    slot.quantity = order.getQuantity();
+    slot.unfilledQuantity = order.getUnfilledQuantity();
+    published.lazySet((int) (sequence & mask), sequence);
+  }
+
+  /**
+   * Changes the events recorded from now on.
+   *
+   * @param level the new level
+   */
+  public void setLevel(AuditLevel level) {
+    this.level = level;
+  }
+
+  /**
+   * Returns the events currently recorded.
+   *
+   * @return the current level
+   */
+  public AuditLevel getLevel() {
+    return level;
+  }
+
+  /**
+   * Returns the number of events dropped because the writer fell a full buffer behind.
+   *
+   * @return the number of dropped events
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * Returns the number of events written to the audit files so far, including trades.
+   *
+   * @return the number of written events
+   */
+  public long getWritten() {
+    return written.get();
+  }
+
+  @Override
+  public void start() {
+    try {
+      Files.createDirectories(properties.directory());
+      List<Path> files = AuditFile.list(properties.directory());
+      // continue after the files of earlier runs instead of overwriting them
+      fileIndex = files.isEmpty() ? 0 : AuditFile.index(files.get(files.size() - 1)) + 1;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open audit directory " + properties.directory(), e);
+    }
+    if (level == AuditLevel.TRADES) {
+      subscribe();
+    }
+    running = true;
+    thread = new Thread(this::run, "audit-writer");
+    thread.setDaemon(true);
+    thread.start();
+    logger.info("Writing audit log to " + properties.directory() + " at level " + level);
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    LockSupport.unpark(thread);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  private boolean sampled(UUID orderId) {
+    return properties.sampleRate() == 1
+        || Math.floorMod(orderId.hashCode(), properties.sampleRate()) == 0;
+  }
+
+  private void run() {
+    long nextSubscribe = System.nanoTime() + SUBSCRIBE_INTERVAL_NANOS;
+    while (true) {
+      boolean stopping = !running;
+      int count = 0;
+      try {
+        count = drain();
+        if (level == AuditLevel.TRADES) {
+          if (stopping || System.nanoTime() - nextSubscribe >= 0) {
+            subscribe();
+            nextSubscribe = System.nanoTime() + SUBSCRIBE_INTERVAL_NANOS;
+          }
+          count += pollTrades();
+        }
+        if (buffer.position() > 0) {
+          flush();
+        }
+      } catch (IOException | RuntimeException e) {
+        logger.log(Level.WARNING, "Could not write audit log", e);
+        buffer.clear();
+        buffered = 0;
+      }
+      if (stopping && count == 0) {
+        break;
+      }
+      if (count == 0) {
+        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+      }
+    }
+    close();
+  }
+
+  /** Writes the events published since the last call, at most one lap of the ring. */
+  private int drain() throws IOException {
+    long next = consumed.get() + 1;
+    long first = next;
+    while (next - first < slots.length && published.get((int) (next & mask)) == next) {
+      AuditSlot slot = slots[(int) (next & mask)];
+      try {
+        write(next, slot);
+      } catch (ArithmeticException | IllegalArgumentException e) {
+        logger.warning("Could not audit " + slot.event + " of order " + slot.orderId + ": " + e);
+      }
+      slot.clear();
+      consumed.lazySet(next);
+      next++;
+    }
+    return (int) (next - first);
+  }
+
+  private void subscribe() {
+    for (String symbol : orderBookService.getSymbols()) {
+      if (!trades.containsKey(symbol)) {
+        // trades before the first subscription are not audited
+        trades.put(symbol, orderBookService.getOrderBook(symbol).getTrades().subscribe());
+      }
+    }
+  }
+
+  private int pollTrades() throws IOException {
+    int count = 0;
+    for (TradeEventBuffer.Subscription subscription : trades.values()) {
+      long lost = subscription.lost();
+      count += subscription.poll(this::writeTrade, MAX_TRADES_PER_POLL);
+      dropped.addAndGet(subscription.lost() - lost);
+    }
+    return count;
+  }
+
+  private void writeTrade(Trade trade) {
+    if (!sampled(trade.takerOrderId()) && !sampled(trade.makerOrderId())) {
+      return;
+    }
+    tradeSlot.event = AuditEvent.TRADE;
+    tradeSlot.timestamp = trade.timestamp();
+    tradeSlot.symbol = trade.symbol();
+    tradeSlot.orderId = trade.takerOrderId();
+    tradeSlot.counterpartyOrderId = trade.makerOrderId();
+    tradeSlot.side = trade.takerSide();
+    tradeSlot.price = trade.price();
+    tradeSlot.quantity = trade.quantity();
+    tradeSlot.unfilledQuantity = 0;
+    try {
+      write(trade.sequence(), tradeSlot);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (ArithmeticException | IllegalArgumentException e) {
+      logger.warning("Could not audit trade " + trade.sequence() + " of " + trade.symbol());
+    }
+  }
+
+  private void write(long sequence, AuditSlot slot) throws IOException {
+    if (buffer.remaining() < AuditFile.MAX_RECORD_SIZE) {
+      flush();
+    }
+    byte[] symbol =
+        symbols.computeIfAbsent(slot.symbol, name -> name.getBytes(StandardCharsets.UTF_8));
+    AuditFile.encode(buffer, sequence, slot, symbol);
+    buffered++;
+  }
+
+  private void flush() throws IOException {
+    if (channel == null) {
+      channel =
+          FileChannel.open(
+              properties.directory().resolve(AuditFile.name(fileIndex++)),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+    if (channel.position() >= properties.maxFileSize()) {
+      roll();
+    }
+    written.addAndGet(buffered);
+    buffered = 0;
+  }
+
+  /** Closes the current file and deletes the oldest files beyond the retention count. */
+  private void roll() throws IOException {
+    channel.close();
+    channel = null;
+    List<Path> files = AuditFile.list(properties.directory());
+    for (Path old : files.subList(0, Math.max(0, files.size() - properties.retain()))) {
+      Files.deleteIfExists(old);
+    }
+  }
+
+  private void close() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.force(false);
+      channel.close();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not close audit file", e);
+    }
+    channel = null;
+  }
+}
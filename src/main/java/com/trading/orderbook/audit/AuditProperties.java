@@ -0,0 +1,28 @@
+package com.trading.orderbook.audit;
+
+import java.nio.file.Path;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures the audit log.
+ *
+ * @param enabled whether the audit log is written
+ * @param level the events recorded
+ * @param sampleRate record one in every {@code sampleRate} orders, chosen by order ID; 1 records
+ *     every order
+ * @param directory the directory audit files are written to
+ * @param bufferSize the number of events buffered between the order books and the writer, a power
+ *     of two; events beyond it are dropped and show up as sequence gaps
+ * @param maxFileSize the size in bytes after which the writer moves on to a new file
+ * @param retain the number of most recent audit files to keep
+ */
+@ConfigurationProperties(prefix = "orderbook.audit")
+public record AuditProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("ORDERS") AuditLevel level,
+    @DefaultValue("1") int sampleRate,
+    @DefaultValue("data/audit") Path directory,
+    @DefaultValue("65536") int bufferSize,
+    @DefaultValue("67108864") long maxFileSize,
+    @DefaultValue("10") int retain) {}
@@ -0,0 +1,32 @@
+package com.trading.orderbook.audit;
+
+import com.trading.orderbook.model.OrderType;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * An event read back from an audit file.
+ *
+ * @param sequence for order events, the position of the event in the audit log, where gaps mean
+ *     dropped events; for trades, the sequence of the trade in its order book's trade stream
+ * @param event the kind of event
+ * @param timestamp the time of the event in milliseconds since the epoch
+ * @param symbol the symbol of the order book
+ * @param orderId the ID of the order, or of the incoming order of a trade
+ * @param counterpartyOrderId the ID of the resting order of a trade, or null for order events
+ * @param side the side of the order, or of the incoming order of a trade
+ * @param price the price of the order, or the execution price of a trade
+ * @param quantity the total quantity of the order, or the executed quantity of a trade
+ * @param unfilledQuantity the unfilled quantity of the order after the event, or 0 for trades
+ */
+public record AuditRecord(
+    long sequence,
+    AuditEvent event,
+    long timestamp,
+    String symbol,
+    UUID orderId,
+    UUID counterpartyOrderId,
+    OrderType side,
+    BigDecimal price,
+    int quantity,
+    int unfilledQuantity) {}
@@ -0,0 +1,29 @@
+package com.trading.orderbook.audit;
+
+import com.trading.orderbook.model.OrderType;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * A reusable, mutable audit event. Only holds references to immutable values, so filling a slot
+ * never allocates.
+ */
+final class AuditSlot {
+  AuditEvent event;
+  long timestamp;
+  String symbol;
+  UUID orderId;
+  UUID counterpartyOrderId;
+  OrderType side;
+  BigDecimal price;
+  int quantity;
+  int unfilledQuantity;
+
+  /** Drops the references held by the slot once it has been written. */
+  void clear() {
+    symbol = null;
+    orderId = null;
+    counterpartyOrderId = null;
+    price = null;
+  }
+}
@@ -0,0 +1,29 @@
+package com.trading.orderbook.controller;
+
+import com.trading.orderbook.admission.AdmissionRejectedException;
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/** Turns commands rejected by admission control into 429 Too Many Requests responses. */
+@RestControllerAdvice
+public class AdmissionExceptionHandler {
+
+  /**
+   * Tells the client to back off and when to retry.
+   *
+   * @param e the rejection
+   * @return 429 Too Many Requests with a Retry-After header in whole seconds
+   */
+  @ExceptionHandler(AdmissionRejectedException.class)
+  public ResponseEntity<Map<String, String>> handleRejected(AdmissionRejectedException e) {
+    long millis = e.getRetryAfter().toMillis();
+    long seconds = Math.max(1, (millis + 999) / 1000);
+    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+        .header(HttpHeaders.RETRY_AFTER, Long.toString(seconds))
+        .body(Map.of("error", e.getMessage(), "symbol", e.getSymbol()));
+  }
+}
@@ -0,0 +1,39 @@
+package com.trading.orderbook.controller;
+
+import com.trading.orderbook.marketdata.MarketDataPublisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/** REST controller for streaming incremental order book updates. */
+@RestController
+@RequestMapping("/api/market-data")
+@ConditionalOnProperty(prefix = "orderbook.market-data", name = "enabled", havingValue = "true")
+public class MarketDataController {
+
+  private final MarketDataPublisher marketDataPublisher;
+
+  /**
+   * Constructs a new MarketDataController with the specified MarketDataPublisher.
+   *
+   * @param marketDataPublisher the publisher of the feed
+   */
+  public MarketDataController(MarketDataPublisher marketDataPublisher) {
+    this.marketDataPublisher = marketDataPublisher;
+  }
+
+  /**
+   * Streams the market data feed as Server-Sent Events.
+   *
+   * @param symbol the symbol to stream, or all symbols if absent
+   * @return the event stream
+   */
+  @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter stream(@RequestParam(required = false) String symbol) {
+    return marketDataPublisher.subscribe(symbol);
+  }
+}
@@ -1,12 +1,14 @@
 package com.trading.orderbook.controller;
 
-import com.trading.orderbook.model.OrderBook;
-import com.trading.orderbook.model.OrderBookDepth;
-import com.trading.orderbook.service.OrderBookService;
-import java.util.List;
+import com.trading.orderbook.marketdata.DepthCache;
+import com.trading.orderbook.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /** REST controller for managing order books. */
@@ -14,26 +16,44 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/order-books")
 public class OrderBookController {
 
-  private final OrderBookService orderBookService;
+  private final OrderService orderService;
+  private DepthCache depthCache;
 
   /**
-   * Constructs a new OrderBookController with the specified OrderBookService.
+   * Constructs a new OrderBookController with the specified OrderService.
    *
-   * @param orderBookService the service to manage order books
+   * @param orderService the service that runs commands against order books
    */
-  public OrderBookController(OrderBookService orderBookService) {
-    this.orderBookService = orderBookService;
+  public OrderBookController(OrderService orderService) {
+    this.orderService = orderService;
+  }
+
+  /**
+   * Serves depth reads from a cache instead of the order books.
+   *
+   * @param depthCache the cache of order book depth
+   */
+  @Autowired(required = false)
+  public void setDepthCache(DepthCache depthCache) {
+    this.depthCache = depthCache;
   }
 
   /**
    * Retrieves the order book for a given symbol.
    *
    * @param symbol the symbol of the order book to retrieve
+   * @param depth the number of best price levels to return per side, or all levels if absent
    * @return a list of order book depths for the specified symbol
    */
   @GetMapping("/{symbol}")
-  public List<OrderBookDepth> getOrderBook(@PathVariable String symbol) {
-    OrderBook orderBook = orderBookService.getOrderBook(symbol);
-    return orderBook.orderbookDepth();
+  public ResponseEntity<?> getOrderBook(
+      @PathVariable String symbol, @RequestParam(required = false) Integer depth) {
+    if (depthCache != null) {
+      byte[] json = depthCache.depthJson(symbol, depth);
+      if (json != null) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+      }
+    }
+    return ResponseEntity.ok(orderService.getDepth(symbol, depth));
   }
 }
@@ -3,8 +3,16 @@ package com.trading.orderbook.controller;
 import com.trading.orderbook.model.BidOrder;
 import com.trading.orderbook.model.OfferOrder;
 import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderKind;
+import com.trading.orderbook.model.OrderRequest;
+import com.trading.orderbook.model.OrderResult;
+import com.trading.orderbook.model.TimeInForce;
 import com.trading.orderbook.service.OrderService;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -49,24 +57,120 @@ public class OrderController {
    *
    * @param symbol the symbol of the order
    * @param type the type of the order (BUY or SELL)
-   * @param price the price of the order
+   * @param price the limit price of the order, not needed for a stop or market order
    * @param quantity the quantity of the order
+   * @param kind the kind of the order (LIMIT, MARKET, STOP or STOP_LIMIT)
+   * @param stopPrice the trigger price of a stop or stop-limit order
+   * @param timeInForce how long the order stays in the book (GTC, IOC, FOK, GTD or DAY)
+   * @param expireTime the time a GTD order expires, as an ISO-8601 instant
+   * @param account the account the order trades for, which its risk limits apply to
    * @return the created order
-   * @throws IllegalArgumentException if the order type is invalid
+   * @throws IllegalArgumentException if the order type is invalid, the prices do not suit the kind,
+   *     or the expire time does not suit the time in force
+   * @throws com.trading.orderbook.risk.RiskRejectedException if the order fails a pre-trade risk
+   *     check
    */
   @PostMapping
   public Order createOrder(
       @RequestParam String symbol,
       @RequestParam String type,
-      @RequestParam BigDecimal price,
-      @RequestParam Integer quantity) {
-    if (type.equals("SELL")) {
-      return orderService.createOrder(new OfferOrder(symbol, price, quantity));
-    } else if (type.equals("BUY")) {
-      return orderService.createOrder(new BidOrder(symbol, price, quantity));
+      @RequestParam(required = false) BigDecimal price,
+      @RequestParam Integer quantity,
+      @RequestParam(defaultValue = "LIMIT") OrderKind kind,
+      @RequestParam(required = false) BigDecimal stopPrice,
+      @RequestParam(defaultValue = "GTC") TimeInForce timeInForce,
+      @RequestParam(required = false) Instant expireTime,
+      @RequestParam(required = false) String account) {
+    return orderService.createOrder(
+        toOrder(symbol, type, price, quantity, kind, stopPrice, timeInForce, expireTime, account));
+  }
+
+  /**
+   * Creates a batch of orders. Each order is checked on its own: one that lacks a symbol or
+   * quantity is returned as {@link com.trading.orderbook.model.OrderStatus#REJECTED}, one with an
+   * unknown side or prices that do not suit its kind is returned without an order, echoing the
+   * request and the reason, and the rest of the batch goes ahead.
+   *
+   * @param requests the orders to create
+   * @return the result of each order with its fills, in request order
+   */
+  @PostMapping("/batch")
+  public List<OrderResult> createOrders(@RequestBody List<OrderRequest> requests) {
+    OrderResult[] results = new OrderResult[requests.size()];
+    List<Order> batch = new ArrayList<>(requests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      OrderRequest request = requests.get(i);
+      try {
+        batch.add(
+            toOrder(
+                request.symbol(),
+                request.type(),
+                request.price(),
+                request.quantity(),
+                request.kind() != null ? request.kind() : OrderKind.LIMIT,
+                request.stopPrice(),
+                request.timeInForce() != null ? request.timeInForce() : TimeInForce.GTC,
+                request.expireTime(),
+                request.account()));
+      } catch (IllegalArgumentException e) {
+        results[i] = OrderResult.rejected(request, e.getMessage());
+      }
+    }
+    Iterator<OrderResult> created = orderService.createOrders(batch).iterator();
+    for (int i = 0; i < results.length; i++) {
+      if (results[i] == null) {
+        results[i] = created.next();
+      }
+    }
+    return Arrays.asList(results);
+  }
+
+  private Order toOrder(
+      String symbol,
+      String type,
+      BigDecimal price,
+      Integer quantity,
+      OrderKind kind,
+      BigDecimal stopPrice,
+      TimeInForce timeInForce,
+      Instant expireTime,
+      String account) {
+    Order order;
+    if ("SELL".equals(type)) {
+      order = new OfferOrder(orderService.nextOrderId(), symbol, kind, price, stopPrice, quantity);
+    } else if ("BUY".equals(type)) {
+      order = new BidOrder(orderService.nextOrderId(), symbol, kind, price, stopPrice, quantity);
     } else {
       throw new IllegalArgumentException("Invalid order type: " + type);
     }
+    order.setTimeInForce(timeInForce);
+    if (expireTime != null) {
+      order.setExpireTime(expireTime.toEpochMilli());
+    }
+    order.setAccount(account);
+    return order;
+  }
+
+  /**
+   * Amends the price and quantity of a resting order. Reducing the quantity at the same price keeps
+   * the order's time priority.
+   *
+   * @param id the ID of the order to amend
+   * @param price the new price of the order
+   * @param quantity the new total quantity of the order, including the quantity already filled
+   * @return the amended order, or a 404 Not Found response if the order does not exist
+   * @throws IllegalStateException if the order no longer rests in the book, answered with 409
+   *     Conflict
+   * @throws IllegalArgumentException if the quantity does not exceed the filled quantity or the
+   *     price is not valid for the book, answered with 400 Bad Request
+   */
+  @PatchMapping("/{id}")
+  public ResponseEntity<Order> amendOrder(
+      @PathVariable String id, @RequestParam BigDecimal price, @RequestParam Integer quantity) {
+    if (orderService.getOrderById(id) == null) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok(orderService.amendOrder(id, price, quantity));
   }
 
   /**
@@ -0,0 +1,40 @@
+package com.trading.orderbook.controller;
+
+import com.trading.orderbook.service.OrderNotRestingException;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns order commands the order book refuses into client errors: invalid requests into 400 Bad
+ * Request, and commands on orders that can no longer take them, such as amending a filled order,
+ * into 409 Conflict.
+ */
+@RestControllerAdvice(assignableTypes = OrderController.class)
+public class OrderExceptionHandler {
+
+  /**
+   * Tells the client what is wrong with the request.
+   *
+   * @param e the rejection
+   * @return 400 Bad Request with the reason
+   */
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ResponseEntity<Map<String, String>> handleInvalid(IllegalArgumentException e) {
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+  }
+
+  /**
+   * Tells the client the order no longer rests in its book. Other illegal states are failures of
+   * the server and are left to the default handling.
+   *
+   * @param e the rejection
+   * @return 409 Conflict with the reason
+   */
+  @ExceptionHandler(OrderNotRestingException.class)
+  public ResponseEntity<Map<String, String>> handleConflict(OrderNotRestingException e) {
+    return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+  }
+}
@@ -0,0 +1,48 @@
+package com.trading.orderbook.controller;
+
+import com.trading.orderbook.replication.ReplicationNode;
+import com.trading.orderbook.replication.ReplicationStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/** REST controller for the replication role of this node. */
+@RestController
+@RequestMapping("/api/replication")
+@ConditionalOnProperty(prefix = "orderbook.replication", name = "enabled", havingValue = "true")
+public class ReplicationController {
+
+  private final ReplicationNode replicationNode;
+
+  /**
+   * Constructs a new ReplicationController with the specified ReplicationNode.
+   *
+   * @param replicationNode the replication node of this instance
+   */
+  public ReplicationController(ReplicationNode replicationNode) {
+    this.replicationNode = replicationNode;
+  }
+
+  /**
+   * Retrieves the replication state of this node.
+   *
+   * @return the role, journal position, primary and connected backups
+   */
+  @GetMapping
+  public ReplicationStatus getStatus() {
+    return replicationNode.getStatus();
+  }
+
+  /**
+   * Promotes this node to primary. Does nothing if it already is the primary.
+   *
+   * @return the replication state after the promotion
+   */
+  @PostMapping("/promote")
+  public ReplicationStatus promote() {
+    replicationNode.promote();
+    return replicationNode.getStatus();
+  }
+}
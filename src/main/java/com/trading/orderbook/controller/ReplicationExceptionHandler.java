@@ -0,0 +1,38 @@
+package com.trading.orderbook.controller;
+
+import com.trading.orderbook.replication.NotPrimaryException;
+import com.trading.orderbook.replication.ReplicationTimeoutException;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/** Turns commands this node cannot acknowledge under replication into 503 Service Unavailable. */
+@RestControllerAdvice
+public class ReplicationExceptionHandler {
+
+  /**
+   * Tells the client where to send commands instead.
+   *
+   * @param e the rejection
+   * @return 503 Service Unavailable with the reason and the primary
+   */
+  @ExceptionHandler(NotPrimaryException.class)
+  public ResponseEntity<Map<String, String>> handleNotPrimary(NotPrimaryException e) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .body(Map.of("error", e.getMessage(), "primary", e.getPrimary()));
+  }
+
+  /**
+   * Tells the client that its command was applied on the primary but not confirmed by the backups.
+   *
+   * @param e the timeout
+   * @return 503 Service Unavailable with the reason and the sequence of the command
+   */
+  @ExceptionHandler(ReplicationTimeoutException.class)
+  public ResponseEntity<Map<String, Object>> handleTimeout(ReplicationTimeoutException e) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .body(Map.of("error", e.getMessage(), "sequence", e.getSequence()));
+  }
+}
@@ -0,0 +1,39 @@
+package com.trading.orderbook.controller;
+
+import com.trading.orderbook.risk.AccountExposure;
+import com.trading.orderbook.risk.RiskEngine;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/** REST controller for the exposure counted by the pre-trade risk checks. */
+@RestController
+@RequestMapping("/api/risk")
+@ConditionalOnProperty(prefix = "orderbook.risk", name = "enabled", havingValue = "true")
+public class RiskController {
+
+  private final RiskEngine riskEngine;
+
+  /**
+   * Constructs a new RiskController with the specified RiskEngine.
+   *
+   * @param riskEngine the risk engine that counts exposure
+   */
+  public RiskController(RiskEngine riskEngine) {
+    this.riskEngine = riskEngine;
+  }
+
+  /**
+   * Retrieves the exposure of an account.
+   *
+   * @param account the account
+   * @return the position and working quantity of the account in each symbol
+   */
+  @GetMapping("/accounts/{account}")
+  public List<AccountExposure> getExposure(@PathVariable String account) {
+    return riskEngine.getExposure(account);
+  }
+}
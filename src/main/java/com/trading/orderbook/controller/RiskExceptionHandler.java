@@ -0,0 +1,25 @@
+package com.trading.orderbook.controller;
+
+import com.trading.orderbook.risk.RiskRejectedException;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/** Turns orders rejected by a pre-trade risk check into 422 Unprocessable Entity responses. */
+@RestControllerAdvice
+public class RiskExceptionHandler {
+
+  /**
+   * Tells the client which check the order failed.
+   *
+   * @param e the rejection
+   * @return 422 Unprocessable Entity with the reason and the failed check
+   */
+  @ExceptionHandler(RiskRejectedException.class)
+  public ResponseEntity<Map<String, String>> handleRejected(RiskRejectedException e) {
+    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+        .body(Map.of("error", e.getMessage(), "check", e.getCheck().name()));
+  }
+}
@@ -0,0 +1,76 @@
+package com.trading.orderbook.controller;
+
+import com.trading.orderbook.sequencer.Sequencer;
+import com.trading.orderbook.sequencer.ShardStats;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/** REST controller for the matching shards of the sequencer and the symbols assigned to them. */
+@RestController
+@RequestMapping("/api/shards")
+@ConditionalOnProperty(prefix = "orderbook.sequencer", name = "enabled", havingValue = "true")
+public class ShardController {
+
+  private final Sequencer sequencer;
+
+  /**
+   * Constructs a new ShardController with the specified Sequencer.
+   *
+   * @param sequencer the sequencer that owns the shards
+   */
+  public ShardController(Sequencer sequencer) {
+    this.sequencer = sequencer;
+  }
+
+  /**
+   * Retrieves the activity of every shard.
+   *
+   * @return the statistics of each shard
+   */
+  @GetMapping
+  public List<ShardStats> getShardStats() {
+    return sequencer.getShardStats();
+  }
+
+  /**
+   * Moves a symbol to another shard.
+   *
+   * @param symbol the symbol to move
+   * @param shard the index of the new shard
+   * @return 204 No Content, 404 Not Found if the symbol has not run any command yet, or 400 Bad
+   *     Request if the shard does not exist
+   */
+  @PutMapping("/symbols/{symbol}")
+  public ResponseEntity<Void> moveSymbol(@PathVariable String symbol, @RequestParam int shard) {
+    if (shard < 0 || shard >= sequencer.getShardCount()) {
+      return ResponseEntity.badRequest().build();
+    }
+    if (!sequencer.move(symbol, shard)) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.noContent().build();
+  }
+
+  /**
+   * Moves the most active symbol of the busiest shard to the idlest one if the shards are out of
+   * balance.
+   *
+   * @return the symbol moved, or null if the shards are balanced
+   */
+  @PostMapping("/rebalance")
+  public Map<String, String> rebalance() {
+    Map<String, String> result = new HashMap<>();
+    result.put("moved", sequencer.rebalance());
+    return result;
+  }
+}
@@ -0,0 +1,36 @@
+package com.trading.orderbook.controller;
+
+import com.trading.orderbook.snapshot.SnapshotService;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/** REST controller for writing order book snapshots on demand. */
+@RestController
+@RequestMapping("/api/snapshots")
+@ConditionalOnProperty(prefix = "orderbook.snapshot", name = "enabled", havingValue = "true")
+public class SnapshotController {
+
+  private final SnapshotService snapshotService;
+
+  /**
+   * Constructs a new SnapshotController with the specified SnapshotService.
+   *
+   * @param snapshotService the service that writes snapshots
+   */
+  public SnapshotController(SnapshotService snapshotService) {
+    this.snapshotService = snapshotService;
+  }
+
+  /**
+   * Writes a snapshot of every order book.
+   *
+   * @return the name of the snapshot file
+   */
+  @PostMapping
+  public Map<String, String> createSnapshot() {
+    return Map.of("snapshot", snapshotService.snapshot().getFileName().toString());
+  }
+}
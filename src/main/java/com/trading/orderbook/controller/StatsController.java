@@ -0,0 +1,41 @@
+package com.trading.orderbook.controller;
+
+import com.trading.orderbook.metrics.OrderBookMetrics;
+import com.trading.orderbook.metrics.SymbolStats;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/** REST controller for order book latency and activity statistics. */
+@RestController
+@RequestMapping("/api/stats")
+@ConditionalOnProperty(
+    prefix = "orderbook.metrics",
+    name = "enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+public class StatsController {
+
+  private final OrderBookMetrics metrics;
+
+  /**
+   * Constructs a new StatsController with the specified OrderBookMetrics.
+   *
+   * @param metrics the metrics of the order books
+   */
+  public StatsController(OrderBookMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Retrieves the statistics of every order book that ran a command.
+   *
+   * @return the statistics by symbol
+   */
+  @GetMapping
+  public Map<String, SymbolStats> getStats() {
+    return metrics.stats();
+  }
+}
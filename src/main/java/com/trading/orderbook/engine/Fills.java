@@ -0,0 +1,168 @@
+package com.trading.orderbook.engine;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of the fills of one order submitted to a {@link MatchingEngine}. The engine
+ * clears and refills the buffer on every submit and amend, so a caller keeps one instance and reads
+ * it after each call. The buffer only grows when an order fills more makers than ever before.
+ */
+public final class Fills {
+
+  private long takerOrderId;
+  private long[] makerOrderIds;
+  private long[] makerTags;
+  private int[] makerAccounts;
+  private long[] makerQuantities;
+  private long[] makerUnfilledQuantities;
+  private long[] priceTicks;
+  private long[] quantities;
+  private int count;
+  private long totalQuantity;
+
+  /** Constructs an empty buffer. */
+  public Fills() {
+    this(16);
+  }
+
+  /**
+   * Constructs an empty buffer.
+   *
+   * @param capacity the number of fills the buffer holds before it grows
+   */
+  public Fills(int capacity) {
+    makerOrderIds = new long[capacity];
+    makerTags = new long[capacity];
+    makerAccounts = new int[capacity];
+    makerQuantities = new long[capacity];
+    makerUnfilledQuantities = new long[capacity];
+    priceTicks = new long[capacity];
+    quantities = new long[capacity];
+  }
+
+  void reset(long takerOrderId) {
+    this.takerOrderId = takerOrderId;
+    count = 0;
+    totalQuantity = 0;
+  }
+
+  void add(OrderPool pool, int maker, long priceTicks, long quantity) {
+    if (count == makerOrderIds.length) {
+      int capacity = Math.max(16, count * 2);
+      makerOrderIds = Arrays.copyOf(makerOrderIds, capacity);
+      makerTags = Arrays.copyOf(makerTags, capacity);
+      makerAccounts = Arrays.copyOf(makerAccounts, capacity);
+      makerQuantities = Arrays.copyOf(makerQuantities, capacity);
+      makerUnfilledQuantities = Arrays.copyOf(makerUnfilledQuantities, capacity);
+      this.priceTicks = Arrays.copyOf(this.priceTicks, capacity);
+      quantities = Arrays.copyOf(quantities, capacity);
+    }
+    makerOrderIds[count] = pool.id(maker);
+    makerTags[count] = pool.tag(maker);
+    makerAccounts[count] = pool.account(maker);
+    makerQuantities[count] = pool.quantity(maker);
+    makerUnfilledQuantities[count] = pool.unfilledQuantity(maker);
+    this.priceTicks[count] = priceTicks;
+    quantities[count] = quantity;
+    count++;
+    totalQuantity += quantity;
+  }
+
+  /**
+   * Returns the ID of the submitted order these fills belong to.
+   *
+   * @return the taker order ID
+   */
+  public long takerOrderId() {
+    return takerOrderId;
+  }
+
+  /**
+   * Returns the number of fills.
+   *
+   * @return the number of fills
+   */
+  public int count() {
+    return count;
+  }
+
+  /**
+   * Returns the quantity filled over all fills.
+   *
+   * @return the total filled quantity
+   */
+  public long totalQuantity() {
+    return totalQuantity;
+  }
+
+  /**
+   * Returns the ID of the resting order of a fill.
+   *
+   * @param index the index of the fill, in execution order
+   * @return the maker order ID
+   */
+  public long makerOrderId(int index) {
+    return makerOrderIds[index];
+  }
+
+  /**
+   * Returns the tag of the resting order of a fill.
+   *
+   * @param index the index of the fill, in execution order
+   * @return the maker tag
+   */
+  public long makerTag(int index) {
+    return makerTags[index];
+  }
+
+  /**
+   * Returns the account number of the resting order of a fill.
+   *
+   * @param index the index of the fill, in execution order
+   * @return the maker account number
+   */
+  public int makerAccount(int index) {
+    return makerAccounts[index];
+  }
+
+  /**
+   * Returns the total quantity of the resting order of a fill.
+   *
+   * @param index the index of the fill, in execution order
+   * @return the maker quantity
+   */
+  public long makerQuantity(int index) {
+    return makerQuantities[index];
+  }
+
+  /**
+   * Returns the unfilled quantity the resting order of a fill has left after it, 0 if the fill
+   * completed the order.
+   *
+   * @param index the index of the fill, in execution order
+   * @return the maker unfilled quantity
+   */
+  public long makerUnfilledQuantity(int index) {
+    return makerUnfilledQuantities[index];
+  }
+
+  /**
+   * Returns the execution price of a fill.
+   *
+   * @param index the index of the fill, in execution order
+   * @return the price in ticks
+   */
+  public long priceTicks(int index) {
+    return priceTicks[index];
+  }
+
+  /**
+   * Returns the executed quantity of a fill.
+   *
+   * @param index the index of the fill, in execution order
+   * @return the quantity
+   */
+  public long quantity(int index) {
+    return quantities[index];
+  }
+}
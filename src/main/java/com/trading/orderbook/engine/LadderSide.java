@@ -0,0 +1,258 @@
+package com.trading.orderbook.engine;
+
+import static com.trading.orderbook.engine.OrderPool.NONE;
+
+import java.util.Arrays;
+
+/**
+ * One side of a {@link MatchingEngine} book: a ring of price levels indexed by {@code ticks &
+ * mask}, each level a FIFO queue of pool slots linked through the {@code prev} and {@code next}
+ * fields of their records. Levels are plain array entries, so queuing, filling and removing orders
+ * never allocates. Like the price ladder order book, the arrays only grow when the distance between
+ * the lowest and highest active level exceeds their capacity, and never beyond {@link #MAX_SPAN}
+ * ticks, so a single order priced far from the others cannot make them grow without bound. Callers
+ * check with {@link #fits(long)} before they change anything.
+ */
+final class LadderSide {
+
+  /** The largest distance in ticks between the lowest and highest level of a side. */
+  static final int MAX_SPAN = 1 << 20;
+
+  private final boolean bid;
+  private final OrderPool pool;
+  private long[] levelTicks;
+  private int[] heads;
+  private int[] tails;
+  private long[] quantities;
+  private int[] orderCounts;
+  private int mask;
+  private int levelCount;
+  private long minTicks;
+  private long maxTicks;
+
+  /**
+   * Constructs an empty side.
+   *
+   * @param bid true for the bid side, false for the offer side
+   * @param pool the pool holding the orders
+   * @param capacity the initial number of tick slots, rounded up to a power of two
+   */
+  LadderSide(boolean bid, OrderPool pool, int capacity) {
+    if (capacity <= 0 || capacity > MAX_SPAN) {
+      throw new IllegalArgumentException(
+          "Ladder capacity must be positive and at most " + MAX_SPAN + ": " + capacity);
+    }
+    this.bid = bid;
+    this.pool = pool;
+    allocate(capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+  }
+
+  private void allocate(int size) {
+    levelTicks = new long[size];
+    heads = new int[size];
+    tails = new int[size];
+    quantities = new long[size];
+    orderCounts = new int[size];
+    Arrays.fill(heads, NONE);
+    Arrays.fill(tails, NONE);
+    mask = size - 1;
+  }
+
+  /**
+   * Returns the number of active price levels.
+   *
+   * @return the number of levels
+   */
+  int levelCount() {
+    return levelCount;
+  }
+
+  /**
+   * Returns the price of the best level: the highest bid or the lowest offer.
+   *
+   * @return the best price in ticks; only valid if the side has levels
+   */
+  long bestTicks() {
+    return bid ? maxTicks : minTicks;
+  }
+
+  /**
+   * Returns the first order of the level at a price.
+   *
+   * @param ticks the price of the level
+   * @return the slot of the order, or {@link OrderPool#NONE} if the level is empty
+   */
+  int head(long ticks) {
+    int index = (int) (ticks & mask);
+    return levelTicks[index] == ticks ? heads[index] : NONE;
+  }
+
+  /**
+   * Returns the total unfilled quantity at a price.
+   *
+   * @param ticks the price of the level
+   * @return the quantity, or 0 if the level is empty
+   */
+  long quantity(long ticks) {
+    int index = (int) (ticks & mask);
+    return levelTicks[index] == ticks && heads[index] != NONE ? quantities[index] : 0;
+  }
+
+  /**
+   * Returns the number of orders queued at a price.
+   *
+   * @param ticks the price of the level
+   * @return the number of orders, or 0 if the level is empty
+   */
+  int orderCount(long ticks) {
+    int index = (int) (ticks & mask);
+    return levelTicks[index] == ticks && heads[index] != NONE ? orderCounts[index] : 0;
+  }
+
+  /**
+   * Returns the price of the level behind a level, moving away from the best price.
+   *
+   * @param ticks the price of an active level
+   * @return the price of the next level in ticks, or 0 if the level is the worst of the side
+   */
+  long nextTicks(long ticks) {
+    if (bid ? ticks <= minTicks : ticks >= maxTicks) {
+      return 0;
+    }
+    long next = bid ? ticks - 1 : ticks + 1;
+    while (heads[(int) (next & mask)] == NONE) {
+      next = bid ? next - 1 : next + 1;
+    }
+    return next;
+  }
+
+  /**
+   * Returns whether an order at a price can be appended without the side spanning more than {@link
+   * #MAX_SPAN} ticks.
+   *
+   * @param ticks the price of the order
+   * @return true if the side can take the order
+   */
+  boolean fits(long ticks) {
+    return levelCount == 0 || Math.max(ticks, maxTicks) - Math.min(ticks, minTicks) < MAX_SPAN;
+  }
+
+  /**
+   * Appends an order to the back of the level at its price.
+   *
+   * @param slot the slot of the order
+   * @throws IllegalArgumentException if the side would span {@link #MAX_SPAN} ticks or more, see
+   *     {@link #fits(long)}
+   */
+  void append(int slot) {
+    long ticks = pool.priceTicks(slot);
+    if (levelCount == 0) {
+      minTicks = ticks;
+      maxTicks = ticks;
+    } else if (ticks < minTicks || ticks > maxTicks) {
+      long low = Math.min(ticks, minTicks);
+      long high = Math.max(ticks, maxTicks);
+      if (high - low >= heads.length) {
+        grow(high - low);
+      }
+      minTicks = low;
+      maxTicks = high;
+    }
+    int index = (int) (ticks & mask);
+    int tail = tails[index];
+    pool.setPrev(slot, tail);
+    pool.setNext(slot, NONE);
+    if (heads[index] == NONE) {
+      heads[index] = slot;
+      levelTicks[index] = ticks;
+      quantities[index] = 0;
+      orderCounts[index] = 0;
+      levelCount++;
+    } else {
+      pool.setNext(tail, slot);
+    }
+    tails[index] = slot;
+    quantities[index] += pool.unfilledQuantity(slot);
+    orderCounts[index]++;
+  }
+
+  /**
+   * Records a fill against an order queued on this side.
+   *
+   * @param slot the slot of the filled order
+   * @param quantity the quantity filled
+   */
+  void filled(int slot, long quantity) {
+    pool.setUnfilledQuantity(slot, pool.unfilledQuantity(slot) - quantity);
+    quantities[(int) (pool.priceTicks(slot) & mask)] -= quantity;
+  }
+
+  /**
+   * Unlinks an order from its level, removing the level if it becomes empty.
+   *
+   * @param slot the slot of the order
+   */
+  void remove(int slot) {
+    long ticks = pool.priceTicks(slot);
+    int index = (int) (ticks & mask);
+    int prev = pool.prev(slot);
+    int next = pool.next(slot);
+    if (prev == NONE) {
+      heads[index] = next;
+    } else {
+      pool.setNext(prev, next);
+    }
+    if (next == NONE) {
+      tails[index] = prev;
+    } else {
+      pool.setPrev(next, prev);
+    }
+    quantities[index] -= pool.unfilledQuantity(slot);
+    orderCounts[index]--;
+    if (heads[index] == NONE) {
+      removeLevel(ticks);
+    }
+  }
+
+  private void removeLevel(long ticks) {
+    levelCount--;
+    if (levelCount == 0) {
+      return;
+    }
+    if (ticks == minTicks) {
+      long next = minTicks + 1;
+      while (heads[(int) (next & mask)] == NONE) {
+        next++;
+      }
+      minTicks = next;
+    } else if (ticks == maxTicks) {
+      long next = maxTicks - 1;
+      while (heads[(int) (next & mask)] == NONE) {
+        next--;
+      }
+      maxTicks = next;
+    }
+  }
+
+  private void grow(long span) {
+    if (span >= MAX_SPAN) {
+      throw new IllegalArgumentException("Price range of " + span + " ticks exceeds the ladder");
+    }
+    long[] previousTicks = levelTicks;
+    int[] previousHeads = heads;
+    int[] previousTails = tails;
+    long[] previousQuantities = quantities;
+    int[] previousOrderCounts = orderCounts;
+    allocate(Integer.highestOneBit((int) span) << 1);
+    for (int i = 0; i < previousHeads.length; i++) {
+      if (previousHeads[i] != NONE) {
+        int index = (int) (previousTicks[i] & mask);
+        levelTicks[index] = previousTicks[i];
+        heads[index] = previousHeads[i];
+        tails[index] = previousTails[i];
+        quantities[index] = previousQuantities[i];
+        orderCounts[index] = previousOrderCounts[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package com.trading.orderbook.engine;
+
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Open-addressing map from long keys other than 0, which marks an empty entry, to int values, with
+ * linear probing and backward-shift deletion so removals leave no tombstones. Operations never
+ * allocate. The table is a pair of arrays on the heap, or one native memory segment of key and
+ * value entries off the heap.
+ */
+abstract class LongIntHashMap {
+
+  private static final long EMPTY = 0;
+
+  private final int mask;
+  private final int shift;
+
+  private LongIntHashMap(int capacity) {
+    mask = capacity - 1;
+    shift = Long.numberOfLeadingZeros(capacity - 1);
+  }
+
+  /**
+   * Creates a map.
+   *
+   * @param expectedSize the maximum number of entries; the table is kept at most half full
+   * @param storage where the table lives
+   * @param arena the arena of an off-heap table, unused on the heap
+   * @return the map
+   */
+  static LongIntHashMap create(int expectedSize, OrderStorage storage, Arena arena) {
+    int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+    return storage == OrderStorage.OFF_HEAP ? new OffHeap(capacity, arena) : new Heap(capacity);
+  }
+
+  abstract long key(int index);
+
+  abstract int value(int index);
+
+  abstract void set(int index, long key, int value);
+
+  private int home(long key) {
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+  }
+
+  /**
+   * Associates a value with a key that is not in the map.
+   *
+   * @param key the key, which must not be 0
+   * @param value the value
+   */
+  final void put(long key, int value) {
+    int index = home(key);
+    while (key(index) != EMPTY) {
+      index = (index + 1) & mask;
+    }
+    set(index, key, value);
+  }
+
+  /**
+   * Returns the value of a key.
+   *
+   * @param key the key
+   * @return the value, or {@link OrderPool#NONE} if the key is not in the map
+   */
+  final int get(long key) {
+    for (int index = home(key); key(index) != EMPTY; index = (index + 1) & mask) {
+      if (key(index) == key) {
+        return value(index);
+      }
+    }
+    return OrderPool.NONE;
+  }
+
+  /**
+   * Removes a key.
+   *
+   * @param key the key
+   * @return the value the key had, or {@link OrderPool#NONE} if the key was not in the map
+   */
+  final int remove(long key) {
+    if (key == EMPTY) {
+      return OrderPool.NONE;
+    }
+    int index = home(key);
+    while (key(index) != key) {
+      if (key(index) == EMPTY) {
+        return OrderPool.NONE;
+      }
+      index = (index + 1) & mask;
+    }
+    int value = value(index);
+    // shift back the entries of the probe run that follows, so no lookup stops early
+    int hole = index;
+    for (int next = (hole + 1) & mask; key(next) != EMPTY; next = (next + 1) & mask) {
+      long nextKey = key(next);
+      int home = home(nextKey);
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        set(hole, nextKey, value(next));
+        hole = next;
+      }
+    }
+    set(hole, EMPTY, OrderPool.NONE);
+    return value;
+  }
+
+  /** Table of parallel key and value arrays on the heap. */
+  private static final class Heap extends LongIntHashMap {
+    private final long[] keys;
+    private final int[] values;
+
+    private Heap(int capacity) {
+      super(capacity);
+      keys = new long[capacity];
+      values = new int[capacity];
+    }
+
+    @Override
+    long key(int index) {
+      return keys[index];
+    }
+
+    @Override
+    int value(int index) {
+      return values[index];
+    }
+
+    @Override
+    void set(int index, long key, int value) {
+      keys[index] = key;
+      values[index] = value;
+    }
+  }
+
+  /** Table of 16-byte key and value entries in native memory. */
+  private static final class OffHeap extends LongIntHashMap {
+    private static final long VALUE = 8;
+    private static final long ENTRY_BYTES = 16;
+
+    private final MemorySegment table;
+
+    private OffHeap(int capacity, Arena arena) {
+      super(capacity);
+      table = arena.allocate(capacity * ENTRY_BYTES, Long.BYTES);
+    }
+
+    @Override
+    long key(int index) {
+      return table.get(JAVA_LONG, index * ENTRY_BYTES);
+    }
+
+    @Override
+    int value(int index) {
+      return table.get(JAVA_INT, index * ENTRY_BYTES + VALUE);
+    }
+
+    @Override
+    void set(int index, long key, int value) {
+      table.set(JAVA_LONG, index * ENTRY_BYTES, key);
+      table.set(JAVA_INT, index * ENTRY_BYTES + VALUE, value);
+    }
+  }
+}
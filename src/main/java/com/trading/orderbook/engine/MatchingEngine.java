@@ -0,0 +1,456 @@
+package com.trading.orderbook.engine;
+
+import static com.trading.orderbook.engine.OrderPool.NONE;
+
+import com.trading.orderbook.model.OrderType;
+import java.lang.foreign.Arena;
+import java.util.function.Consumer;
+
+/**
+ * Allocation-free price-time priority matching engine for one symbol. Orders live in a
+ * pre-allocated {@link OrderPool} with primitive fields for price in ticks and quantities, ids come
+ * from a monotonic sequence, fills are written into a caller-owned {@link Fills} buffer, and price
+ * levels are entries of primitive arrays. Once warmed up, submitting, matching and cancelling do
+ * not allocate.
+ *
+ * <p>Matching follows the same rules as {@code OrderBook}: an order fills against the best opposite
+ * level first, each level in time priority, at the resting price, and any remainder rests. Amends
+ * keep or lose time priority the same way too. Callers with IDs of their own, such as {@link
+ * com.trading.orderbook.model.EngineOrderBook}, submit orders under them and keep a tag and an
+ * account number with each order.
+ *
+ * <p>Resting orders are pool slots linked into their level queues by slot index, and the index from
+ * order id to slot is an open-addressing table. With {@link OrderStorage#OFF_HEAP} both are
+ * fixed-width records in native memory, so a book of millions of resting orders adds nothing to the
+ * Java heap or to the work of the garbage collector; callers see an order only through an {@link
+ * OrderFlyweight} handle. Such an engine must be closed to free its memory.
+ *
+ * <p>Each side spans at most {@link #MAX_PRICE_SPAN} ticks from its lowest to its highest level.
+ * Commands refuse an order that would stretch its side further before they change anything, and
+ * {@link #checkPrice(OrderType, long)} and {@link #isFull()} let callers refuse it even earlier.
+ *
+ * <p>An engine is not thread safe. It is meant to be owned by a single thread, such as a matching
+ * shard.
+ */
+public final class MatchingEngine implements AutoCloseable {
+
+  /** The largest distance in ticks between the lowest and highest resting price of a side. */
+  public static final int MAX_PRICE_SPAN = LadderSide.MAX_SPAN;
+
+  private final String symbol;
+  private final Arena arena;
+  private final OrderPool pool;
+  private final LongIntHashMap slotsById;
+  private final LadderSide bids;
+  private final LadderSide offers;
+  private long nextOrderId = 1;
+
+  /**
+   * Constructs an empty engine.
+   *
+   * @param symbol the symbol traded in the engine
+   * @param orderCapacity the maximum number of resting orders
+   * @param ladderCapacity the initial number of tick slots per side, at most {@link
+   *     #MAX_PRICE_SPAN}
+   */
+  public MatchingEngine(String symbol, int orderCapacity, int ladderCapacity) {
+    this(symbol, orderCapacity, ladderCapacity, OrderStorage.HEAP);
+  }
+
+  /**
+   * Constructs an empty engine with the given order storage.
+   *
+   * @param symbol the symbol traded in the engine
+   * @param orderCapacity the maximum number of resting orders
+   * @param ladderCapacity the initial number of tick slots per side, at most {@link
+   *     #MAX_PRICE_SPAN}
+   * @param storage where resting orders and the id index live
+   */
+  public MatchingEngine(
+      String symbol, int orderCapacity, int ladderCapacity, OrderStorage storage) {
+    this.symbol = symbol;
+    // shared, so the engine may be built on one thread and handed to the thread that owns it
+    arena = storage == OrderStorage.OFF_HEAP ? Arena.ofShared() : null;
+    try {
+      pool = OrderPool.create(orderCapacity, storage, arena);
+      slotsById = LongIntHashMap.create(orderCapacity, storage, arena);
+      bids = new LadderSide(true, pool, ladderCapacity);
+      offers = new LadderSide(false, pool, ladderCapacity);
+    } catch (RuntimeException | Error e) {
+      if (arena != null) {
+        arena.close();
+      }
+      throw e;
+    }
+  }
+
+  public String getSymbol() {
+    return symbol;
+  }
+
+  /**
+   * Submits a limit order: matches it against the opposite side and rests any unfilled quantity.
+   * The engine assigns the order the next of its own IDs.
+   *
+   * @param side the side of the order
+   * @param priceTicks the limit price, in ticks
+   * @param quantity the quantity
+   * @param fills the buffer that receives the fills of the order
+   * @return the ID assigned to the order
+   * @throws IllegalArgumentException if the price or quantity is not positive, or the price does
+   *     not fit the side, see {@link #checkPrice(OrderType, long)}
+   * @throws IllegalStateException if the pool has no room for another resting order
+   */
+  public long submit(OrderType side, long priceTicks, long quantity, Fills fills) {
+    long id = nextOrderId;
+    submit(id, 0, 0, side, priceTicks, quantity, true, fills);
+    nextOrderId++;
+    return id;
+  }
+
+  /**
+   * Submits a limit order under an ID chosen by the caller: matches it against the opposite side
+   * and rests any unfilled quantity if asked to. A tag and an account number are stored with the
+   * order without being interpreted, and reported with its fills and through {@link
+   * OrderFlyweight}, so a caller can map the order back to its own. Callers that choose their own
+   * IDs should not also submit orders under generated ones.
+   *
+   * @param orderId the ID of the order, not 0
+   * @param tag a value stored with the order
+   * @param account an account number stored with the order
+   * @param side the side of the order
+   * @param priceTicks the limit price, in ticks
+   * @param quantity the quantity
+   * @param rest true to rest the unfilled quantity, false to drop it like an IOC order does
+   * @param fills the buffer that receives the fills of the order
+   * @return the unfilled quantity of the order after matching
+   * @throws IllegalArgumentException if the ID is 0 or that of a resting order, the price or
+   *     quantity is not positive, or the unfilled quantity would rest at a price that does not fit
+   *     the side, see {@link #checkPrice(OrderType, long)}
+   * @throws IllegalStateException if the pool has no room for another resting order
+   */
+  public long submit(
+      long orderId,
+      long tag,
+      int account,
+      OrderType side,
+      long priceTicks,
+      long quantity,
+      boolean rest,
+      Fills fills) {
+    checkNew(orderId, priceTicks, quantity);
+    boolean buy = side == OrderType.BUY;
+    if (rest) {
+      // refused before it trades, since what is left of it might not fit the side
+      checkPrice(side, priceTicks);
+    }
+    // take the slot first, so an exhausted pool rejects the order before it trades
+    int slot = pool.allocate();
+    pool.setId(slot, orderId);
+    pool.setTag(slot, tag);
+    pool.setAccount(slot, account);
+    pool.setPriceTicks(slot, priceTicks);
+    pool.setQuantity(slot, quantity);
+    pool.setUnfilledQuantity(slot, quantity);
+    pool.setBuy(slot, buy);
+
+    fills.reset(orderId);
+    match(slot, buy ? offers : bids, buy, fills);
+    long unfilled = pool.unfilledQuantity(slot);
+    if (unfilled == 0 || !rest) {
+      pool.release(slot);
+    } else {
+      (buy ? bids : offers).append(slot);
+      slotsById.put(orderId, slot);
+    }
+    return unfilled;
+  }
+
+  /**
+   * Amends the price and total quantity of a resting order. A quantity reduction at the same price
+   * happens in place and keeps the order's time priority. Any other amend matches the order like a
+   * new order at the new price and queues what is left behind the orders already resting there.
+   *
+   * @param orderId the ID of the order
+   * @param priceTicks the new price, in ticks
+   * @param quantity the new total quantity, including the quantity already filled
+   * @param fills the buffer that receives the fills of the amended order
+   * @return true if the order was resting and is amended, false if it is unknown, filled or
+   *     cancelled
+   * @throws IllegalArgumentException if the price is not positive or does not fit the side, see
+   *     {@link #checkPrice(OrderType, long)}, or the quantity does not exceed the filled quantity
+   */
+  public boolean amend(long orderId, long priceTicks, long quantity, Fills fills) {
+    int slot = slotsById.get(orderId);
+    if (slot == NONE) {
+      return false;
+    }
+    long unfilled = quantity - (pool.quantity(slot) - pool.unfilledQuantity(slot));
+    if (priceTicks <= 0 || unfilled <= 0) {
+      throw new IllegalArgumentException(
+          "Price must be positive and quantity must exceed the filled quantity: "
+              + priceTicks
+              + ", "
+              + quantity);
+    }
+    boolean buy = pool.buy(slot);
+    LadderSide own = buy ? bids : offers;
+    if (!own.fits(priceTicks)) {
+      throw new IllegalArgumentException(outsideSpan(priceTicks));
+    }
+    fills.reset(orderId);
+    if (priceTicks == pool.priceTicks(slot) && unfilled <= pool.unfilledQuantity(slot)) {
+      // the reduction leaves the level like a fill of the difference would
+      own.filled(slot, pool.unfilledQuantity(slot) - unfilled);
+      pool.setQuantity(slot, quantity);
+      return true;
+    }
+    own.remove(slot);
+    pool.setPriceTicks(slot, priceTicks);
+    pool.setQuantity(slot, quantity);
+    pool.setUnfilledQuantity(slot, unfilled);
+    match(slot, buy ? offers : bids, buy, fills);
+    if (pool.unfilledQuantity(slot) == 0) {
+      slotsById.remove(orderId);
+      pool.release(slot);
+    } else {
+      own.append(slot);
+    }
+    return true;
+  }
+
+  /**
+   * Puts an order back at the end of its price level without matching it. Used to rebuild an engine
+   * from a copy of its resting orders taken in priority order.
+   *
+   * @param orderId the ID of the order, not 0
+   * @param tag the tag of the order
+   * @param account the account number of the order
+   * @param side the side of the order
+   * @param priceTicks the limit price, in ticks
+   * @param quantity the total quantity
+   * @param unfilledQuantity the unfilled quantity
+   * @throws IllegalArgumentException if the ID is 0 or that of a resting order, the price or
+   *     unfilled quantity is not positive, or the unfilled quantity exceeds the quantity
+   * @throws IllegalStateException if the pool has no room for another resting order
+   */
+  public void restore(
+      long orderId,
+      long tag,
+      int account,
+      OrderType side,
+      long priceTicks,
+      long quantity,
+      long unfilledQuantity) {
+    checkNew(orderId, priceTicks, unfilledQuantity);
+    if (unfilledQuantity > quantity) {
+      throw new IllegalArgumentException(
+          "Unfilled quantity " + unfilledQuantity + " exceeds the quantity " + quantity);
+    }
+    int slot = pool.allocate();
+    boolean buy = side == OrderType.BUY;
+    pool.setId(slot, orderId);
+    pool.setTag(slot, tag);
+    pool.setAccount(slot, account);
+    pool.setPriceTicks(slot, priceTicks);
+    pool.setQuantity(slot, quantity);
+    pool.setUnfilledQuantity(slot, unfilledQuantity);
+    pool.setBuy(slot, buy);
+    (buy ? bids : offers).append(slot);
+    slotsById.put(orderId, slot);
+  }
+
+  /**
+   * Checks that an order could rest at a price without its side spanning {@link #MAX_PRICE_SPAN}
+   * ticks or more, so callers can refuse it before they submit it. A resting order that is amended
+   * is counted at its current price as well.
+   *
+   * @param side the side of the order
+   * @param priceTicks the price of the order, in ticks
+   * @throws IllegalArgumentException if the side cannot take an order at the price
+   */
+  public void checkPrice(OrderType side, long priceTicks) {
+    if (!(side == OrderType.BUY ? bids : offers).fits(priceTicks)) {
+      throw new IllegalArgumentException(outsideSpan(priceTicks));
+    }
+  }
+
+  private static String outsideSpan(long priceTicks) {
+    return "Price of "
+        + priceTicks
+        + " ticks is "
+        + MAX_PRICE_SPAN
+        + " ticks or more away from the other orders of its side";
+  }
+
+  /**
+   * Returns whether the pool has no room for another order. Every submitted order takes a slot
+   * while it matches, so a full engine refuses even an order that would not rest.
+   *
+   * @return true if the next submit would throw {@link IllegalStateException}
+   */
+  public boolean isFull() {
+    return pool.isFull();
+  }
+
+  private void checkNew(long orderId, long priceTicks, long quantity) {
+    if (priceTicks <= 0 || quantity <= 0) {
+      throw new IllegalArgumentException(
+          "Price and quantity must be positive: " + priceTicks + ", " + quantity);
+    }
+    if (orderId == 0 || slotsById.get(orderId) != NONE) {
+      throw new IllegalArgumentException("Order ID is 0 or already resting: " + orderId);
+    }
+  }
+
+  private void match(int taker, LadderSide opposite, boolean buy, Fills fills) {
+    long limit = pool.priceTicks(taker);
+    long unfilled = pool.unfilledQuantity(taker);
+    while (unfilled > 0 && opposite.levelCount() > 0) {
+      long ticks = opposite.bestTicks();
+      if (buy ? ticks > limit : ticks < limit) {
+        break;
+      }
+      int maker;
+      while (unfilled > 0 && (maker = opposite.head(ticks)) != NONE) {
+        long quantity = Math.min(pool.unfilledQuantity(maker), unfilled);
+        opposite.filled(maker, quantity);
+        unfilled -= quantity;
+        fills.add(pool, maker, ticks, quantity);
+        if (pool.unfilledQuantity(maker) == 0) {
+          opposite.remove(maker);
+          slotsById.remove(pool.id(maker));
+          pool.release(maker);
+        }
+      }
+    }
+    pool.setUnfilledQuantity(taker, unfilled);
+  }
+
+  /**
+   * Cancels a resting order.
+   *
+   * @param orderId the ID of the order
+   * @return true if the order was resting and is now cancelled
+   */
+  public boolean cancel(long orderId) {
+    int slot = slotsById.remove(orderId);
+    if (slot == NONE) {
+      return false;
+    }
+    (pool.buy(slot) ? bids : offers).remove(slot);
+    pool.release(slot);
+    return true;
+  }
+
+  /**
+   * Points a flyweight at a resting order.
+   *
+   * @param orderId the ID of the order
+   * @param flyweight the flyweight to point at the order
+   * @return true if the order is resting, false if it is unknown, filled or cancelled
+   */
+  public boolean order(long orderId, OrderFlyweight flyweight) {
+    int slot = slotsById.get(orderId);
+    if (slot == NONE) {
+      return false;
+    }
+    flyweight.wrap(pool, slot);
+    return true;
+  }
+
+  /**
+   * Returns the best price of a side.
+   *
+   * @param side the side
+   * @return the highest bid or lowest offer in ticks, or 0 if the side is empty
+   */
+  public long bestPrice(OrderType side) {
+    LadderSide ladder = side == OrderType.BUY ? bids : offers;
+    return ladder.levelCount() == 0 ? 0 : ladder.bestTicks();
+  }
+
+  /**
+   * Returns the total unfilled quantity resting at a price.
+   *
+   * @param side the side
+   * @param priceTicks the price in ticks
+   * @return the quantity, or 0 if no order rests at the price
+   */
+  public long quantityAt(OrderType side, long priceTicks) {
+    return (side == OrderType.BUY ? bids : offers).quantity(priceTicks);
+  }
+
+  /**
+   * Returns the price of the level behind a level, moving away from the best price, so callers can
+   * walk the levels of a side from {@link #bestPrice(OrderType)} without allocating.
+   *
+   * @param side the side
+   * @param priceTicks the price of a level of the side, in ticks
+   * @return the price of the next level in ticks, or 0 if the level is the worst of the side
+   */
+  public long nextPrice(OrderType side, long priceTicks) {
+    LadderSide ladder = side == OrderType.BUY ? bids : offers;
+    return ladder.levelCount() == 0 ? 0 : ladder.nextTicks(priceTicks);
+  }
+
+  /**
+   * Returns the number of orders resting at a price.
+   *
+   * @param side the side
+   * @param priceTicks the price in ticks
+   * @return the number of orders, or 0 if no order rests at the price
+   */
+  public int orderCountAt(OrderType side, long priceTicks) {
+    return (side == OrderType.BUY ? bids : offers).orderCount(priceTicks);
+  }
+
+  /**
+   * Returns the number of price levels of a side.
+   *
+   * @param side the side
+   * @return the number of levels
+   */
+  public int levelCount(OrderType side) {
+    return (side == OrderType.BUY ? bids : offers).levelCount();
+  }
+
+  /**
+   * Visits the resting orders of a side in priority order: from the best price, each level in time
+   * priority. The action sees each order through the same flyweight and must not change the engine.
+   *
+   * @param side the side
+   * @param action receives a flyweight pointing at each order in turn
+   */
+  public void forEachOrder(OrderType side, Consumer<OrderFlyweight> action) {
+    LadderSide ladder = side == OrderType.BUY ? bids : offers;
+    OrderFlyweight flyweight = new OrderFlyweight();
+    for (long ticks = bestPrice(side); ticks != 0; ticks = ladder.nextTicks(ticks)) {
+      for (int slot = ladder.head(ticks); slot != NONE; slot = pool.next(slot)) {
+        flyweight.wrap(pool, slot);
+        action.accept(flyweight);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of resting orders.
+   *
+   * @return the number of resting orders
+   */
+  public int restingOrderCount() {
+    return pool.size();
+  }
+
+  /**
+   * Frees the off-heap memory of the engine. Does nothing for an engine on the heap or one already
+   * closed. Afterwards every command that touches an order, and every read through a flyweight
+   * pointing into the engine, throws {@link IllegalStateException}.
+   */
+  @Override
+  public void close() {
+    if (arena != null && arena.scope().isAlive()) {
+      arena.close();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.trading.orderbook.engine;
+
+import com.trading.orderbook.model.OrderType;
+
+/**
+ * Mutable view of one resting order of a {@link MatchingEngine}. A caller keeps one instance and
+ * points it at orders with {@link MatchingEngine#order(long, OrderFlyweight)}. The view reads the
+ * engine's pool directly, so it is only valid until the next command changes the order, and never
+ * after the engine is closed.
+ */
+public final class OrderFlyweight {
+
+  private OrderPool pool;
+  private int slot = OrderPool.NONE;
+
+  void wrap(OrderPool pool, int slot) {
+    this.pool = pool;
+    this.slot = slot;
+  }
+
+  public long id() {
+    return pool.id(slot);
+  }
+
+  /**
+   * Returns the tag the order was submitted with, which the engine stores without interpreting.
+   *
+   * @return the tag, 0 for orders submitted without one
+   */
+  public long tag() {
+    return pool.tag(slot);
+  }
+
+  /**
+   * Returns the account number the order was submitted with, which the engine stores without
+   * interpreting.
+   *
+   * @return the account number, 0 for orders submitted without one
+   */
+  public int account() {
+    return pool.account(slot);
+  }
+
+  public OrderType side() {
+    return pool.buy(slot) ? OrderType.BUY : OrderType.SELL;
+  }
+
+  public long priceTicks() {
+    return pool.priceTicks(slot);
+  }
+
+  public long quantity() {
+    return pool.quantity(slot);
+  }
+
+  public long unfilledQuantity() {
+    return pool.unfilledQuantity(slot);
+  }
+}
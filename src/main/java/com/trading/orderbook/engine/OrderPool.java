@@ -0,0 +1,352 @@
+package com.trading.orderbook.engine;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Pre-allocated storage for the orders of a {@link MatchingEngine}. An order is a slot, and level
+ * queues link slots through their {@code prev} and {@code next} fields. Free slots are chained
+ * through {@code next}, so allocating and releasing a slot never allocates memory.
+ *
+ * <p>On the heap the fields are parallel primitive arrays indexed by slot. Off the heap each slot
+ * is a fixed-width record in one native memory segment, so the heap only holds the segment handle.
+ */
+abstract class OrderPool {
+
+  static final int NONE = -1;
+
+  private int free;
+  private int size;
+
+  /**
+   * Creates a pool.
+   *
+   * @param capacity the maximum number of resting orders
+   * @param storage where the orders live
+   * @param arena the arena of off-heap orders, unused on the heap
+   * @return the pool
+   */
+  static OrderPool create(int capacity, OrderStorage storage, Arena arena) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+    }
+    OrderPool pool =
+        storage == OrderStorage.OFF_HEAP ? new OffHeap(capacity, arena) : new Heap(capacity);
+    for (int slot = 0; slot < capacity - 1; slot++) {
+      pool.setNext(slot, slot + 1);
+    }
+    pool.setNext(capacity - 1, NONE);
+    return pool;
+  }
+
+  /**
+   * Takes a free slot.
+   *
+   * @return the slot
+   * @throws IllegalStateException if every slot is in use
+   */
+  final int allocate() {
+    int slot = free;
+    if (slot == NONE) {
+      throw new IllegalStateException("Order pool exhausted at " + size + " orders");
+    }
+    free = next(slot);
+    size++;
+    return slot;
+  }
+
+  /**
+   * Returns whether every slot is in use.
+   *
+   * @return true if {@link #allocate()} would throw
+   */
+  final boolean isFull() {
+    return free == NONE;
+  }
+
+  /**
+   * Returns a slot to the pool.
+   *
+   * @param slot the slot to release
+   */
+  final void release(int slot) {
+    setId(slot, 0);
+    setNext(slot, free);
+    free = slot;
+    size--;
+  }
+
+  /**
+   * Returns the number of slots in use.
+   *
+   * @return the number of slots in use
+   */
+  final int size() {
+    return size;
+  }
+
+  abstract long id(int slot);
+
+  abstract void setId(int slot, long id);
+
+  abstract long tag(int slot);
+
+  abstract void setTag(int slot, long tag);
+
+  abstract int account(int slot);
+
+  abstract void setAccount(int slot, int account);
+
+  abstract long priceTicks(int slot);
+
+  abstract void setPriceTicks(int slot, long priceTicks);
+
+  abstract long quantity(int slot);
+
+  abstract void setQuantity(int slot, long quantity);
+
+  abstract long unfilledQuantity(int slot);
+
+  abstract void setUnfilledQuantity(int slot, long unfilledQuantity);
+
+  abstract boolean buy(int slot);
+
+  abstract void setBuy(int slot, boolean buy);
+
+  abstract int prev(int slot);
+
+  abstract void setPrev(int slot, int prev);
+
+  abstract int next(int slot);
+
+  abstract void setNext(int slot, int next);
+
+  /** Struct-of-arrays pool on the heap. */
+  private static final class Heap extends OrderPool {
+    private final long[] ids;
+    private final long[] tags;
+    private final int[] accounts;
+    private final long[] priceTicks;
+    private final long[] quantities;
+    private final long[] unfilledQuantities;
+    private final boolean[] buy;
+    private final int[] prev;
+    private final int[] next;
+
+    private Heap(int capacity) {
+      ids = new long[capacity];
+      tags = new long[capacity];
+      accounts = new int[capacity];
+      priceTicks = new long[capacity];
+      quantities = new long[capacity];
+      unfilledQuantities = new long[capacity];
+      buy = new boolean[capacity];
+      prev = new int[capacity];
+      next = new int[capacity];
+    }
+
+    @Override
+    long id(int slot) {
+      return ids[slot];
+    }
+
+    @Override
+    void setId(int slot, long id) {
+      ids[slot] = id;
+    }
+
+    @Override
+    long tag(int slot) {
+      return tags[slot];
+    }
+
+    @Override
+    void setTag(int slot, long tag) {
+      tags[slot] = tag;
+    }
+
+    @Override
+    int account(int slot) {
+      return accounts[slot];
+    }
+
+    @Override
+    void setAccount(int slot, int account) {
+      accounts[slot] = account;
+    }
+
+    @Override
+    long priceTicks(int slot) {
+      return priceTicks[slot];
+    }
+
+    @Override
+    void setPriceTicks(int slot, long priceTicks) {
+      this.priceTicks[slot] = priceTicks;
+    }
+
+    @Override
+    long quantity(int slot) {
+      return quantities[slot];
+    }
+
+    @Override
+    void setQuantity(int slot, long quantity) {
+      quantities[slot] = quantity;
+    }
+
+    @Override
+    long unfilledQuantity(int slot) {
+      return unfilledQuantities[slot];
+    }
+
+    @Override
+    void setUnfilledQuantity(int slot, long unfilledQuantity) {
+      unfilledQuantities[slot] = unfilledQuantity;
+    }
+
+    @Override
+    boolean buy(int slot) {
+      return buy[slot];
+    }
+
+    @Override
+    void setBuy(int slot, boolean buy) {
+      this.buy[slot] = buy;
+    }
+
+    @Override
+    int prev(int slot) {
+      return prev[slot];
+    }
+
+    @Override
+    void setPrev(int slot, int prev) {
+      this.prev[slot] = prev;
+    }
+
+    @Override
+    int next(int slot) {
+      return next[slot];
+    }
+
+    @Override
+    void setNext(int slot, int next) {
+      this.next[slot] = next;
+    }
+  }
+
+  /** Pool of 56-byte records in native memory, the fields of each order side by side. */
+  private static final class OffHeap extends OrderPool {
+    private static final long ID = 0;
+    private static final long PRICE_TICKS = 8;
+    private static final long QUANTITY = 16;
+    private static final long UNFILLED_QUANTITY = 24;
+    private static final long TAG = 32;
+    private static final long PREV = 40;
+    private static final long NEXT = 44;
+    private static final long ACCOUNT = 48;
+    private static final long BUY = 52;
+    private static final long RECORD_BYTES = 56;
+
+    private final MemorySegment records;
+
+    private OffHeap(int capacity, Arena arena) {
+      records = arena.allocate(capacity * RECORD_BYTES, Long.BYTES);
+    }
+
+    @Override
+    long id(int slot) {
+      return records.get(JAVA_LONG, slot * RECORD_BYTES + ID);
+    }
+
+    @Override
+    void setId(int slot, long id) {
+      records.set(JAVA_LONG, slot * RECORD_BYTES + ID, id);
+    }
+
+    @Override
+    long tag(int slot) {
+      return records.get(JAVA_LONG, slot * RECORD_BYTES + TAG);
+    }
+
+    @Override
+    void setTag(int slot, long tag) {
+      records.set(JAVA_LONG, slot * RECORD_BYTES + TAG, tag);
+    }
+
+    @Override
+    int account(int slot) {
+      return records.get(JAVA_INT, slot * RECORD_BYTES + ACCOUNT);
+    }
+
+    @Override
+    void setAccount(int slot, int account) {
+      records.set(JAVA_INT, slot * RECORD_BYTES + ACCOUNT, account);
+    }
+
+    @Override
+    long priceTicks(int slot) {
+      return records.get(JAVA_LONG, slot * RECORD_BYTES + PRICE_TICKS);
+    }
+
+    @Override
+    void setPriceTicks(int slot, long priceTicks) {
+      records.set(JAVA_LONG, slot * RECORD_BYTES + PRICE_TICKS, priceTicks);
+    }
+
+    @Override
+    long quantity(int slot) {
+      return records.get(JAVA_LONG, slot * RECORD_BYTES + QUANTITY);
+    }
+
+    @Override
+    void setQuantity(int slot, long quantity) {
+      records.set(JAVA_LONG, slot * RECORD_BYTES + QUANTITY, quantity);
+    }
+
+    @Override
+    long unfilledQuantity(int slot) {
+      return records.get(JAVA_LONG, slot * RECORD_BYTES + UNFILLED_QUANTITY);
+    }
+
+    @Override
+    void setUnfilledQuantity(int slot, long unfilledQuantity) {
+      records.set(JAVA_LONG, slot * RECORD_BYTES + UNFILLED_QUANTITY, unfilledQuantity);
+    }
+
+    @Override
+    boolean buy(int slot) {
+      return records.get(JAVA_BYTE, slot * RECORD_BYTES + BUY) != 0;
+    }
+
+    @Override
+    void setBuy(int slot, boolean buy) {
+      records.set(JAVA_BYTE, slot * RECORD_BYTES + BUY, buy ? (byte) 1 : 0);
+    }
+
+    @Override
+    int prev(int slot) {
+      return records.get(JAVA_INT, slot * RECORD_BYTES + PREV);
+    }
+
+    @Override
+    void setPrev(int slot, int prev) {
+      records.set(JAVA_INT, slot * RECORD_BYTES + PREV, prev);
+    }
+
+    @Override
+    int next(int slot) {
+      return records.get(JAVA_INT, slot * RECORD_BYTES + NEXT);
+    }
+
+    @Override
+    void setNext(int slot, int next) {
+      records.set(JAVA_INT, slot * RECORD_BYTES + NEXT, next);
+    }
+  }
+}
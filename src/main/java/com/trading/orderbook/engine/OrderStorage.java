@@ -0,0 +1,15 @@
+package com.trading.orderbook.engine;
+
+/** Where a {@link MatchingEngine} keeps its resting orders and its index of order ids. */
+public enum OrderStorage {
+
+  /** Primitive arrays on the Java heap, collected with the engine. */
+  HEAP,
+
+  /**
+   * Fixed-width records in native memory outside the Java heap, freed when the engine is closed.
+   * The heap holds only the segment handles, so its size and the work of the garbage collector do
+   * not grow with the number of resting orders.
+   */
+  OFF_HEAP
+}
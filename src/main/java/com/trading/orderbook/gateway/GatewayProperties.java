@@ -0,0 +1,19 @@
+package com.trading.orderbook.gateway;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures the binary order entry gateway.
+ *
+ * @param enabled whether the gateway accepts connections
+ * @param host the address the gateway binds to
+ * @param port the TCP port the gateway listens on, or 0 for any free port
+ * @param bufferSize the size of each connection's read and write buffer, in bytes
+ */
+@ConfigurationProperties(prefix = "orderbook.gateway")
+public record GatewayProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("0.0.0.0") String host,
+    @DefaultValue("9100") int port,
+    @DefaultValue("65536") int bufferSize) {}
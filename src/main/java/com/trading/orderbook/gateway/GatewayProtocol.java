@@ -0,0 +1,175 @@
+package com.trading.orderbook.gateway;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Fixed-layout binary messages of the order entry gateway. All fields are big-endian. Each message
+ * is framed by an unsigned 16-bit length of the rest of the message, followed by a one-byte type.
+ *
+ * <p>Symbols are 8 ASCII bytes padded with zero bytes. Prices are a 64-bit unscaled value and an
+ * 8-bit scale, so 150.25 is sent as {@code 15025, 2}. Order ids are UUIDs sent as their most and
+ * then least significant 64 bits.
+ */
+public final class GatewayProtocol {
+
+  /** Client to gateway: {@code clientOrderId, side, symbol, price, scale, quantity}. */
+  public static final byte NEW_ORDER = 1;
+
+  /** Client to gateway: {@code clientOrderId, orderId}. */
+  public static final byte CANCEL = 2;
+
+  /** Client to gateway: {@code clientOrderId, orderId, price, scale, quantity}. */
+  public static final byte AMEND = 3;
+
+  /** Gateway to client: {@code clientOrderId, orderId, unfilledQuantity}. */
+  public static final byte ACK = 11;
+
+  /** Gateway to client: {@code clientOrderId, reason}. */
+  public static final byte REJECT = 12;
+
+  /** Gateway to client: {@code orderId, tradeSequence, price, scale, quantity, liquidity}. */
+  public static final byte FILL = 13;
+
+  static final int NEW_ORDER_LENGTH = 1 + 8 + 1 + 8 + 8 + 1 + 4;
+  static final int CANCEL_LENGTH = 1 + 8 + 16;
+  static final int AMEND_LENGTH = 1 + 8 + 16 + 8 + 1 + 4;
+  static final int ACK_LENGTH = 1 + 8 + 16 + 4;
+  static final int REJECT_LENGTH = 1 + 8 + 1;
+  static final int FILL_LENGTH = 1 + 16 + 8 + 8 + 1 + 4 + 1;
+
+  /** Largest message the gateway writes, including its length field. */
+  static final int MAX_OUTBOUND = 2 + FILL_LENGTH;
+
+  static final int SYMBOL_LENGTH = 8;
+
+  /** The order is malformed: unknown side, empty symbol, or a non-positive price or quantity. */
+  public static final byte REJECT_INVALID = 1;
+
+  /** The order to cancel or amend does not exist. */
+  public static final byte REJECT_UNKNOWN_ORDER = 2;
+
+  /** The request is not supported. */
+  public static final byte REJECT_UNSUPPORTED = 3;
+
+  /** The order book rejected the order. */
+  public static final byte REJECT_REFUSED = 4;
+
+  /**
+   * The request took effect but too few backups confirmed it in time. Sent after the {@code ACK} of
+   * the request; the request is lost if this node fails before the backups catch up.
+   */
+  public static final byte REJECT_UNCONFIRMED = 5;
+
+  /** The filled order was resting in the book. */
+  public static final byte MAKER = 0;
+
+  /** The filled order was the incoming order. */
+  public static final byte TAKER = 1;
+
+  private GatewayProtocol() {}
+
+  /**
+   * Returns the body length of a client message type.
+   *
+   * @param type the message type
+   * @return the length including the type byte, or -1 for an unknown type
+   */
+  static int inboundLength(byte type) {
+    return switch (type) {
+      case NEW_ORDER -> NEW_ORDER_LENGTH;
+      case CANCEL -> CANCEL_LENGTH;
+      case AMEND -> AMEND_LENGTH;
+      default -> -1;
+    };
+  }
+
+  public static void putNewOrder(
+      ByteBuffer buffer,
+      long clientOrderId,
+      byte side,
+      String symbol,
+      BigDecimal price,
+      int quantity) {
+    buffer.putShort((short) NEW_ORDER_LENGTH).put(NEW_ORDER).putLong(clientOrderId).put(side);
+    putSymbol(buffer, symbol);
+    putPrice(buffer, price);
+    buffer.putInt(quantity);
+  }
+
+  public static void putCancel(ByteBuffer buffer, long clientOrderId, UUID orderId) {
+    buffer.putShort((short) CANCEL_LENGTH).put(CANCEL).putLong(clientOrderId);
+    putId(buffer, orderId);
+  }
+
+  public static void putAmend(
+      ByteBuffer buffer, long clientOrderId, UUID orderId, BigDecimal price, int quantity) {
+    buffer.putShort((short) AMEND_LENGTH).put(AMEND).putLong(clientOrderId);
+    putId(buffer, orderId);
+    putPrice(buffer, price);
+    buffer.putInt(quantity);
+  }
+
+  public static void putAck(
+      ByteBuffer buffer, long clientOrderId, UUID orderId, int unfilledQuantity) {
+    buffer.putShort((short) ACK_LENGTH).put(ACK).putLong(clientOrderId);
+    putId(buffer, orderId);
+    buffer.putInt(unfilledQuantity);
+  }
+
+  public static void putReject(ByteBuffer buffer, long clientOrderId, byte reason) {
+    buffer.putShort((short) REJECT_LENGTH).put(REJECT).putLong(clientOrderId).put(reason);
+  }
+
+  public static void putFill(
+      ByteBuffer buffer,
+      UUID orderId,
+      long tradeSequence,
+      BigDecimal price,
+      int quantity,
+      byte liquidity) {
+    buffer.putShort((short) FILL_LENGTH).put(FILL);
+    putId(buffer, orderId);
+    buffer.putLong(tradeSequence);
+    putPrice(buffer, price);
+    buffer.putInt(quantity).put(liquidity);
+  }
+
+  public static void putId(ByteBuffer buffer, UUID id) {
+    buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+  }
+
+  public static UUID getId(ByteBuffer buffer) {
+    return new UUID(buffer.getLong(), buffer.getLong());
+  }
+
+  /**
+   * Writes a price as unscaled value and scale.
+   *
+   * @throws ArithmeticException if the price does not fit the fixed layout
+   */
+  public static void putPrice(ByteBuffer buffer, BigDecimal price) {
+    if (price.scale() < Byte.MIN_VALUE || price.scale() > Byte.MAX_VALUE) {
+      throw new ArithmeticException("Price scale out of range: " + price);
+    }
+    buffer.putLong(price.unscaledValue().longValueExact()).put((byte) price.scale());
+  }
+
+  public static BigDecimal getPrice(ByteBuffer buffer) {
+    long unscaled = buffer.getLong();
+    return BigDecimal.valueOf(unscaled, buffer.get());
+  }
+
+  public static void putSymbol(ByteBuffer buffer, String symbol) {
+    byte[] bytes = symbol.getBytes(StandardCharsets.US_ASCII);
+    if (bytes.length > SYMBOL_LENGTH) {
+      throw new IllegalArgumentException("Symbol longer than 8 characters: " + symbol);
+    }
+    buffer.put(bytes);
+    for (int i = bytes.length; i < SYMBOL_LENGTH; i++) {
+      buffer.put((byte) 0);
+    }
+  }
+}
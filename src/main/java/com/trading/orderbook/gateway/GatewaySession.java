@@ -0,0 +1,70 @@
+package com.trading.orderbook.gateway;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One client connection of the gateway, with its own read and write buffer. Only the gateway thread
+ * touches a session; commands running for it only capture it for their responses.
+ */
+final class GatewaySession {
+
+  final SocketChannel channel;
+  final SelectionKey key;
+  final ByteBuffer in;
+  final ByteBuffer out;
+  boolean pendingFlush;
+  // the last command submitted for this connection, which the next one runs after
+  CompletableFuture<Void> lastCommand = CompletableFuture.completedFuture(null);
+  int inFlight;
+  boolean paused;
+
+  GatewaySession(SocketChannel channel, SelectionKey key, int bufferSize) {
+    this.channel = channel;
+    this.key = key;
+    this.in = ByteBuffer.allocateDirect(bufferSize);
+    this.out = ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  /**
+   * Makes room for an outbound message, writing buffered messages to the socket if needed.
+   *
+   * @return true if the message fits, false if the client is not reading fast enough
+   */
+  boolean reserve(int length) throws IOException {
+    if (out.remaining() >= length) {
+      return true;
+    }
+    flush();
+    return out.remaining() >= length;
+  }
+
+  /**
+   * Writes as much buffered output as the socket accepts in one call and waits for the socket to
+   * become writable if anything is left.
+   */
+  void flush() throws IOException {
+    out.flip();
+    channel.write(out);
+    out.compact();
+    pendingFlush = false;
+    updateInterest();
+  }
+
+  /** Stops or resumes reading from the socket, while too many commands are in flight. */
+  void setPaused(boolean paused) {
+    this.paused = paused;
+    updateInterest();
+  }
+
+  private void updateInterest() {
+    int interest =
+        (paused ? 0 : SelectionKey.OP_READ) | (out.position() > 0 ? SelectionKey.OP_WRITE : 0);
+    if (key.interestOps() != interest) {
+      key.interestOps(interest);
+    }
+  }
+}
@@ -0,0 +1,570 @@
+package com.trading.orderbook.gateway;
+
+import static com.trading.orderbook.gateway.GatewayProtocol.ACK_LENGTH;
+import static com.trading.orderbook.gateway.GatewayProtocol.FILL_LENGTH;
+import static com.trading.orderbook.gateway.GatewayProtocol.REJECT_LENGTH;
+
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.model.Trade;
+import com.trading.orderbook.model.TradeEventBuffer;
+import com.trading.orderbook.replication.ReplicationTimeoutException;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderNotRestingException;
+import com.trading.orderbook.service.OrderService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Order entry over TCP with the fixed-layout binary messages of {@link GatewayProtocol}. A single
+ * thread runs a selector over all connections. Clients may pipeline any number of requests: every
+ * complete message in a read is decoded on the gateway thread and handed to a virtual thread that
+ * runs it through {@link OrderService}, the same path as the REST API. The commands of one
+ * connection run one after another in the order they arrived, while those of different connections
+ * wait for their order books, journal syncs and backups independently. Each command queues its
+ * response back to the gateway thread, which writes all responses of one loop iteration with one
+ * socket write per connection.
+ *
+ * <p>Fills are taken from the trade streams of the order books, so orders entered through the
+ * gateway also receive fills caused by orders from other connections or the REST API. The fills of
+ * a new order are held back until it is acknowledged, so a client always learns the order id first.
+ */
+@Component
+@ConditionalOnProperty(prefix = "orderbook.gateway", name = "enabled", havingValue = "true")
+public class OrderGateway implements SmartLifecycle {
+  private static final Logger logger = Logger.getLogger(OrderGateway.class.getName());
+
+  /** Runs after the journal replayer, so clients only see recovered books. */
+  public static final int PHASE = 1100;
+
+  private static final long SELECT_TIMEOUT_MILLIS = 1;
+  private static final int MAX_TRADES_PER_POLL = 1024;
+  // commands of one connection waiting for the order service before the gateway stops reading it
+  private static final int MAX_COMMANDS_IN_FLIGHT = 1024;
+  private static final OrderType[] SIDES = OrderType.values();
+
+  private final GatewayProperties properties;
+  private final OrderService orderService;
+  private final OrderBookService orderBookService;
+  private final Map<UUID, OwnedOrder> ownedOrders = new HashMap<>();
+  private final Map<String, TradeEventBuffer.Subscription> subscriptions = new HashMap<>();
+  private final Map<Long, String> symbols = new HashMap<>();
+  private final List<GatewaySession> pendingFlush = new ArrayList<>();
+  private final Queue<Runnable> completions = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean wakeupPending = new AtomicBoolean();
+  private ExecutorService commands;
+  private Selector selector;
+  private ServerSocketChannel server;
+  private Thread thread;
+  private volatile boolean running;
+
+  public OrderGateway(
+      GatewayProperties properties, OrderService orderService, OrderBookService orderBookService) {
+    this.properties = properties;
+    this.orderService = orderService;
+    this.orderBookService = orderBookService;
+  }
+
+  @Override
+  public void start() {
+    try {
+      selector = Selector.open();
+      server = ServerSocketChannel.open();
+      server.bind(new InetSocketAddress(properties.host(), properties.port()));
+      server.configureBlocking(false);
+      server.register(selector, SelectionKey.OP_ACCEPT);
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          "Could not start order gateway on port " + properties.port(), e);
+    }
+    commands = Executors.newVirtualThreadPerTaskExecutor();
+    running = true;
+    thread = new Thread(this::run, "order-gateway");
+    thread.setDaemon(true);
+    thread.start();
+    logger.info("Order gateway listening on port " + getPort());
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    selector.wakeup();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // commands already handed to the order service finish, their responses are dropped
+    commands.close();
+    try {
+      for (SelectionKey key : selector.keys()) {
+        key.channel().close();
+      }
+      selector.close();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not close order gateway", e);
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  /**
+   * Returns the port the gateway listens on.
+   *
+   * @return the local port
+   */
+  public int getPort() {
+    try {
+      return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        selector.select(SELECT_TIMEOUT_MILLIS);
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Order gateway selector failed", e);
+        return;
+      }
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+        if (key.isValid() && key.isAcceptable()) {
+          accept();
+        } else if (key.attachment() instanceof GatewaySession session) {
+          try {
+            if (key.isValid() && key.isWritable()) {
+              session.flush();
+            }
+            if (key.isValid() && key.isReadable()) {
+              read(session);
+            }
+          } catch (IOException e) {
+            close(session);
+          }
+        }
+      }
+      drainCompletions();
+      routeFills();
+      flushPending();
+    }
+  }
+
+  private void accept() {
+    try {
+      SocketChannel channel;
+      while ((channel = server.accept()) != null) {
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new GatewaySession(channel, key, properties.bufferSize()));
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not accept gateway connection", e);
+    }
+  }
+
+  private void read(GatewaySession session) throws IOException {
+    if (session.channel.read(session.in) < 0) {
+      close(session);
+      return;
+    }
+    process(session);
+  }
+
+  /** Decodes and submits the complete messages in the read buffer of a session. */
+  private void process(GatewaySession session) {
+    ByteBuffer in = session.in;
+    in.flip();
+    while (in.remaining() >= 3) {
+      if (session.inFlight >= MAX_COMMANDS_IN_FLIGHT) {
+        // the rest stays buffered until the order service catches up with this connection
+        session.setPaused(true);
+        break;
+      }
+      int start = in.position();
+      int length = in.getShort(start) & 0xFFFF;
+      byte type = in.get(start + 2);
+      if (GatewayProtocol.inboundLength(type) != length) {
+        logger.warning("Closing gateway connection after malformed message of type " + type);
+        close(session);
+        return;
+      }
+      if (in.remaining() < 2 + length) {
+        break;
+      }
+      in.position(start + 3);
+      switch (type) {
+        case GatewayProtocol.NEW_ORDER -> newOrder(session, in);
+        case GatewayProtocol.CANCEL -> cancel(session, in);
+        case GatewayProtocol.AMEND -> amend(session, in);
+        default -> throw new IllegalStateException("Unhandled message type " + type);
+      }
+      in.position(start + 2 + length);
+      if (!session.key.isValid()) {
+        return;
+      }
+    }
+    in.compact();
+  }
+
+  private void newOrder(GatewaySession session, ByteBuffer in) {
+    long clientOrderId = in.getLong();
+    int side = in.get();
+    String symbol = symbol(in.getLong());
+    BigDecimal price = GatewayProtocol.getPrice(in);
+    int quantity = in.getInt();
+    if (side < 0
+        || side >= SIDES.length
+        || symbol == null
+        || price.signum() <= 0
+        || quantity <= 0) {
+      decline(session, clientOrderId, GatewayProtocol.REJECT_INVALID);
+      return;
+    }
+    Order order =
+        SIDES[side] == OrderType.BUY
+            ? new BidOrder(orderService.nextOrderId(), symbol, price, quantity)
+            : new OfferOrder(orderService.nextOrderId(), symbol, price, quantity);
+    // subscribe before the order can trade, so none of its fills are missed
+    subscriptions.computeIfAbsent(
+        symbol, s -> orderBookService.getOrderBook(s).getTrades().subscribe());
+    OwnedOrder owned = new OwnedOrder(session, quantity);
+    ownedOrders.put(order.getId(), owned);
+    submit(
+        session,
+        () -> {
+          boolean confirmed = true;
+          try {
+            orderService.createOrder(order);
+          } catch (ReplicationTimeoutException e) {
+            // the order is in the book and may trade, so the client still needs its id and fills
+            confirmed = false;
+          } catch (RuntimeException e) {
+            return () -> {
+              ownedOrders.remove(order.getId());
+              reject(session, clientOrderId, GatewayProtocol.REJECT_REFUSED);
+            };
+          }
+          int unfilled = order.getUnfilledQuantity();
+          boolean replicated = confirmed;
+          return () -> {
+            ack(session, clientOrderId, order.getId(), unfilled, replicated);
+            acknowledged(order.getId(), owned);
+          };
+        });
+  }
+
+  private void cancel(GatewaySession session, ByteBuffer in) {
+    long clientOrderId = in.getLong();
+    UUID orderId = GatewayProtocol.getId(in);
+    OwnedOrder owned = ownedOrders.get(orderId);
+    if (owned == null || owned.session != session) {
+      decline(session, clientOrderId, GatewayProtocol.REJECT_UNKNOWN_ORDER);
+      return;
+    }
+    submit(
+        session,
+        () -> {
+          boolean confirmed = true;
+          try {
+            orderService.cancelOrder(orderId.toString());
+          } catch (ReplicationTimeoutException e) {
+            confirmed = false;
+          } catch (RuntimeException e) {
+            return () -> reject(session, clientOrderId, GatewayProtocol.REJECT_UNKNOWN_ORDER);
+          }
+          boolean replicated = confirmed;
+          return () -> {
+            ownedOrders.remove(orderId);
+            ack(session, clientOrderId, orderId, 0, replicated);
+          };
+        });
+  }
+
+  private void amend(GatewaySession session, ByteBuffer in) {
+    long clientOrderId = in.getLong();
+    UUID orderId = GatewayProtocol.getId(in);
+    BigDecimal price = GatewayProtocol.getPrice(in);
+    int quantity = in.getInt();
+    OwnedOrder owned = ownedOrders.get(orderId);
+    if (owned == null || owned.session != session) {
+      decline(session, clientOrderId, GatewayProtocol.REJECT_UNKNOWN_ORDER);
+      return;
+    }
+    if (price.signum() <= 0 || quantity <= 0) {
+      decline(session, clientOrderId, GatewayProtocol.REJECT_INVALID);
+      return;
+    }
+    submit(
+        session,
+        () -> {
+          Order order = orderService.getOrderById(orderId.toString());
+          if (order == null) {
+            return () -> reject(session, clientOrderId, GatewayProtocol.REJECT_UNKNOWN_ORDER);
+          }
+          int previousQuantity = order.getQuantity();
+          boolean confirmed = true;
+          try {
+            orderService.amendOrder(orderId.toString(), price, quantity);
+          } catch (ReplicationTimeoutException e) {
+            confirmed = false;
+          } catch (IllegalArgumentException e) {
+            return () -> reject(session, clientOrderId, GatewayProtocol.REJECT_INVALID);
+          } catch (OrderNotRestingException e) {
+            return () -> reject(session, clientOrderId, GatewayProtocol.REJECT_UNKNOWN_ORDER);
+          } catch (RuntimeException e) {
+            return () -> reject(session, clientOrderId, GatewayProtocol.REJECT_REFUSED);
+          }
+          int unfilled = order.getUnfilledQuantity();
+          boolean replicated = confirmed;
+          return () -> {
+            // fills not routed yet are still counted against the new quantity
+            owned.remaining += quantity - previousQuantity;
+            ack(session, clientOrderId, orderId, unfilled, replicated);
+          };
+        });
+  }
+
+  /**
+   * Runs a command on a virtual thread once the previous commands of the session have run, and
+   * queues the response it returns back to the gateway thread.
+   *
+   * @param session the connection the command came from
+   * @param command calls the order service and returns the response to run on the gateway thread;
+   *     it handles its own failures
+   */
+  private void submit(GatewaySession session, Supplier<Runnable> command) {
+    session.inFlight++;
+    session.lastCommand =
+        session.lastCommand.thenRunAsync(
+            () -> {
+              Runnable response = command.get();
+              completions.add(() -> completed(session, response));
+              if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+              }
+            },
+            commands);
+  }
+
+  private void drainCompletions() {
+    wakeupPending.set(false);
+    Runnable completion;
+    while ((completion = completions.poll()) != null) {
+      completion.run();
+    }
+  }
+
+  private void completed(GatewaySession session, Runnable response) {
+    session.inFlight--;
+    response.run();
+    if (session.paused && session.inFlight < MAX_COMMANDS_IN_FLIGHT && session.key.isValid()) {
+      session.setPaused(false);
+      process(session);
+    }
+  }
+
+  /** Decodes a zero-padded 8-byte symbol, caching the strings of known symbols. */
+  private String symbol(long encoded) {
+    if (encoded == 0) {
+      return null;
+    }
+    return symbols.computeIfAbsent(
+        encoded,
+        key -> {
+          byte[] bytes = ByteBuffer.allocate(GatewayProtocol.SYMBOL_LENGTH).putLong(key).array();
+          int length = 0;
+          while (length < bytes.length && bytes[length] != 0) {
+            length++;
+          }
+          return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+        });
+  }
+
+  private void routeFills() {
+    for (TradeEventBuffer.Subscription subscription : subscriptions.values()) {
+      long lost = subscription.lost();
+      subscription.poll(this::route, MAX_TRADES_PER_POLL);
+      if (subscription.lost() != lost) {
+        logger.warning(
+            "Order gateway lost " + (subscription.lost() - lost) + " trades, fills are missing");
+      }
+    }
+  }
+
+  private void route(Trade trade) {
+    fill(trade.makerOrderId(), trade, GatewayProtocol.MAKER);
+    fill(trade.takerOrderId(), trade, GatewayProtocol.TAKER);
+  }
+
+  private void fill(UUID orderId, Trade trade, byte liquidity) {
+    OwnedOrder owned = ownedOrders.get(orderId);
+    if (owned == null) {
+      return;
+    }
+    if (!owned.acknowledged) {
+      if (owned.heldFills == null) {
+        owned.heldFills = new ArrayList<>();
+      }
+      owned.heldFills.add(trade);
+      return;
+    }
+    owned.remaining -= trade.quantity();
+    if (owned.remaining <= 0) {
+      ownedOrders.remove(orderId);
+    }
+    GatewaySession session = owned.session;
+    if (reserve(session, FILL_LENGTH)) {
+      GatewayProtocol.putFill(
+          session.out, orderId, trade.sequence(), trade.price(), trade.quantity(), liquidity);
+    }
+  }
+
+  /** Sends the fills of a new order that were routed before it was acknowledged. */
+  private void acknowledged(UUID orderId, OwnedOrder owned) {
+    owned.acknowledged = true;
+    List<Trade> held = owned.heldFills;
+    owned.heldFills = null;
+    if (held != null) {
+      for (Trade trade : held) {
+        fill(
+            orderId,
+            trade,
+            orderId.equals(trade.makerOrderId()) ? GatewayProtocol.MAKER : GatewayProtocol.TAKER);
+      }
+    }
+  }
+
+  /**
+   * Acknowledges a request that took effect, followed by an {@link
+   * GatewayProtocol#REJECT_UNCONFIRMED} if the backups did not confirm it in time.
+   */
+  private void ack(
+      GatewaySession session, long clientOrderId, UUID orderId, int unfilled, boolean replicated) {
+    if (reserve(session, ACK_LENGTH)) {
+      GatewayProtocol.putAck(session.out, clientOrderId, orderId, unfilled);
+    }
+    if (!replicated) {
+      reject(session, clientOrderId, GatewayProtocol.REJECT_UNCONFIRMED);
+    }
+  }
+
+  /**
+   * Rejects a request without running it. The reject is written after the responses to the earlier
+   * requests of the session that are still running.
+   */
+  private void decline(GatewaySession session, long clientOrderId, byte reason) {
+    if (session.inFlight == 0) {
+      reject(session, clientOrderId, reason);
+    } else {
+      submit(session, () -> () -> reject(session, clientOrderId, reason));
+    }
+  }
+
+  private void reject(GatewaySession session, long clientOrderId, byte reason) {
+    if (reserve(session, REJECT_LENGTH)) {
+      GatewayProtocol.putReject(session.out, clientOrderId, reason);
+    }
+  }
+
+  /** Makes room for a message and schedules the session for the next batched write. */
+  private boolean reserve(GatewaySession session, int length) {
+    if (!session.key.isValid()) {
+      return false;
+    }
+    try {
+      if (!session.reserve(2 + length)) {
+        logger.warning("Closing gateway connection that does not read its responses");
+        close(session);
+        return false;
+      }
+    } catch (IOException e) {
+      close(session);
+      return false;
+    }
+    if (!session.pendingFlush) {
+      session.pendingFlush = true;
+      pendingFlush.add(session);
+    }
+    return true;
+  }
+
+  private void flushPending() {
+    for (GatewaySession session : pendingFlush) {
+      if (session.pendingFlush && session.key.isValid()) {
+        try {
+          session.flush();
+        } catch (IOException e) {
+          close(session);
+        }
+      }
+    }
+    pendingFlush.clear();
+  }
+
+  private void close(GatewaySession session) {
+    session.key.cancel();
+    try {
+      session.channel.close();
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Could not close gateway connection", e);
+    }
+    // resting orders stay in the book, the connection just stops receiving their fills
+    ownedOrders.values().removeIf(owned -> owned.session == session);
+  }
+
+  /** An order entered through the gateway that may still be filled. */
+  private static final class OwnedOrder {
+    final GatewaySession session;
+    int remaining;
+    boolean acknowledged;
+    // fills routed before the order was acknowledged
+    List<Trade> heldFills;
+
+    OwnedOrder(GatewaySession session, int remaining) {
+      this.session = session;
+      this.remaining = remaining;
+    }
+  }
+}
@@ -0,0 +1,674 @@
+package com.trading.orderbook.journal;
+
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderKind;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.model.TimeInForce;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal of accepted order commands, written through memory-mapped windows of a
+ * single file.
+ *
+ * <p>Each record is laid out as {@code [int length][int crc32c][body]}, where the body starts with
+ * the record's sequence, command type and order id, followed by the time the command ran at, or 0
+ * if it was journaled without one, and the symbol of the order book the command applies to, so
+ * every record can be told apart by book without looking its order up. Strings and unscaled prices
+ * are written as an int length followed by their bytes. The length of the record is written last,
+ * so a zero length marks the end of the journal and a record torn by a crash fails its checksum and
+ * ends replay. Records never span two windows: a length of -1 tells the reader to continue at the
+ * next window.
+ *
+ * <p>A new order record continues with its side, price and quantity, then its kind, the
+ * stop price of a stop order, its time in force and expire time, and finally its account, empty if
+ * it has none. Market orders have no price and are recorded with a price of 0.
+ *
+ * <p>Appends and forces are guarded by {@link ReentrantLock}s rather than monitors, so a virtual
+ * thread blocked on a force does not pin its carrier thread.
+ *
+ * <p>A {@link JournalCursor} follows the records as they are committed, so the journal can be
+ * streamed to backups, which append the same records with {@link #appendRecord(ByteBuffer)} and
+ * read them with {@link #decode(ByteBuffer)}.
+ */
+public class CommandJournal implements Closeable {
+  private static final Logger logger = Logger.getLogger(CommandJournal.class.getName());
+
+  static final int HEADER_SIZE = 8;
+  static final int END_OF_WINDOW = -1;
+  private static final OrderType[] SIDES = OrderType.values();
+  private static final CommandType[] TYPES = CommandType.values();
+  private static final OrderKind[] KINDS = OrderKind.values();
+  private static final TimeInForce[] TIME_IN_FORCES = TimeInForce.values();
+
+  private final FileChannel channel;
+  private final int segmentSize;
+  private final FsyncPolicy fsyncPolicy;
+  private final int batchSize;
+  private final long batchIntervalNanos;
+  private final ScheduledExecutorService flusher;
+  private final CRC32C checksum = new CRC32C();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ReentrantLock forceLock = new ReentrantLock();
+  private final Condition committed = lock.newCondition();
+
+  private MappedByteBuffer segment;
+  private long segmentStart;
+  private long position;
+  private long sequence;
+  private int unforcedRecords;
+  private long lastForceNanos;
+  private volatile long durablePosition;
+
+  /**
+   * Opens a journal, creating the file if it does not exist. Appends continue after the last intact
+   * record.
+   *
+   * @param path the journal file
+   * @param segmentSize the size of each memory-mapped window, in bytes
+   * @param fsyncPolicy when writes are forced to disk
+   * @param batchSize the number of records after which a {@link FsyncPolicy#BATCH} journal forces
+   * @param batchInterval the time after which a {@link FsyncPolicy#BATCH} journal forces
+   */
+  public CommandJournal(
+      Path path, int segmentSize, FsyncPolicy fsyncPolicy, int batchSize, Duration batchInterval) {
+    this.segmentSize = segmentSize;
+    this.fsyncPolicy = fsyncPolicy;
+    this.batchSize = batchSize;
+    this.batchIntervalNanos = batchInterval.toNanos();
+    try {
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      channel =
+          FileChannel.open(
+              path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open journal " + path, e);
+    }
+    position = scan(0, entry -> sequence = entry.sequence());
+    segmentStart = position - position % segmentSize;
+    segment = map(segmentStart);
+    durablePosition = position;
+    lastForceNanos = System.nanoTime();
+    logger.info("Opened journal " + path + " at sequence " + sequence);
+
+    if (fsyncPolicy == FsyncPolicy.BATCH) {
+      flusher =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+              });
+      flusher.scheduleWithFixedDelay(
+          () -> forceTo(position()), batchIntervalNanos, batchIntervalNanos, TimeUnit.NANOSECONDS);
+    } else {
+      flusher = null;
+    }
+  }
+
+  /**
+   * Appends a new order command without a time.
+   *
+   * @param order the new order
+   * @return the sequence of the record
+   */
+  public long appendNewOrder(Order order) {
+    return appendNewOrder(order, 0);
+  }
+
+  /**
+   * Appends a new order command.
+   *
+   * @param order the new order
+   * @param time the time the command runs at, in milliseconds since the epoch
+   * @return the sequence of the record
+   */
+  public long appendNewOrder(Order order, long time) {
+    lock.lock();
+    try {
+      byte[] symbol = order.getSymbol().getBytes(StandardCharsets.UTF_8);
+      // a market order has no price and is recorded at 0
+      BigDecimal price = order.getPrice() != null ? order.getPrice() : BigDecimal.ZERO;
+      byte[] unscaledPrice = price.unscaledValue().toByteArray();
+      byte[] unscaledStopPrice =
+          order.getKind().hasStopPrice()
+              ? order.getStopPrice().unscaledValue().toByteArray()
+              : null;
+      byte[] account =
+          order.getAccount() != null
+              ? order.getAccount().getBytes(StandardCharsets.UTF_8)
+              : new byte[0];
+      int length = bodySize(symbol) + 1 + 4 + 4 + unscaledPrice.length + 4;
+      // kind, time in force, expire time and account
+      length += 1 + 1 + 8 + 4 + account.length;
+      if (unscaledStopPrice != null) {
+        length += 4 + 4 + unscaledStopPrice.length;
+      }
+      int offset = begin(CommandType.NEW, order.getId(), symbol, time, length);
+      segment.put(offset++, (byte) order.getType().ordinal());
+      putPrice(offset, price, unscaledPrice);
+      offset += 8 + unscaledPrice.length;
+      segment.putInt(offset, order.getQuantity());
+      offset += 4;
+      segment.put(offset++, (byte) order.getKind().ordinal());
+      if (unscaledStopPrice != null) {
+        putPrice(offset, order.getStopPrice(), unscaledStopPrice);
+        offset += 8 + unscaledStopPrice.length;
+      }
+      segment.put(offset, (byte) order.getTimeInForce().ordinal());
+      segment.putLong(offset + 1, order.getExpireTime());
+      offset += 1 + 8;
+      segment.putInt(offset, account.length);
+      segment.put(offset + 4, account);
+      return commit(length);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void putPrice(int offset, BigDecimal price, byte[] unscaledPrice) {
+    segment.putInt(offset, price.scale());
+    segment.putInt(offset + 4, unscaledPrice.length);
+    segment.put(offset + 8, unscaledPrice);
+  }
+
+  /**
+   * Appends a cancel command without a time.
+   *
+   * @param orderId the ID of the order to cancel
+   * @param symbol the symbol of the order
+   * @return the sequence of the record
+   */
+  public long appendCancel(UUID orderId, String symbol) {
+    return appendCancel(orderId, symbol, 0);
+  }
+
+  /**
+   * Appends a cancel command.
+   *
+   * @param orderId the ID of the order to cancel
+   * @param symbol the symbol of the order
+   * @param time the time the command runs at, in milliseconds since the epoch
+   * @return the sequence of the record
+   */
+  public long appendCancel(UUID orderId, String symbol, long time) {
+    lock.lock();
+    try {
+      byte[] symbolBytes = symbol.getBytes(StandardCharsets.UTF_8);
+      int length = bodySize(symbolBytes);
+      begin(CommandType.CANCEL, orderId, symbolBytes, time, length);
+      return commit(length);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Appends the expiry of an order the book removed when its time in force ran out.
+   *
+   * @param orderId the ID of the expired order
+   * @param symbol the symbol of the order
+   * @return the sequence of the record
+   */
+  public long appendExpire(UUID orderId, String symbol) {
+    return appendExpire(orderId, symbol, 0);
+  }
+
+  /**
+   * Appends the expiry of an order the book removed when its time in force ran out.
+   *
+   * @param orderId the ID of the expired order
+   * @param symbol the symbol of the order
+   * @param time the time the expiry ran at, in milliseconds since the epoch
+   * @return the sequence of the record
+   */
+  public long appendExpire(UUID orderId, String symbol, long time) {
+    lock.lock();
+    try {
+      byte[] symbolBytes = symbol.getBytes(StandardCharsets.UTF_8);
+      int length = bodySize(symbolBytes);
+      begin(CommandType.EXPIRE, orderId, symbolBytes, time, length);
+      return commit(length);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Appends an amend command without a time.
+   *
+   * @param orderId the ID of the order to amend
+   * @param symbol the symbol of the order
+   * @param price the new price
+   * @param quantity the new quantity
+   * @return the sequence of the record
+   */
+  public long appendAmend(UUID orderId, String symbol, BigDecimal price, int quantity) {
+    return appendAmend(orderId, symbol, price, quantity, 0);
+  }
+
+  /**
+   * Appends an amend command.
+   *
+   * @param orderId the ID of the order to amend
+   * @param symbol the symbol of the order
+   * @param price the new price
+   * @param quantity the new quantity
+   * @param time the time the command runs at, in milliseconds since the epoch
+   * @return the sequence of the record
+   */
+  public long appendAmend(
+      UUID orderId, String symbol, BigDecimal price, int quantity, long time) {
+    lock.lock();
+    try {
+      byte[] symbolBytes = symbol.getBytes(StandardCharsets.UTF_8);
+      byte[] unscaledPrice = price.unscaledValue().toByteArray();
+      int length = bodySize(symbolBytes) + 4 + 4 + unscaledPrice.length + 4;
+      int offset = begin(CommandType.AMEND, orderId, symbolBytes, time, length);
+      putPrice(offset, price, unscaledPrice);
+      segment.putInt(offset + 8 + unscaledPrice.length, quantity);
+      return commit(length);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Appends a record copied verbatim from the journal of another node, keeping its sequence. Used
+   * by backups to hold the same journal as their primary.
+   *
+   * @param record a whole record, as handed out by a {@link JournalCursor}
+   * @return the sequence of the record
+   * @throws IllegalStateException if the record does not directly follow the last record
+   */
+  public long appendRecord(ByteBuffer record) {
+    lock.lock();
+    try {
+      int length = record.getInt(0);
+      long recordSequence = record.getLong(HEADER_SIZE);
+      if (recordSequence != sequence + 1) {
+        throw new IllegalStateException(
+            "Record " + recordSequence + " does not follow sequence " + sequence);
+      }
+      int offset = reserve(length);
+      segment.put(offset + HEADER_SIZE, record, HEADER_SIZE, length);
+      return commit(length);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Forces the records appended so far if the fsync policy calls for it. Callers acknowledge their
+   * command only after this returns. Under {@link FsyncPolicy#SYNC} the command is then durable;
+   * under {@link FsyncPolicy#BATCH} this only forces once a batch is due, so a command can be
+   * acknowledged up to one batch before its record is forced.
+   */
+  public void sync() {
+    switch (fsyncPolicy) {
+      case NONE -> {}
+      case BATCH -> {
+        if (batchDue()) {
+          forceTo(position());
+        }
+      }
+      case SYNC -> forceTo(position());
+    }
+  }
+
+  /**
+   * Reads every intact record from the start of the journal, in sequence order.
+   *
+   * @param handler receives each record
+   */
+  public void replay(Consumer<JournalEntry> handler) {
+    scan(0, handler);
+  }
+
+  /**
+   * Returns a cursor that reads the journal from its first record on, including records appended
+   * after the cursor was created.
+   *
+   * @return a new cursor
+   */
+  public JournalCursor cursor() {
+    return new JournalCursor(this);
+  }
+
+  /**
+   * Decodes a whole record, as handed out by a {@link JournalCursor}.
+   *
+   * @param record the record, starting with its length
+   * @return the command of the record
+   * @throws IllegalArgumentException if the record is truncated or fails its checksum
+   */
+  public static JournalEntry decode(ByteBuffer record) {
+    int length = record.getInt(0);
+    if (length <= 0 || HEADER_SIZE + length != record.limit()) {
+      throw new IllegalArgumentException("Journal record of " + record.limit() + " bytes is torn");
+    }
+    CRC32C crc = new CRC32C();
+    crc.update(record.slice(HEADER_SIZE, length));
+    if ((int) crc.getValue() != record.getInt(4)) {
+      throw new IllegalArgumentException("Journal record fails its checksum");
+    }
+    return read(record, HEADER_SIZE);
+  }
+
+  /**
+   * Returns the sequence of the last record appended.
+   *
+   * @return the last sequence, or 0 if the journal is empty
+   */
+  public long lastSequence() {
+    lock.lock();
+    try {
+      return sequence;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (flusher != null) {
+      flusher.shutdownNow();
+    }
+    if (fsyncPolicy != FsyncPolicy.NONE) {
+      forceTo(position());
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Returns the size of the part of a body that every record starts with. */
+  private static int bodySize(byte[] symbol) {
+    return 8 + 1 + 16 + 8 + 4 + symbol.length;
+  }
+
+  private int begin(CommandType type, UUID orderId, byte[] symbol, long time, int length) {
+    int body = reserve(length) + HEADER_SIZE;
+    segment.putLong(body, sequence + 1);
+    segment.put(body + 8, (byte) type.ordinal());
+    segment.putLong(body + 9, orderId.getMostSignificantBits());
+    segment.putLong(body + 17, orderId.getLeastSignificantBits());
+    segment.putLong(body + 25, time);
+    segment.putInt(body + 33, symbol.length);
+    segment.put(body + 37, symbol);
+    return body + 37 + symbol.length;
+  }
+
+  /** Moves to the next window if the record does not fit, returning the offset of the record. */
+  private int reserve(int length) {
+    if (HEADER_SIZE + length > segmentSize) {
+      throw new IllegalArgumentException("Journal record of " + length + " bytes does not fit");
+    }
+    int offset = (int) (position - segmentStart);
+    if (offset + HEADER_SIZE + length > segmentSize) {
+      if (segmentSize - offset >= 4) {
+        segment.putInt(offset, END_OF_WINDOW);
+      }
+      if (fsyncPolicy != FsyncPolicy.NONE) {
+        segment.force();
+      }
+      segmentStart += segmentSize;
+      position = segmentStart;
+      segment = map(segmentStart);
+      offset = 0;
+    }
+    return offset;
+  }
+
+  private long commit(int length) {
+    int offset = (int) (position - segmentStart);
+    checksum.reset();
+    checksum.update(segment.slice(offset + HEADER_SIZE, length));
+    segment.putInt(offset + 4, (int) checksum.getValue());
+    segment.putInt(offset, length);
+    position += HEADER_SIZE + length;
+    unforcedRecords++;
+    committed.signalAll();
+    return ++sequence;
+  }
+
+  /**
+   * Returns the position just after the last committed record. Records before it are complete and
+   * never change.
+   */
+  long position() {
+    lock.lock();
+    try {
+      return position;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean batchDue() {
+    lock.lock();
+    try {
+      return unforcedRecords >= batchSize
+          || System.nanoTime() - lastForceNanos >= batchIntervalNanos;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void forceTo(long target) {
+    forceLock.lock();
+    try {
+      if (durablePosition >= target) {
+        // a concurrent force already covered this position
+        return;
+      }
+      MappedByteBuffer window;
+      long end;
+      lock.lock();
+      try {
+        window = segment;
+        end = position;
+        unforcedRecords = 0;
+        lastForceNanos = System.nanoTime();
+      } finally {
+        lock.unlock();
+      }
+      window.force();
+      durablePosition = end;
+    } finally {
+      forceLock.unlock();
+    }
+  }
+
+  /**
+   * Waits until a record is committed beyond a position.
+   *
+   * @param from the position already read
+   * @param timeoutNanos how long to wait at most
+   * @return true if records beyond the position are committed
+   */
+  boolean awaitCommitted(long from, long timeoutNanos) throws InterruptedException {
+    lock.lock();
+    try {
+      long nanos = timeoutNanos;
+      while (position <= from) {
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = committed.awaitNanos(nanos);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int segmentSize() {
+    return segmentSize;
+  }
+
+  /**
+   * Returns the size of the largest record the journal can hold, header included.
+   *
+   * @return the size in bytes
+   */
+  public int maxRecordSize() {
+    return segmentSize;
+  }
+
+  MappedByteBuffer mapReadOnly(long start) {
+    try {
+      return channel.map(FileChannel.MapMode.READ_ONLY, start, segmentSize);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not map journal window at " + start, e);
+    }
+  }
+
+  private MappedByteBuffer map(long start) {
+    try {
+      return channel.map(FileChannel.MapMode.READ_WRITE, start, segmentSize);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not map journal window at " + start, e);
+    }
+  }
+
+  /**
+   * Reads intact records starting at an absolute position.
+   *
+   * @return the position just after the last intact record
+   */
+  private long scan(long from, Consumer<JournalEntry> handler) {
+    long windowStart = from - from % segmentSize;
+    int offset = (int) (from - windowStart);
+    CRC32C crc = new CRC32C();
+    try {
+      while (windowStart < channel.size()) {
+        MappedByteBuffer window =
+            channel.map(FileChannel.MapMode.READ_ONLY, windowStart, segmentSize);
+        while (true) {
+          int length = offset + 4 <= segmentSize ? window.getInt(offset) : END_OF_WINDOW;
+          if (length == END_OF_WINDOW) {
+            break;
+          }
+          if (length <= 0 || offset + HEADER_SIZE + length > segmentSize) {
+            return windowStart + offset;
+          }
+          crc.reset();
+          crc.update(window.slice(offset + HEADER_SIZE, length));
+          if ((int) crc.getValue() != window.getInt(offset + 4)) {
+            logger.warning("Journal ends with a torn record at " + (windowStart + offset));
+            return windowStart + offset;
+          }
+          handler.accept(read(window, offset + HEADER_SIZE));
+          offset += HEADER_SIZE + length;
+        }
+        windowStart += segmentSize;
+        offset = 0;
+      }
+      return windowStart + offset;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read journal", e);
+    }
+  }
+
+  private static JournalEntry read(ByteBuffer window, int body) {
+    long sequence = window.getLong(body);
+    CommandType type = TYPES[window.get(body + 8)];
+    UUID orderId = new UUID(window.getLong(body + 9), window.getLong(body + 17));
+    long time = window.getLong(body + 25);
+    byte[] symbolBytes = new byte[window.getInt(body + 33)];
+    window.get(body + 37, symbolBytes);
+    String symbol = new String(symbolBytes, StandardCharsets.UTF_8);
+    int offset = body + 37 + symbolBytes.length;
+    return switch (type) {
+      case CANCEL, EXPIRE ->
+          new JournalEntry(
+              sequence, type, orderId, symbol, null, null, 0, null, null, null, 0, null, time);
+      case AMEND -> {
+        BigDecimal price = getPrice(window, offset);
+        int quantity = window.getInt(offset + 8 + window.getInt(offset + 4));
+        yield new JournalEntry(
+            sequence,
+            type,
+            orderId,
+            symbol,
+            null,
+            price,
+            quantity,
+            null,
+            null,
+            null,
+            0,
+            null,
+            time);
+      }
+      case NEW -> {
+        OrderType side = SIDES[window.get(offset++)];
+        BigDecimal price = getPrice(window, offset);
+        offset += 8 + window.getInt(offset + 4);
+        int quantity = window.getInt(offset);
+        offset += 4;
+        OrderKind kind = KINDS[window.get(offset++)];
+        if (kind == OrderKind.MARKET) {
+          price = null;
+        }
+        BigDecimal stopPrice = null;
+        if (kind.hasStopPrice()) {
+          stopPrice = getPrice(window, offset);
+          offset += 8 + window.getInt(offset + 4);
+        }
+        TimeInForce timeInForce = TIME_IN_FORCES[window.get(offset)];
+        long expireTime = window.getLong(offset + 1);
+        offset += 1 + 8;
+        byte[] bytes = new byte[window.getInt(offset)];
+        window.get(offset + 4, bytes);
+        String account = bytes.length > 0 ? new String(bytes, StandardCharsets.UTF_8) : null;
+        yield new JournalEntry(
+            sequence,
+            type,
+            orderId,
+            symbol,
+            side,
+            price,
+            quantity,
+            kind,
+            stopPrice,
+            timeInForce,
+            expireTime,
+            account,
+            time);
+      }
+    };
+  }
+
+  private static BigDecimal getPrice(ByteBuffer window, int offset) {
+    int scale = window.getInt(offset);
+    byte[] unscaledPrice = new byte[window.getInt(offset + 4)];
+    window.get(offset + 8, unscaledPrice);
+    return new BigDecimal(new BigInteger(unscaledPrice), scale);
+  }
+}
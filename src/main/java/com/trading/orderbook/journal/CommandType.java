@@ -0,0 +1,10 @@
+package com.trading.orderbook.journal;
+
+/** The kinds of commands recorded in the journal. */
+public enum CommandType {
+  NEW,
+  CANCEL,
+  AMEND,
+  /** The book removed an order whose time in force ran out. */
+  EXPIRE
+}
@@ -0,0 +1,18 @@
+package com.trading.orderbook.journal;
+
+/** When journal writes are forced to disk. */
+public enum FsyncPolicy {
+  /** Never force explicitly; the operating system writes pages back on its own schedule. */
+  NONE,
+  /**
+   * Force once a batch of records has accumulated or the batch interval has passed, whichever comes
+   * first. Commands are acknowledged before their batch is forced, so the last batch of
+   * acknowledged commands can be lost on power failure.
+   */
+  BATCH,
+  /**
+   * Force before every command is acknowledged. Concurrent commands share a single force (group
+   * commit).
+   */
+  SYNC
+}
@@ -0,0 +1,27 @@
+package com.trading.orderbook.journal;
+
+import com.trading.orderbook.service.OrderService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Creates the command journal when journaling is enabled. */
+@Configuration
+@ConditionalOnProperty(prefix = "orderbook.journal", name = "enabled", havingValue = "true")
+public class JournalConfiguration {
+
+  @Bean(destroyMethod = "close")
+  public CommandJournal commandJournal(JournalProperties properties) {
+    return new CommandJournal(
+        properties.path(),
+        properties.segmentSize(),
+        properties.fsyncPolicy(),
+        properties.batchSize(),
+        properties.batchInterval());
+  }
+
+  @Bean
+  public JournalReplayer journalReplayer(CommandJournal commandJournal, OrderService orderService) {
+    return new JournalReplayer(commandJournal, orderService);
+  }
+}
@@ -0,0 +1,70 @@
+package com.trading.orderbook.journal;
+
+import static com.trading.orderbook.journal.CommandJournal.END_OF_WINDOW;
+import static com.trading.orderbook.journal.CommandJournal.HEADER_SIZE;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Follows the records of a {@link CommandJournal} in sequence order as they are committed, for
+ * streaming the journal to another process. Records are handed out whole, header included, as
+ * read-only views of the journal file that are only valid during the callback.
+ *
+ * <p>A cursor keeps the window it reads mapped until it moves on to the next one, so following the
+ * tail of the journal does not map the file again for every read. A cursor is not thread safe.
+ */
+public final class JournalCursor {
+
+  private final CommandJournal journal;
+  private final int segmentSize;
+  private long position;
+  private long windowStart = -1;
+  private MappedByteBuffer window;
+
+  JournalCursor(CommandJournal journal) {
+    this.journal = journal;
+    this.segmentSize = journal.segmentSize();
+  }
+
+  /**
+   * Hands over every record committed since the previous read.
+   *
+   * @param handler receives each record and its sequence
+   * @return the number of records read
+   */
+  public int read(ObjLongConsumer<ByteBuffer> handler) {
+    long end = journal.position();
+    int records = 0;
+    while (position < end) {
+      long start = position - position % segmentSize;
+      if (start != windowStart) {
+        window = journal.mapReadOnly(start);
+        windowStart = start;
+      }
+      int offset = (int) (position - windowStart);
+      int length = offset + 4 <= segmentSize ? window.getInt(offset) : END_OF_WINDOW;
+      if (length == END_OF_WINDOW) {
+        position = windowStart + segmentSize;
+        continue;
+      }
+      handler.accept(
+          window.slice(offset, HEADER_SIZE + length), window.getLong(offset + HEADER_SIZE));
+      position += HEADER_SIZE + length;
+      records++;
+    }
+    return records;
+  }
+
+  /**
+   * Waits until records beyond those already read are committed.
+   *
+   * @param timeoutNanos how long to wait at most
+   * @return true if there are records to read
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public boolean await(long timeoutNanos) throws InterruptedException {
+    return journal.awaitCommitted(position, timeoutNanos);
+  }
+}
@@ -0,0 +1,99 @@
+package com.trading.orderbook.journal;
+
+import com.trading.orderbook.model.OrderKind;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.model.TimeInForce;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * A command read back from the journal. Fields that do not apply to the command type are null or
+ * zero.
+ *
+ * @param sequence the journal sequence of the command, starting at 1
+ * @param type the command type
+ * @param orderId the ID of the order the command applies to
+ * @param symbol the symbol of the order book the command applies to
+ * @param side the side of a new order
+ * @param price the price of a new or amended order
+ * @param quantity the quantity of a new or amended order
+ * @param kind the kind of a new order
+ * @param stopPrice the stop price of a new stop order
+ * @param timeInForce the time in force of a new order
+ * @param expireTime the expire time of a new GTD or DAY order, in milliseconds since the epoch
+ * @param account the account of a new order, or null if it has none
+ * @param time the time the command ran at, in milliseconds since the epoch, or 0 if it was
+ *     journaled without one
+ */
+public record JournalEntry(
+    long sequence,
+    CommandType type,
+    UUID orderId,
+    String symbol,
+    OrderType side,
+    BigDecimal price,
+    int quantity,
+    OrderKind kind,
+    BigDecimal stopPrice,
+    TimeInForce timeInForce,
+    long expireTime,
+    String account,
+    long time) {
+
+  /** Creates an entry for a command journaled without a time. */
+  public JournalEntry(
+      long sequence,
+      CommandType type,
+      UUID orderId,
+      String symbol,
+      OrderType side,
+      BigDecimal price,
+      int quantity,
+      OrderKind kind,
+      BigDecimal stopPrice,
+      TimeInForce timeInForce,
+      long expireTime,
+      String account) {
+    this(
+        sequence,
+        type,
+        orderId,
+        symbol,
+        side,
+        price,
+        quantity,
+        kind,
+        stopPrice,
+        timeInForce,
+        expireTime,
+        account,
+        0);
+  }
+
+  /**
+   * Creates an entry for a command journaled without a time that is not a new order other than a
+   * GTC limit order.
+   */
+  public JournalEntry(
+      long sequence,
+      CommandType type,
+      UUID orderId,
+      String symbol,
+      OrderType side,
+      BigDecimal price,
+      int quantity) {
+    this(
+        sequence,
+        type,
+        orderId,
+        symbol,
+        side,
+        price,
+        quantity,
+        type == CommandType.NEW ? OrderKind.LIMIT : null,
+        null,
+        type == CommandType.NEW ? TimeInForce.GTC : null,
+        0,
+        null);
+  }
+}
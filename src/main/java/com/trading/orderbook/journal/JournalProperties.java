@@ -0,0 +1,25 @@
+package com.trading.orderbook.journal;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures the write-ahead command journal.
+ *
+ * @param enabled whether accepted commands are journaled and replayed on startup
+ * @param path the journal file
+ * @param segmentSize the size of each memory-mapped window of the journal file, in bytes
+ * @param fsyncPolicy when writes are forced to disk
+ * @param batchSize the number of records after which a {@link FsyncPolicy#BATCH} journal forces
+ * @param batchInterval the time after which a {@link FsyncPolicy#BATCH} journal forces
+ */
+@ConfigurationProperties(prefix = "orderbook.journal")
+public record JournalProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("data/commands.journal") Path path,
+    @DefaultValue("67108864") int segmentSize,
+    @DefaultValue("BATCH") FsyncPolicy fsyncPolicy,
+    @DefaultValue("256") int batchSize,
+    @DefaultValue("1ms") Duration batchInterval) {}
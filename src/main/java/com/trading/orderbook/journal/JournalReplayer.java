@@ -0,0 +1,100 @@
+package com.trading.orderbook.journal;
+
+import com.trading.orderbook.service.OrderService;
+import com.trading.orderbook.snapshot.SnapshotService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * Rebuilds the order books from the journal on startup, after the matching threads have started and
+ * before the web server accepts requests. When a snapshot was restored, only the commands after it
+ * are replayed.
+ */
+public class JournalReplayer implements SmartLifecycle {
+  private static final Logger logger = Logger.getLogger(JournalReplayer.class.getName());
+
+  /** Runs after the sequencer and before the web server. */
+  public static final int PHASE = 1000;
+
+  private final CommandJournal journal;
+  private final OrderService orderService;
+  private SnapshotService snapshotService;
+  private volatile boolean running;
+
+  public JournalReplayer(CommandJournal journal, OrderService orderService) {
+    this.journal = journal;
+    this.orderService = orderService;
+  }
+
+  /**
+   * Skips the commands already contained in the restored snapshot.
+   *
+   * @param snapshotService the service that restored the snapshot
+   */
+  @Autowired(required = false)
+  public void setSnapshotService(SnapshotService snapshotService) {
+    this.snapshotService = snapshotService;
+  }
+
+  /**
+   * Replays the journal.
+   *
+   * @throws IllegalStateException if any journaled command was rejected on replay. Commands are
+   *     checked before they are journaled, so a rejection means the rebuilt books no longer match
+   *     those the journal was written from, and the service must not start on them. A cancel of an
+   *     order that is already gone is not a rejection, see {@link OrderService#replay}.
+   */
+  @Override
+  public void start() {
+    long[] replayed = new long[1];
+    long[] rejected = new long[1];
+    journal.replay(
+        entry -> {
+          if (inSnapshot(entry)) {
+            return;
+          }
+          try {
+            orderService.replay(entry);
+          } catch (RuntimeException e) {
+            rejected[0]++;
+            logger.log(
+                Level.SEVERE,
+                "Journaled command " + entry.sequence() + " was rejected on replay",
+                e);
+          }
+          replayed[0]++;
+        });
+    if (rejected[0] > 0) {
+      throw new IllegalStateException(
+          rejected[0]
+              + " of "
+              + replayed[0]
+              + " journaled commands were rejected on replay; the books diverge from the journal");
+    }
+    logger.info("Replayed " + replayed[0] + " journaled commands");
+    running = true;
+  }
+
+  private boolean inSnapshot(JournalEntry entry) {
+    // every record names its book, so a command on an order the snapshot no longer holds is skipped
+    return snapshotService != null
+        && entry.sequence() <= snapshotService.restoredSequence(entry.symbol());
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+}
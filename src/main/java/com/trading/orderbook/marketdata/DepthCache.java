@@ -0,0 +1,139 @@
+package com.trading.orderbook.marketdata;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading.orderbook.model.OrderBookDepth;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves order book depth to readers without taking the lock of the book. Once per conflation
+ * interval, every book whose version changed is copied into an immutable {@link DepthSnapshot} by
+ * the thread that owns the book, so a burst of changes costs one copy. Readers get the latest
+ * snapshot with a lock-free read of a concurrent map and repeated requests are answered with its
+ * pre-serialized JSON.
+ *
+ * <p>Snapshots lag the book by up to the conflation interval.
+ */
+@Component
+@ConditionalOnProperty(prefix = "orderbook.depth-cache", name = "enabled", havingValue = "true")
+public class DepthCache implements SmartLifecycle {
+  private static final Logger logger = Logger.getLogger(DepthCache.class.getName());
+
+  private final DepthCacheProperties properties;
+  private final OrderBookService orderBookService;
+  private final OrderService orderService;
+  private final ObjectMapper objectMapper;
+  private final Map<String, DepthSnapshot> snapshots = new ConcurrentHashMap<>();
+  private ScheduledExecutorService publisher;
+
+  public DepthCache(
+      DepthCacheProperties properties,
+      OrderBookService orderBookService,
+      OrderService orderService,
+      ObjectMapper objectMapper) {
+    if (properties.maxDepth() <= 0) {
+      throw new IllegalArgumentException("Depth cache depth must be positive");
+    }
+    this.properties = properties;
+    this.orderBookService = orderBookService;
+    this.orderService = orderService;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Returns the latest snapshot of an order book.
+   *
+   * @param symbol the symbol of the order book
+   * @return the snapshot, or null if none was taken yet
+   */
+  public DepthSnapshot getSnapshot(String symbol) {
+    return snapshots.get(symbol);
+  }
+
+  /**
+   * Returns the JSON of the latest depth of an order book.
+   *
+   * @param symbol the symbol of the order book
+   * @param depth the number of levels per side, or null for all levels
+   * @return the shared JSON bytes, which must not be modified, or null if the cache cannot answer
+   *     the request and the book has to be read directly
+   */
+  public byte[] depthJson(String symbol, Integer depth) {
+    DepthSnapshot snapshot = snapshots.get(symbol);
+    if (snapshot == null || (depth != null && depth <= 0)) {
+      return null;
+    }
+    return snapshot.json(depth, objectMapper);
+  }
+
+  /** Copies every order book that changed since its last snapshot. */
+  public void refresh() {
+    for (String symbol : orderBookService.getSymbols()) {
+      DepthSnapshot current = snapshots.get(symbol);
+      if (current == null
+          || current.getVersion() != orderBookService.getOrderBook(symbol).getVersion()) {
+        snapshots.put(symbol, capture(symbol));
+      }
+    }
+  }
+
+  private DepthSnapshot capture(String symbol) {
+    int maxDepth = properties.maxDepth();
+    return orderService.execute(
+        symbol,
+        book -> {
+          // one level more than kept tells whether a side was cut off
+          List<OrderBookDepth> levels = book.topN(maxDepth + 1);
+          List<OrderBookDepth> bids =
+              levels.stream().filter(level -> level.type() == OrderType.BUY).toList();
+          List<OrderBookDepth> offers = levels.subList(bids.size(), levels.size());
+          return new DepthSnapshot(symbol, book.getVersion(), bids, offers, maxDepth);
+        });
+  }
+
+  @Override
+  public void start() {
+    long intervalNanos = properties.conflationInterval().toNanos();
+    publisher =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "depth-cache");
+              thread.setDaemon(true);
+              return thread;
+            });
+    publisher.scheduleWithFixedDelay(
+        () -> {
+          try {
+            refresh();
+          } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not refresh depth cache", e);
+          }
+        },
+        0,
+        intervalNanos,
+        TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void stop() {
+    publisher.shutdownNow();
+    publisher = null;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return publisher != null;
+  }
+}
@@ -0,0 +1,19 @@
+package com.trading.orderbook.marketdata;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures the cache of order book depth served to readers.
+ *
+ * @param enabled whether depth reads are served from the cache
+ * @param conflationInterval the time between checks for changed books; all changes within it are
+ *     conflated into one snapshot
+ * @param maxDepth the number of levels per side kept in each snapshot
+ */
+@ConfigurationProperties(prefix = "orderbook.depth-cache")
+public record DepthCacheProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("10ms") Duration conflationInterval,
+    @DefaultValue("50") int maxDepth) {}
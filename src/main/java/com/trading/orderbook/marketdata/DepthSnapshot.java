@@ -0,0 +1,124 @@
+package com.trading.orderbook.marketdata;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading.orderbook.model.OrderBookDepth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable copy of the best levels of an order book at one version. The JSON of each requested
+ * depth is serialized once and then served from a cache owned by the snapshot, so it is discarded
+ * together with the snapshot. Depths beyond the levels held share one entry, so the cache holds at
+ * most one entry per held level.
+ */
+public final class DepthSnapshot {
+
+  /** Key of the JSON cache entry for the whole book. */
+  private static final int ALL_LEVELS = -1;
+
+  private final String symbol;
+  private final long version;
+  private final List<OrderBookDepth> bids;
+  private final List<OrderBookDepth> offers;
+  private final int maxDepth;
+  private final boolean complete;
+  private final Map<Integer, byte[]> json = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a snapshot.
+   *
+   * @param symbol the symbol of the order book
+   * @param version the version of the order book the levels were copied at
+   * @param bids the best bid levels, from the highest price down
+   * @param offers the best offer levels, from the lowest price up
+   * @param maxDepth the number of levels per side to keep; a side with more levels is cut off and
+   *     cannot serve a full book
+   */
+  public DepthSnapshot(
+      String symbol,
+      long version,
+      List<OrderBookDepth> bids,
+      List<OrderBookDepth> offers,
+      int maxDepth) {
+    this.symbol = symbol;
+    this.version = version;
+    this.bids = List.copyOf(bids.subList(0, Math.min(maxDepth, bids.size())));
+    this.offers = List.copyOf(offers.subList(0, Math.min(maxDepth, offers.size())));
+    this.maxDepth = maxDepth;
+    this.complete = bids.size() <= maxDepth && offers.size() <= maxDepth;
+  }
+
+  public String getSymbol() {
+    return symbol;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the levels in the order of {@link com.trading.orderbook.model.OrderBook#topN(int)}, or
+   * for a null depth, of {@link com.trading.orderbook.model.OrderBook#orderbookDepth()}.
+   *
+   * @param depth the number of levels per side, or null for all levels
+   * @return the levels, or null if this snapshot does not hold enough levels
+   */
+  public List<OrderBookDepth> levels(Integer depth) {
+    if (!holds(depth)) {
+      return null;
+    }
+    if (depth == null) {
+      List<OrderBookDepth> levels = new ArrayList<>(bids.size() + offers.size());
+      levels.addAll(bids.reversed());
+      levels.addAll(offers);
+      return levels;
+    }
+    int held = deepest(depth);
+    List<OrderBookDepth> levels = new ArrayList<>(2 * held);
+    levels.addAll(bids.subList(0, Math.min(held, bids.size())));
+    levels.addAll(offers.subList(0, Math.min(held, offers.size())));
+    return levels;
+  }
+
+  private boolean holds(Integer depth) {
+    return complete || (depth != null && depth <= maxDepth);
+  }
+
+  /**
+   * Returns the depth up to which the levels of a requested depth are held. Deeper requests yield
+   * the same levels, so they share the result of this depth.
+   */
+  private int deepest(int depth) {
+    return Math.min(depth, Math.max(bids.size(), offers.size()));
+  }
+
+  /**
+   * Returns the levels serialized as JSON.
+   *
+   * @param depth the number of levels per side, or null for all levels
+   * @param objectMapper the mapper that serializes the levels the first time
+   * @return the shared JSON bytes, which must not be modified, or null if this snapshot does not
+   *     hold enough levels
+   */
+  public byte[] json(Integer depth, ObjectMapper objectMapper) {
+    if (!holds(depth)) {
+      return null;
+    }
+    int key = depth == null ? ALL_LEVELS : deepest(depth);
+    byte[] cached = json.get(key);
+    if (cached != null) {
+      return cached;
+    }
+    List<OrderBookDepth> levels = levels(depth);
+    try {
+      byte[] serialized = objectMapper.writeValueAsBytes(levels);
+      json.putIfAbsent(key, serialized);
+      return serialized;
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize depth of " + symbol, e);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package com.trading.orderbook.marketdata;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks the sequences of a market data feed on the consumer side. A book is in sync once a full
+ * refresh arrived; from then on every incremental event must carry the next sequence. An event with
+ * a higher sequence means events were lost, and the book is out of sync until the next refresh.
+ * Events included in the last refresh are reported as stale.
+ */
+public class GapDetector {
+
+  /** What a consumer should do with an event. */
+  public enum Result {
+    /** The event is the next one of an in-sync book and must be applied. */
+    APPLY,
+    /** The event is already included in the state of the book and must be ignored. */
+    STALE,
+    /** The book is not in sync; the event must be ignored until the next refresh. */
+    GAP
+  }
+
+  private final Map<String, Long> expected = new HashMap<>();
+  private long gaps;
+
+  /**
+   * Checks the next event of the feed.
+   *
+   * @param event the event
+   * @return what to do with the event
+   */
+  public Result onEvent(MarketDataEvent event) {
+    String symbol = event.symbol();
+    if (event.type() == MarketDataType.REFRESH) {
+      Long next = expected.get(symbol);
+      if (next != null && event.sequence() < next - 1) {
+        return Result.STALE;
+      }
+      expected.put(symbol, event.sequence() + 1);
+      return Result.APPLY;
+    }
+    Long next = expected.get(symbol);
+    if (next == null) {
+      return Result.GAP;
+    }
+    if (event.sequence() < next) {
+      return Result.STALE;
+    }
+    if (event.sequence() > next) {
+      expected.remove(symbol);
+      gaps++;
+      return Result.GAP;
+    }
+    expected.put(symbol, next + 1);
+    return Result.APPLY;
+  }
+
+  /**
+   * Returns whether a book is in sync.
+   *
+   * @param symbol the symbol of the book
+   * @return true if the book received a refresh and no event was lost since
+   */
+  public boolean inSync(String symbol) {
+    return expected.containsKey(symbol);
+  }
+
+  /**
+   * Returns the number of gaps detected.
+   *
+   * @return the number of times events were lost
+   */
+  public long getGaps() {
+    return gaps;
+  }
+}
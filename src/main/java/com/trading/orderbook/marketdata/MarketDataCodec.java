@@ -0,0 +1,120 @@
+package com.trading.orderbook.marketdata;
+
+import com.trading.orderbook.model.OrderBookDepth;
+import com.trading.orderbook.model.OrderType;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of market data events for the UDP feed. Each datagram holds one or more messages,
+ * each framed by an unsigned 16-bit length. All fields are big-endian:
+ *
+ * <pre>
+ * long sequence, byte type, byte symbolLength, symbol, long timestamp, then
+ *   levels and trades: byte side, long unscaledPrice, byte scale, int quantity, int orderCount
+ *   refresh:           short levelCount, levelCount * (byte side, long unscaledPrice, byte scale,
+ *                      int quantity)
+ * </pre>
+ */
+public final class MarketDataCodec {
+
+  private static final MarketDataType[] TYPES = MarketDataType.values();
+  private static final OrderType[] SIDES = OrderType.values();
+
+  private MarketDataCodec() {}
+
+  /**
+   * Returns the encoded size of an event, including its length field.
+   *
+   * @param event the event
+   * @return the size in bytes
+   */
+  public static int size(MarketDataEvent event) {
+    int header = 2 + 8 + 1 + 1 + event.symbol().getBytes(StandardCharsets.UTF_8).length + 8;
+    if (event.type() == MarketDataType.REFRESH) {
+      return header + 2 + event.levels().size() * (1 + 8 + 1 + 4);
+    }
+    return header + 1 + 8 + 1 + 4 + 4;
+  }
+
+  /**
+   * Writes an event.
+   *
+   * @param buffer the buffer to write to
+   * @param event the event
+   * @throws ArithmeticException if a price does not fit a 64-bit unscaled value and 8-bit scale
+   */
+  public static void encode(ByteBuffer buffer, MarketDataEvent event) {
+    int start = buffer.position();
+    byte[] symbol = event.symbol().getBytes(StandardCharsets.UTF_8);
+    buffer.position(start + 2);
+    buffer.putLong(event.sequence()).put((byte) event.type().ordinal());
+    buffer.put((byte) symbol.length).put(symbol).putLong(event.timestamp());
+    if (event.type() == MarketDataType.REFRESH) {
+      buffer.putShort((short) event.levels().size());
+      for (OrderBookDepth level : event.levels()) {
+        buffer.put((byte) level.type().ordinal());
+        putPrice(buffer, level.price());
+        buffer.putInt(level.quantity());
+      }
+    } else {
+      buffer.put((byte) event.side().ordinal());
+      putPrice(buffer, event.price());
+      buffer.putInt(event.quantity()).putInt(event.orderCount());
+    }
+    buffer.putShort(start, (short) (buffer.position() - start - 2));
+  }
+
+  /**
+   * Reads the next event of a datagram.
+   *
+   * @param buffer the datagram, positioned at the length of the event
+   * @return the event
+   */
+  public static MarketDataEvent decode(ByteBuffer buffer) {
+    int length = buffer.getShort() & 0xFFFF;
+    int end = buffer.position() + length;
+    long sequence = buffer.getLong();
+    MarketDataType type = TYPES[buffer.get()];
+    byte[] symbolBytes = new byte[buffer.get()];
+    buffer.get(symbolBytes);
+    String symbol = new String(symbolBytes, StandardCharsets.UTF_8);
+    long timestamp = buffer.getLong();
+    MarketDataEvent event;
+    if (type == MarketDataType.REFRESH) {
+      int levelCount = buffer.getShort() & 0xFFFF;
+      List<OrderBookDepth> levels = new ArrayList<>(levelCount);
+      for (int i = 0; i < levelCount; i++) {
+        OrderType side = SIDES[buffer.get()];
+        BigDecimal price = getPrice(buffer);
+        levels.add(new OrderBookDepth(price, buffer.getInt(), side));
+      }
+      event = new MarketDataEvent(sequence, symbol, type, null, null, 0, 0, timestamp, levels);
+    } else {
+      OrderType side = SIDES[buffer.get()];
+      BigDecimal price = getPrice(buffer);
+      int quantity = buffer.getInt();
+      int orderCount = buffer.getInt();
+      event =
+          new MarketDataEvent(
+              sequence, symbol, type, side, price, quantity, orderCount, timestamp, null);
+    }
+    buffer.position(end);
+    return event;
+  }
+
+  private static void putPrice(ByteBuffer buffer, BigDecimal price) {
+    if (price.scale() < Byte.MIN_VALUE || price.scale() > Byte.MAX_VALUE) {
+      throw new ArithmeticException("Price scale out of range: " + price);
+    }
+    buffer.putLong(price.unscaledValue().longValueExact()).put((byte) price.scale());
+  }
+
+  private static BigDecimal getPrice(ByteBuffer buffer) {
+    long unscaled = buffer.getLong();
+    return BigDecimal.valueOf(unscaled, buffer.get());
+  }
+}
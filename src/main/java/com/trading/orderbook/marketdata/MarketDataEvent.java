@@ -0,0 +1,34 @@
+package com.trading.orderbook.marketdata;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.trading.orderbook.model.OrderBookDepth;
+import com.trading.orderbook.model.OrderType;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One event of the market data feed. Level events and trades carry consecutive sequences per
+ * symbol. A refresh carries the sequence of the last event it includes, so a consumer applies the
+ * events after it and ignores older ones.
+ *
+ * @param sequence the sequence of the event within its symbol
+ * @param symbol the symbol of the order book
+ * @param type the kind of event
+ * @param side the side of the level, or of the incoming order for a trade; null for a refresh
+ * @param price the price of the level or trade; null for a refresh
+ * @param quantity the quantity at the level or of the trade
+ * @param orderCount the number of orders at the level
+ * @param timestamp the time of the event, in milliseconds since the epoch
+ * @param levels the best levels of each side for a refresh, bids first; null otherwise
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record MarketDataEvent(
+    long sequence,
+    String symbol,
+    MarketDataType type,
+    OrderType side,
+    BigDecimal price,
+    int quantity,
+    int orderCount,
+    long timestamp,
+    List<OrderBookDepth> levels) {}
@@ -0,0 +1,28 @@
+package com.trading.orderbook.marketdata;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures the market data feed.
+ *
+ * @param enabled whether book updates are published
+ * @param refreshInterval the time between full refreshes of every book
+ * @param refreshDepth the number of levels per side in a full refresh
+ * @param queueSize the number of updates buffered between the order books and the publisher;
+ *     updates beyond it are dropped and show up as sequence gaps
+ * @param multicastGroup the UDP group or address updates are sent to, or empty for no UDP feed
+ * @param multicastPort the UDP port updates are sent to
+ * @param subscriberQueueSize the number of events buffered for each SSE subscriber; a subscriber
+ *     that falls further behind is disconnected
+ */
+@ConfigurationProperties(prefix = "orderbook.market-data")
+public record MarketDataProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("1s") Duration refreshInterval,
+    @DefaultValue("20") int refreshDepth,
+    @DefaultValue("65536") int queueSize,
+    @DefaultValue("") String multicastGroup,
+    @DefaultValue("9200") int multicastPort,
+    @DefaultValue("1024") int subscriberQueueSize) {}
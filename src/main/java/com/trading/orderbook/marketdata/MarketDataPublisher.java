@@ -0,0 +1,428 @@
+package com.trading.orderbook.marketdata;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading.orderbook.model.BookListener;
+import com.trading.orderbook.model.LevelAction;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Publishes incremental order book updates to UDP and Server-Sent Events subscribers.
+ *
+ * <p>The order books report trades and level changes to this publisher under their lock, which only
+ * assigns each event the next sequence of its symbol and queues it. A single publisher thread
+ * encodes every event once per format and fans it out: binary messages packed into datagrams for
+ * the UDP feed, and one JSON event shared by all SSE subscribers. When the queue is full, events
+ * are dropped; consumers see the gap in the sequence and recover from the next full refresh, which
+ * is sent for every book at a fixed interval. A new SSE subscriber gets a refresh of its books of
+ * its own, so reconnecting clients do not flood the shared feed.
+ *
+ * <p>The publisher thread never writes to an SSE connection: it queues each event for every
+ * subscriber, and a thread per subscriber sends them. These are platform threads, because an
+ * emitter sends while holding its monitor, which would pin a virtual thread to its carrier for as
+ * long as a slow client takes to read. A subscriber whose queue is full is disconnected, so one
+ * slow client cannot hold up the feed for the others; it resumes from a refresh when it reconnects.
+ */
+@Component
+@ConditionalOnProperty(prefix = "orderbook.market-data", name = "enabled", havingValue = "true")
+public class MarketDataPublisher implements BookListener, SmartLifecycle {
+  private static final Logger logger = Logger.getLogger(MarketDataPublisher.class.getName());
+
+  /** Runs before the journal replayer, so replayed changes are published as they happen. */
+  public static final int PHASE = 0;
+
+  /** Keeps datagrams below a typical Ethernet MTU. */
+  static final int MAX_DATAGRAM_SIZE = 1400;
+
+  private static final int MAX_BATCH = 1024;
+
+  private final MarketDataProperties properties;
+  private final OrderBookService orderBookService;
+  private final OrderService orderService;
+  private final ObjectMapper objectMapper;
+  private final BlockingQueue<MarketDataEvent> queue;
+  private final Map<String, long[]> sequences = new ConcurrentHashMap<>();
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  private final AtomicLong dropped = new AtomicLong();
+  private final ByteBuffer datagram = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+  private DatagramChannel channel;
+  private InetSocketAddress target;
+  private Thread thread;
+  private volatile boolean running;
+
+  public MarketDataPublisher(
+      MarketDataProperties properties,
+      OrderBookService orderBookService,
+      OrderService orderService,
+      ObjectMapper objectMapper) {
+    this.properties = properties;
+    this.orderBookService = orderBookService;
+    this.orderService = orderService;
+    this.objectMapper = objectMapper;
+    this.queue = new ArrayBlockingQueue<>(properties.queueSize());
+    orderBookService.setBookListener(this);
+  }
+
+  @Override
+  public void tradeExecuted(
+      String symbol, long tradeSequence, OrderType takerSide, BigDecimal price, int quantity) {
+    enqueue(symbol, MarketDataType.TRADE, takerSide, price, quantity, 0);
+  }
+
+  @Override
+  public void levelUpdated(
+      String symbol,
+      LevelAction action,
+      OrderType side,
+      BigDecimal price,
+      int quantity,
+      int orderCount) {
+    MarketDataType type =
+        switch (action) {
+          case ADD -> MarketDataType.ADD_LEVEL;
+          case CHANGE -> MarketDataType.CHANGE_LEVEL;
+          case DELETE -> MarketDataType.DELETE_LEVEL;
+        };
+    enqueue(symbol, type, side, price, quantity, orderCount);
+  }
+
+  private void enqueue(
+      String symbol,
+      MarketDataType type,
+      OrderType side,
+      BigDecimal price,
+      int quantity,
+      int orderCount) {
+    // called under the lock of the symbol's book, so its sequence needs no further synchronization
+    long sequence = ++sequences.computeIfAbsent(symbol, s -> new long[1])[0];
+    MarketDataEvent event =
+        new MarketDataEvent(
+            sequence,
+            symbol,
+            type,
+            side,
+            price,
+            quantity,
+            orderCount,
+            System.currentTimeMillis(),
+            null);
+    if (!queue.offer(event)) {
+      dropped.incrementAndGet();
+    }
+  }
+
+  /**
+   * Subscribes to the feed as Server-Sent Events. The first event of each book is a full refresh.
+   *
+   * @param symbol the symbol to receive, or null for every symbol
+   * @return the emitter that streams the events
+   */
+  public SseEmitter subscribe(String symbol) {
+    return subscribe(symbol, new SseEmitter(0L));
+  }
+
+  /** Subscribes an emitter created by the caller. */
+  SseEmitter subscribe(String symbol, SseEmitter emitter) {
+    Subscriber subscriber = new Subscriber(symbol, emitter, properties.subscriberQueueSize());
+    subscriber.sender =
+        Thread.ofPlatform().name("market-data-subscriber").daemon().start(() -> send(subscriber));
+    emitter.onCompletion(() -> disconnect(subscriber));
+    emitter.onTimeout(() -> disconnect(subscriber));
+    emitter.onError(error -> disconnect(subscriber));
+    subscribers.add(subscriber);
+    return emitter;
+  }
+
+  /** Sends the queued events of a subscriber until it is disconnected. */
+  private void send(Subscriber subscriber) {
+    try {
+      while (!subscriber.closed) {
+        subscriber.emitter.send(subscriber.pending.take());
+      }
+    } catch (InterruptedException e) {
+      // disconnected while waiting for events
+    } catch (IOException | IllegalStateException e) {
+      subscribers.remove(subscriber);
+      subscriber.emitter.completeWithError(e);
+      return;
+    }
+    subscriber.emitter.complete();
+  }
+
+  /** Stops queuing events for a subscriber and lets its sender complete the connection. */
+  private void disconnect(Subscriber subscriber) {
+    subscribers.remove(subscriber);
+    subscriber.closed = true;
+    subscriber.sender.interrupt();
+  }
+
+  /**
+   * Returns the number of events dropped because the queue was full.
+   *
+   * @return the number of dropped events
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  @Override
+  public void start() {
+    if (!properties.multicastGroup().isEmpty()) {
+      try {
+        InetAddress group = InetAddress.getByName(properties.multicastGroup());
+        target = new InetSocketAddress(group, properties.multicastPort());
+        channel = DatagramChannel.open();
+        if (group.isMulticastAddress()) {
+          channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, 1);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(
+            "Could not open market data channel to " + properties.multicastGroup(), e);
+      }
+      logger.info("Publishing market data to " + target);
+    }
+    running = true;
+    thread = new Thread(this::run, "market-data-publisher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    thread.interrupt();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    subscribers.forEach(this::disconnect);
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Could not close market data channel", e);
+      }
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  private void run() {
+    long intervalNanos = properties.refreshInterval().toNanos();
+    long nextRefresh = System.nanoTime();
+    List<MarketDataEvent> batch = new ArrayList<>(MAX_BATCH);
+    while (running) {
+      try {
+        long waitNanos = nextRefresh - System.nanoTime();
+        MarketDataEvent event = waitNanos > 0 ? queue.poll(waitNanos, TimeUnit.NANOSECONDS) : null;
+        if (event != null) {
+          batch.add(event);
+          queue.drainTo(batch, MAX_BATCH - 1);
+        }
+        if (System.nanoTime() - nextRefresh >= 0) {
+          nextRefresh = System.nanoTime() + intervalNanos;
+          // refreshes go first: queued events they already include are then discarded as stale
+          batch.addAll(0, refreshes());
+          joinSubscribers(List.of());
+        } else {
+          joinSubscribers(null);
+        }
+        publish(batch);
+        batch.clear();
+      } catch (InterruptedException e) {
+        if (running) {
+          logger.warning("Market data publisher interrupted while running");
+        }
+      } catch (RuntimeException e) {
+        logger.log(Level.WARNING, "Could not publish market data", e);
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Lets subscribers that joined since the last iteration receive events. Unless the batch about to
+   * be published starts with a refresh of every book, each of them first gets a refresh of its
+   * books in its own queue; the shared feed and the other subscribers do not see it.
+   *
+   * @param refreshes the refreshes taken for the joining subscribers so far, an empty list if the
+   *     batch already starts with refreshes, or null if none were taken yet
+   */
+  private void joinSubscribers(List<MarketDataEvent> refreshes) {
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.live) {
+        continue;
+      }
+      if (refreshes == null) {
+        refreshes = refreshes();
+      }
+      for (MarketDataEvent refresh : refreshes) {
+        if (subscriber.wants(refresh) && !subscriber.pending.offer(message(refresh))) {
+          disconnect(subscriber);
+          break;
+        }
+      }
+      subscriber.live = true;
+    }
+  }
+
+  private List<MarketDataEvent> refreshes() {
+    List<MarketDataEvent> refreshes = new ArrayList<>();
+    for (String symbol : orderBookService.getSymbols()) {
+      refreshes.add(refresh(symbol));
+    }
+    return refreshes;
+  }
+
+  private MarketDataEvent refresh(String symbol) {
+    return orderService.execute(
+        symbol,
+        book ->
+            new MarketDataEvent(
+                currentSequence(symbol),
+                symbol,
+                MarketDataType.REFRESH,
+                null,
+                null,
+                0,
+                0,
+                System.currentTimeMillis(),
+                book.topN(properties.refreshDepth())));
+  }
+
+  private long currentSequence(String symbol) {
+    long[] sequence = sequences.get(symbol);
+    return sequence == null ? 0 : sequence[0];
+  }
+
+  private void publish(List<MarketDataEvent> batch) {
+    datagram.clear();
+    for (MarketDataEvent event : batch) {
+      if (channel != null) {
+        sendDatagram(event);
+      }
+      if (!subscribers.isEmpty()) {
+        sendEvent(event);
+      }
+    }
+    if (channel != null) {
+      flushDatagram();
+    }
+  }
+
+  private void sendDatagram(MarketDataEvent event) {
+    int size = MarketDataCodec.size(event);
+    if (size > MAX_DATAGRAM_SIZE) {
+      logger.warning("Market data event of " + size + " bytes does not fit a datagram");
+      return;
+    }
+    if (size > datagram.remaining()) {
+      flushDatagram();
+    }
+    int start = datagram.position();
+    try {
+      MarketDataCodec.encode(datagram, event);
+    } catch (ArithmeticException e) {
+      datagram.position(start);
+      logger.warning("Market data price cannot be encoded: " + e.getMessage());
+    }
+  }
+
+  private void flushDatagram() {
+    if (datagram.position() == 0) {
+      return;
+    }
+    datagram.flip();
+    try {
+      channel.send(datagram, target);
+    } catch (IOException e) {
+      // stopping interrupts the publisher, which closes the channel during a send
+      if (running) {
+        logger.log(Level.WARNING, "Could not send market data datagram", e);
+      }
+    }
+    datagram.clear();
+  }
+
+  private Set<ResponseBodyEmitter.DataWithMediaType> message(MarketDataEvent event) {
+    try {
+      return SseEmitter.event()
+          .id(event.symbol() + ":" + event.sequence())
+          .name(event.type().name())
+          .data(objectMapper.writeValueAsString(event))
+          .build();
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not encode market data event", e);
+    }
+  }
+
+  private void sendEvent(MarketDataEvent event) {
+    Set<ResponseBodyEmitter.DataWithMediaType> message = message(event);
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.live && subscriber.wants(event)) {
+        if (!subscriber.pending.offer(message)) {
+          logger.info(
+              "Disconnecting market data subscriber that fell "
+                  + properties.subscriberQueueSize()
+                  + " events behind");
+          disconnect(subscriber);
+        }
+      }
+    }
+  }
+
+  private static final class Subscriber {
+    final String symbol;
+    final SseEmitter emitter;
+    final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> pending;
+    Thread sender;
+    boolean live;
+    volatile boolean closed;
+
+    Subscriber(String symbol, SseEmitter emitter, int queueSize) {
+      this.symbol = symbol;
+      this.emitter = emitter;
+      this.pending = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    boolean wants(MarketDataEvent event) {
+      return symbol == null || symbol.equals(event.symbol());
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package com.trading.orderbook.marketdata;
+
+/** The kinds of market data events. */
+public enum MarketDataType {
+  /** A price level appeared. */
+  ADD_LEVEL,
+  /** The quantity at a price level changed. */
+  CHANGE_LEVEL,
+  /** A price level disappeared. */
+  DELETE_LEVEL,
+  /** A trade was executed. */
+  TRADE,
+  /** The full state of the best levels of a book. */
+  REFRESH
+}
@@ -0,0 +1,142 @@
+package com.trading.orderbook.metrics;
+
+import java.util.function.LongSupplier;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency histogram with wait-free recording. Values are recorded into an HdrHistogram {@link
+ * Recorder} without locks or allocation; readers move what was recorded since the previous read
+ * into the newest of a ring of slices that together cover a sliding window.
+ *
+ * <p>Percentiles and the maximum describe the latencies of the window only, so a slow spell shows
+ * up at once and ages out once the window has passed it. A latency counts towards the slice that
+ * was current when it was read rather than when it was recorded, so the window is exact to the
+ * interval between reads. The count covers every latency since startup.
+ */
+final class LatencyHistogram {
+
+  private static final int SLICES = 6;
+
+  private final Recorder recorder;
+  private final Histogram[] slices = new Histogram[SLICES];
+  private final Histogram window;
+  private final long sliceNanos;
+  private final LongSupplier clock;
+  private Histogram interval;
+  private int current;
+  private long sliceEnd;
+  private long count;
+  private boolean changed;
+
+  /**
+   * Constructs a histogram.
+   *
+   * @param significantDigits the precision of the histogram, from 0 to 5 decimal digits
+   * @param windowNanos the time the percentiles cover, in nanoseconds
+   */
+  LatencyHistogram(int significantDigits, long windowNanos) {
+    this(significantDigits, windowNanos, System::nanoTime);
+  }
+
+  LatencyHistogram(int significantDigits, long windowNanos, LongSupplier clock) {
+    recorder = new Recorder(significantDigits);
+    for (int i = 0; i < SLICES; i++) {
+      slices[i] = new Histogram(significantDigits);
+    }
+    window = new Histogram(significantDigits);
+    sliceNanos = Math.max(1, windowNanos / SLICES);
+    this.clock = clock;
+    sliceEnd = clock.getAsLong() + sliceNanos;
+  }
+
+  /**
+   * Records a latency. May be called from any number of threads.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  void record(long nanos) {
+    recorder.recordValue(Math.max(0, nanos));
+  }
+
+  /**
+   * Returns a percentile of the latencies recorded within the window.
+   *
+   * @param percentile the percentile, from 0 to 100
+   * @return the latency in nanoseconds
+   */
+  synchronized long percentile(double percentile) {
+    return window().getValueAtPercentile(percentile);
+  }
+
+  /**
+   * Returns the highest latency recorded within the window.
+   *
+   * @return the latency in nanoseconds
+   */
+  synchronized long max() {
+    return window().getMaxValue();
+  }
+
+  /**
+   * Returns the number of latencies recorded so far.
+   *
+   * @return the count
+   */
+  synchronized long count() {
+    drain();
+    return count;
+  }
+
+  /**
+   * Copies the percentiles of the latencies recorded within the window.
+   *
+   * @return the summary
+   */
+  synchronized LatencyStats summary() {
+    Histogram window = window();
+    return new LatencyStats(
+        micros(window.getValueAtPercentile(50)),
+        micros(window.getValueAtPercentile(99)),
+        micros(window.getValueAtPercentile(99.9)),
+        micros(window.getValueAtPercentile(99.99)),
+        micros(window.getMaxValue()));
+  }
+
+  /** Returns the sum of the slices, adding them up again only if they changed since last time. */
+  private Histogram window() {
+    drain();
+    if (changed) {
+      window.reset();
+      for (Histogram slice : slices) {
+        window.add(slice);
+      }
+      changed = false;
+    }
+    return window;
+  }
+
+  private void drain() {
+    long now = clock.getAsLong();
+    // clear the slices that aged out of the window, at most all of them however long it was idle
+    for (int i = 0; i < SLICES && now - sliceEnd >= 0; i++) {
+      current = (current + 1) % SLICES;
+      slices[current].reset();
+      sliceEnd += sliceNanos;
+      changed = true;
+    }
+    if (now - sliceEnd >= 0) {
+      sliceEnd = now + sliceNanos;
+    }
+    interval = recorder.getIntervalHistogram(interval);
+    if (interval.getTotalCount() > 0) {
+      count += interval.getTotalCount();
+      slices[current].add(interval);
+      changed = true;
+    }
+  }
+
+  private static double micros(long nanos) {
+    return nanos / 1000.0;
+  }
+}
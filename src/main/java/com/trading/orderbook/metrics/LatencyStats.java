@@ -0,0 +1,12 @@
+package com.trading.orderbook.metrics;
+
+/**
+ * Percentiles of a latency distribution, in microseconds.
+ *
+ * @param p50 the median
+ * @param p99 the 99th percentile
+ * @param p999 the 99.9th percentile
+ * @param p9999 the 99.99th percentile
+ * @param max the highest latency
+ */
+public record LatencyStats(double p50, double p99, double p999, double p9999, double max) {}
@@ -0,0 +1,18 @@
+package com.trading.orderbook.metrics;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures the latency and book metrics.
+ *
+ * @param enabled whether order book commands are timed
+ * @param significantDigits the precision of the latency histograms, from 0 to 5 decimal digits
+ * @param window the time the latency percentiles cover, sliding forward as time passes
+ */
+@ConfigurationProperties(prefix = "orderbook.metrics")
+public record MetricsProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("2") int significantDigits,
+    @DefaultValue("1m") Duration window) {}
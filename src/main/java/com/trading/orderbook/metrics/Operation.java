@@ -0,0 +1,17 @@
+package com.trading.orderbook.metrics;
+
+/** The order book commands that are timed. */
+public enum Operation {
+  /** Adding and matching a new order. */
+  ADD,
+  /** Adding and matching the orders of a batch for one order book. */
+  BATCH,
+  /** Cancelling an order. */
+  CANCEL,
+  /** Amending an order. */
+  AMEND,
+  /** Reading the depth of an order book. */
+  DEPTH,
+  /** Removing the expired orders of an order book. */
+  EXPIRE
+}
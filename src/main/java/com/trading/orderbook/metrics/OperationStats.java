@@ -0,0 +1,11 @@
+package com.trading.orderbook.metrics;
+
+/**
+ * Latency of one kind of command on one order book.
+ *
+ * @param count the number of commands
+ * @param waitTime the time from submitting a command until it started, waiting for the lock of the
+ *     book or in the queue of its matching thread
+ * @param serviceTime the time the command ran
+ */
+public record OperationStats(long count, LatencyStats waitTime, LatencyStats serviceTime) {}
@@ -0,0 +1,171 @@
+package com.trading.orderbook.metrics;
+
+import com.trading.orderbook.model.OrderBook;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ToDoubleFunction;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-symbol and per-operation latency of order book commands, split into the time a command waited
+ * for its order book and the time it ran, together with the size and activity counters of each
+ * book.
+ *
+ * <p>Latencies go into wait-free HdrHistogram recorders, so recording costs a few atomic increments
+ * on the matching path. Everything is published to Micrometer: latency percentiles as {@code
+ * orderbook.latency} gauges, command counts as {@code orderbook.operations} and the book counters
+ * as {@code orderbook.book.*} meters. Percentiles cover the commands of a sliding window, so they
+ * follow the current latency rather than settle on the history since startup. The book meters read
+ * counters each book keeps as commands run, without taking its lock.
+ */
+@Component
+@ConditionalOnProperty(
+    prefix = "orderbook.metrics",
+    name = "enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+public class OrderBookMetrics {
+
+  private static final Operation[] OPERATIONS = Operation.values();
+  private static final double[] PERCENTILES = {50, 99, 99.9, 99.99};
+
+  private final MetricsProperties properties;
+  private final MeterRegistry registry;
+  private final Map<String, SymbolMetrics> symbols = new ConcurrentHashMap<>();
+
+  public OrderBookMetrics(MetricsProperties properties, MeterRegistry registry) {
+    this.properties = properties;
+    this.registry = registry;
+  }
+
+  /**
+   * Records the latency of a command.
+   *
+   * @param orderBook the order book the command ran on
+   * @param operation the kind of command
+   * @param waitNanos the time from submitting the command until it started
+   * @param serviceNanos the time the command ran
+   */
+  public void record(OrderBook orderBook, Operation operation, long waitNanos, long serviceNanos) {
+    SymbolMetrics metrics = symbols.get(orderBook.getSymbol());
+    if (metrics == null) {
+      metrics = symbols.computeIfAbsent(orderBook.getSymbol(), symbol -> register(orderBook));
+    }
+    Timing timing = metrics.timings.get(operation.ordinal());
+    if (timing == null) {
+      timing = metrics.timing(operation);
+    }
+    timing.wait.record(waitNanos);
+    timing.service.record(serviceNanos);
+  }
+
+  /**
+   * Copies the statistics of every order book that ran a timed command.
+   *
+   * @return the statistics by symbol, in symbol order
+   */
+  public Map<String, SymbolStats> stats() {
+    Map<String, SymbolStats> stats = new TreeMap<>();
+    symbols.forEach(
+        (symbol, metrics) -> {
+          Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+          for (Operation operation : OPERATIONS) {
+            Timing timing = metrics.timings.get(operation.ordinal());
+            if (timing != null) {
+              operations.put(
+                  operation,
+                  new OperationStats(
+                      timing.service.count(), timing.wait.summary(), timing.service.summary()));
+            }
+          }
+          stats.put(symbol, new SymbolStats(metrics.orderBook.stats(), operations));
+        });
+    return stats;
+  }
+
+  private SymbolMetrics register(OrderBook orderBook) {
+    Tags tags = Tags.of("symbol", orderBook.getSymbol());
+    bookGauge(
+        "orderbook.book.levels", tags.and("side", "bid"), orderBook, b -> b.stats().bidLevels());
+    bookGauge(
+        "orderbook.book.levels",
+        tags.and("side", "offer"),
+        orderBook,
+        b -> b.stats().offerLevels());
+    bookGauge("orderbook.book.orders", tags, orderBook, b -> b.stats().restingOrders());
+    FunctionCounter.builder("orderbook.book.trades", orderBook, b -> b.stats().trades())
+        .tags(tags)
+        .description("Trades executed in the order book")
+        .register(registry);
+    FunctionCounter.builder(
+            "orderbook.book.level.updates", orderBook, b -> b.stats().levelUpdates())
+        .tags(tags)
+        .description("Price level changes made by commands")
+        .register(registry);
+    return new SymbolMetrics(orderBook);
+  }
+
+  private void bookGauge(
+      String name, Tags tags, OrderBook orderBook, ToDoubleFunction<OrderBook> value) {
+    Gauge.builder(name, orderBook, value).tags(tags).register(registry);
+  }
+
+  private final class SymbolMetrics {
+    final OrderBook orderBook;
+    final AtomicReferenceArray<Timing> timings = new AtomicReferenceArray<>(OPERATIONS.length);
+
+    SymbolMetrics(OrderBook orderBook) {
+      this.orderBook = orderBook;
+    }
+
+    synchronized Timing timing(Operation operation) {
+      Timing timing = timings.get(operation.ordinal());
+      if (timing == null) {
+        timing = new Timing(properties.significantDigits(), properties.window().toNanos());
+        register(timing, Tags.of("symbol", orderBook.getSymbol(), "operation", operation.name()));
+        timings.set(operation.ordinal(), timing);
+      }
+      return timing;
+    }
+
+    private void register(Timing timing, Tags tags) {
+      FunctionCounter.builder("orderbook.operations", timing.service, LatencyHistogram::count)
+          .tags(tags)
+          .description("Order book commands run")
+          .register(registry);
+      registerLatency(timing.wait, tags.and("phase", "wait"));
+      registerLatency(timing.service, tags.and("phase", "service"));
+    }
+
+    private void registerLatency(LatencyHistogram histogram, Tags tags) {
+      for (double percentile : PERCENTILES) {
+        Gauge.builder("orderbook.latency", histogram, h -> h.percentile(percentile) / 1e9)
+            .tags(tags.and("quantile", String.valueOf(percentile / 100)))
+            .baseUnit("seconds")
+            .register(registry);
+      }
+      Gauge.builder("orderbook.latency", histogram, h -> h.max() / 1e9)
+          .tags(tags.and("quantile", "max"))
+          .baseUnit("seconds")
+          .register(registry);
+    }
+  }
+
+  private static final class Timing {
+    final LatencyHistogram wait;
+    final LatencyHistogram service;
+
+    Timing(int significantDigits, long windowNanos) {
+      wait = new LatencyHistogram(significantDigits, windowNanos);
+      service = new LatencyHistogram(significantDigits, windowNanos);
+    }
+  }
+}
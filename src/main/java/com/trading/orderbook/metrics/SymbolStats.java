@@ -0,0 +1,12 @@
+package com.trading.orderbook.metrics;
+
+import com.trading.orderbook.model.BookStats;
+import java.util.Map;
+
+/**
+ * Statistics of one order book.
+ *
+ * @param book the size and activity counters of the book
+ * @param operations the latency of each kind of command that ran on the book
+ */
+public record SymbolStats(BookStats book, Map<Operation, OperationStats> operations) {}
@@ -1,6 +1,7 @@
 package com.trading.orderbook.model;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 
 // @Entity
 // @DiscriminatorValue("AskOrder")
@@ -8,4 +9,18 @@ public class BidOrder extends Order {
   public BidOrder(String symbol, BigDecimal price, Integer quantity) {
     super(symbol, OrderType.BUY, price, quantity);
   }
+
+  public BidOrder(UUID id, String symbol, BigDecimal price, Integer quantity) {
+    super(id, symbol, OrderType.BUY, price, quantity);
+  }
+
+  public BidOrder(
+      UUID id,
+      String symbol,
+      OrderKind kind,
+      BigDecimal price,
+      BigDecimal stopPrice,
+      Integer quantity) {
+    super(id, symbol, OrderType.BUY, kind, price, stopPrice, quantity);
+  }
 }
@@ -0,0 +1,44 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Receives the changes of an order book while they happen. Callbacks run on the thread that changes
+ * the book, under its lock, and in the order the changes happen, so implementations must be quick
+ * and must not call back into the book.
+ *
+ * <p>Each command first reports its trades in execution order, then one update for every price
+ * level whose state it changed, with the state the level has after the command.
+ */
+public interface BookListener {
+
+  /**
+   * Called for every trade.
+   *
+   * @param symbol the symbol of the order book
+   * @param tradeSequence the sequence of the trade in the book's trade stream
+   * @param takerSide the side of the incoming order
+   * @param price the execution price
+   * @param quantity the executed quantity
+   */
+  void tradeExecuted(
+      String symbol, long tradeSequence, OrderType takerSide, BigDecimal price, int quantity);
+
+  /**
+   * Called for every price level a command changed.
+   *
+   * @param symbol the symbol of the order book
+   * @param action how the level changed
+   * @param side the side of the level
+   * @param price the price of the level
+   * @param quantity the total unfilled quantity at the level, 0 for {@link LevelAction#DELETE}
+   * @param orderCount the number of orders at the level, 0 for {@link LevelAction#DELETE}
+   */
+  void levelUpdated(
+      String symbol,
+      LevelAction action,
+      OrderType side,
+      BigDecimal price,
+      int quantity,
+      int orderCount);
+}
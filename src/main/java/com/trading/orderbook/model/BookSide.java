@@ -0,0 +1,96 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+/**
+ * Price-indexed storage for one side (bids or offers) of an order book. Implementations only hold
+ * non-empty levels: a level that becomes empty must be handed back through {@link
+ * #remove(PriceLevel)}, unless a {@link #sweep} emptied it.
+ *
+ * <p>An incoming order of the other side crosses the levels from the best price up to its limit,
+ * given both as a price and, for sides that store prices as ticks, in ticks. A null limit price
+ * means the order crosses every level.
+ */
+interface BookSide {
+
+  /**
+   * Returns the level with the best price on this side: the highest bid or the lowest offer.
+   *
+   * @return the best level, or null if this side is empty
+   */
+  PriceLevel best();
+
+  /**
+   * Returns the level at the price of the given order, creating it if it does not exist.
+   *
+   * @param order the order whose price selects the level
+   * @return the level for the order's price
+   */
+  PriceLevel levelFor(Order order);
+
+  /**
+   * Returns whether an order at a price can rest on this side. Sides that bound the range of prices
+   * they hold refuse prices too far from their levels; other sides take any price.
+   *
+   * @param ticks the price in ticks, for sides that store prices as ticks
+   * @return true if an order at the price can rest on this side
+   */
+  boolean fits(long ticks);
+
+  /**
+   * Removes an empty level from this side.
+   *
+   * @param level the level to remove
+   */
+  void remove(PriceLevel level);
+
+  /**
+   * Returns the number of levels on this side.
+   *
+   * @return the number of non-empty levels
+   */
+  int levelCount();
+
+  /**
+   * Matches an incoming order of the other side against the levels it crosses, walking them in
+   * place from the best price until the matcher is done with the order. The levels the order
+   * emptied are then removed in one step, so a sweep costs in proportion to the levels it touches.
+   *
+   * @param order the incoming order
+   * @param limit the worst price the order trades at, or null for any price
+   * @param limitTicks the limit in ticks
+   * @param matcher fills the order against one level and returns whether it still wants more
+   */
+  void sweep(
+      Order order, BigDecimal limit, long limitTicks, BiPredicate<Order, PriceLevel> matcher);
+
+  /**
+   * Sums the quantity resting at the levels an incoming order of the other side would cross,
+   * walking from the best price and reading only the aggregated quantity of each level. The side is
+   * not changed.
+   *
+   * @param limit the worst price the order trades at, or null for any price
+   * @param limitTicks the limit in ticks
+   * @param enough the quantity after which the walk stops
+   * @return the matchable quantity, or a value of at least {@code enough} if that much is there
+   */
+  int crossingQuantity(BigDecimal limit, long limitTicks, int enough);
+
+  /**
+   * Performs the given action for each level on this side in ascending price order.
+   *
+   * @param action the action to perform
+   */
+  void forEach(Consumer<PriceLevel> action);
+
+  /**
+   * Performs the given action for up to {@code maxLevels} levels on this side, starting at the best
+   * price and moving away from it.
+   *
+   * @param maxLevels the maximum number of levels to visit
+   * @param action the action to perform
+   */
+  void forEachFromBest(int maxLevels, Consumer<PriceLevel> action);
+}
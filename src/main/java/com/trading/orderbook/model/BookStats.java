@@ -0,0 +1,13 @@
+package com.trading.orderbook.model;
+
+/**
+ * Counters describing the size and activity of an order book.
+ *
+ * @param bidLevels the number of bid price levels
+ * @param offerLevels the number of offer price levels
+ * @param restingOrders the number of orders resting in the book
+ * @param trades the number of trades executed, including those before a restored snapshot
+ * @param levelUpdates the number of times a command changed a price level
+ */
+public record BookStats(
+    int bidLevels, int offerLevels, int restingOrders, long trades, long levelUpdates) {}
@@ -0,0 +1,857 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+/**
+ * The default order book: matches the {@link Order} objects it is given, which rest in the price
+ * levels of two {@link BookSide}s kept in {@link java.util.TreeMap}s unless a subclass supplies
+ * other sides. It takes every kind of order and time in force.
+ *
+ * <p>Stop and stop-limit orders are parked in a {@link StopLadder} per side until the last trade
+ * price reaches their stop price. After each command's own matching, the orders its trades
+ * triggered are queued and run one at a time; any order they trigger in turn joins the back of the
+ * queue. Cascades are therefore a loop rather than recursion, and run in the same order on every
+ * replay: stops triggered by the same trade run buys before sells, each side by stop price and then
+ * in time priority.
+ *
+ * <p>IOC and FOK orders are handled inside matching and never rest: an IOC order drops whatever it
+ * could not fill, and a FOK order first sums the quantity of the levels it crosses and only trades
+ * if they cover its whole quantity. GTD and DAY orders with an expire time are scheduled in an
+ * {@link ExpiryWheel} while they rest or wait for their trigger, and leave the book when {@link
+ * #expireOrders(long)} reaches their expire time.
+ *
+ * <p>Matching sweeps the levels of the opposite side in place from the best price and removes the
+ * levels an order emptied in one step, so an order that crosses many levels costs in proportion to
+ * the levels it touches. Market orders and triggered stop orders have no limit of their own; with a
+ * protection band set, they stop at the band instead of sweeping the whole side.
+ *
+ * <p>The book never reads a clock or draws a random number. Commands that can trade take the time
+ * they run at from the caller, and every trade of the command, including those of the stop orders
+ * it triggers, is stamped with it, so running the same commands at the same times always produces
+ * the same trades.
+ */
+public class DefaultOrderBook extends OrderBook {
+
+  private final BookSide bids;
+  private final BookSide offers;
+  private final List<PriceLevel> touched = new ArrayList<>();
+  private final StopLadder buyStops = new StopLadder(true);
+  private final StopLadder sellStops = new StopLadder(false);
+  private final ArrayDeque<Order> triggered = new ArrayDeque<>();
+  private final Consumer<Order> trigger = triggered::add;
+  private final BiPredicate<Order, PriceLevel> fill = this::fill;
+  private BigDecimal protectionBand;
+  private final ExpiryWheel expiries = new ExpiryWheel();
+  private BigDecimal lastTradePrice;
+  private long time;
+  private BookListener listener;
+  private OrderListener orderListener;
+  private long levelUpdates;
+  private int restingOrders;
+
+  /**
+   * Constructs a DefaultOrderBook for the given symbol.
+   *
+   * @param symbol the trading symbol for this order book
+   */
+  public DefaultOrderBook(String symbol) {
+    this(symbol, new TreeMapBookSide(true), new TreeMapBookSide(false));
+  }
+
+  /**
+   * Constructs a DefaultOrderBook for the given symbol on top of the given book sides.
+   *
+   * @param symbol the trading symbol for this order book
+   * @param bids the storage for bid orders
+   * @param offers the storage for offer orders
+   */
+  DefaultOrderBook(String symbol, BookSide bids, BookSide offers) {
+    super(symbol);
+    this.bids = bids;
+    this.offers = offers;
+  }
+
+  /**
+   * Sets the price protection band of orders without a limit: market orders and triggered stop
+   * orders only trade at prices within this fraction of the best opposite price when they arrive,
+   * and what they cannot fill within it does not rest.
+   *
+   * @param protectionBand the band as a fraction of the price, for example 0.05 for 5%, or null or
+   *     zero to let them sweep the whole side
+   * @throws IllegalArgumentException if the band is negative
+   */
+  @Override
+  public void setProtectionBand(BigDecimal protectionBand) {
+    super.setProtectionBand(protectionBand);
+    getLock().lock();
+    try {
+      this.protectionBand =
+          protectionBand == null || protectionBand.signum() == 0 ? null : protectionBand;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the price of the last trade executed in this order book, which stop orders trigger on.
+   *
+   * @return the last trade price, or null if the book has not traded
+   */
+  @Override
+  public BigDecimal getLastTradePrice() {
+    getLock().lock();
+    try {
+      return lastTradePrice;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Sets the listener that receives the trades and level changes of this order book. The levels
+   * already in the book are considered known to the listener.
+   *
+   * @param listener the listener, or null to stop reporting changes
+   */
+  @Override
+  public void setListener(BookListener listener) {
+    getLock().lock();
+    try {
+      Consumer<PriceLevel> known =
+          level -> {
+            level.reported = true;
+            level.reportedQuantity = level.quantity();
+          };
+      bids.forEach(known);
+      offers.forEach(known);
+      this.listener = listener;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Sets the listener that follows the open quantity of the orders of this order book. Orders
+   * already in the book are considered known to the listener.
+   *
+   * @param orderListener the listener, or null to stop reporting changes
+   */
+  @Override
+  public void setOrderListener(OrderListener orderListener) {
+    getLock().lock();
+    try {
+      this.orderListener = orderListener;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Adds a bid order to the order book and attempts to match it. Its trades have a timestamp of 0.
+   *
+   * @param bidOrder the bid order to add
+   * @return the adjusted bid order after matching
+   */
+  @Override
+  public BidOrder adBidOrder(BidOrder bidOrder) {
+    return add(bidOrder, bids, offers, 0);
+  }
+
+  /**
+   * Adds an offer order to the order book and attempts to match it. Its trades have a timestamp of
+   * 0.
+   *
+   * @param offerOrder the offer order to add
+   * @return the adjusted offer order after matching
+   */
+  @Override
+  public OfferOrder addOfferOrder(OfferOrder offerOrder) {
+    return add(offerOrder, offers, bids, 0);
+  }
+
+  private <T extends Order> T add(T order, BookSide own, BookSide opposite, long time) {
+    getLock().lock();
+    try {
+      this.time = time;
+      T adjustedOrder = submit(order, own, opposite);
+      fireStops();
+      publishLevels();
+      return adjustedOrder;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Adds a limit order, or parks a stop order until it triggers. A stop order whose stop price the
+   * last trade has already reached is triggered at once.
+   *
+   * @param order the order to add
+   * @param own the side the order rests on
+   * @param opposite the side the order matches against
+   * @param <T> the type of the order (BidOrder or OfferOrder)
+   * @return the order
+   */
+  private <T extends Order> T submit(T order, BookSide own, BookSide opposite) {
+    if (order.level == null) {
+      quantityChanged(order, order.getUnfilledQuantity());
+    }
+    if (!order.getKind().hasStopPrice() || order.isTriggered()) {
+      return add(order, own, opposite);
+    }
+    // validate the price now rather than when the order triggers
+    prepare(order);
+    StopLadder stops = order instanceof BidOrder ? buyStops : sellStops;
+    if (lastTradePrice != null && stops.triggers(order.getStopPrice(), lastTradePrice)) {
+      triggered.add(order);
+    } else {
+      stops.add(order);
+      if (order.getExpireTime() > 0) {
+        expiries.schedule(order);
+      }
+    }
+    return order;
+  }
+
+  /**
+   * Runs the stop orders triggered by the trades of the current command, and those they trigger in
+   * turn, until no triggered order is left.
+   */
+  private void fireStops() {
+    collectTriggered();
+    Order order;
+    while ((order = triggered.poll()) != null) {
+      order.setTriggered(true);
+      boolean buy = order instanceof BidOrder;
+      add(order, buy ? bids : offers, buy ? offers : bids);
+      collectTriggered();
+    }
+  }
+
+  private void collectTriggered() {
+    if (lastTradePrice != null) {
+      buyStops.pollTriggered(lastTradePrice, trigger);
+      sellStops.pollTriggered(lastTradePrice, trigger);
+    }
+  }
+
+  /**
+   * Matches the given order against the opposite side and rests any unfilled quantity its time in
+   * force lets rest. Market orders and triggered stop orders have no limit other than the
+   * protection band, and what they cannot fill at once does not rest.
+   *
+   * @param order the order to add
+   * @param own the side the order rests on
+   * @param opposite the side the order matches against
+   * @param <T> the type of the order (BidOrder or OfferOrder)
+   * @return the adjusted order after matching
+   */
+  private <T extends Order> T add(T order, BookSide own, BookSide opposite) {
+    if (order.level != null) {
+      // the order is resubmitted while still resting, requeue it at the back
+      unlink(order, own);
+    }
+    prepare(order);
+    expiries.remove(order);
+    boolean limited = order.getKind().hasLimit();
+    BigDecimal limit = limited ? order.getPrice() : protectionLimit(order, opposite);
+    long limitTicks = limited ? order.priceTicks : limit != null ? limitTicks(order, limit) : 0;
+    TimeInForce timeInForce = order.getTimeInForce();
+    int quantity = order.getUnfilledQuantity();
+    if (timeInForce == TimeInForce.FOK
+        && opposite.crossingQuantity(limit, limitTicks, quantity) < quantity) {
+      order.close(OrderStatus.CANCELLED);
+      quantityChanged(order, -quantity);
+      return order;
+    }
+    if (limited && rests(timeInForce) && !own.fits(order.priceTicks)) {
+      // commands check new orders and amends up front, so this mostly catches triggered stops
+      order.close(OrderStatus.CANCELLED);
+      quantityChanged(order, -quantity);
+      return order;
+    }
+    match(order, opposite, limit, limitTicks);
+    if (order.getUnfilledQuantity() == 0) {
+      return order;
+    }
+    if (!limited || !rests(timeInForce)) {
+      order.close(OrderStatus.CANCELLED);
+      quantityChanged(order, -order.getUnfilledQuantity());
+      return order;
+    }
+    PriceLevel level = own.levelFor(order);
+    level.append(order);
+    restingOrders++;
+    touch(level);
+    if (order.getExpireTime() > 0) {
+      expiries.schedule(order);
+    }
+    return order;
+  }
+
+  private static boolean rests(TimeInForce timeInForce) {
+    return timeInForce != TimeInForce.IOC && timeInForce != TimeInForce.FOK;
+  }
+
+  /**
+   * Hook for book implementations that need to derive state from an order before it enters the
+   * book, such as its price in ticks.
+   *
+   * @param order the order entering the book
+   */
+  void prepare(Order order) {}
+
+  /**
+   * Hook for book implementations that store prices as ticks, to convert a price the caller has
+   * already checked.
+   *
+   * @param price the price to convert
+   * @return the price in ticks
+   */
+  long priceTicks(BigDecimal price) {
+    return 0;
+  }
+
+  /**
+   * Hook for book implementations that store prices as ticks, to convert the protection limit of an
+   * order without a limit of its own.
+   *
+   * @param order the incoming order
+   * @param limit the worst price the order may trade at
+   * @return the limit in ticks, rounded towards the best price
+   */
+  long limitTicks(Order order, BigDecimal limit) {
+    return 0;
+  }
+
+  /**
+   * Returns the worst price an order without a limit may trade at: the best opposite price moved
+   * against the order by the protection band.
+   *
+   * @return the protection limit, or null if no band is set or the opposite side is empty
+   */
+  private BigDecimal protectionLimit(Order order, BookSide opposite) {
+    PriceLevel best;
+    if (protectionBand == null || (best = opposite.best()) == null) {
+      return null;
+    }
+    BigDecimal offset = best.price.multiply(protectionBand);
+    return order instanceof BidOrder ? best.price.add(offset) : best.price.subtract(offset);
+  }
+
+  /**
+   * Matches the given order with existing orders on the opposite side of the order book, sweeping
+   * price levels in place from the best price until the order is filled or reaches its limit. The
+   * levels it empties are removed together once it stops.
+   *
+   * @param order the order to match
+   * @param opposite the side to match against
+   * @param limit the worst price the order trades at, or null for any price
+   * @param limitTicks the limit in ticks
+   */
+  private void match(Order order, BookSide opposite, BigDecimal limit, long limitTicks) {
+    if (order.getUnfilledQuantity() > 0) {
+      opposite.sweep(order, limit, limitTicks, fill);
+    }
+  }
+
+  private boolean fill(Order order, PriceLevel level) {
+    orderMatchedInOrderbook(order, level);
+    return order.getUnfilledQuantity() > 0;
+  }
+
+  /**
+   * Matches the given order with the orders resting at a specific price, in time priority.
+   *
+   * @param order the order to match
+   * @param level the price level at the matching price
+   */
+  private void orderMatchedInOrderbook(Order order, PriceLevel level) {
+    touch(level);
+    Order matchedOrder;
+    while (order.getUnfilledQuantity() > 0 && (matchedOrder = level.first()) != null) {
+      // Calculate the quantity that can be filled for the current order
+      int filledQuantity =
+          Math.min(matchedOrder.getUnfilledQuantity(), order.getUnfilledQuantity());
+
+      // Update the unfilled quantity of the current order and the matching order
+      matchedOrder.setUnfilledQuantity(matchedOrder.getUnfilledQuantity() - filledQuantity);
+      order.setUnfilledQuantity(order.getUnfilledQuantity() - filledQuantity);
+      level.filled(matchedOrder, filledQuantity);
+      if (filledQuantity > 0) {
+        if (listener != null) {
+          listener.tradeExecuted(
+              getSymbol(),
+              getTrades().nextSequence(),
+              order.getType(),
+              level.price,
+              filledQuantity);
+        }
+        getTrades().publish(matchedOrder, order, level.price, filledQuantity, time);
+        lastTradePrice = level.price;
+        if (orderListener != null) {
+          UUID makerId = matchedOrder.getId();
+          orderListener.restingOrderFilled(
+              this,
+              makerId.getMostSignificantBits(),
+              makerId.getLeastSignificantBits(),
+              matchedOrder.getType(),
+              matchedOrder.getAccount(),
+              level.price,
+              filledQuantity,
+              matchedOrder.getUnfilledQuantity());
+          orderListener.orderFilled(this, order, level.price, filledQuantity);
+        }
+      }
+
+      // If the resting order is fully matched, remove it from the level
+      if (matchedOrder.getUnfilledQuantity() == 0) {
+        level.removeFirst();
+        restingOrders--;
+        expiries.remove(matchedOrder);
+      }
+    }
+  }
+
+  /**
+   * Retrieves the depth of the order book, including bid and offer quantities at each price level.
+   * Bids come first, then offers, each in ascending price order. Quantities are maintained
+   * incrementally per level, so this only visits levels and never individual orders.
+   *
+   * @return a list of order book depths
+   */
+  @Override
+  public List<OrderBookDepth> orderbookDepth() {
+    getLock().lock();
+    try {
+      List<OrderBookDepth> orderbookDepthList = new ArrayList<>();
+      bids.forEach(level -> addDepth(orderbookDepthList, level, OrderType.BUY));
+      offers.forEach(level -> addDepth(orderbookDepthList, level, OrderType.SELL));
+      return orderbookDepthList;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Retrieves the best {@code depth} price levels of each side of the order book: bids from the
+   * highest price down, followed by offers from the lowest price up. Only the requested levels are
+   * visited.
+   *
+   * @param depth the maximum number of levels per side
+   * @return a list of order book depths
+   * @throws IllegalArgumentException if depth is not positive
+   */
+  @Override
+  public List<OrderBookDepth> topN(int depth) {
+    getLock().lock();
+    try {
+      if (depth <= 0) {
+        throw new IllegalArgumentException("Depth must be positive: " + depth);
+      }
+      List<OrderBookDepth> orderbookDepthList = new ArrayList<>();
+      bids.forEachFromBest(depth, level -> addDepth(orderbookDepthList, level, OrderType.BUY));
+      offers.forEachFromBest(depth, level -> addDepth(orderbookDepthList, level, OrderType.SELL));
+      return orderbookDepthList;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  private static void addDepth(List<OrderBookDepth> depths, PriceLevel level, OrderType type) {
+    int quantity = level.quantity();
+    if (quantity != 0) {
+      depths.add(new OrderBookDepth(level.price, quantity, type));
+    }
+  }
+
+  /**
+   * Adds an order to the order book and attempts to match it.
+   *
+   * @param order the order to add
+   * @param time the time of the command in milliseconds since the epoch, which its trades are
+   *     stamped with
+   * @return the adjusted order after matching
+   */
+  @Override
+  public Order addOrder(Order order, long time) {
+    if (order instanceof BidOrder) {
+      return add(order, bids, offers, time);
+    } else {
+      return add(order, offers, bids, time);
+    }
+  }
+
+  /**
+   * Removes a resting order or a dormant stop order from the order book. The order carries its own
+   * position in the book, so this takes constant time regardless of how many orders rest at its
+   * price.
+   *
+   * @param o the order to cancel
+   */
+  @Override
+  public void cancelOrder(Order o) {
+    getLock().lock();
+    try {
+      expiries.remove(o);
+      if (o.stopLevel != null) {
+        (o instanceof BidOrder ? buyStops : sellStops).remove(o);
+        quantityChanged(o, -o.getUnfilledQuantity());
+      } else if (o.level != null) {
+        // the caller may already have cleared the unfilled quantity, the level still knows it
+        quantityChanged(o, -o.restingQuantity);
+        unlink(o, o instanceof BidOrder ? bids : offers);
+        publishLevels();
+      }
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Checks that an order is valid for this book and, if it may rest, that the side it rests on can
+   * hold its price.
+   *
+   * @param order a new order
+   * @throws IllegalArgumentException if the order is not valid for this book, or its price is too
+   *     far from the prices resting on its side
+   */
+  @Override
+  public void checkOrder(Order order) {
+    super.checkOrder(order);
+    if (order.getPrice() != null && order.getKind().hasLimit() && rests(order.getTimeInForce())) {
+      checkFits(order instanceof BidOrder, order.getPrice());
+    }
+  }
+
+  /**
+   * Checks that a resting order can be amended to a price, and that its side can hold the price.
+   *
+   * @param order the resting order
+   * @param price the new price
+   * @throws IllegalArgumentException if the price is not valid for this book, or too far from the
+   *     prices resting on the side of the order
+   */
+  @Override
+  public void checkAmend(Order order, BigDecimal price) {
+    super.checkAmend(order, price);
+    checkFits(order instanceof BidOrder, price);
+  }
+
+  private void checkFits(boolean buy, BigDecimal price) {
+    getLock().lock();
+    try {
+      if (!(buy ? bids : offers).fits(priceTicks(price))) {
+        throw new IllegalArgumentException(
+            "Price " + price + " is too far from the other prices of " + getSymbol());
+      }
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean isResting(Order order) {
+    getLock().lock();
+    try {
+      return order.level != null;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Amends the price and quantity of a resting order, stamping the trades of an amend that matches
+   * with the time of the command. See {@link #amendOrder(Order, BigDecimal, int)}.
+   *
+   * @param order the order to amend
+   * @param price the new price
+   * @param quantity the new total quantity, including the quantity already filled
+   * @param time the time of the command in milliseconds since the epoch
+   * @return true if the order was amended, false if it is not resting in this book
+   * @throws IllegalArgumentException if the quantity does not exceed the filled quantity, or the
+   *     price is not valid for this book
+   */
+  @Override
+  public boolean amendOrder(Order order, BigDecimal price, int quantity, long time) {
+    getLock().lock();
+    try {
+      this.time = time;
+      if (order.level == null) {
+        return false;
+      }
+      int unfilledQuantity = quantity - (order.getQuantity() - order.getUnfilledQuantity());
+      if (unfilledQuantity <= 0) {
+        throw new IllegalArgumentException(
+            "Amended quantity " + quantity + " does not exceed the filled quantity of " + order);
+      }
+      if (price.compareTo(order.getPrice()) == 0
+          && unfilledQuantity <= order.getUnfilledQuantity()) {
+        PriceLevel level = order.level;
+        touch(level);
+        level.reduce(order, order.getUnfilledQuantity() - unfilledQuantity);
+        quantityChanged(order, unfilledQuantity - order.getUnfilledQuantity());
+        order.setQuantity(quantity);
+        order.setUnfilledQuantity(unfilledQuantity);
+      } else {
+        BigDecimal previousPrice = order.getPrice();
+        order.setPrice(price);
+        try {
+          prepare(order);
+        } catch (RuntimeException e) {
+          order.setPrice(previousPrice);
+          prepare(order);
+          throw e;
+        }
+        boolean buy = order instanceof BidOrder;
+        unlink(order, buy ? bids : offers);
+        quantityChanged(order, unfilledQuantity - order.getUnfilledQuantity());
+        order.setQuantity(quantity);
+        order.setUnfilledQuantity(unfilledQuantity);
+        add(order, buy ? bids : offers, buy ? offers : bids);
+        fireStops();
+      }
+      publishLevels();
+      return true;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Returns whether any order of this book waits to expire. Can be called from any thread without
+   * taking the lock of the book, to skip books with nothing to expire.
+   *
+   * @return true if a resting or dormant order has an expire time
+   */
+  @Override
+  public boolean hasScheduledExpiries() {
+    return expiries.size() > 0;
+  }
+
+  /**
+   * Removes every resting order and dormant stop order whose expire time is at or before the given
+   * time. Orders that expire at the same time leave in the order they were scheduled.
+   *
+   * @param now the current time in milliseconds since the epoch
+   * @return the expired orders, earliest first
+   */
+  @Override
+  public List<Order> expireOrders(long now) {
+    getLock().lock();
+    try {
+      List<Order> expired = new ArrayList<>();
+      expiries.advance(now, expired::add);
+      if (expired.isEmpty()) {
+        return expired;
+      }
+      for (Order order : expired) {
+        removeExpired(order);
+      }
+      publishLevels();
+      return expired;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Removes one resting or dormant order as expired, whether or not its expire time has been
+   * reached. Used to replay expiries in the order they originally happened.
+   *
+   * @param order the order to expire
+   * @return false if the order is neither resting nor dormant in this book
+   */
+  @Override
+  public boolean expireOrder(Order order) {
+    getLock().lock();
+    try {
+      if (order.level == null && order.stopLevel == null) {
+        return false;
+      }
+      expiries.remove(order);
+      removeExpired(order);
+      publishLevels();
+      return true;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  private void removeExpired(Order order) {
+    boolean buy = order instanceof BidOrder;
+    if (order.stopLevel != null) {
+      (buy ? buyStops : sellStops).remove(order);
+    } else {
+      unlink(order, buy ? bids : offers);
+    }
+    order.close(OrderStatus.EXPIRED);
+    quantityChanged(order, -order.getUnfilledQuantity());
+  }
+
+  private void unlink(Order order, BookSide side) {
+    PriceLevel level = order.level;
+    touch(level);
+    if (level.remove(order)) {
+      restingOrders--;
+      if (level.isEmpty()) {
+        side.remove(level);
+      }
+    }
+  }
+
+  private void quantityChanged(Order order, int delta) {
+    if (orderListener != null && delta != 0) {
+      orderListener.quantityChanged(this, order, delta);
+    }
+  }
+
+  /**
+   * Counts a level changed by the current command and remembers it, if a listener is interested.
+   */
+  private void touch(PriceLevel level) {
+    levelUpdates++;
+    if (listener != null && !level.touched) {
+      level.touched = true;
+      touched.add(level);
+    }
+  }
+
+  /**
+   * Ends a command that changed the book: advances the version, publishes the counters of {@link
+   * #stats()} and reports the final state of every level the command changed.
+   */
+  private void publishLevels() {
+    endCommand(bids.levelCount(), offers.levelCount(), restingOrders, levelUpdates);
+    for (int i = 0; i < touched.size(); i++) {
+      PriceLevel level = touched.get(i);
+      level.touched = false;
+      int quantity = level.quantity();
+      if (level.isEmpty()) {
+        if (level.reported) {
+          listener.levelUpdated(getSymbol(), LevelAction.DELETE, level.side, level.price, 0, 0);
+        }
+        level.reported = false;
+      } else if (!level.reported) {
+        listener.levelUpdated(
+            getSymbol(), LevelAction.ADD, level.side, level.price, quantity, level.orderCount());
+        level.reported = true;
+      } else if (quantity != level.reportedQuantity) {
+        listener.levelUpdated(
+            getSymbol(), LevelAction.CHANGE, level.side, level.price, quantity, level.orderCount());
+      }
+      level.reportedQuantity = quantity;
+    }
+    touched.clear();
+  }
+
+  /**
+   * Copies the state of every resting order: bids from the best price down, then offers from the
+   * best price up, each level in time priority.
+   *
+   * @return the resting orders in priority order
+   */
+  @Override
+  public List<OrderState> restingOrders() {
+    getLock().lock();
+    try {
+      List<OrderState> restingOrders = new ArrayList<>();
+      Consumer<PriceLevel> copyLevel =
+          level -> {
+            for (Order order = level.first(); order != null; order = order.next) {
+              restingOrders.add(OrderState.of(order));
+            }
+          };
+      bids.forEachFromBest(Integer.MAX_VALUE, copyLevel);
+      offers.forEachFromBest(Integer.MAX_VALUE, copyLevel);
+      return restingOrders;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Copies the state of every dormant stop order: buys, then sells, each in trigger order.
+   *
+   * @return the dormant stop orders
+   */
+  @Override
+  public List<OrderState> pendingStops() {
+    getLock().lock();
+    try {
+      List<OrderState> pendingStops = new ArrayList<>(buyStops.size() + sellStops.size());
+      Consumer<Order> copy = order -> pendingStops.add(OrderState.of(order));
+      buyStops.forEach(copy);
+      sellStops.forEach(copy);
+      return pendingStops;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Parks a dormant stop order without checking whether it triggers. Used to rebuild a book from a
+   * snapshot, with stops restored in trigger order.
+   *
+   * @param order the stop order to restore
+   */
+  @Override
+  public void restorePendingStop(Order order) {
+    getLock().lock();
+    try {
+      prepare(order);
+      (order instanceof BidOrder ? buyStops : sellStops).add(order);
+      if (order.getExpireTime() > 0) {
+        expiries.schedule(order);
+      }
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Puts an order back at the end of its price level without matching it. Used to rebuild a book
+   * from a snapshot, with orders restored in time priority.
+   *
+   * @param order the order to restore
+   */
+  @Override
+  public void restoreRestingOrder(Order order) {
+    getLock().lock();
+    try {
+      BookSide own = order instanceof BidOrder ? bids : offers;
+      prepare(order);
+      PriceLevel level = own.levelFor(order);
+      level.append(order);
+      restingOrders++;
+      touch(level);
+      if (order.getExpireTime() > 0) {
+        expiries.schedule(order);
+      }
+      publishLevels();
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Restores the last trade price of a restored book, which its stop orders trigger on.
+   *
+   * @param lastTradePrice the last trade price, or null if the book had not traded
+   */
+  @Override
+  public void restoreLastTradePrice(BigDecimal lastTradePrice) {
+    getLock().lock();
+    try {
+      this.lastTradePrice = lastTradePrice;
+    } finally {
+      getLock().unlock();
+    }
+  }
+}
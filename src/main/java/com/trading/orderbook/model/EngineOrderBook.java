@@ -0,0 +1,674 @@
+package com.trading.orderbook.model;
+
+import com.trading.orderbook.engine.Fills;
+import com.trading.orderbook.engine.MatchingEngine;
+import com.trading.orderbook.engine.OrderFlyweight;
+import com.trading.orderbook.engine.OrderStorage;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Order book that matches in a {@link MatchingEngine} instead of on {@link Order} objects. A
+ * resting order is a fixed-width record in the pool of the engine, so the book holds no Java object
+ * per resting order and matching itself does not allocate. Orders enter as {@link Order} objects,
+ * and leave as copies made by {@link #findOrder(UUID)} and {@link #restingOrders()}; the book keeps
+ * nothing of the orders it is done with.
+ *
+ * <p>The book takes GTC and IOC limit orders priced on the tick grid. {@link #checkOrder(Order)}
+ * refuses market, stop and stop-limit orders and the FOK, GTD and DAY times in force. For the
+ * orders it takes, matching, amends, the trade stream and the reports to listeners behave like
+ * {@link DefaultOrderBook}. The book keeps none of the state of the orders it does not take, and
+ * the defaults of {@link OrderBook} for stop orders, expiries and the protection band apply.
+ *
+ * <p>The engine ID of an order mixes both halves of its UUID, and the most significant half is kept
+ * with the order as its tag, so the UUID can be rebuilt from the record and a lookup never mistakes
+ * one order for another. An order whose engine ID happens to be that of a resting order is refused.
+ * The accounts of orders are kept as numbers into a table of the accounts the book has seen.
+ */
+public class EngineOrderBook extends OrderBook implements AutoCloseable {
+
+  private static final long MIX = 0x9E3779B97F4A7C15L;
+  private static final int PRICE_CACHE_SIZE = 1024;
+
+  private final BigDecimal tickSize;
+  private final MatchingEngine engine;
+  private final Fills fills = new Fills();
+  private final OrderFlyweight resting = new OrderFlyweight();
+  private final long[] cachedTicks = new long[PRICE_CACHE_SIZE];
+  private final BigDecimal[] cachedPrices = new BigDecimal[PRICE_CACHE_SIZE];
+  private final BigDecimal[] tickedPrices = new BigDecimal[PRICE_CACHE_SIZE];
+  private final long[] cachedPriceTicks = new long[PRICE_CACHE_SIZE];
+  private final List<String> accounts = new ArrayList<>();
+  private final Map<String, Integer> accountNumbers = new HashMap<>();
+  private BookListener listener;
+  private OrderListener orderListener;
+  private BigDecimal lastTradePrice;
+  private long time;
+  private long levelUpdates;
+  // the levels changed by the current command, with how much their quantity changed
+  private boolean[] touchedBuy = new boolean[16];
+  private long[] touchedTicks = new long[16];
+  private long[] touchedDeltas = new long[16];
+  private int touchedCount;
+
+  /**
+   * Constructs an EngineOrderBook for the given symbol.
+   *
+   * @param symbol the trading symbol for this order book
+   * @param tickSize the minimum price increment
+   * @param orderCapacity the maximum number of resting orders
+   * @param ladderCapacity the initial number of tick slots per side; the ladder grows when the book
+   *     spans more ticks than this
+   * @param storage where the engine keeps the resting orders
+   */
+  public EngineOrderBook(
+      String symbol,
+      BigDecimal tickSize,
+      int orderCapacity,
+      int ladderCapacity,
+      OrderStorage storage) {
+    super(symbol);
+    if (tickSize.signum() <= 0) {
+      throw new IllegalArgumentException("Tick size must be positive: " + tickSize);
+    }
+    this.tickSize = tickSize;
+    this.engine = new MatchingEngine(symbol, orderCapacity, ladderCapacity, storage);
+    // account number 0 stands for orders without an account
+    accounts.add(null);
+  }
+
+  public BigDecimal getTickSize() {
+    return tickSize;
+  }
+
+  @Override
+  public BigDecimal getLastTradePrice() {
+    getLock().lock();
+    try {
+      return lastTradePrice;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  @Override
+  public void setListener(BookListener listener) {
+    getLock().lock();
+    try {
+      this.listener = listener;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  @Override
+  public void setOrderListener(OrderListener orderListener) {
+    getLock().lock();
+    try {
+      this.orderListener = orderListener;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Checks that a price is a positive multiple of the tick size.
+   *
+   * @param price the limit price of an order
+   * @throws IllegalArgumentException if the price is not a positive multiple of the tick size
+   */
+  @Override
+  public void checkPrice(BigDecimal price) {
+    toTicks(price);
+  }
+
+  /**
+   * Checks that a resting order can be amended to a price: the price must be a positive multiple of
+   * the tick size that its side can hold, see {@link MatchingEngine#checkPrice(OrderType, long)}.
+   *
+   * @param order the resting order, or a copy of it
+   * @param price the new price
+   * @throws IllegalArgumentException if the order cannot be amended to the price
+   */
+  @Override
+  public void checkAmend(Order order, BigDecimal price) {
+    getLock().lock();
+    try {
+      engine.checkPrice(order.getType(), ticksOf(price));
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Checks that an order is a GTC or IOC limit order with a positive quantity, priced on the tick
+   * grid, whose ID does not clash with that of a resting order. Orders are indexed by a 64-bit key
+   * mixed from their ID, and the one ID in 2<sup>64</sup> whose key is 0, which the index reserves
+   * for empty entries, is refused as well. A GTC order must be priced within {@link
+   * MatchingEngine#MAX_PRICE_SPAN} ticks of the other orders of its side, and the engine must have
+   * room for another order.
+   *
+   * @param order a new order
+   * @throws IllegalArgumentException if the book cannot take the order
+   * @throws IllegalStateException if the engine has no room for another order
+   */
+  @Override
+  public void checkOrder(Order order) {
+    getLock().lock();
+    try {
+      check(order);
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /** Checks a new order, see {@link #checkOrder(Order)}, and returns its price in ticks. */
+  private long check(Order order) {
+    if (order.getKind() != OrderKind.LIMIT) {
+      throw new IllegalArgumentException(
+          order.getKind() + " orders are not supported by the engine book of " + getSymbol());
+    }
+    TimeInForce timeInForce = order.getTimeInForce();
+    if (timeInForce != TimeInForce.GTC && timeInForce != TimeInForce.IOC) {
+      throw new IllegalArgumentException(
+          timeInForce + " orders are not supported by the engine book of " + getSymbol());
+    }
+    if (order.getUnfilledQuantity() <= 0) {
+      throw new IllegalArgumentException("Quantity must be positive: " + order);
+    }
+    long ticks = ticksOf(order.getPrice());
+    long key = key(order.getId());
+    if (key == 0) {
+      throw new IllegalArgumentException("Order ID maps to the reserved key 0: " + order);
+    }
+    if (engine.order(key, resting)) {
+      throw new IllegalArgumentException("Order ID clashes with a resting order: " + order);
+    }
+    if (timeInForce == TimeInForce.GTC) {
+      engine.checkPrice(order.getType(), ticks);
+    }
+    if (engine.isFull()) {
+      throw new IllegalStateException("The engine book of " + getSymbol() + " is full: " + order);
+    }
+    return ticks;
+  }
+
+  @Override
+  public boolean storesOrders() {
+    return true;
+  }
+
+  @Override
+  public Order findOrder(UUID id) {
+    getLock().lock();
+    try {
+      return find(id) ? toOrder(resting) : null;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean isResting(Order order) {
+    getLock().lock();
+    try {
+      return find(order.getId());
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  @Override
+  public BidOrder adBidOrder(BidOrder bidOrder) {
+    addOrder(bidOrder, 0);
+    return bidOrder;
+  }
+
+  @Override
+  public OfferOrder addOfferOrder(OfferOrder offerOrder) {
+    addOrder(offerOrder, 0);
+    return offerOrder;
+  }
+
+  /**
+   * Adds an order to the order book and attempts to match it. What a GTC order does not fill rests
+   * in the engine; what an IOC order does not fill is cancelled.
+   *
+   * @param order the order to add
+   * @param time the time of the command in milliseconds since the epoch, which its trades are
+   *     stamped with
+   * @return the order after matching
+   * @throws IllegalArgumentException if the book cannot take the order, see {@link
+   *     #checkOrder(Order)}
+   * @throws IllegalStateException if the engine has no room for another resting order
+   */
+  @Override
+  public Order addOrder(Order order, long time) {
+    getLock().lock();
+    try {
+      long ticks = check(order);
+      this.time = time;
+      boolean buy = order instanceof BidOrder;
+      boolean rest = order.getTimeInForce() == TimeInForce.GTC;
+      long unfilled =
+          engine.submit(
+              key(order.getId()),
+              order.getId().getMostSignificantBits(),
+              accountNumber(order.getAccount()),
+              order.getType(),
+              ticks,
+              order.getUnfilledQuantity(),
+              rest,
+              fills);
+      quantityChanged(order, order.getUnfilledQuantity());
+      trade(order);
+      if (unfilled > 0 && rest) {
+        touch(buy, ticks, unfilled);
+      } else if (unfilled > 0) {
+        order.close(OrderStatus.CANCELLED);
+        quantityChanged(order, (int) -unfilled);
+      }
+      publishLevels();
+      return order;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a resting order from the order book. The given order, usually a copy from {@link
+   * #findOrder(UUID)}, is brought up to date with the state the order had and marked cancelled.
+   *
+   * @param o the order to cancel
+   */
+  @Override
+  public void cancelOrder(Order o) {
+    getLock().lock();
+    try {
+      if (!find(o.getId())) {
+        return;
+      }
+      boolean buy = resting.side() == OrderType.BUY;
+      long ticks = resting.priceTicks();
+      int unfilled = (int) resting.unfilledQuantity();
+      // usually the order is already up to date, and setting it again would box the quantities
+      if (o.getQuantity() != resting.quantity()) {
+        o.setQuantity((int) resting.quantity());
+      }
+      if (o.getUnfilledQuantity() != unfilled) {
+        o.setUnfilledQuantity(unfilled);
+      }
+      engine.cancel(key(o.getId()));
+      touch(buy, ticks, -unfilled);
+      o.close(OrderStatus.CANCELLED);
+      quantityChanged(o, -unfilled);
+      publishLevels();
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Amends the price and quantity of a resting order, like {@link OrderBook#amendOrder(Order,
+   * BigDecimal, int, long)}. The given order, usually a copy from {@link #findOrder(UUID)}, is
+   * brought up to date with the state of the order after the amend.
+   *
+   * @param order the order to amend
+   * @param price the new price
+   * @param quantity the new total quantity, including the quantity already filled
+   * @param time the time of the command in milliseconds since the epoch
+   * @return true if the order was amended, false if it is not resting in this book
+   * @throws IllegalArgumentException if the quantity does not exceed the filled quantity, or the
+   *     price is not a positive multiple of the tick size
+   */
+  @Override
+  public boolean amendOrder(Order order, BigDecimal price, int quantity, long time) {
+    getLock().lock();
+    try {
+      this.time = time;
+      if (!find(order.getId())) {
+        return false;
+      }
+      long ticks = ticksOf(price);
+      boolean buy = resting.side() == OrderType.BUY;
+      long previousTicks = resting.priceTicks();
+      long previousUnfilled = resting.unfilledQuantity();
+      long unfilled = quantity - (resting.quantity() - previousUnfilled);
+      if (unfilled <= 0) {
+        throw new IllegalArgumentException(
+            "Amended quantity " + quantity + " does not exceed the filled quantity of " + order);
+      }
+      engine.amend(key(order.getId()), ticks, quantity, fills);
+      order.setPrice(price);
+      order.setQuantity(quantity);
+      order.setUnfilledQuantity((int) unfilled);
+      quantityChanged(order, (int) (unfilled - previousUnfilled));
+      touch(buy, previousTicks, -previousUnfilled);
+      trade(order);
+      long remaining = order.getUnfilledQuantity();
+      if (remaining > 0) {
+        touch(buy, ticks, remaining);
+      }
+      publishLevels();
+      return true;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  @Override
+  public List<OrderBookDepth> orderbookDepth() {
+    getLock().lock();
+    try {
+      List<OrderBookDepth> orderbookDepthList = new ArrayList<>();
+      addDepth(orderbookDepthList, OrderType.BUY, Integer.MAX_VALUE);
+      // bids are visited from the best price down, but listed in ascending price order
+      Collections.reverse(orderbookDepthList);
+      addDepth(orderbookDepthList, OrderType.SELL, Integer.MAX_VALUE);
+      return orderbookDepthList;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  @Override
+  public List<OrderBookDepth> topN(int depth) {
+    getLock().lock();
+    try {
+      if (depth <= 0) {
+        throw new IllegalArgumentException("Depth must be positive: " + depth);
+      }
+      List<OrderBookDepth> orderbookDepthList = new ArrayList<>();
+      addDepth(orderbookDepthList, OrderType.BUY, depth);
+      addDepth(orderbookDepthList, OrderType.SELL, depth);
+      return orderbookDepthList;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  private void addDepth(List<OrderBookDepth> depths, OrderType side, int maxLevels) {
+    long ticks = engine.bestPrice(side);
+    for (int levels = 0; levels < maxLevels && ticks != 0; levels++) {
+      depths.add(new OrderBookDepth(toPrice(ticks), (int) engine.quantityAt(side, ticks), side));
+      ticks = engine.nextPrice(side, ticks);
+    }
+  }
+
+  @Override
+  public List<OrderState> restingOrders() {
+    getLock().lock();
+    try {
+      List<OrderState> restingOrders = new ArrayList<>(engine.restingOrderCount());
+      engine.forEachOrder(OrderType.BUY, order -> restingOrders.add(OrderState.of(toOrder(order))));
+      engine.forEachOrder(
+          OrderType.SELL, order -> restingOrders.add(OrderState.of(toOrder(order))));
+      return restingOrders;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  @Override
+  public void restoreRestingOrder(Order order) {
+    getLock().lock();
+    try {
+      long ticks = ticksOf(order.getPrice());
+      engine.restore(
+          key(order.getId()),
+          order.getId().getMostSignificantBits(),
+          accountNumber(order.getAccount()),
+          order.getType(),
+          ticks,
+          order.getQuantity(),
+          order.getUnfilledQuantity());
+      touch(order instanceof BidOrder, ticks, order.getUnfilledQuantity());
+      publishLevels();
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  @Override
+  public void restoreLastTradePrice(BigDecimal lastTradePrice) {
+    getLock().lock();
+    try {
+      this.lastTradePrice = lastTradePrice;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Frees the memory of an engine that keeps its orders off the heap. Afterwards every command on
+   * the book throws {@link IllegalStateException}.
+   */
+  @Override
+  public void close() {
+    getLock().lock();
+    try {
+      engine.close();
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Converts a price to a number of ticks.
+   *
+   * @param price the price to convert
+   * @return the price in ticks
+   * @throws IllegalArgumentException if the price is not a positive multiple of the tick size
+   */
+  public long toTicks(BigDecimal price) {
+    if (price == null || price.signum() <= 0) {
+      throw new IllegalArgumentException("Price must be positive: " + price);
+    }
+    try {
+      return price.divide(tickSize).longValueExact();
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException(
+          "Price " + price + " is not a multiple of tick size " + tickSize, e);
+    }
+  }
+
+  /** Converts a price to ticks under the lock of the book, remembering the prices it converted. */
+  private long ticksOf(BigDecimal price) {
+    // orders keep arriving at the same few prices near the touch, and dividing allocates
+    int index = price != null ? price.hashCode() & (cachedPriceTicks.length - 1) : 0;
+    if (price != null && price.equals(tickedPrices[index])) {
+      return cachedPriceTicks[index];
+    }
+    long ticks = toTicks(price);
+    tickedPrices[index] = price;
+    cachedPriceTicks[index] = ticks;
+    return ticks;
+  }
+
+  private BigDecimal toPrice(long ticks) {
+    // trades and level reports keep converting the same few prices near the touch
+    int index = (int) ticks & (cachedTicks.length - 1);
+    if (cachedTicks[index] != ticks) {
+      cachedPrices[index] = tickSize.multiply(BigDecimal.valueOf(ticks));
+      cachedTicks[index] = ticks;
+    }
+    return cachedPrices[index];
+  }
+
+  /**
+   * Reports the fills in the buffer as trades of the given incoming order. The order is left with
+   * its unfilled quantity reduced by the fills, and each fill reaches the order listener with the
+   * quantities left after it, as in {@link DefaultOrderBook}. Resting orders are reported by the
+   * halves of their ID and their account, and the incoming order is only brought up to date after
+   * each fill if a listener looks at it, so reporting the fills allocates nothing.
+   */
+  private void trade(Order taker) {
+    OrderType side = taker.getType();
+    OrderType makerSide = side == OrderType.BUY ? OrderType.SELL : OrderType.BUY;
+    int unfilled = taker.getUnfilledQuantity();
+    BigDecimal price = null;
+    for (int i = 0; i < fills.count(); i++) {
+      long ticks = fills.priceTicks(i);
+      if (i == 0 || ticks != fills.priceTicks(i - 1)) {
+        price = toPrice(ticks);
+      }
+      int quantity = (int) fills.quantity(i);
+      long makerTag = fills.makerTag(i);
+      long makerIdLow = idLow(fills.makerOrderId(i), makerTag);
+      touch(makerSide == OrderType.BUY, ticks, -quantity);
+      if (listener != null) {
+        listener.tradeExecuted(getSymbol(), getTrades().nextSequence(), side, price, quantity);
+      }
+      getTrades().publish(makerTag, makerIdLow, taker.getId(), side, price, quantity, time);
+      lastTradePrice = price;
+      unfilled -= quantity;
+      if (orderListener != null) {
+        taker.setUnfilledQuantity(unfilled);
+        orderListener.restingOrderFilled(
+            this,
+            makerTag,
+            makerIdLow,
+            makerSide,
+            accounts.get(fills.makerAccount(i)),
+            price,
+            quantity,
+            (int) fills.makerUnfilledQuantity(i));
+        orderListener.orderFilled(this, taker, price, quantity);
+      }
+    }
+    if (fills.count() > 0) {
+      taker.setUnfilledQuantity(unfilled);
+    }
+  }
+
+  private boolean find(UUID id) {
+    return engine.order(key(id), resting) && resting.tag() == id.getMostSignificantBits();
+  }
+
+  private Order toOrder(OrderFlyweight order) {
+    return toOrder(
+        id(order.id(), order.tag()),
+        order.side() == OrderType.BUY,
+        toPrice(order.priceTicks()),
+        order.quantity(),
+        order.unfilledQuantity(),
+        order.account());
+  }
+
+  private Order toOrder(
+      UUID id, boolean buy, BigDecimal price, long quantity, long unfilled, int account) {
+    Order order =
+        buy
+            ? new BidOrder(id, getSymbol(), OrderKind.LIMIT, price, null, (int) quantity)
+            : new OfferOrder(id, getSymbol(), OrderKind.LIMIT, price, null, (int) quantity);
+    order.setUnfilledQuantity((int) unfilled);
+    order.setAccount(accounts.get(account));
+    return order;
+  }
+
+  private static long key(UUID id) {
+    return id.getLeastSignificantBits() ^ id.getMostSignificantBits() * MIX;
+  }
+
+  private static UUID id(long key, long tag) {
+    return new UUID(tag, idLow(key, tag));
+  }
+
+  /** Returns the least significant bits of the ID of an order, which {@link #key(UUID)} mixed. */
+  private static long idLow(long key, long tag) {
+    return key ^ tag * MIX;
+  }
+
+  private int accountNumber(String account) {
+    if (account == null) {
+      return 0;
+    }
+    Integer number = accountNumbers.get(account);
+    if (number == null) {
+      number = accounts.size();
+      accounts.add(account);
+      accountNumbers.put(account, number);
+    }
+    return number;
+  }
+
+  private void quantityChanged(Order order, int delta) {
+    if (orderListener != null && delta != 0) {
+      orderListener.quantityChanged(this, order, delta);
+    }
+  }
+
+  /**
+   * Counts a level changed by the current command and, if a listener is interested, adds the change
+   * of its quantity to those the command already made.
+   */
+  private void touch(boolean buy, long ticks, long delta) {
+    levelUpdates++;
+    if (listener == null) {
+      return;
+    }
+    // fills walk the levels in order, so the level is most likely the last one touched
+    for (int i = touchedCount - 1; i >= 0; i--) {
+      if (touchedTicks[i] == ticks && touchedBuy[i] == buy) {
+        touchedDeltas[i] += delta;
+        return;
+      }
+    }
+    if (touchedCount == touchedTicks.length) {
+      touchedBuy = Arrays.copyOf(touchedBuy, touchedCount * 2);
+      touchedTicks = Arrays.copyOf(touchedTicks, touchedCount * 2);
+      touchedDeltas = Arrays.copyOf(touchedDeltas, touchedCount * 2);
+    }
+    touchedBuy[touchedCount] = buy;
+    touchedTicks[touchedCount] = ticks;
+    touchedDeltas[touchedCount] = delta;
+    touchedCount++;
+  }
+
+  /**
+   * Ends a command that changed the book: advances the version and reports the final state of every
+   * level the command changed, telling from the change of its quantity whether the level is new or
+   * gone.
+   */
+  private void publishLevels() {
+    endCommand(
+        engine.levelCount(OrderType.BUY),
+        engine.levelCount(OrderType.SELL),
+        engine.restingOrderCount(),
+        levelUpdates);
+    for (int i = 0; i < touchedCount; i++) {
+      OrderType side = touchedBuy[i] ? OrderType.BUY : OrderType.SELL;
+      long ticks = touchedTicks[i];
+      long quantity = engine.quantityAt(side, ticks);
+      long previous = quantity - touchedDeltas[i];
+      if (quantity == 0) {
+        if (previous != 0) {
+          listener.levelUpdated(getSymbol(), LevelAction.DELETE, side, toPrice(ticks), 0, 0);
+        }
+      } else if (previous == 0) {
+        listener.levelUpdated(
+            getSymbol(),
+            LevelAction.ADD,
+            side,
+            toPrice(ticks),
+            (int) quantity,
+            engine.orderCountAt(side, ticks));
+      } else if (quantity != previous) {
+        listener.levelUpdated(
+            getSymbol(),
+            LevelAction.CHANGE,
+            side,
+            toPrice(ticks),
+            (int) quantity,
+            engine.orderCountAt(side, ticks));
+      }
+    }
+    touchedCount = 0;
+  }
+}
@@ -0,0 +1,181 @@
+package com.trading.orderbook.model;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel of the orders of one book that expire at a given time. Seven levels of
+ * 64 slots each cover one millisecond per slot at the lowest level and 64 times more per slot at
+ * every level above, so scheduling and cancelling an expiry are constant-time regardless of how far
+ * away it is. An order goes to the lowest level whose range covers the time left until its expiry;
+ * when the wheel reaches the start of a higher-level slot, its orders cascade to lower levels.
+ *
+ * <p>Orders in a slot are linked through fields of the order itself, in the order they were
+ * scheduled, and each level keeps a bitmap of its occupied slots. Advancing the wheel therefore
+ * jumps straight to the next occupied slot instead of ticking every millisecond, and expiring a
+ * slot detaches all of its orders at once.
+ */
+final class ExpiryWheel {
+
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int LEVELS = 7;
+
+  /** The furthest expiry the levels cover; later ones park in the top level and cascade again. */
+  private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+  private final Order[] heads = new Order[LEVELS * SLOTS];
+  private final Order[] tails = new Order[LEVELS * SLOTS];
+  private final long[] occupied = new long[LEVELS];
+  private long now;
+
+  /** Written only by the thread that holds the book, read by anyone deciding whether to advance. */
+  private volatile int size;
+
+  /**
+   * Returns the number of scheduled orders.
+   *
+   * @return the number of orders waiting to expire
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Schedules an order to expire at its expire time. An expire time the wheel has already reached
+   * fires on the next advance.
+   *
+   * @param order an order with a positive expire time that is not scheduled yet
+   */
+  void schedule(Order order) {
+    place(order, Math.max(order.getExpireTime(), now + 1));
+    size++;
+  }
+
+  /**
+   * Cancels the expiry of an order. Does nothing if the order is not scheduled.
+   *
+   * @param order the order
+   */
+  void remove(Order order) {
+    int slot = order.expirySlot;
+    if (slot < 0) {
+      return;
+    }
+    if (order.expiryPrev == null) {
+      heads[slot] = order.expiryNext;
+    } else {
+      order.expiryPrev.expiryNext = order.expiryNext;
+    }
+    if (order.expiryNext == null) {
+      tails[slot] = order.expiryPrev;
+    } else {
+      order.expiryNext.expiryPrev = order.expiryPrev;
+    }
+    if (heads[slot] == null) {
+      occupied[slot >> SLOT_BITS] &= ~(1L << (slot & (SLOTS - 1)));
+    }
+    order.expiryPrev = null;
+    order.expiryNext = null;
+    order.expirySlot = -1;
+    size--;
+  }
+
+  /**
+   * Advances the wheel to the given time and hands over every order whose expire time is at or
+   * before it, earliest first. The orders are no longer scheduled when they are handed over. Going
+   * back in time does nothing.
+   *
+   * @param target the time to advance to, in milliseconds since the epoch
+   * @param expired receives the expired orders
+   */
+  void advance(long target, Consumer<Order> expired) {
+    while (now < target) {
+      if (size == 0) {
+        now = target;
+        return;
+      }
+      long next = nextEvent();
+      if (next > target) {
+        now = target;
+        return;
+      }
+      now = next;
+      for (int level = LEVELS - 1; level > 0; level--) {
+        int shift = SLOT_BITS * level;
+        if ((now & ((1L << shift) - 1)) == 0) {
+          cascade(level * SLOTS + (int) ((now >>> shift) & (SLOTS - 1)));
+        }
+      }
+      fire((int) (now & (SLOTS - 1)), expired);
+    }
+  }
+
+  /** Returns the earliest time after now at which an occupied slot of any level is reached. */
+  private long nextEvent() {
+    long next = Long.MAX_VALUE;
+    for (int level = 0; level < LEVELS; level++) {
+      long bits = occupied[level];
+      if (bits == 0) {
+        continue;
+      }
+      int shift = SLOT_BITS * level;
+      long ticks = now >>> shift;
+      // bit i of the rotated bitmap is the slot reached i + 1 ticks of this level from now
+      long rotated = Long.rotateRight(bits, (int) ((ticks + 1) & (SLOTS - 1)));
+      next = Math.min(next, (ticks + Long.numberOfTrailingZeros(rotated) + 1) << shift);
+    }
+    return next;
+  }
+
+  /** Moves the orders of a higher-level slot the wheel just reached to the levels below. */
+  private void cascade(int slot) {
+    Order order = detach(slot);
+    while (order != null) {
+      Order next = order.expiryNext;
+      place(order, order.getExpireTime());
+      order = next;
+    }
+  }
+
+  private void fire(int slot, Consumer<Order> expired) {
+    Order order = detach(slot);
+    while (order != null) {
+      Order next = order.expiryNext;
+      order.expiryPrev = null;
+      order.expiryNext = null;
+      order.expirySlot = -1;
+      size--;
+      expired.accept(order);
+      order = next;
+    }
+  }
+
+  private Order detach(int slot) {
+    Order head = heads[slot];
+    heads[slot] = null;
+    tails[slot] = null;
+    occupied[slot >> SLOT_BITS] &= ~(1L << (slot & (SLOTS - 1)));
+    return head;
+  }
+
+  /** Links an order into the slot that covers the given time, which is not before now. */
+  private void place(Order order, long time) {
+    long delta = time - now;
+    if (delta >= SPAN) {
+      time = now + SPAN - 1;
+      delta = SPAN - 1;
+    }
+    int level = delta < SLOTS ? 0 : (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+    int slot = level * SLOTS + (int) ((time >>> (SLOT_BITS * level)) & (SLOTS - 1));
+    order.expirySlot = slot;
+    order.expiryNext = null;
+    order.expiryPrev = tails[slot];
+    if (tails[slot] == null) {
+      heads[slot] = order;
+    } else {
+      tails[slot].expiryNext = order;
+    }
+    tails[slot] = order;
+    occupied[level] |= 1L << (slot & (SLOTS - 1));
+  }
+}
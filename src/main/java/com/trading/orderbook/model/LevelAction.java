@@ -0,0 +1,11 @@
+package com.trading.orderbook.model;
+
+/** How a price level changed, as reported to a {@link BookListener}. */
+public enum LevelAction {
+  /** The first order arrived at a price with no resting orders. */
+  ADD,
+  /** The quantity or number of orders at an existing price changed. */
+  CHANGE,
+  /** The last order at a price was filled or cancelled. */
+  DELETE
+}
@@ -1,6 +1,7 @@
 package com.trading.orderbook.model;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 
 // @Entity
 // @DiscriminatorValue("OfferOrder")
@@ -8,4 +9,18 @@ public class OfferOrder extends Order {
   public OfferOrder(String symbol, BigDecimal price, Integer quantity) {
     super(symbol, OrderType.SELL, price, quantity);
   }
+
+  public OfferOrder(UUID id, String symbol, BigDecimal price, Integer quantity) {
+    super(id, symbol, OrderType.SELL, price, quantity);
+  }
+
+  public OfferOrder(
+      UUID id,
+      String symbol,
+      OrderKind kind,
+      BigDecimal price,
+      BigDecimal stopPrice,
+      Integer quantity) {
+    super(id, symbol, OrderType.SELL, kind, price, stopPrice, quantity);
+  }
 }
@@ -3,9 +3,8 @@ package com.trading.orderbook.model;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.util.Objects;
 import java.util.UUID;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
@@ -14,6 +13,9 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 // @DiscriminatorColumn(name = "entity_type")
 public abstract class Order {
 
+  // ids of orders created without one, numbered from the start of the process
+  private static final OrderIdGenerator LOCAL_IDS = new OrderIdGenerator(0);
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private UUID id;
@@ -23,9 +25,40 @@ public abstract class Order {
   private BigDecimal price;
   private Integer quantity;
   private Integer unfilledQuantity;
+  private OrderKind kind = OrderKind.LIMIT;
+  private BigDecimal stopPrice;
+  private boolean triggered;
+  private TimeInForce timeInForce = TimeInForce.GTC;
+  private long expireTime;
+  private OrderStatus closedStatus;
+  private String account;
+
+  // Intrusive order book links, owned by the book the order rests in.
+  transient PriceLevel level;
+  transient Order prev;
+  transient Order next;
+  transient long priceTicks;
+  transient int restingQuantity;
+  transient StopLadder.Level stopLevel;
+  transient Order expiryPrev;
+  transient Order expiryNext;
+  transient int expirySlot = -1;
 
+  /**
+   * Creates a limit order with the next of the ids numbered from the start of the process, so a
+   * repeated run creates the same ids. Services take ids from their own {@link OrderIdGenerator}.
+   *
+   * @param symbol the symbol of the order
+   * @param orderType the side of the order
+   * @param price the limit price
+   * @param quantity the quantity of the order
+   */
   public Order(String symbol, OrderType orderType, BigDecimal price, Integer quantity) {
-    this.id = UUID.randomUUID();
+    this(LOCAL_IDS.next(), symbol, orderType, price, quantity);
+  }
+
+  public Order(UUID id, String symbol, OrderType orderType, BigDecimal price, Integer quantity) {
+    this.id = id;
     this.symbol = symbol;
     this.type = orderType;
     this.price = price;
@@ -33,6 +66,45 @@ public abstract class Order {
     this.unfilledQuantity = quantity;
   }
 
+  /**
+   * Creates an order of any kind.
+   *
+   * @param id the ID of the order
+   * @param symbol the symbol of the order
+   * @param orderType the side of the order
+   * @param kind the kind of the order
+   * @param price the limit price; ignored for {@link OrderKind#STOP} orders, whose price is their
+   *     stop price, and null for {@link OrderKind#MARKET} orders
+   * @param stopPrice the trigger price of a stop order, or null for a limit or market order
+   * @param quantity the quantity of the order
+   * @throws IllegalArgumentException if a stop order has no stop price, another order has one, a
+   *     limit price is missing, or a market order has one
+   */
+  public Order(
+      UUID id,
+      String symbol,
+      OrderType orderType,
+      OrderKind kind,
+      BigDecimal price,
+      BigDecimal stopPrice,
+      Integer quantity) {
+    this(id, symbol, orderType, kind == OrderKind.STOP ? stopPrice : price, quantity);
+    if (kind.hasStopPrice() == (stopPrice == null)) {
+      throw new IllegalArgumentException(
+          kind.hasStopPrice()
+              ? "Stop price required for " + kind + " orders"
+              : kind + " orders have no stop price");
+    }
+    if ((kind == OrderKind.MARKET) != (this.price == null)) {
+      throw new IllegalArgumentException(
+          kind == OrderKind.MARKET
+              ? "Market orders have no price"
+              : "Price required for " + kind + " orders");
+    }
+    this.kind = kind;
+    this.stopPrice = stopPrice;
+  }
+
   public UUID getId() {
     return id;
   }
@@ -77,8 +149,91 @@ public abstract class Order {
     this.unfilledQuantity = unfilledQuantity;
   }
 
+  public OrderKind getKind() {
+    return kind;
+  }
+
+  /**
+   * Returns the last trade price at which a stop order is triggered: at or above it for a buy, at
+   * or below it for a sell.
+   *
+   * @return the stop price, or null for a limit order
+   */
+  public BigDecimal getStopPrice() {
+    return stopPrice;
+  }
+
+  /**
+   * Returns whether a stop order has been triggered and entered matching.
+   *
+   * @return true once triggered; always false for a limit order
+   */
+  public boolean isTriggered() {
+    return triggered;
+  }
+
+  public void setTriggered(boolean triggered) {
+    this.triggered = triggered;
+  }
+
+  public TimeInForce getTimeInForce() {
+    return timeInForce;
+  }
+
+  public void setTimeInForce(TimeInForce timeInForce) {
+    this.timeInForce = timeInForce;
+  }
+
+  /**
+   * Returns the time at which a GTD or DAY order leaves the book.
+   *
+   * @return the expire time in milliseconds since the epoch, or 0 if the order does not expire
+   */
+  public long getExpireTime() {
+    return expireTime;
+  }
+
+  public void setExpireTime(long expireTime) {
+    this.expireTime = expireTime;
+  }
+
+  /**
+   * Returns the account the order trades for.
+   *
+   * @return the account, or null if the order was entered without one
+   */
+  public String getAccount() {
+    return account;
+  }
+
+  public void setAccount(String account) {
+    this.account = account;
+  }
+
+  /**
+   * Marks an order that a pre-trade check refused before it reached the book, so it reports {@link
+   * OrderStatus#REJECTED} from now on.
+   */
+  public void reject() {
+    this.closedStatus = OrderStatus.REJECTED;
+  }
+
+  /**
+   * Marks an order that the book removed with quantity left, so it reports the given status from
+   * now on.
+   *
+   * @param status {@link OrderStatus#CANCELLED} or {@link OrderStatus#EXPIRED}
+   */
+  void close(OrderStatus status) {
+    this.closedStatus = status;
+  }
+
   public OrderStatus getStatus() {
-    if (unfilledQuantity.equals(quantity)) {
+    if (closedStatus != null) {
+      return closedStatus;
+    } else if (kind.hasStopPrice() && !triggered) {
+      return OrderStatus.PENDING;
+    } else if (unfilledQuantity.equals(quantity)) {
       return OrderStatus.OPEN;
     } else if (unfilledQuantity == 0) {
       return OrderStatus.FILLED;
@@ -87,14 +242,15 @@ public abstract class Order {
     }
   }
 
+  /** Orders are equal if they have the same id, whatever state each copy is in. */
   @Override
   public boolean equals(Object o) {
-    return EqualsBuilder.reflectionEquals(this, o);
+    return this == o || (o instanceof Order other && Objects.equals(id, other.id));
   }
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    return Objects.hashCode(id);
   }
 
   @Override
@@ -102,10 +258,15 @@ public abstract class Order {
     return new ToStringBuilder(this, ToStringStyle.JSON_STYLE)
         .append("id", id)
         .append("symbol", symbol)
+        .append("account", account)
         .append("type", type)
         .append("price", price)
         .append("quantity", quantity)
         .append("unfilledQuantity", unfilledQuantity)
+        .append("kind", kind)
+        .append("stopPrice", stopPrice)
+        .append("timeInForce", timeInForce)
+        .append("expireTime", expireTime)
         .append("status", getStatus())
         .toString();
   }
@@ -1,217 +1,442 @@
 package com.trading.orderbook.model;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.TreeMap;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 /**
  * Represents an order book for a specific trading symbol. Manages bid and offer orders and matches
- * them based on price and quantity.
+ * them based on price and quantity. {@link DefaultOrderBook} takes every kind of order; other
+ * books, such as {@link EngineOrderBook}, take fewer and keep only the state they need.
+ *
+ * <p>This class holds what every book shares: the symbol, the lock, the trade stream, the version
+ * and the counters of {@link #stats()}. A book without stop orders, expire times or market orders
+ * keeps the defaults of the methods that deal with them, which have nothing to do.
+ *
+ * <p>Every public command holds the book's {@link ReentrantLock} rather than its monitor, so a
+ * virtual thread waiting for or holding the book never pins its carrier thread.
  */
-public class OrderBook {
+public abstract class OrderBook {
+
+  /** Number of trade events each order book retains for its subscribers. */
+  public static final int TRADE_BUFFER_SIZE = 4096;
 
   private final String symbol;
-  private final TreeMap<BigDecimal, List<Order>> bids;
-  private final TreeMap<BigDecimal, List<Order>> offers;
+  private final TradeEventBuffer trades;
+  private final ReentrantLock lock = new ReentrantLock();
+  private int symbolId = -1;
+  private volatile long version;
+  // the counters as of the last command, which stats() reads without the lock
+  private volatile int bidLevelCount;
+  private volatile int offerLevelCount;
+  private volatile int restingOrderCount;
+  private volatile long levelUpdateCount;
 
   /**
    * Constructs an OrderBook for the given symbol.
    *
    * @param symbol the trading symbol for this order book
    */
-  public OrderBook(String symbol) {
+  OrderBook(String symbol) {
     this.symbol = symbol;
-    this.bids = new TreeMap<>();
-    this.offers = new TreeMap<>();
-    offers.put(BigDecimal.valueOf(Double.MAX_VALUE), new ArrayList<>());
-    bids.put(BigDecimal.valueOf(Double.MIN_VALUE), new ArrayList<>());
+    this.trades = new TradeEventBuffer(symbol, TRADE_BUFFER_SIZE);
+  }
+
+  public String getSymbol() {
+    return symbol;
   }
 
   /**
-   * Adds a bid order to the order book and attempts to match it.
+   * Returns the dense integer ID the order book registry assigned to the symbol of this book.
    *
-   * @param bidOrder the bid order to add
-   * @return the adjusted bid order after matching
+   * @return the symbol ID, or -1 if the book was not created by the registry
    */
-  public synchronized BidOrder adBidOrder(BidOrder bidOrder) {
-    BidOrder adjustedOrder = match(bidOrder);
-    if (adjustedOrder.getUnfilledQuantity() == 0) {
-      return adjustedOrder;
-    }
-    bids.putIfAbsent(adjustedOrder.getPrice(), new ArrayList<>());
-    bids.get(adjustedOrder.getPrice()).add(adjustedOrder);
-    return adjustedOrder;
+  public int getSymbolId() {
+    return symbolId;
   }
 
   /**
-   * Adds an offer order to the order book and attempts to match it.
+   * Assigns the symbol ID of this book. Called once by the order book registry before the book is
+   * shared.
    *
-   * @param offerOrder the offer order to add
-   * @return the adjusted offer order after matching
+   * @param symbolId the symbol ID
    */
-  public synchronized OfferOrder addOfferOrder(OfferOrder offerOrder) {
-    OfferOrder adjustedOrder = match(offerOrder);
-    if (adjustedOrder.getUnfilledQuantity() == 0) {
-      return adjustedOrder;
-    }
-    offers.putIfAbsent(adjustedOrder.getPrice(), new ArrayList<>());
-    offers.get(adjustedOrder.getPrice()).add(adjustedOrder);
-    return adjustedOrder;
+  public void setSymbolId(int symbolId) {
+    this.symbolId = symbolId;
   }
 
   /**
-   * Matches the given order with existing orders in the order book.
+   * Returns the version of this order book, which changes with every command that changes it. It
+   * can be read from any thread without taking the lock of the book.
    *
-   * @param order the order to match
-   * @param <T> the type of the order (BidOrder or OfferOrder)
-   * @return the adjusted order after matching
+   * @return the current version
    */
-  private synchronized <T extends Order> T match(T order) {
-    if (order instanceof BidOrder) {
-      return matchBidOrder(order);
-    } else {
-      return matchOfferOrder(order);
-    }
+  public long getVersion() {
+    return version;
   }
 
   /**
-   * Matches a bid order with existing offer orders in the order book.
+   * Returns the lock that every command on this book holds. Callers that run several commands as
+   * one atomic step hold it around them; it is reentrant.
    *
-   * @param order the bid order to match
-   * @param <T> the type of the order
-   * @return the adjusted bid order after matching
+   * @return the lock of this book
    */
-  private <T extends Order> T matchBidOrder(T order) {
-    BigDecimal lowestOfferPrice = offers.firstKey();
-    if (lowestOfferPrice.compareTo(order.getPrice()) <= 0) {
-      orderMatchedInOrderbook(order, offers.get(lowestOfferPrice));
-      if (offers.get(lowestOfferPrice).isEmpty()) {
-        offers.remove(lowestOfferPrice);
-      }
-      if (order.getUnfilledQuantity() > 0) {
-        return matchBidOrder(order);
-      }
-      return order;
-    }
-    return order;
+  public ReentrantLock getLock() {
+    return lock;
   }
 
   /**
-   * Matches an offer order with existing bid orders in the order book.
+   * Returns the stream of trades executed in this order book. Subscribers can read it from any
+   * thread without blocking matching.
    *
-   * @param order the offer order to match
-   * @param <T> the type of the order
-   * @return the adjusted offer order after matching
+   * @return the trade event buffer of this order book
    */
-  private synchronized <T extends Order> T matchOfferOrder(T order) {
-    BigDecimal highestBidPrice = bids.lastKey();
-    if (highestBidPrice.compareTo(order.getPrice()) >= 0) {
-      orderMatchedInOrderbook(order, bids.get(highestBidPrice));
-      if (bids.get(highestBidPrice).isEmpty()) {
-        bids.remove(highestBidPrice);
-      }
-      if (order.getUnfilledQuantity() > 0) {
-        return matchBidOrder(order);
-      }
-      return order;
+  public TradeEventBuffer getTrades() {
+    return trades;
+  }
+
+  /**
+   * Sets the price protection band of orders without a limit: market orders and triggered stop
+   * orders only trade at prices within this fraction of the best opposite price when they arrive,
+   * and what they cannot fill within it does not rest. A book that takes neither only checks the
+   * band.
+   *
+   * @param protectionBand the band as a fraction of the price, for example 0.05 for 5%, or null or
+   *     zero to let them sweep the whole side
+   * @throws IllegalArgumentException if the band is negative
+   */
+  public void setProtectionBand(BigDecimal protectionBand) {
+    if (protectionBand != null && protectionBand.signum() < 0) {
+      throw new IllegalArgumentException("Protection band must not be negative: " + protectionBand);
     }
-    return order;
   }
 
   /**
-   * Matches the given order with a list of orders at a specific price.
+   * Returns the price of the last trade executed in this order book, which stop orders trigger on.
    *
-   * @param order the order to match
-   * @param ordersAtPrice the list of orders at the matching price
-   * @param <T> the type of the order
+   * @return the last trade price, or null if the book has not traded
    */
-  private synchronized <T extends Order> void orderMatchedInOrderbook(
-      T order, List<Order> ordersAtPrice) {
-    // List to keep track of orders that are fully matched and need to be removed
-    List<Order> ordersToRemove = new ArrayList<>();
+  public abstract BigDecimal getLastTradePrice();
 
-    // Iterate through each order in the list of orders at the matching price
-    ordersAtPrice.forEach(
-        matchedOrder -> {
-          // Calculate the quantity that can be filled for the current order
-          int filledQuantity =
-              Math.min(matchedOrder.getUnfilledQuantity(), order.getUnfilledQuantity());
+  /**
+   * Sets the listener that receives the trades and level changes of this order book. The levels
+   * already in the book are considered known to the listener.
+   *
+   * @param listener the listener, or null to stop reporting changes
+   */
+  public abstract void setListener(BookListener listener);
 
-          // Update the unfilled quantity of the current order and the matching order
-          matchedOrder.setUnfilledQuantity(matchedOrder.getUnfilledQuantity() - filledQuantity);
-          order.setUnfilledQuantity(order.getUnfilledQuantity() - filledQuantity);
+  /**
+   * Sets the listener that follows the open quantity of the orders of this order book. Orders
+   * already in the book are considered known to the listener.
+   *
+   * @param orderListener the listener, or null to stop reporting changes
+   */
+  public abstract void setOrderListener(OrderListener orderListener);
 
-          // If the current order is fully matched, add it to the list of orders to remove
-          if (matchedOrder.getUnfilledQuantity() == 0) {
-            ordersToRemove.add(matchedOrder);
-          }
-        });
+  /**
+   * Checks that a price is valid for this book, so a command can refuse an order or an amend before
+   * it is journaled rather than fail while it is applied. Any price is valid unless a book says
+   * otherwise.
+   *
+   * @param price the limit price of an order
+   * @throws IllegalArgumentException if the price is not valid for this book
+   */
+  public void checkPrice(BigDecimal price) {}
 
-    // Remove all fully matched orders from the list of orders at the matching price
-    ordersAtPrice.removeAll(ordersToRemove);
+  /**
+   * Checks that an order is valid for this book, so a command can refuse it before it is journaled
+   * rather than fail while it is applied. Any order whose price {@link #checkPrice(BigDecimal)}
+   * accepts is valid unless a book says otherwise.
+   *
+   * @param order a new order
+   * @throws IllegalArgumentException if the order is not valid for this book
+   */
+  public void checkOrder(Order order) {
+    if (order.getPrice() != null) {
+      checkPrice(order.getPrice());
+    }
   }
 
   /**
-   * Retrieves the depth of the order book, including bid and offer quantities at each price level.
+   * Checks that a resting order can be amended to a price, so a command can refuse the amend before
+   * it is journaled rather than fail while it is applied. Any price {@link #checkPrice(BigDecimal)}
+   * accepts is valid unless a book says otherwise.
    *
-   * @return a list of order book depths
+   * @param order the resting order, or for a book that {@link #storesOrders() stores its orders}, a
+   *     copy of it
+   * @param price the new price
+   * @throws IllegalArgumentException if the order cannot be amended to the price
+   */
+  public void checkAmend(Order order, BigDecimal price) {
+    checkPrice(price);
+  }
+
+  /**
+   * Returns whether this book keeps the state of its resting orders itself rather than in the
+   * {@link Order} objects it was given. Callers of such a book look its orders up with {@link
+   * #findOrder(UUID)} and only ever get copies, and the book keeps nothing of the orders it is done
+   * with.
+   *
+   * @return false unless the book stores its orders
+   */
+  public boolean storesOrders() {
+    return false;
+  }
+
+  /**
+   * Returns a copy of a resting order of a book that {@link #storesOrders() stores its orders}.
+   *
+   * @param id the ID of the order
+   * @return the copy, or null if the order is not resting or the book does not store its orders
+   */
+  public Order findOrder(UUID id) {
+    return null;
+  }
+
+  /**
+   * Returns whether an order rests in this book, so a command can refuse to amend an order that is
+   * filled, cancelled, expired or a dormant stop before it is journaled rather than fail while it
+   * is applied. {@link #amendOrder(Order, BigDecimal, int, long)} amends exactly the orders this
+   * accepts.
+   *
+   * @param order the order, or for a book that {@link #storesOrders() stores its orders}, a copy of
+   *     it
+   * @return true if the order rests in this book
    */
-  public List<OrderBookDepth> orderbookDepth() {
-    List<OrderBookDepth> orderbookDepthList = new ArrayList<>();
+  public abstract boolean isResting(Order order);
 
-    bids.forEach(
-        (price, orders) -> {
-          int quantity = orders.stream().mapToInt(Order::getUnfilledQuantity).sum();
-          if (quantity != 0) {
-            orderbookDepthList.add(new OrderBookDepth(price, quantity, OrderType.BUY));
-          }
-        });
-    offers.forEach(
-        (price, orders) -> {
-          int quantity = orders.stream().mapToInt(Order::getUnfilledQuantity).sum();
-          if (quantity != 0) {
-            orderbookDepthList.add(new OrderBookDepth(price, quantity, OrderType.SELL));
-          }
-        });
+  /**
+   * Adds a bid order to the order book and attempts to match it. Its trades have a timestamp of 0.
+   *
+   * @param bidOrder the bid order to add
+   * @return the adjusted bid order after matching
+   */
+  public abstract BidOrder adBidOrder(BidOrder bidOrder);
 
-    return orderbookDepthList;
+  /**
+   * Adds an offer order to the order book and attempts to match it. Its trades have a timestamp of
+   * 0.
+   *
+   * @param offerOrder the offer order to add
+   * @return the adjusted offer order after matching
+   */
+  public abstract OfferOrder addOfferOrder(OfferOrder offerOrder);
+
+  /**
+   * Adds an order to the order book and attempts to match it. Its trades have a timestamp of 0.
+   *
+   * @param order the order to add
+   * @return the adjusted order after matching
+   */
+  public Order addOrder(Order order) {
+    return addOrder(order, 0);
   }
 
   /**
    * Adds an order to the order book and attempts to match it.
    *
    * @param order the order to add
+   * @param time the time of the command in milliseconds since the epoch, which its trades are
+   *     stamped with
    * @return the adjusted order after matching
    */
-  public Order addOrder(Order order) {
-    if (order instanceof BidOrder) {
-      return adBidOrder((BidOrder) order);
-    } else {
-      return addOfferOrder((OfferOrder) order);
+  public abstract Order addOrder(Order order, long time);
+
+  /**
+   * Removes a resting order, or a dormant stop order of a book that takes them, from the order
+   * book.
+   *
+   * @param o the order to cancel
+   */
+  public abstract void cancelOrder(Order o);
+
+  /**
+   * Amends the price and quantity of a resting order. A quantity reduction at the same price
+   * happens in place and keeps the order's time priority. Any other amend removes the order and
+   * adds it again, so it matches like a new order at the new price and loses its time priority.
+   * Both happen atomically with respect to other commands on the book. The trades of an amend that
+   * matches have a timestamp of 0.
+   *
+   * @param order the order to amend
+   * @param price the new price
+   * @param quantity the new total quantity, including the quantity already filled
+   * @return true if the order was amended, false if it is not resting in this book
+   * @throws IllegalArgumentException if the quantity does not exceed the filled quantity, or the
+   *     price is not valid for this book
+   */
+  public boolean amendOrder(Order order, BigDecimal price, int quantity) {
+    return amendOrder(order, price, quantity, 0);
+  }
+
+  /**
+   * Amends the price and quantity of a resting order, stamping the trades of an amend that matches
+   * with the time of the command. See {@link #amendOrder(Order, BigDecimal, int)}.
+   *
+   * @param order the order to amend
+   * @param price the new price
+   * @param quantity the new total quantity, including the quantity already filled
+   * @param time the time of the command in milliseconds since the epoch
+   * @return true if the order was amended, false if it is not resting in this book
+   * @throws IllegalArgumentException if the quantity does not exceed the filled quantity, or the
+   *     price is not valid for this book
+   */
+  public abstract boolean amendOrder(Order order, BigDecimal price, int quantity, long time);
+
+  /**
+   * Retrieves the depth of the order book: bids first, then offers, each in ascending price order.
+   *
+   * @return a list of order book depths
+   */
+  public abstract List<OrderBookDepth> orderbookDepth();
+
+  /**
+   * Retrieves the best {@code depth} price levels of each side of the order book: bids from the
+   * highest price down, followed by offers from the lowest price up.
+   *
+   * @param depth the maximum number of levels per side
+   * @return a list of order book depths
+   * @throws IllegalArgumentException if depth is not positive
+   */
+  public abstract List<OrderBookDepth> topN(int depth);
+
+  /**
+   * Returns whether any order of this book waits to expire. Can be called from any thread without
+   * taking the lock of the book, to skip books with nothing to expire.
+   *
+   * @return true if a resting or dormant order has an expire time; false for a book that takes no
+   *     orders with one
+   */
+  public boolean hasScheduledExpiries() {
+    return false;
+  }
+
+  /**
+   * Removes every resting order and dormant stop order whose expire time is at or before the given
+   * time. Orders that expire at the same time leave in the order they were scheduled.
+   *
+   * @param now the current time in milliseconds since the epoch
+   * @return the expired orders, earliest first
+   */
+  public List<Order> expireOrders(long now) {
+    return List.of();
+  }
+
+  /**
+   * Removes one resting or dormant order as expired, whether or not its expire time has been
+   * reached. Used to replay expiries in the order they originally happened.
+   *
+   * @param order the order to expire
+   * @return false if the order is neither resting nor dormant in this book
+   */
+  public boolean expireOrder(Order order) {
+    return false;
+  }
+
+  /**
+   * Returns counters describing the size and activity of this order book. The counters are kept as
+   * commands run and read without taking the lock of the book, so they may be read from any thread
+   * as often as needed; each is the value left by the last command.
+   *
+   * @return the current statistics
+   */
+  public BookStats stats() {
+    return new BookStats(
+        bidLevelCount, offerLevelCount, restingOrderCount, trades.nextSequence(), levelUpdateCount);
+  }
+
+  /**
+   * Ends a command that changed the book, under its lock: advances the version and publishes the
+   * counters of {@link #stats()}.
+   */
+  void endCommand(int bidLevels, int offerLevels, int restingOrders, long levelUpdates) {
+    // only written under the lock, so the increment does not race
+    version++;
+    // a volatile read is cheaper than a volatile write, so only changed counters are written
+    if (bidLevelCount != bidLevels) {
+      bidLevelCount = bidLevels;
+    }
+    if (offerLevelCount != offerLevels) {
+      offerLevelCount = offerLevels;
+    }
+    if (restingOrderCount != restingOrders) {
+      restingOrderCount = restingOrders;
+    }
+    if (levelUpdateCount != levelUpdates) {
+      levelUpdateCount = levelUpdates;
     }
   }
 
-  public synchronized void cancelOrder(Order o) {
-    if (o instanceof BidOrder && bids.containsKey(o.getPrice())) {
-      bids.get(o.getPrice()).remove(o);
-    } else if (o instanceof OfferOrder && offers.containsKey(o.getPrice())) {
-      offers.get(o.getPrice()).remove(o);
+  /**
+   * Copies the state of every resting order: bids from the best price down, then offers from the
+   * best price up, each level in time priority.
+   *
+   * @return the resting orders in priority order
+   */
+  public abstract List<OrderState> restingOrders();
+
+  /**
+   * Copies the state of every dormant stop order: buys, then sells, each in trigger order.
+   *
+   * @return the dormant stop orders; always empty for a book that takes no stop orders
+   */
+  public List<OrderState> pendingStops() {
+    return List.of();
+  }
+
+  /**
+   * Parks a dormant stop order without checking whether it triggers. Used to rebuild a book from a
+   * snapshot, with stops restored in trigger order.
+   *
+   * @param order the stop order to restore
+   * @throws IllegalArgumentException if this book takes no stop orders
+   */
+  public void restorePendingStop(Order order) {
+    throw new IllegalArgumentException(
+        "Stop orders are not supported by the order book of " + symbol);
+  }
+
+  /**
+   * Puts an order back at the end of its price level without matching it. Used to rebuild a book
+   * from a snapshot, with orders restored in time priority.
+   *
+   * @param order the order to restore
+   */
+  public abstract void restoreRestingOrder(Order order);
+
+  /**
+   * Continues the trade stream of a restored book at the given sequence.
+   *
+   * @param nextSequence the sequence of the next trade
+   */
+  public void restoreTradeSequence(long nextSequence) {
+    lock.lock();
+    try {
+      trades.restoreSequence(nextSequence);
+    } finally {
+      lock.unlock();
     }
   }
 
+  /**
+   * Restores the last trade price of a restored book, which its stop orders trigger on.
+   *
+   * @param lastTradePrice the last trade price, or null if the book had not traded
+   */
+  public abstract void restoreLastTradePrice(BigDecimal lastTradePrice);
+
+  /** Order books are equal if they are books of the same symbol. */
   @Override
   public boolean equals(Object o) {
-    return EqualsBuilder.reflectionEquals(this, o);
+    return this == o || (o instanceof OrderBook other && symbol.equals(other.symbol));
   }
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    return symbol.hashCode();
   }
 
   @Override
@@ -0,0 +1,34 @@
+package com.trading.orderbook.model;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out order ids without a source of randomness. The most significant half of each id is the
+ * epoch of the generator and the least significant half counts up from 1, so the ids of a generator
+ * are unique and a run that creates the same orders from the same epoch gets the same ids.
+ * Generators with distinct epochs, such as the start times of successive runs, never collide.
+ */
+public final class OrderIdGenerator {
+
+  private final long epoch;
+  private final AtomicLong counter = new AtomicLong();
+
+  /**
+   * Creates a generator.
+   *
+   * @param epoch the most significant half of every id
+   */
+  public OrderIdGenerator(long epoch) {
+    this.epoch = epoch;
+  }
+
+  /**
+   * Returns the next id. Can be called from any thread.
+   *
+   * @return a new id
+   */
+  public UUID next() {
+    return new UUID(epoch, counter.incrementAndGet());
+  }
+}
@@ -0,0 +1,40 @@
+package com.trading.orderbook.model;
+
+/** How an order enters the book. */
+public enum OrderKind {
+  /** Matches at its price or better and rests the remainder. */
+  LIMIT,
+  /**
+   * Stays dormant until the last trade price reaches its stop price, then matches at any price. The
+   * remainder that finds no liquidity does not rest.
+   */
+  STOP,
+  /**
+   * Stays dormant until the last trade price reaches its stop price, then enters the book as a
+   * limit order at its price.
+   */
+  STOP_LIMIT,
+  /**
+   * Has no price: matches at once at the best prices available, within the price protection band of
+   * its book if one is set. The remainder does not rest.
+   */
+  MARKET;
+
+  /**
+   * Returns whether orders of this kind wait for a stop price.
+   *
+   * @return true for stop and stop-limit orders
+   */
+  public boolean hasStopPrice() {
+    return this == STOP || this == STOP_LIMIT;
+  }
+
+  /**
+   * Returns whether orders of this kind only match at their own price or better.
+   *
+   * @return true for limit and stop-limit orders
+   */
+  public boolean hasLimit() {
+    return this == LIMIT || this == STOP_LIMIT;
+  }
+}
@@ -0,0 +1,62 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Follows the open quantity of the individual orders of an order book, for components that keep
+ * state per order or per account, such as exposure counters. Callbacks run on the thread that
+ * changes the book, under its lock, so implementations must be quick and must not call back into
+ * the book.
+ *
+ * <p>Every order reports its whole unfilled quantity as opened when it is added, whether it rests,
+ * waits as a dormant stop or only matches. From then on, each trade reports a fill of both orders
+ * and every other change of the unfilled quantity, such as a cancel, an expiry, a remainder that
+ * does not rest or an amend, reports the difference. The sum of what an order reported is its
+ * quantity still working in the book. Orders restored from a snapshot are not reported.
+ */
+public interface OrderListener {
+
+  /**
+   * Called when the unfilled quantity of an order in the book changes other than by a trade.
+   *
+   * @param orderBook the order book
+   * @param order the order
+   * @param delta the quantity added to the book, negative if quantity was removed
+   */
+  void quantityChanged(OrderBook orderBook, Order order, int delta);
+
+  /**
+   * Called for the resting order of every trade, before {@link #orderFilled} is called for the
+   * incoming order. The resting order is given by its ID, side and account rather than as an {@link
+   * Order}, so a book that keeps no order objects reports fills without creating any.
+   *
+   * @param orderBook the order book
+   * @param idHigh the most significant bits of the ID of the resting order
+   * @param idLow the least significant bits of the ID of the resting order
+   * @param side the side of the resting order
+   * @param account the account of the resting order, or null if it has none
+   * @param price the execution price
+   * @param quantity the executed quantity
+   * @param unfilledQuantity the unfilled quantity of the resting order after the trade
+   */
+  void restingOrderFilled(
+      OrderBook orderBook,
+      long idHigh,
+      long idLow,
+      OrderType side,
+      String account,
+      BigDecimal price,
+      int quantity,
+      int unfilledQuantity);
+
+  /**
+   * Called for the incoming order of every trade, after {@link #restingOrderFilled}. The unfilled
+   * quantity of the order is what is left of it after the trade.
+   *
+   * @param orderBook the order book
+   * @param order the order that traded
+   * @param price the execution price
+   * @param quantity the executed quantity
+   */
+  void orderFilled(OrderBook orderBook, Order order, BigDecimal price, int quantity);
+}
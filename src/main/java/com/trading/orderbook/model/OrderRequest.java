@@ -0,0 +1,28 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One order of a batch, with the fields it was sent with.
+ *
+ * @param symbol the symbol of the order
+ * @param type the type of the order (BUY or SELL)
+ * @param price the limit price of the order, not needed for a stop or market order
+ * @param quantity the quantity of the order
+ * @param kind the kind of the order, LIMIT if omitted
+ * @param stopPrice the trigger price of a stop or stop-limit order
+ * @param timeInForce how long the order stays in the book, GTC if omitted
+ * @param expireTime the time a GTD order expires
+ * @param account the account the order trades for
+ */
+public record OrderRequest(
+    String symbol,
+    String type,
+    BigDecimal price,
+    Integer quantity,
+    OrderKind kind,
+    BigDecimal stopPrice,
+    TimeInForce timeInForce,
+    Instant expireTime,
+    String account) {}
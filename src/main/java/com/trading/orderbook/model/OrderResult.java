@@ -0,0 +1,38 @@
+package com.trading.orderbook.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+/**
+ * The outcome of creating an order. A batch request that could not be made into an order at all,
+ * such as one with an unknown side, has no order and echoes the request with the reason instead.
+ *
+ * @param order the order after matching, or null if the request could not be made into an order
+ * @param fills the trades the order executed as the incoming order, in sequence order
+ * @param request the request that could not be made into an order, or null
+ * @param error why the request could not be made into an order, or null
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderResult(Order order, List<Trade> fills, OrderRequest request, String error) {
+
+  /**
+   * Creates the outcome of an order that was made from its request.
+   *
+   * @param order the order after matching
+   * @param fills the trades the order executed as the incoming order, in sequence order
+   */
+  public OrderResult(Order order, List<Trade> fills) {
+    this(order, fills, null, null);
+  }
+
+  /**
+   * Creates the outcome of a request that could not be made into an order.
+   *
+   * @param request the request as it was sent
+   * @param error why the request could not be made into an order
+   * @return a result without an order or fills
+   */
+  public static OrderResult rejected(OrderRequest request, String error) {
+    return new OrderResult(null, List.of(), request, error);
+  }
+}
@@ -0,0 +1,101 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * An immutable copy of the state of an order at one point in time.
+ *
+ * @param id the ID of the order
+ * @param symbol the symbol of the order
+ * @param side the side of the order
+ * @param price the price of the order
+ * @param quantity the quantity of the order
+ * @param unfilledQuantity the unfilled quantity of the order
+ * @param kind the kind of the order
+ * @param stopPrice the stop price of a stop order, or null for a limit order
+ * @param triggered whether a stop order has been triggered
+ * @param timeInForce the time in force of the order
+ * @param expireTime the expire time of the order in milliseconds since the epoch, or 0
+ * @param status the status of the order
+ * @param account the account of the order, or null
+ */
+public record OrderState(
+    UUID id,
+    String symbol,
+    OrderType side,
+    BigDecimal price,
+    int quantity,
+    int unfilledQuantity,
+    OrderKind kind,
+    BigDecimal stopPrice,
+    boolean triggered,
+    TimeInForce timeInForce,
+    long expireTime,
+    OrderStatus status,
+    String account) {
+
+  /** Creates the state of a limit order. */
+  public OrderState(
+      UUID id,
+      String symbol,
+      OrderType side,
+      BigDecimal price,
+      int quantity,
+      int unfilledQuantity) {
+    this(
+        id,
+        symbol,
+        side,
+        price,
+        quantity,
+        unfilledQuantity,
+        OrderKind.LIMIT,
+        null,
+        false,
+        TimeInForce.GTC,
+        0,
+        unfilledQuantity == quantity
+            ? OrderStatus.OPEN
+            : unfilledQuantity == 0 ? OrderStatus.FILLED : OrderStatus.PARTIALLY_FILLED,
+        null);
+  }
+
+  public static OrderState of(Order order) {
+    return new OrderState(
+        order.getId(),
+        order.getSymbol(),
+        order.getType(),
+        order.getPrice(),
+        order.getQuantity(),
+        order.getUnfilledQuantity(),
+        order.getKind(),
+        order.getStopPrice(),
+        order.isTriggered(),
+        order.getTimeInForce(),
+        order.getExpireTime(),
+        order.getStatus(),
+        order.getAccount());
+  }
+
+  /**
+   * Creates a new order with this state.
+   *
+   * @return the order
+   */
+  public Order toOrder() {
+    Order order =
+        side == OrderType.BUY
+            ? new BidOrder(id, symbol, kind, price, stopPrice, quantity)
+            : new OfferOrder(id, symbol, kind, price, stopPrice, quantity);
+    order.setUnfilledQuantity(unfilledQuantity);
+    order.setTriggered(triggered);
+    order.setTimeInForce(timeInForce);
+    order.setExpireTime(expireTime);
+    order.setAccount(account);
+    if (status == OrderStatus.CANCELLED || status == OrderStatus.EXPIRED) {
+      order.close(status);
+    }
+    return order;
+  }
+}
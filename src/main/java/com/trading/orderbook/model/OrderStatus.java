@@ -3,5 +3,13 @@ package com.trading.orderbook.model;
 public enum OrderStatus {
   OPEN,
   PARTIALLY_FILLED,
-  FILLED
+  FILLED,
+  /** A stop order waiting for its trigger. */
+  PENDING,
+  /** Removed by the book with quantity left: an IOC, FOK or stop order that found no liquidity. */
+  CANCELLED,
+  /** Removed by the book with quantity left when its time in force ran out. */
+  EXPIRED,
+  /** Refused by a pre-trade risk check before it reached the book. */
+  REJECTED
 }
@@ -0,0 +1,245 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+/**
+ * Book side backed by a primitive array of price levels indexed by tick. Slots are addressed by
+ * {@code ticks & mask}, so the ladder is a ring that follows the market: the reference price moves
+ * with the lowest and highest active levels and never needs shifting. The array only grows when the
+ * distance between the lowest and highest active level exceeds its capacity, and never beyond
+ * {@link #MAX_SPAN} ticks; prices further out are refused by {@link #fits(long)} before the order
+ * enters the book.
+ *
+ * <p>Finding the best level and inserting a level are O(1). Removing the best level scans towards
+ * the next active tick, which is cheap at realistic tick sizes. A level object is created the first
+ * time its slot is used and reused after that, so steady-state operation does not allocate and a
+ * wide ladder only holds the levels it has used.
+ */
+final class PriceLadderBookSide implements BookSide {
+
+  /** The largest distance in ticks between the lowest and highest level of a side. */
+  static final int MAX_SPAN = 1 << 20;
+
+  private final boolean bid;
+  private PriceLevel[] slots;
+  private int mask;
+  private int levelCount;
+  private long minTicks;
+  private long maxTicks;
+
+  /**
+   * Constructs an empty ladder.
+   *
+   * @param bid true for the bid side, false for the offer side
+   * @param capacity the initial number of tick slots, rounded up to a power of two
+   */
+  PriceLadderBookSide(boolean bid, int capacity) {
+    if (capacity <= 0 || capacity > MAX_SPAN) {
+      throw new IllegalArgumentException(
+          "Ladder capacity must be positive and at most " + MAX_SPAN + ": " + capacity);
+    }
+    this.bid = bid;
+    allocate(capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+  }
+
+  private void allocate(int size) {
+    slots = new PriceLevel[size];
+    mask = size - 1;
+  }
+
+  /** Returns the level in the slot of a price, or null if the slot was never used. */
+  private PriceLevel slot(long ticks) {
+    return slots[(int) (ticks & mask)];
+  }
+
+  private boolean isEmpty(long ticks) {
+    PriceLevel level = slot(ticks);
+    return level == null || level.isEmpty();
+  }
+
+  @Override
+  public PriceLevel best() {
+    if (levelCount == 0) {
+      return null;
+    }
+    return slot(bid ? maxTicks : minTicks);
+  }
+
+  @Override
+  public boolean fits(long ticks) {
+    return levelCount == 0 || Math.max(ticks, maxTicks) - Math.min(ticks, minTicks) < MAX_SPAN;
+  }
+
+  /**
+   * Returns the level at the price of the given order, creating it if it does not exist.
+   *
+   * @param order the order whose price selects the level
+   * @return the level for the order's price
+   * @throws IllegalArgumentException if the side would span {@link #MAX_SPAN} ticks or more, see
+   *     {@link #fits(long)}
+   */
+  @Override
+  public PriceLevel levelFor(Order order) {
+    long ticks = order.priceTicks;
+    if (levelCount == 0) {
+      minTicks = ticks;
+      maxTicks = ticks;
+    } else if (ticks < minTicks || ticks > maxTicks) {
+      long low = Math.min(ticks, minTicks);
+      long high = Math.max(ticks, maxTicks);
+      if (high - low >= slots.length) {
+        grow(high - low);
+      }
+      minTicks = low;
+      maxTicks = high;
+    }
+    PriceLevel level = slot(ticks);
+    if (level == null) {
+      level = new PriceLevel(order.getPrice(), ticks, bid);
+      slots[(int) (ticks & mask)] = level;
+    }
+    if (level.isEmpty()) {
+      level.price = order.getPrice();
+      level.ticks = ticks;
+      levelCount++;
+    }
+    return level;
+  }
+
+  @Override
+  public void remove(PriceLevel level) {
+    levelCount--;
+    if (levelCount == 0) {
+      return;
+    }
+    if (level.ticks == minTicks) {
+      long ticks = minTicks + 1;
+      while (isEmpty(ticks)) {
+        ticks++;
+      }
+      minTicks = ticks;
+    } else if (level.ticks == maxTicks) {
+      long ticks = maxTicks - 1;
+      while (isEmpty(ticks)) {
+        ticks--;
+      }
+      maxTicks = ticks;
+    }
+  }
+
+  @Override
+  public int levelCount() {
+    return levelCount;
+  }
+
+  @Override
+  public void sweep(
+      Order order, BigDecimal limit, long limitTicks, BiPredicate<Order, PriceLevel> matcher) {
+    if (levelCount == 0) {
+      return;
+    }
+    long step = bid ? -1 : 1;
+    long last = last(limit, limitTicks);
+    long best = bid ? maxTicks : minTicks;
+    int emptied = 0;
+    for (long ticks = best; bid ? ticks >= last : ticks <= last; ticks += step) {
+      if (isEmpty(ticks)) {
+        continue;
+      }
+      PriceLevel level = slot(ticks);
+      boolean more = matcher.test(order, level);
+      if (!level.isEmpty()) {
+        break;
+      }
+      emptied++;
+      if (!more) {
+        break;
+      }
+    }
+    if (emptied == 0) {
+      return;
+    }
+    levelCount -= emptied;
+    if (levelCount == 0) {
+      return;
+    }
+    // the emptied levels are the best ones, so the next active tick is the new best
+    while (isEmpty(best)) {
+      best += step;
+    }
+    if (bid) {
+      maxTicks = best;
+    } else {
+      minTicks = best;
+    }
+  }
+
+  @Override
+  public int crossingQuantity(BigDecimal limit, long limitTicks, int enough) {
+    if (levelCount == 0) {
+      return 0;
+    }
+    long step = bid ? -1 : 1;
+    long last = last(limit, limitTicks);
+    int quantity = 0;
+    for (long ticks = bid ? maxTicks : minTicks;
+        quantity < enough && (bid ? ticks >= last : ticks <= last);
+        ticks += step) {
+      PriceLevel level = slot(ticks);
+      if (level != null) {
+        quantity += level.quantity();
+      }
+    }
+    return quantity;
+  }
+
+  /** Returns the last tick an incoming order with the given limit crosses, within the ladder. */
+  private long last(BigDecimal limit, long limitTicks) {
+    long last = bid ? minTicks : maxTicks;
+    if (limit != null) {
+      last = bid ? Math.max(last, limitTicks) : Math.min(last, limitTicks);
+    }
+    return last;
+  }
+
+  @Override
+  public void forEach(Consumer<PriceLevel> action) {
+    if (levelCount == 0) {
+      return;
+    }
+    for (long ticks = minTicks; ticks <= maxTicks; ticks++) {
+      if (!isEmpty(ticks)) {
+        action.accept(slot(ticks));
+      }
+    }
+  }
+
+  @Override
+  public void forEachFromBest(int maxLevels, Consumer<PriceLevel> action) {
+    int visited = 0;
+    long step = bid ? -1 : 1;
+    for (long ticks = bid ? maxTicks : minTicks;
+        visited < maxLevels && visited < levelCount;
+        ticks += step) {
+      if (!isEmpty(ticks)) {
+        action.accept(slot(ticks));
+        visited++;
+      }
+    }
+  }
+
+  private void grow(long span) {
+    if (span >= MAX_SPAN) {
+      throw new IllegalArgumentException("Price range of " + span + " ticks exceeds the ladder");
+    }
+    PriceLevel[] previous = slots;
+    allocate(Integer.highestOneBit((int) span) << 1);
+    for (PriceLevel level : previous) {
+      if (level != null && !level.isEmpty()) {
+        slots[(int) (level.ticks & mask)] = level;
+      }
+    }
+  }
+}
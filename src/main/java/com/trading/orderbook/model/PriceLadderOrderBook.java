@@ -0,0 +1,84 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Order book that stores prices as fixed-point ticks in a primitive price ladder instead of a
+ * {@link java.util.TreeMap} keyed by {@link BigDecimal}. Every order price must be a multiple of
+ * the tick size. Matching, cancelling and depth behave exactly like {@link DefaultOrderBook}.
+ */
+public class PriceLadderOrderBook extends DefaultOrderBook {
+
+  private final BigDecimal tickSize;
+
+  /**
+   * Constructs a PriceLadderOrderBook for the given symbol.
+   *
+   * @param symbol the trading symbol for this order book
+   * @param tickSize the minimum price increment
+   * @param capacity the initial number of tick slots per side; the ladder grows when the book spans
+   *     more ticks than this
+   */
+  public PriceLadderOrderBook(String symbol, BigDecimal tickSize, int capacity) {
+    super(
+        symbol, new PriceLadderBookSide(true, capacity), new PriceLadderBookSide(false, capacity));
+    if (tickSize.signum() <= 0) {
+      throw new IllegalArgumentException("Tick size must be positive: " + tickSize);
+    }
+    this.tickSize = tickSize;
+  }
+
+  public BigDecimal getTickSize() {
+    return tickSize;
+  }
+
+  /**
+   * Checks that a price is a positive multiple of the tick size.
+   *
+   * @param price the limit price of an order
+   * @throws IllegalArgumentException if the price is not a positive multiple of the tick size
+   */
+  @Override
+  public void checkPrice(BigDecimal price) {
+    toTicks(price);
+  }
+
+  @Override
+  void prepare(Order order) {
+    if (order.getPrice() != null) {
+      order.priceTicks = toTicks(order.getPrice());
+    }
+  }
+
+  @Override
+  long priceTicks(BigDecimal price) {
+    return toTicks(price);
+  }
+
+  @Override
+  long limitTicks(Order order, BigDecimal limit) {
+    // round towards the best price, so the order never trades beyond the limit
+    RoundingMode rounding = order instanceof BidOrder ? RoundingMode.FLOOR : RoundingMode.CEILING;
+    return limit.divide(tickSize, 0, rounding).longValueExact();
+  }
+
+  /**
+   * Converts a price to a number of ticks.
+   *
+   * @param price the price to convert
+   * @return the price in ticks
+   * @throws IllegalArgumentException if the price is not a positive multiple of the tick size
+   */
+  public long toTicks(BigDecimal price) {
+    if (price.signum() <= 0) {
+      throw new IllegalArgumentException("Price must be positive: " + price);
+    }
+    try {
+      return price.divide(tickSize).longValueExact();
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException(
+          "Price " + price + " is not a multiple of tick size " + tickSize, e);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+
+/**
+ * A single price level of one side of an order book. Resting orders are kept in time priority in an
+ * intrusive doubly linked FIFO queue threaded through the orders themselves, so queuing an order
+ * does not allocate and any order can be unlinked in constant time. The level keeps a running total
+ * of the quantity and number of orders queued at it, so depth reads never walk the queue.
+ */
+final class PriceLevel {
+
+  BigDecimal price;
+  long ticks;
+  final OrderType side;
+
+  /** Whether the level changed during the current command, see {@link DefaultOrderBook}. */
+  boolean touched;
+
+  /** Whether the book listener was last told that this level exists. */
+  boolean reported;
+
+  /** The quantity last reported to the book listener. */
+  int reportedQuantity;
+
+  private Order head;
+  private Order tail;
+  private int quantity;
+  private int orderCount;
+
+  PriceLevel(BigDecimal price, long ticks, boolean bid) {
+    this.price = price;
+    this.ticks = ticks;
+    this.side = bid ? OrderType.BUY : OrderType.SELL;
+  }
+
+  boolean isEmpty() {
+    return head == null;
+  }
+
+  /**
+   * Returns the order with the highest time priority at this level.
+   *
+   * @return the first order, or null if the level is empty
+   */
+  Order first() {
+    return head;
+  }
+
+  /**
+   * Appends an order to the back of the queue.
+   *
+   * @param order the order to append
+   */
+  void append(Order order) {
+    order.level = this;
+    order.restingQuantity = order.getUnfilledQuantity();
+    quantity += order.restingQuantity;
+    orderCount++;
+    order.prev = tail;
+    order.next = null;
+    if (tail == null) {
+      head = order;
+    } else {
+      tail.next = order;
+    }
+    tail = order;
+  }
+
+  /** Removes the order at the front of the queue. */
+  void removeFirst() {
+    remove(head);
+  }
+
+  /**
+   * Removes the given order from the queue.
+   *
+   * @param order the order to remove
+   * @return true if the order was queued at this level
+   */
+  boolean remove(Order order) {
+    if (order.level != this) {
+      return false;
+    }
+    if (order.prev == null) {
+      head = order.next;
+    } else {
+      order.prev.next = order.next;
+    }
+    if (order.next == null) {
+      tail = order.prev;
+    } else {
+      order.next.prev = order.prev;
+    }
+    quantity -= order.restingQuantity;
+    orderCount--;
+    order.restingQuantity = 0;
+    order.prev = null;
+    order.next = null;
+    order.level = null;
+    return true;
+  }
+
+  /**
+   * Records a fill against an order queued at this level.
+   *
+   * @param order the filled order
+   * @param filledQuantity the quantity filled
+   */
+  void filled(Order order, int filledQuantity) {
+    order.restingQuantity -= filledQuantity;
+    quantity -= filledQuantity;
+  }
+
+  /**
+   * Reduces the quantity of an order queued at this level without changing its time priority.
+   *
+   * @param order the reduced order
+   * @param reduction the quantity removed from the order
+   */
+  void reduce(Order order, int reduction) {
+    order.restingQuantity -= reduction;
+    quantity -= reduction;
+  }
+
+  /**
+   * Returns the total unfilled quantity of the orders queued at this level.
+   *
+   * @return the total unfilled quantity
+   */
+  int quantity() {
+    return quantity;
+  }
+
+  /**
+   * Returns the number of orders queued at this level.
+   *
+   * @return the number of orders
+   */
+  int orderCount() {
+    return orderCount;
+  }
+}
@@ -0,0 +1,138 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * The dormant stop orders of one side of an order book, sorted by stop price in the order they
+ * trigger: buy stops from the lowest stop price up, sell stops from the highest down. Orders with
+ * the same stop price queue in time priority in an intrusive FIFO threaded through the orders, like
+ * a {@link PriceLevel}, so parking and cancelling a stop never scans other stops.
+ *
+ * <p>After a trade, the orders a price triggers are always a prefix of the ladder, so collecting k
+ * triggered orders visits k orders and the levels they sit at, never the stops left dormant.
+ */
+final class StopLadder {
+
+  private final boolean buy;
+  private final TreeMap<BigDecimal, Level> levels;
+  private int size;
+
+  StopLadder(boolean buy) {
+    this.buy = buy;
+    this.levels =
+        new TreeMap<>(buy ? Comparator.<BigDecimal>naturalOrder() : Comparator.reverseOrder());
+  }
+
+  /**
+   * Returns whether a trade at the given price triggers a stop order of this side.
+   *
+   * @param stopPrice the stop price of the order
+   * @param lastTradePrice the price of the trade
+   * @return true if the order triggers
+   */
+  boolean triggers(BigDecimal stopPrice, BigDecimal lastTradePrice) {
+    int comparison = lastTradePrice.compareTo(stopPrice);
+    return buy ? comparison >= 0 : comparison <= 0;
+  }
+
+  /**
+   * Parks a stop order behind the other orders with the same stop price.
+   *
+   * @param order the dormant stop order
+   */
+  void add(Order order) {
+    Level level = levels.computeIfAbsent(order.getStopPrice(), Level::new);
+    order.stopLevel = level;
+    order.prev = level.tail;
+    order.next = null;
+    if (level.tail == null) {
+      level.head = order;
+    } else {
+      level.tail.next = order;
+    }
+    level.tail = order;
+    size++;
+  }
+
+  /**
+   * Removes a dormant stop order.
+   *
+   * @param order the order, which must be parked in this ladder
+   */
+  void remove(Order order) {
+    Level level = order.stopLevel;
+    if (order.prev == null) {
+      level.head = order.next;
+    } else {
+      order.prev.next = order.next;
+    }
+    if (order.next == null) {
+      level.tail = order.prev;
+    } else {
+      order.next.prev = order.prev;
+    }
+    order.stopLevel = null;
+    order.prev = null;
+    order.next = null;
+    size--;
+    if (level.head == null) {
+      levels.remove(level.stopPrice);
+    }
+  }
+
+  /**
+   * Removes every order triggered by a trade at the given price and hands them over in trigger
+   * order: by stop price, then in time priority.
+   *
+   * @param lastTradePrice the price of the trade
+   * @param triggered receives each triggered order, already removed from the ladder
+   */
+  void pollTriggered(BigDecimal lastTradePrice, Consumer<Order> triggered) {
+    Map.Entry<BigDecimal, Level> first;
+    while ((first = levels.firstEntry()) != null && triggers(first.getKey(), lastTradePrice)) {
+      levels.pollFirstEntry();
+      Order order = first.getValue().head;
+      while (order != null) {
+        Order next = order.next;
+        order.stopLevel = null;
+        order.prev = null;
+        order.next = null;
+        size--;
+        triggered.accept(order);
+        order = next;
+      }
+    }
+  }
+
+  /**
+   * Visits every dormant order in trigger order.
+   *
+   * @param action receives each order
+   */
+  void forEach(Consumer<Order> action) {
+    for (Level level : levels.values()) {
+      for (Order order = level.head; order != null; order = order.next) {
+        action.accept(order);
+      }
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** The dormant stop orders that share one stop price. */
+  static final class Level {
+    private final BigDecimal stopPrice;
+    private Order head;
+    private Order tail;
+
+    private Level(BigDecimal stopPrice) {
+      this.stopPrice = stopPrice;
+    }
+  }
+}
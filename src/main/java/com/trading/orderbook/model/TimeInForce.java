@@ -0,0 +1,15 @@
+package com.trading.orderbook.model;
+
+/** How long an order stays in the book. */
+public enum TimeInForce {
+  /** Good till cancelled: rests until it is filled or cancelled. */
+  GTC,
+  /** Immediate or cancel: matches what it can at once and drops the rest. */
+  IOC,
+  /** Fill or kill: matches its whole quantity at once or does not trade at all. */
+  FOK,
+  /** Good till date: rests until its expire time. */
+  GTD,
+  /** Good for the day: rests until the close of the trading session it was entered in. */
+  DAY
+}
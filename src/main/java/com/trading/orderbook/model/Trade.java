@@ -0,0 +1,26 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * An execution between a resting (maker) order and an incoming (taker) order.
+ *
+ * @param symbol the symbol of the order book the trade happened in
+ * @param sequence the position of the trade in the order book's trade stream, starting at 0
+ * @param makerOrderId the ID of the resting order
+ * @param takerOrderId the ID of the incoming order
+ * @param takerSide the side of the incoming order
+ * @param price the execution price, which is always the resting order's price
+ * @param quantity the executed quantity
+ * @param timestamp the execution time in milliseconds since the epoch
+ */
+public record Trade(
+    String symbol,
+    long sequence,
+    UUID makerOrderId,
+    UUID takerOrderId,
+    OrderType takerSide,
+    BigDecimal price,
+    int quantity,
+    long timestamp) {}
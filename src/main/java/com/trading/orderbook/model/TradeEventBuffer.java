@@ -0,0 +1,234 @@
+package com.trading.orderbook.model;
+
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Pre-allocated ring of trade events written by a single order book and read by any number of
+ * subscribers. The order book never waits for subscribers: each subscriber tracks its own position
+ * and a subscriber that falls more than a full ring behind skips the overwritten events and is told
+ * how many it lost. Events of one order book are always delivered in sequence order.
+ */
+public final class TradeEventBuffer {
+
+  private static final long WRITING = -1;
+
+  private final String symbol;
+  private final Slot[] slots;
+  private final int mask;
+  private volatile long published;
+
+  /**
+   * Constructs a trade event buffer.
+   *
+   * @param symbol the symbol of the order book writing the events
+   * @param capacity the number of events retained, a power of two
+   */
+  public TradeEventBuffer(String symbol, int capacity) {
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+    }
+    this.symbol = symbol;
+    this.slots = new Slot[capacity];
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = new Slot();
+    }
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * Writes a trade event. Must only be called by the owning order book.
+   *
+   * @param maker the resting order
+   * @param taker the incoming order
+   * @param price the execution price
+   * @param quantity the executed quantity
+   * @param timestamp the time of the command that executed the trade
+   */
+  void publish(Order maker, Order taker, BigDecimal price, int quantity, long timestamp) {
+    UUID makerId = maker.getId();
+    publish(
+        makerId.getMostSignificantBits(),
+        makerId.getLeastSignificantBits(),
+        taker.getId(),
+        taker.getType(),
+        price,
+        quantity,
+        timestamp);
+  }
+
+  /**
+   * Writes a trade event of a resting order known only by the two halves of its ID, which the
+   * buffer keeps as they are rather than as a {@link UUID}. Must only be called by the owning order
+   * book.
+   *
+   * @param makerIdHigh the most significant bits of the ID of the resting order
+   * @param makerIdLow the least significant bits of the ID of the resting order
+   * @param takerOrderId the ID of the incoming order
+   * @param takerSide the side of the incoming order
+   * @param price the execution price
+   * @param quantity the executed quantity
+   * @param timestamp the time of the command that executed the trade
+   */
+  void publish(
+      long makerIdHigh,
+      long makerIdLow,
+      UUID takerOrderId,
+      OrderType takerSide,
+      BigDecimal price,
+      int quantity,
+      long timestamp) {
+    long sequence = published;
+    Slot slot = slots[(int) (sequence & mask)];
+    slot.sequence = WRITING;
+    VarHandle.storeStoreFence();
+    slot.makerIdHigh = makerIdHigh;
+    slot.makerIdLow = makerIdLow;
+    slot.takerOrderId = takerOrderId;
+    slot.takerSide = takerSide;
+    slot.price = price;
+    slot.quantity = quantity;
+    slot.timestamp = timestamp;
+    slot.sequence = sequence;
+    published = sequence + 1;
+  }
+
+  /**
+   * Continues the stream at the given sequence. Only valid before any trade is published.
+   *
+   * @param nextSequence the sequence of the next trade
+   */
+  void restoreSequence(long nextSequence) {
+    if (published != 0) {
+      throw new IllegalStateException("Trades were already published for " + symbol);
+    }
+    published = nextSequence;
+  }
+
+  /**
+   * Returns the sequence the next trade will be published with, which is also the number of trades
+   * published so far.
+   *
+   * @return the next trade sequence
+   */
+  public long nextSequence() {
+    return published;
+  }
+
+  /**
+   * Creates a subscription that receives every trade published from now on.
+   *
+   * @return the new subscription
+   */
+  public Subscription subscribe() {
+    return subscribe(published);
+  }
+
+  /**
+   * Creates a subscription starting at the given sequence. Trades that are no longer retained are
+   * counted as lost.
+   *
+   * @param fromSequence the sequence of the first trade to receive
+   * @return the new subscription
+   */
+  public Subscription subscribe(long fromSequence) {
+    return new Subscription(fromSequence);
+  }
+
+  /** A reader of the trade stream with its own position. Not thread-safe. */
+  public final class Subscription {
+
+    private long position;
+    private long lost;
+
+    private Subscription(long position) {
+      this.position = position;
+    }
+
+    /**
+     * Delivers up to {@code maxTrades} trades that were published since the last poll.
+     *
+     * @param handler receives each trade in sequence order
+     * @param maxTrades the maximum number of trades to deliver
+     * @return the number of trades delivered
+     */
+    public int poll(Consumer<Trade> handler, int maxTrades) {
+      int delivered = 0;
+      while (delivered < maxTrades) {
+        long head = published;
+        if (position >= head) {
+          break;
+        }
+        if (head - position > slots.length) {
+          skipTo(head - slots.length);
+        }
+        Trade trade = read(slots[(int) (position & mask)]);
+        if (trade == null) {
+          // overwritten while reading, the writer lapped us
+          skipTo(published - slots.length + 1);
+          continue;
+        }
+        position++;
+        delivered++;
+        handler.accept(trade);
+      }
+      return delivered;
+    }
+
+    private Trade read(Slot slot) {
+      if (slot.sequence != position) {
+        return null;
+      }
+      Trade trade =
+          new Trade(
+              symbol,
+              position,
+              new UUID(slot.makerIdHigh, slot.makerIdLow),
+              slot.takerOrderId,
+              slot.takerSide,
+              slot.price,
+              slot.quantity,
+              slot.timestamp);
+      VarHandle.acquireFence();
+      return slot.sequence == position ? trade : null;
+    }
+
+    private void skipTo(long sequence) {
+      if (sequence > position) {
+        lost += sequence - position;
+        position = sequence;
+      }
+    }
+
+    /**
+     * Returns the sequence of the next trade this subscription will deliver.
+     *
+     * @return the subscription position
+     */
+    public long position() {
+      return position;
+    }
+
+    /**
+     * Returns the number of trades overwritten before this subscription could read them.
+     *
+     * @return the number of lost trades
+     */
+    public long lost() {
+      return lost;
+    }
+  }
+
+  private static final class Slot {
+    private volatile long sequence = WRITING;
+    private long makerIdHigh;
+    private long makerIdLow;
+    private UUID takerOrderId;
+    private OrderType takerSide;
+    private BigDecimal price;
+    private int quantity;
+    private long timestamp;
+  }
+}
@@ -0,0 +1,113 @@
+package com.trading.orderbook.model;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+/** Book side keyed by arbitrary {@link BigDecimal} prices. This is the default book storage. */
+final class TreeMapBookSide implements BookSide {
+
+  private final TreeMap<BigDecimal, PriceLevel> levels = new TreeMap<>();
+  private final boolean bid;
+
+  /**
+   * Constructs an empty book side.
+   *
+   * @param bid true for the bid side, false for the offer side
+   */
+  TreeMapBookSide(boolean bid) {
+    this.bid = bid;
+  }
+
+  @Override
+  public PriceLevel best() {
+    Map.Entry<BigDecimal, PriceLevel> best = bid ? levels.lastEntry() : levels.firstEntry();
+    return best == null ? null : best.getValue();
+  }
+
+  @Override
+  public PriceLevel levelFor(Order order) {
+    return levels.computeIfAbsent(order.getPrice(), price -> new PriceLevel(price, 0, bid));
+  }
+
+  @Override
+  public boolean fits(long ticks) {
+    return true;
+  }
+
+  @Override
+  public void remove(PriceLevel level) {
+    levels.remove(level.price);
+  }
+
+  @Override
+  public int levelCount() {
+    return levels.size();
+  }
+
+  @Override
+  public void sweep(
+      Order order, BigDecimal limit, long limitTicks, BiPredicate<Order, PriceLevel> matcher) {
+    PriceLevel lastEmptied = null;
+    for (PriceLevel level : fromBest()) {
+      if (beyond(level, limit)) {
+        break;
+      }
+      boolean more = matcher.test(order, level);
+      if (!level.isEmpty()) {
+        break;
+      }
+      lastEmptied = level;
+      if (!more) {
+        break;
+      }
+    }
+    if (lastEmptied != null) {
+      // the emptied levels are the best ones, up to and including the last
+      (bid ? levels.tailMap(lastEmptied.price, true) : levels.headMap(lastEmptied.price, true))
+          .clear();
+    }
+  }
+
+  @Override
+  public int crossingQuantity(BigDecimal limit, long limitTicks, int enough) {
+    int quantity = 0;
+    for (PriceLevel level : fromBest()) {
+      if (quantity >= enough || beyond(level, limit)) {
+        break;
+      }
+      quantity += level.quantity();
+    }
+    return quantity;
+  }
+
+  private Collection<PriceLevel> fromBest() {
+    return bid ? levels.descendingMap().values() : levels.values();
+  }
+
+  /** Returns whether a level is worse than the limit of an incoming order. */
+  private boolean beyond(PriceLevel level, BigDecimal limit) {
+    if (limit == null) {
+      return false;
+    }
+    int comparison = level.price.compareTo(limit);
+    return bid ? comparison < 0 : comparison > 0;
+  }
+
+  @Override
+  public void forEach(Consumer<PriceLevel> action) {
+    levels.values().forEach(action);
+  }
+
+  @Override
+  public void forEachFromBest(int maxLevels, Consumer<PriceLevel> action) {
+    Iterator<PriceLevel> fromBest = fromBest().iterator();
+    for (int i = 0; i < maxLevels && fromBest.hasNext(); i++) {
+      action.accept(fromBest.next());
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.trading.orderbook.replication;
+
+import com.trading.orderbook.journal.CommandJournal;
+import com.trading.orderbook.journal.JournalCursor;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The connection of the primary to one backup. A sender thread streams the journal from the record
+ * after the one the backup last holds, following the journal as it grows, and a second thread reads
+ * the acknowledgements of the backup.
+ */
+final class BackupSession {
+  private static final Logger logger = Logger.getLogger(BackupSession.class.getName());
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Socket socket;
+  private final CommandJournal journal;
+  private final ReplicationNode node;
+  private final long heartbeatNanos;
+  private final String address;
+  private byte[] scratch = new byte[1024];
+  private volatile long ackedSequence = -1;
+  private volatile boolean open = true;
+
+  BackupSession(Socket socket, CommandJournal journal, ReplicationNode node, long heartbeatNanos) {
+    this.socket = socket;
+    this.journal = journal;
+    this.node = node;
+    this.heartbeatNanos = heartbeatNanos;
+    this.address = socket.getRemoteSocketAddress().toString();
+  }
+
+  /** Starts the threads of the session. */
+  void start() {
+    Thread sender = new Thread(this::send, "replication-sender " + address);
+    sender.setDaemon(true);
+    sender.start();
+  }
+
+  /**
+   * Returns the last sequence the backup has confirmed.
+   *
+   * @return the sequence, or -1 before the backup has said hello
+   */
+  long ackedSequence() {
+    return ackedSequence;
+  }
+
+  String address() {
+    return address;
+  }
+
+  /** Closes the connection; both threads end. */
+  void close() {
+    synchronized (this) {
+      if (!open) {
+        return;
+      }
+      open = false;
+    }
+    try {
+      socket.close();
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Could not close replication connection to " + address, e);
+    }
+    node.closed(this);
+  }
+
+  private void send() {
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+      if (in.readByte() != ReplicationProtocol.HELLO) {
+        throw new IOException("Backup did not open with hello");
+      }
+      long from = in.readLong();
+      long last = journal.lastSequence();
+      if (from > last) {
+        logger.severe(
+            "Backup " + address + " holds sequence " + from + " beyond the primary at " + last);
+        out.writeByte(ReplicationProtocol.DIVERGED);
+        out.writeLong(last);
+        out.flush();
+        close();
+        return;
+      }
+      logger.info("Backup " + address + " follows from sequence " + from);
+      ackedSequence = from;
+      node.acknowledged();
+      Thread acks = new Thread(() -> readAcks(in), "replication-acks " + address);
+      acks.setDaemon(true);
+      acks.start();
+
+      JournalCursor cursor = journal.cursor();
+      while (open) {
+        cursor.read(
+            (record, sequence) -> {
+              if (sequence > from) {
+                write(out, record);
+              }
+            });
+        out.flush();
+        if (!cursor.await(heartbeatNanos)) {
+          out.writeByte(ReplicationProtocol.HEARTBEAT);
+          out.writeLong(journal.lastSequence());
+          out.flush();
+        }
+      }
+    } catch (IOException | UncheckedIOException e) {
+      if (open) {
+        logger.log(Level.WARNING, "Lost backup " + address, e);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      close();
+    }
+  }
+
+  private void write(DataOutputStream out, ByteBuffer record) {
+    int length = record.remaining();
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    record.get(0, scratch, 0, length);
+    try {
+      out.writeByte(ReplicationProtocol.RECORD);
+      out.write(scratch, 0, length);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void readAcks(DataInputStream in) {
+    try {
+      while (open) {
+        if (in.readByte() != ReplicationProtocol.ACK) {
+          throw new IOException("Unexpected message from backup");
+        }
+        ackedSequence = in.readLong();
+        node.acknowledged();
+      }
+    } catch (IOException e) {
+      if (open) {
+        logger.log(Level.WARNING, "Lost backup " + address, e);
+      }
+    } finally {
+      close();
+    }
+  }
+}
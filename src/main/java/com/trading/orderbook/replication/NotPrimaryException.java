@@ -0,0 +1,23 @@
+package com.trading.orderbook.replication;
+
+/** Thrown when a client sends a command to a node that is not the primary. */
+public class NotPrimaryException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String primary;
+
+  public NotPrimaryException(String primary) {
+    super("This node is a backup of " + primary + " and does not accept commands");
+    this.primary = primary;
+  }
+
+  /**
+   * Returns the address of the primary the node follows.
+   *
+   * @return the primary, as {@code host:port}
+   */
+  public String getPrimary() {
+    return primary;
+  }
+}
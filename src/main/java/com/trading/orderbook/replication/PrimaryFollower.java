@@ -0,0 +1,217 @@
+package com.trading.orderbook.replication;
+
+import com.trading.orderbook.journal.CommandJournal;
+import com.trading.orderbook.journal.JournalEntry;
+import com.trading.orderbook.service.OrderService;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The connection of a backup to its primary. A single thread receives the journal records of the
+ * primary, appends each unchanged to the journal of the backup and applies it through {@link
+ * OrderService#replay(JournalEntry)}, the same path that recovers the journal on startup, so the
+ * books of the backup go through exactly the commands of the primary, in the same order. Once it
+ * has read everything the primary sent so far, the backup makes its journal durable and confirms
+ * the last sequence.
+ *
+ * <p>A record that the books of the backup reject shows that they diverged from those of the
+ * primary, and the backup stops following without confirming it. A cancel of an order that is
+ * already gone is not a rejection, see {@link OrderService#replay(JournalEntry)}. A lost connection
+ * is opened again, resuming after the last record the backup holds. If failover is enabled and the
+ * primary has not been heard from for the failover timeout, the backup promotes itself. A backup
+ * that never reached its primary does not promote itself.
+ */
+final class PrimaryFollower {
+  private static final Logger logger = Logger.getLogger(PrimaryFollower.class.getName());
+
+  private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+  private final ReplicationNode node;
+  private final CommandJournal journal;
+  private final OrderService orderService;
+  private final InetSocketAddress primary;
+  private final long heartbeatMillis;
+  private final long failoverNanos;
+  private byte[] scratch = new byte[1024];
+  private Thread thread;
+  private volatile Socket socket;
+  private volatile boolean running;
+  private volatile long lastContactNanos;
+  private boolean contacted;
+
+  PrimaryFollower(
+      ReplicationNode node,
+      CommandJournal journal,
+      OrderService orderService,
+      ReplicationProperties properties) {
+    this.node = node;
+    this.journal = journal;
+    this.orderService = orderService;
+    this.primary = new InetSocketAddress(properties.primaryHost(), properties.primaryPort());
+    this.heartbeatMillis = properties.heartbeatInterval().toMillis();
+    this.failoverNanos = properties.failoverTimeout().toNanos();
+  }
+
+  void start() {
+    running = true;
+    thread = new Thread(this::run, "replication-follower");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /** Stops following and waits until the last record received has been applied. */
+  void stop() {
+    running = false;
+    Socket current = socket;
+    if (current != null) {
+      try {
+        current.close();
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Could not close replication connection", e);
+      }
+    }
+    if (thread != null && thread != Thread.currentThread()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  String primary() {
+    return primary.getHostString() + ":" + primary.getPort();
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        follow();
+      } catch (SocketTimeoutException e) {
+        logger.warning("No word from primary " + primary() + " within the failover timeout");
+      } catch (ConnectException e) {
+        // retried every heartbeat while the primary is down
+        logger.log(Level.FINE, "Could not reach primary " + primary(), e);
+      } catch (IOException | RuntimeException e) {
+        if (running) {
+          logger.log(Level.WARNING, "Lost primary " + primary(), e);
+        }
+      }
+      if (!running) {
+        return;
+      }
+      if (failoverNanos > 0 && contacted && System.nanoTime() - lastContactNanos >= failoverNanos) {
+        // promote from another thread, since promoting waits for this one to end
+        Thread failover = new Thread(node::promote, "replication-failover");
+        failover.setDaemon(true);
+        failover.start();
+        return;
+      }
+      try {
+        Thread.sleep(heartbeatMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private void follow() throws IOException {
+    try (Socket connection = new Socket()) {
+      socket = connection;
+      if (!running) {
+        return;
+      }
+      connection.connect(primary, CONNECT_TIMEOUT_MILLIS);
+      connection.setTcpNoDelay(true);
+      if (failoverNanos > 0) {
+        connection.setSoTimeout((int) Math.max(failoverNanos / 1_000_000, 1));
+      }
+      DataInputStream in =
+          new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+      out.writeByte(ReplicationProtocol.HELLO);
+      out.writeLong(journal.lastSequence());
+      out.flush();
+      logger.info("Following primary " + primary() + " from sequence " + journal.lastSequence());
+      boolean unconfirmed = false;
+      while (running) {
+        byte type = in.readByte();
+        contacted = true;
+        lastContactNanos = System.nanoTime();
+        switch (type) {
+          case ReplicationProtocol.RECORD -> {
+            apply(in);
+            if (!running) {
+              return;
+            }
+            unconfirmed = true;
+          }
+          case ReplicationProtocol.HEARTBEAT -> in.readLong();
+          case ReplicationProtocol.DIVERGED -> {
+            long last = in.readLong();
+            logger.severe(
+                "Journal at sequence "
+                    + journal.lastSequence()
+                    + " holds records the primary at "
+                    + last
+                    + " does not have; stopped following");
+            running = false;
+            return;
+          }
+          default -> throw new IOException("Unexpected message " + type + " from primary");
+        }
+        if (unconfirmed && in.available() == 0) {
+          journal.sync();
+          out.writeByte(ReplicationProtocol.ACK);
+          out.writeLong(journal.lastSequence());
+          out.flush();
+          unconfirmed = false;
+        }
+      }
+    } finally {
+      socket = null;
+    }
+  }
+
+  private void apply(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    int size = 4 + 4 + length;
+    if (length <= 0 || size > journal.maxRecordSize()) {
+      throw new IOException("Journal record of " + length + " bytes from primary");
+    }
+    if (scratch.length < size) {
+      scratch = new byte[Math.max(size, scratch.length * 2)];
+    }
+    ByteBuffer record = ByteBuffer.wrap(scratch, 0, size).slice();
+    record.putInt(0, length);
+    in.readFully(scratch, 4, size - 4);
+    JournalEntry entry = CommandJournal.decode(record);
+    if (entry.sequence() <= journal.lastSequence()) {
+      // already held from an earlier connection
+      return;
+    }
+    journal.appendRecord(record);
+    try {
+      orderService.replay(entry);
+    } catch (RuntimeException e) {
+      // the primary checked the command before journaling it, so the books no longer match
+      logger.log(
+          Level.SEVERE,
+          "Replicated command " + entry.sequence() + " was rejected; stopped following",
+          e);
+      running = false;
+    }
+  }
+}
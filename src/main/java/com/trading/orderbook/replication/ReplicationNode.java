@@ -0,0 +1,274 @@
+package com.trading.orderbook.replication;
+
+import com.trading.orderbook.journal.CommandJournal;
+import com.trading.orderbook.journal.JournalReplayer;
+import com.trading.orderbook.service.OrderService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replicates the order books to hot standby nodes by streaming the command journal. Commands are
+ * deterministic: every node that applies the same journal records in the same order through the
+ * same order book code ends up with the same books, order ids and fills. So the primary only ships
+ * its journal, and a backup is always as current as the last record it received.
+ *
+ * <p>The primary listens for backups and streams each of them its journal from where the backup
+ * left off. A command is acknowledged to its client only once the quorum of backups has confirmed
+ * its record, so an acknowledged command survives the loss of the primary. A backup rejects
+ * commands from clients but serves reads. When it is promoted, by request or after the failover
+ * timeout, it stops following, which takes no longer than applying the records already received,
+ * and starts accepting commands and backups of its own with its books already in place.
+ *
+ * <p>There is no fencing: a promoted backup does not stop the old primary. Promote a backup only
+ * once the primary is down or cut off from clients, and restart the old primary as a backup of the
+ * new one. It is refused if its journal runs ahead of the new primary.
+ */
+@Component
+@ConditionalOnProperty(prefix = "orderbook.replication", name = "enabled", havingValue = "true")
+public class ReplicationNode implements SmartLifecycle {
+  private static final Logger logger = Logger.getLogger(ReplicationNode.class.getName());
+
+  /**
+   * Runs after the journal has been replayed and before expiries, the gateway and the web server.
+   */
+  public static final int PHASE = JournalReplayer.PHASE + 20;
+
+  private final ReplicationProperties properties;
+  private final CommandJournal journal;
+  private final OrderService orderService;
+  private final List<BackupSession> sessions = new CopyOnWriteArrayList<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition acknowledged = lock.newCondition();
+  private volatile ReplicationRole role;
+  private volatile ServerSocket server;
+  private volatile PrimaryFollower follower;
+  private volatile boolean running;
+
+  public ReplicationNode(
+      ReplicationProperties properties, CommandJournal journal, OrderService orderService) {
+    this.properties = properties;
+    this.journal = journal;
+    this.orderService = orderService;
+    this.role = properties.role();
+    orderService.setReplicationNode(this);
+  }
+
+  @Override
+  public synchronized void start() {
+    if (role == ReplicationRole.PRIMARY) {
+      listen();
+    } else {
+      follower = new PrimaryFollower(this, journal, orderService, properties);
+      follower.start();
+    }
+    running = true;
+  }
+
+  @Override
+  public synchronized void stop() {
+    running = false;
+    if (follower != null) {
+      follower.stop();
+    }
+    closeServer();
+    sessions.forEach(BackupSession::close);
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  /**
+   * Returns the current role of the node.
+   *
+   * @return the role
+   */
+  public ReplicationRole getRole() {
+    return role;
+  }
+
+  /**
+   * Returns the port the primary listens on for backups.
+   *
+   * @return the local port, or -1 if the node is not listening
+   */
+  public int getPort() {
+    ServerSocket current = server;
+    return current != null ? current.getLocalPort() : -1;
+  }
+
+  /**
+   * Makes this node the primary. A backup stops following its primary once the records it received
+   * are applied, then accepts commands and listens for backups. Does nothing on the primary.
+   */
+  public synchronized void promote() {
+    if (role == ReplicationRole.PRIMARY) {
+      return;
+    }
+    if (follower != null) {
+      follower.stop();
+      follower = null;
+    }
+    role = ReplicationRole.PRIMARY;
+    if (running) {
+      listen();
+    }
+    logger.warning("Promoted to primary at sequence " + journal.lastSequence());
+  }
+
+  /**
+   * Rejects client commands on a backup.
+   *
+   * @throws NotPrimaryException if this node is not the primary
+   */
+  public void checkPrimary() {
+    PrimaryFollower current = follower;
+    if (role != ReplicationRole.PRIMARY) {
+      throw new NotPrimaryException(
+          current != null
+              ? current.primary()
+              : properties.primaryHost() + ":" + properties.primaryPort());
+    }
+  }
+
+  /**
+   * Waits until the quorum of backups has confirmed a journal record. Returns at once on a backup,
+   * which does not acknowledge commands of its own.
+   *
+   * @param sequence the sequence of the record
+   * @throws ReplicationTimeoutException if too few backups confirm the record in time
+   */
+  public void awaitReplicated(long sequence) {
+    int quorum = properties.quorum();
+    if (quorum <= 0 || role != ReplicationRole.PRIMARY || replicas(sequence) >= quorum) {
+      return;
+    }
+    lock.lock();
+    try {
+      long nanos = properties.ackTimeout().toNanos();
+      while (replicas(sequence) < quorum) {
+        if (nanos <= 0) {
+          throw new ReplicationTimeoutException(
+              sequence,
+              "Command "
+                  + sequence
+                  + " was applied but not confirmed by "
+                  + quorum
+                  + " backups within "
+                  + properties.ackTimeout().toMillis()
+                  + " ms");
+        }
+        nanos = acknowledged.awaitNanos(nanos);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ReplicationTimeoutException(sequence, "Interrupted waiting for backups");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the replication state of the node.
+   *
+   * @return the role, journal position and connected backups
+   */
+  public ReplicationStatus getStatus() {
+    List<ReplicationStatus.Backup> backups = new ArrayList<>();
+    for (BackupSession session : sessions) {
+      backups.add(new ReplicationStatus.Backup(session.address(), session.ackedSequence()));
+    }
+    PrimaryFollower current = follower;
+    return new ReplicationStatus(
+        role, journal.lastSequence(), current != null ? current.primary() : null, backups);
+  }
+
+  /** Wakes the requests waiting for confirmations. Called when a backup confirms records. */
+  void acknowledged() {
+    lock.lock();
+    try {
+      acknowledged.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void closed(BackupSession session) {
+    sessions.remove(session);
+  }
+
+  private int replicas(long sequence) {
+    int replicas = 0;
+    for (BackupSession session : sessions) {
+      if (session.ackedSequence() >= sequence) {
+        replicas++;
+      }
+    }
+    return replicas;
+  }
+
+  private void listen() {
+    try {
+      ServerSocket socket = new ServerSocket();
+      socket.setReuseAddress(true);
+      socket.bind(new InetSocketAddress(properties.host(), properties.port()));
+      server = socket;
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          "Could not listen for backups on port " + properties.port(), e);
+    }
+    Thread acceptor = new Thread(this::accept, "replication-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+    logger.info("Primary listening for backups on port " + getPort());
+  }
+
+  private void accept() {
+    ServerSocket socket = server;
+    long heartbeatNanos = properties.heartbeatInterval().toNanos();
+    while (!socket.isClosed()) {
+      try {
+        Socket connection = socket.accept();
+        connection.setTcpNoDelay(true);
+        BackupSession session = new BackupSession(connection, journal, this, heartbeatNanos);
+        sessions.add(session);
+        session.start();
+      } catch (IOException e) {
+        if (!socket.isClosed()) {
+          logger.log(Level.WARNING, "Could not accept backup", e);
+        }
+      }
+    }
+  }
+
+  private void closeServer() {
+    ServerSocket current = server;
+    server = null;
+    if (current != null) {
+      try {
+        current.close();
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Could not close replication listener", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package com.trading.orderbook.replication;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures primary/backup replication of the command journal.
+ *
+ * @param enabled whether the node takes part in replication; requires the journal
+ * @param role the role the node starts in
+ * @param host the address the node listens on for backups while it is the primary
+ * @param port the port the node listens on for backups while it is the primary, or 0 for any
+ * @param primaryHost the address of the primary a backup follows
+ * @param primaryPort the replication port of the primary a backup follows
+ * @param quorum the number of backups that must confirm a command before it is acknowledged
+ * @param ackTimeout how long the primary waits for the quorum before failing the request
+ * @param heartbeatInterval how often an idle primary tells its backups it is alive
+ * @param failoverTimeout how long a backup waits without hearing from its primary before it
+ *     promotes itself, or 0 to promote only on request
+ */
+@ConfigurationProperties(prefix = "orderbook.replication")
+public record ReplicationProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("PRIMARY") ReplicationRole role,
+    @DefaultValue("0.0.0.0") String host,
+    @DefaultValue("9300") int port,
+    @DefaultValue("localhost") String primaryHost,
+    @DefaultValue("9300") int primaryPort,
+    @DefaultValue("1") int quorum,
+    @DefaultValue("1s") Duration ackTimeout,
+    @DefaultValue("100ms") Duration heartbeatInterval,
+    @DefaultValue("0s") Duration failoverTimeout) {}
@@ -0,0 +1,36 @@
+package com.trading.orderbook.replication;
+
+/**
+ * Messages exchanged between a primary and its backups over TCP. All fields are big-endian. Each
+ * message is a one-byte type followed by its fields.
+ *
+ * <p>A backup opens the connection with {@link #HELLO}, naming the last journal record it holds.
+ * The primary answers with every later record of its journal, then with each record as it is
+ * committed, and with a {@link #HEARTBEAT} whenever it has had nothing to send for a heartbeat
+ * interval. The backup confirms the records it has journaled and applied with {@link #ACK}.
+ */
+final class ReplicationProtocol {
+
+  /** Backup to primary: {@code lastSequence}. */
+  static final byte HELLO = 1;
+
+  /**
+   * Primary to backup: one journal record, exactly as stored: {@code length, crc32c, body}, where
+   * the body of {@code length} bytes starts with the sequence of the record.
+   */
+  static final byte RECORD = 2;
+
+  /** Primary to backup: {@code lastSequence}. */
+  static final byte HEARTBEAT = 3;
+
+  /** Backup to primary: {@code sequence}, the last record the backup has journaled and applied. */
+  static final byte ACK = 4;
+
+  /**
+   * Primary to backup, before closing the connection: {@code lastSequence}. The backup holds
+   * records the primary does not have, so it cannot follow the primary.
+   */
+  static final byte DIVERGED = 5;
+
+  private ReplicationProtocol() {}
+}
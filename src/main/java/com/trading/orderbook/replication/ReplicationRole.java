@@ -0,0 +1,10 @@
+package com.trading.orderbook.replication;
+
+/** The part a node plays in primary/backup replication. */
+public enum ReplicationRole {
+  /** Accepts commands, journals them and streams the journal to its backups. */
+  PRIMARY,
+
+  /** Applies the journal streamed by the primary and rejects commands from clients. */
+  BACKUP
+}
@@ -0,0 +1,23 @@
+package com.trading.orderbook.replication;
+
+import java.util.List;
+
+/**
+ * The replication state of a node.
+ *
+ * @param role the current role of the node
+ * @param lastSequence the sequence of the last record in the journal of the node
+ * @param primary the address of the primary a backup follows, or null on the primary
+ * @param backups the backups connected to a primary, empty on a backup
+ */
+public record ReplicationStatus(
+    ReplicationRole role, long lastSequence, String primary, List<Backup> backups) {
+
+  /**
+   * A backup connected to the primary.
+   *
+   * @param address the remote address of the backup
+   * @param ackedSequence the last sequence the backup has confirmed
+   */
+  public record Backup(String address, long ackedSequence) {}
+}
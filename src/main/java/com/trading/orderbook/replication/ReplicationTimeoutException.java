@@ -0,0 +1,27 @@
+package com.trading.orderbook.replication;
+
+/**
+ * Thrown when too few backups confirm a command within the acknowledgement timeout. The command has
+ * been applied and journaled by the primary, and reaches the backups once they catch up, but it is
+ * not acknowledged as replicated.
+ */
+public class ReplicationTimeoutException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long sequence;
+
+  public ReplicationTimeoutException(long sequence, String message) {
+    super(message);
+    this.sequence = sequence;
+  }
+
+  /**
+   * Returns the journal sequence the request waited for.
+   *
+   * @return the sequence
+   */
+  public long getSequence() {
+    return sequence;
+  }
+}
@@ -0,0 +1,12 @@
+package com.trading.orderbook.risk;
+
+/**
+ * The exposure of an account in one symbol.
+ *
+ * @param symbol the symbol
+ * @param position the net filled quantity, positive if long and negative if short
+ * @param openBuyQuantity the unfilled quantity of the account's working buy orders
+ * @param openSellQuantity the unfilled quantity of the account's working sell orders
+ */
+public record AccountExposure(
+    String symbol, long position, long openBuyQuantity, long openSellQuantity) {}
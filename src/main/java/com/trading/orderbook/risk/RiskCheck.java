@@ -0,0 +1,10 @@
+package com.trading.orderbook.risk;
+
+/** The pre-trade checks an order can fail. */
+public enum RiskCheck {
+  ORDER_QUANTITY,
+  ORDER_NOTIONAL,
+  PRICE_BAND,
+  OPEN_QUANTITY,
+  POSITION
+}
@@ -0,0 +1,291 @@
+package com.trading.orderbook.risk;
+
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.model.OrderKind;
+import com.trading.orderbook.model.OrderListener;
+import com.trading.orderbook.model.OrderStatus;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.service.OrderBookService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks new orders against the pre-trade limits of their account and counts the exposure of every
+ * account: its net position and its working buy and sell quantity in each symbol.
+ *
+ * <p>The counters are striped by symbol. Each order book owns the counters of its symbol, found by
+ * symbol ID in an array, and only the thread running a command of that book ever writes them: the
+ * book reports fills, cancels, expiries and amends as they happen, and the checks run as part of
+ * the command that adds the order. Checking an order is therefore a few map lookups and
+ * comparisons, with no lock and no contention between books, and a check can never race with the
+ * fills it depends on. Other threads read the counters without locking.
+ *
+ * <p>Orders without an account share one anonymous account. Replayed commands are not checked
+ * again, but count towards exposure like new ones.
+ */
+@Component
+@ConditionalOnProperty(prefix = "orderbook.risk", name = "enabled", havingValue = "true")
+public class RiskEngine implements OrderListener {
+
+  private static final String NO_ACCOUNT = "";
+  private static final RiskCheck[] CHECKS = RiskCheck.values();
+
+  private final RiskProperties properties;
+  private final Map<String, Stripe> unregistered = new ConcurrentHashMap<>();
+  private volatile AtomicReferenceArray<Stripe> bySymbolId = new AtomicReferenceArray<>(16);
+  private Counter[] rejected;
+
+  public RiskEngine(RiskProperties properties, OrderBookService orderBookService) {
+    this.properties = properties;
+    orderBookService.setOrderListener(this);
+  }
+
+  /**
+   * Publishes the number of orders rejected by each check to Micrometer.
+   *
+   * @param registry the registry to publish to
+   */
+  @Autowired(required = false)
+  public void setMeterRegistry(MeterRegistry registry) {
+    Counter[] counters = new Counter[CHECKS.length];
+    for (RiskCheck check : CHECKS) {
+      counters[check.ordinal()] =
+          Counter.builder("orderbook.risk.rejected").tag("check", check.name()).register(registry);
+    }
+    this.rejected = counters;
+  }
+
+  /**
+   * Checks a new order before it enters its book. Must run as a command of the book.
+   *
+   * @param orderBook the order book of the order
+   * @param order the new order
+   * @throws RiskRejectedException if the order breaches a limit of its account
+   */
+  public void check(OrderBook orderBook, Order order) {
+    check(orderBook, order, order.getPrice(), order.getQuantity(), order.getUnfilledQuantity());
+  }
+
+  /**
+   * Checks an amend of a resting order before it is applied. Must run as a command of the book.
+   *
+   * @param orderBook the order book of the order
+   * @param order the order to amend
+   * @param price the new price
+   * @param quantity the new total quantity, including the quantity already filled
+   * @throws RiskRejectedException if the amended order breaches a limit of its account
+   */
+  public void checkAmend(OrderBook orderBook, Order order, BigDecimal price, int quantity) {
+    int added = quantity - order.getQuantity();
+    check(orderBook, order, price, quantity, Math.max(added, 0));
+  }
+
+  /**
+   * Counts the exposure of an order restored from a snapshot: its filled quantity towards the
+   * position of its account and, if it is still working, its unfilled quantity as open. Must run as
+   * a command of the order's book.
+   *
+   * @param orderBook the order book of the order
+   * @param order the restored order
+   */
+  public void restore(OrderBook orderBook, Order order) {
+    Exposure exposure = exposure(orderBook, order);
+    boolean buy = order instanceof BidOrder;
+    int filled = order.getQuantity() - order.getUnfilledQuantity();
+    exposure.position += buy ? filled : -filled;
+    OrderStatus status = order.getStatus();
+    if (status == OrderStatus.OPEN
+        || status == OrderStatus.PARTIALLY_FILLED
+        || status == OrderStatus.PENDING) {
+      exposure.open(buy, order.getUnfilledQuantity());
+    }
+  }
+
+  /**
+   * Returns the exposure of an account in every symbol it has traded or has orders in.
+   *
+   * @param account the account, or null for orders without one
+   * @return the exposure per symbol, in the order of the symbol IDs
+   */
+  public List<AccountExposure> getExposure(String account) {
+    String key = account != null ? account : NO_ACCOUNT;
+    List<AccountExposure> exposures = new ArrayList<>();
+    AtomicReferenceArray<Stripe> stripes = bySymbolId;
+    for (int i = 0; i < stripes.length(); i++) {
+      addExposure(exposures, stripes.get(i), key);
+    }
+    unregistered.values().forEach(stripe -> addExposure(exposures, stripe, key));
+    return exposures;
+  }
+
+  @Override
+  public void quantityChanged(OrderBook orderBook, Order order, int delta) {
+    exposure(orderBook, order).open(order instanceof BidOrder, delta);
+  }
+
+  @Override
+  public void restingOrderFilled(
+      OrderBook orderBook,
+      long idHigh,
+      long idLow,
+      OrderType side,
+      String account,
+      BigDecimal price,
+      int quantity,
+      int unfilledQuantity) {
+    Exposure exposure = stripe(orderBook).exposure(account != null ? account : NO_ACCOUNT);
+    exposure.filled(side == OrderType.BUY, quantity);
+  }
+
+  @Override
+  public void orderFilled(OrderBook orderBook, Order order, BigDecimal price, int quantity) {
+    exposure(orderBook, order).filled(order instanceof BidOrder, quantity);
+  }
+
+  private void check(OrderBook orderBook, Order order, BigDecimal price, int quantity, int added) {
+    RiskLimits limits = properties.limitsOf(accountOf(order));
+    if (limits.maxOrderQuantity() > 0 && quantity > limits.maxOrderQuantity()) {
+      reject(
+          RiskCheck.ORDER_QUANTITY,
+          "Quantity " + quantity + " exceeds the limit of " + limits.maxOrderQuantity());
+    }
+    BigDecimal lastTradePrice = orderBook.getLastTradePrice();
+    if (price != null && lastTradePrice != null && limits.priceBand().signum() > 0) {
+      BigDecimal band = lastTradePrice.multiply(limits.priceBand());
+      if (price.subtract(lastTradePrice).abs().compareTo(band) > 0) {
+        reject(
+            RiskCheck.PRICE_BAND,
+            "Price " + price + " is outside the band around the last trade at " + lastTradePrice);
+      }
+    }
+    BigDecimal valuation = order.getKind() == OrderKind.MARKET ? lastTradePrice : price;
+    if (valuation != null && limits.maxOrderNotional().signum() > 0) {
+      BigDecimal notional = valuation.multiply(BigDecimal.valueOf(quantity));
+      if (notional.compareTo(limits.maxOrderNotional()) > 0) {
+        reject(
+            RiskCheck.ORDER_NOTIONAL,
+            "Notional " + notional + " exceeds the limit of " + limits.maxOrderNotional());
+      }
+    }
+    if (limits.maxOpenQuantity() <= 0 && limits.maxPosition() <= 0) {
+      return;
+    }
+    Exposure exposure = exposure(orderBook, order);
+    long open = exposure.openBuy + exposure.openSell + added;
+    if (limits.maxOpenQuantity() > 0 && open > limits.maxOpenQuantity()) {
+      reject(
+          RiskCheck.OPEN_QUANTITY,
+          "Open quantity " + open + " would exceed the limit of " + limits.maxOpenQuantity());
+    }
+    long position =
+        order instanceof BidOrder
+            ? exposure.position + exposure.openBuy + added
+            : exposure.openSell + added - exposure.position;
+    if (limits.maxPosition() > 0 && position > limits.maxPosition()) {
+      reject(
+          RiskCheck.POSITION,
+          "Position of " + position + " would exceed the limit of " + limits.maxPosition());
+    }
+  }
+
+  private void reject(RiskCheck check, String message) {
+    Counter[] counters = rejected;
+    if (counters != null) {
+      counters[check.ordinal()].increment();
+    }
+    throw new RiskRejectedException(check, message);
+  }
+
+  private static String accountOf(Order order) {
+    return order.getAccount() != null ? order.getAccount() : NO_ACCOUNT;
+  }
+
+  private Exposure exposure(OrderBook orderBook, Order order) {
+    return stripe(orderBook).exposure(accountOf(order));
+  }
+
+  private Stripe stripe(OrderBook orderBook) {
+    int symbolId = orderBook.getSymbolId();
+    if (symbolId < 0) {
+      // books created outside the registry, for example by tools and tests
+      return unregistered.computeIfAbsent(orderBook.getSymbol(), Stripe::new);
+    }
+    AtomicReferenceArray<Stripe> stripes = bySymbolId;
+    Stripe stripe = symbolId < stripes.length() ? stripes.get(symbolId) : null;
+    return stripe != null ? stripe : newStripe(orderBook);
+  }
+
+  private synchronized Stripe newStripe(OrderBook orderBook) {
+    int symbolId = orderBook.getSymbolId();
+    AtomicReferenceArray<Stripe> stripes = bySymbolId;
+    if (symbolId >= stripes.length()) {
+      AtomicReferenceArray<Stripe> grown =
+          new AtomicReferenceArray<>(Math.max(symbolId + 1, stripes.length() * 2));
+      for (int i = 0; i < stripes.length(); i++) {
+        grown.set(i, stripes.get(i));
+      }
+      bySymbolId = stripes = grown;
+    }
+    Stripe stripe = stripes.get(symbolId);
+    if (stripe == null) {
+      stripe = new Stripe(orderBook.getSymbol());
+      stripes.set(symbolId, stripe);
+    }
+    return stripe;
+  }
+
+  private static void addExposure(List<AccountExposure> exposures, Stripe stripe, String account) {
+    Exposure exposure = stripe != null ? stripe.accounts.get(account) : null;
+    if (exposure != null) {
+      exposures.add(
+          new AccountExposure(
+              stripe.symbol, exposure.position, exposure.openBuy, exposure.openSell));
+    }
+  }
+
+  /** The exposure counters of every account in one symbol. */
+  private static final class Stripe {
+    private final String symbol;
+    private final Map<String, Exposure> accounts = new ConcurrentHashMap<>();
+
+    private Stripe(String symbol) {
+      this.symbol = symbol;
+    }
+
+    private Exposure exposure(String account) {
+      Exposure exposure = accounts.get(account);
+      return exposure != null ? exposure : accounts.computeIfAbsent(account, a -> new Exposure());
+    }
+  }
+
+  /** The exposure of one account in one symbol, written only by the thread running its book. */
+  private static final class Exposure {
+    private volatile long position;
+    private volatile long openBuy;
+    private volatile long openSell;
+
+    private void open(boolean buy, long delta) {
+      if (buy) {
+        openBuy += delta;
+      } else {
+        openSell += delta;
+      }
+    }
+
+    private void filled(boolean buy, int quantity) {
+      open(buy, -quantity);
+      position += buy ? quantity : -quantity;
+    }
+  }
+}
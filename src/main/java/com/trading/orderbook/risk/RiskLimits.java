@@ -0,0 +1,29 @@
+package com.trading.orderbook.risk;
+
+import java.math.BigDecimal;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * The pre-trade limits of an account. A limit of 0 is not checked.
+ *
+ * @param maxOrderQuantity the largest quantity of a single order
+ * @param maxOrderNotional the largest price times quantity of a single order; market orders are
+ *     valued at the last trade price
+ * @param maxPosition the largest net position, long or short, the account may reach in a symbol if
+ *     all of its working orders on the side of a new order fill
+ * @param maxOpenQuantity the largest quantity the account may have working in the book of a symbol,
+ *     both sides together, including a new order
+ * @param priceBand how far from the last trade price of its book the price of a new order may be,
+ *     as a fraction of that price
+ */
+public record RiskLimits(
+    @DefaultValue("0") int maxOrderQuantity,
+    @DefaultValue("0") BigDecimal maxOrderNotional,
+    @DefaultValue("0") long maxPosition,
+    @DefaultValue("0") long maxOpenQuantity,
+    @DefaultValue("0") BigDecimal priceBand) {
+
+  public static RiskLimits none() {
+    return new RiskLimits(0, BigDecimal.ZERO, 0, 0, BigDecimal.ZERO);
+  }
+}
@@ -0,0 +1,30 @@
+package com.trading.orderbook.risk;
+
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures the pre-trade risk checks.
+ *
+ * @param enabled whether new orders are checked and exposure is counted
+ * @param limits the limits of every account that has none of its own
+ * @param accounts the limits of individual accounts, replacing the default limits as a whole
+ */
+@ConfigurationProperties(prefix = "orderbook.risk")
+public record RiskProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue RiskLimits limits,
+    @DefaultValue Map<String, RiskLimits> accounts) {
+
+  /**
+   * Returns the limits of an account.
+   *
+   * @param account the account
+   * @return the limits of the account, or the default limits
+   */
+  public RiskLimits limitsOf(String account) {
+    RiskLimits own = accounts.get(account);
+    return own != null ? own : limits;
+  }
+}
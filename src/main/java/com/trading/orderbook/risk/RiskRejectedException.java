@@ -0,0 +1,23 @@
+package com.trading.orderbook.risk;
+
+/** Thrown when an order fails a pre-trade risk check. */
+public class RiskRejectedException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final RiskCheck check;
+
+  public RiskRejectedException(RiskCheck check, String message) {
+    super(message);
+    this.check = check;
+  }
+
+  /**
+   * Returns the check the order failed.
+   *
+   * @return the failed check
+   */
+  public RiskCheck getCheck() {
+    return check;
+  }
+}
@@ -0,0 +1,172 @@
+package com.trading.orderbook.sequencer;
+
+import com.trading.orderbook.model.OrderBook;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Pre-allocated, lock-free multi-producer single-consumer ring of order book commands.
+ *
+ * <p>Producers claim a sequence with a single atomic increment, fill the slot for that sequence and
+ * publish it by storing the sequence in the slot's availability marker. The consumer walks
+ * sequences in order and processes every published slot in one batch before releasing them.
+ * Producers that get a full lap ahead of the consumer wait for it to catch up.
+ *
+ * <p>A ring may be restricted to the order books its consumer currently owns. A command for any
+ * other book is not run and its future completes with {@link #NOT_OWNER}, so the producer can
+ * publish it again to the new owner.
+ */
+public final class CommandRingBuffer {
+
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 100;
+  private static final long MAX_PARK_NANOS = 1_000_000;
+
+  /** The result of a command whose order book is not owned by the ring's consumer. */
+  public static final Object NOT_OWNER = new Object();
+
+  private final Slot[] slots;
+  private final int mask;
+  private final AtomicLongArray published;
+  private final AtomicLong claimed = new AtomicLong();
+  private final AtomicLong consumed = new AtomicLong(-1);
+  private final Predicate<OrderBook> owns;
+  private volatile Thread waitingConsumer;
+
+  /**
+   * Constructs a ring buffer.
+   *
+   * @param size the number of slots, a power of two
+   */
+  public CommandRingBuffer(int size) {
+    this(size, orderBook -> true);
+  }
+
+  /**
+   * Constructs a ring buffer that only runs commands for the order books its consumer owns.
+   *
+   * @param size the number of slots, a power of two
+   * @param owns tells whether the consumer owns an order book; called on the consumer thread just
+   *     before each command runs
+   */
+  public CommandRingBuffer(int size, Predicate<OrderBook> owns) {
+    this.owns = owns;
+    if (size <= 0 || Integer.bitCount(size) != 1) {
+      throw new IllegalArgumentException("Ring size must be a power of two: " + size);
+    }
+    slots = new Slot[size];
+    published = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      slots[i] = new Slot();
+      published.set(i, -1);
+    }
+    mask = size - 1;
+  }
+
+  /**
+   * Publishes a command. Safe to call from any number of threads.
+   *
+   * @param orderBook the order book the command runs against
+   * @param command the command to run
+   * @param <T> the type of the result
+   * @return a future completed by the consumer with the result of the command
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<T> publish(OrderBook orderBook, Function<OrderBook, T> command) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    long sequence = claimed.getAndIncrement();
+    for (int idle = 0; sequence - slots.length > consumed.get(); idle++) {
+      backOff(idle);
+    }
+    Slot slot = slots[(int) (sequence & mask)];
+    slot.orderBook = orderBook;
+    slot.command = (Function<OrderBook, Object>) command;
+    slot.future = (CompletableFuture<Object>) future;
+    published.lazySet((int) (sequence & mask), sequence);
+    Thread consumer = waitingConsumer;
+    if (consumer != null) {
+      LockSupport.unpark(consumer);
+    }
+    return future;
+  }
+
+  /**
+   * Runs the commands published since the last call, in sequence order and at most one lap of the
+   * ring at a time. Must only be called from the consumer thread.
+   *
+   * @return the number of commands run
+   */
+  public int drain() {
+    long next = consumed.get() + 1;
+    long first = next;
+    while (next - first < slots.length && published.get((int) (next & mask)) == next) {
+      slots[(int) (next & mask)].run(owns);
+      next++;
+    }
+    if (next != first) {
+      consumed.lazySet(next - 1);
+    }
+    return (int) (next - first);
+  }
+
+  /**
+   * Waits until a command may have been published, backing off from spinning to parking the longer
+   * the ring stays empty. Must only be called from the consumer thread.
+   *
+   * @param idle the number of consecutive empty drains so far
+   */
+  public void awaitCommands(int idle) {
+    if (idle < SPIN_TRIES + YIELD_TRIES) {
+      backOff(idle);
+      return;
+    }
+    waitingConsumer = Thread.currentThread();
+    long next = consumed.get() + 1;
+    if (published.get((int) (next & mask)) != next) {
+      LockSupport.parkNanos(this, MAX_PARK_NANOS);
+    }
+    waitingConsumer = null;
+  }
+
+  /**
+   * Returns the number of commands published but not yet run.
+   *
+   * @return the backlog of the ring
+   */
+  public long backlog() {
+    return Math.max(0, claimed.get() - consumed.get() - 1);
+  }
+
+  private static void backOff(int idle) {
+    if (idle < SPIN_TRIES) {
+      Thread.onSpinWait();
+    } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(MAX_PARK_NANOS);
+    }
+  }
+
+  private static final class Slot {
+    private OrderBook orderBook;
+    private Function<OrderBook, Object> command;
+    private CompletableFuture<Object> future;
+
+    private void run(Predicate<OrderBook> owns) {
+      CompletableFuture<Object> future = this.future;
+      try {
+        future.complete(owns.test(orderBook) ? command.apply(orderBook) : NOT_OWNER);
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      } finally {
+        orderBook = null;
+        command = null;
+        this.future = null;
+      }
+    }
+  }
+}
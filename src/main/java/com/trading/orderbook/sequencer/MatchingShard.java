@@ -0,0 +1,88 @@
+package com.trading.orderbook.sequencer;
+
+import com.trading.orderbook.model.OrderBook;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A matching thread that owns every order book assigned to its shard. All commands against those
+ * books are run by this thread only, in the order they were published to its ring.
+ */
+final class MatchingShard implements Runnable {
+  private static final Logger logger = Logger.getLogger(MatchingShard.class.getName());
+
+  private final int id;
+  private final CommandRingBuffer ring;
+  private final Thread thread;
+  private volatile boolean running;
+  private volatile long commands;
+  private volatile long busyNanos;
+
+  /** The number of symbols assigned to this shard, guarded by the sequencer. */
+  int symbols;
+
+  MatchingShard(int id, int ringSize, Predicate<OrderBook> owns) {
+    this.id = id;
+    this.ring = new CommandRingBuffer(ringSize, owns);
+    this.thread = new Thread(this, "matching-shard-" + id);
+    this.thread.setDaemon(true);
+  }
+
+  int id() {
+    return id;
+  }
+
+  CommandRingBuffer ring() {
+    return ring;
+  }
+
+  /** Returns the number of commands this shard ran. */
+  long commands() {
+    return commands;
+  }
+
+  /** Returns the time this shard spent running commands, in nanoseconds. */
+  long busyNanos() {
+    return busyNanos;
+  }
+
+  void start() {
+    running = true;
+    thread.start();
+  }
+
+  void stop() {
+    running = false;
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void run() {
+    logger.info("Matching shard " + id + " started");
+    int idle = 0;
+    while (running) {
+      try {
+        long start = System.nanoTime();
+        int drained = ring.drain();
+        if (drained > 0) {
+          // only this thread writes the counters
+          commands += drained;
+          busyNanos += System.nanoTime() - start;
+          idle = 0;
+        } else {
+          ring.awaitCommands(idle++);
+        }
+      } catch (RuntimeException e) {
+        logger.log(Level.SEVERE, "Matching shard " + id + " failed to run a command", e);
+      }
+    }
+    // complete whatever was accepted before shutdown
+    while (ring.drain() > 0) {}
+    logger.info("Matching shard " + id + " stopped");
+  }
+}
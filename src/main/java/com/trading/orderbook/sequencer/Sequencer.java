@@ -0,0 +1,374 @@
+package com.trading.orderbook.sequencer;
+
+import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.service.OrderBookExecutor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs order book commands on single-writer matching threads. Each symbol is assigned to one shard
+ * and only that shard's thread ever touches the symbol's book, so books never contend on a lock.
+ * Request threads publish commands to the shard's lock-free ring and wait for the result.
+ *
+ * <p>New symbols go to the shard with the fewest symbols. Assignments are kept in an array indexed
+ * by the symbol ID of the registry, so finding the owner of a book is a single array read. A symbol
+ * can be moved to another shard while commands are running: the move itself runs as a command on
+ * the old shard, after every command published there before it, and any command that reaches the
+ * old shard afterwards is published again to the new one. With a rebalance interval configured, the
+ * most active symbol that evens out the load is periodically moved from the busiest shard to the
+ * idlest one.
+ *
+ * <p>Matching threads are dedicated platform threads; pinning them to cores is left to the
+ * operating system (for example with {@code taskset}).
+ */
+@Component
+@ConditionalOnProperty(prefix = "orderbook.sequencer", name = "enabled", havingValue = "true")
+public class Sequencer implements OrderBookExecutor, SmartLifecycle {
+  private static final Logger logger = Logger.getLogger(Sequencer.class.getName());
+
+  /** Starts before anything that submits commands and stops after it. */
+  public static final int PHASE = 0;
+
+  private final SequencerProperties properties;
+  private final MatchingShard[] shards;
+  private final List<Assignment> assignments = new CopyOnWriteArrayList<>();
+  private final Map<String, Assignment> unregistered = new ConcurrentHashMap<>();
+  private volatile AtomicReferenceArray<Assignment> bySymbolId = new AtomicReferenceArray<>(16);
+  private ScheduledExecutorService rebalancer;
+  private volatile boolean running;
+
+  public Sequencer(SequencerProperties properties) {
+    this.properties = properties;
+    shards = new MatchingShard[properties.shardCount()];
+    for (int i = 0; i < shards.length; i++) {
+      int index = i;
+      shards[i] = new MatchingShard(i, properties.ringSize(), book -> owns(shards[index], book));
+    }
+  }
+
+  /**
+   * Publishes the activity of every shard to Micrometer.
+   *
+   * @param registry the registry to publish to
+   */
+  @Autowired(required = false)
+  public void setMeterRegistry(MeterRegistry registry) {
+    for (MatchingShard shard : shards) {
+      Tags tags = Tags.of("shard", Integer.toString(shard.id()));
+      FunctionCounter.builder("orderbook.shard.commands", shard, MatchingShard::commands)
+          .tags(tags)
+          .register(registry);
+      FunctionCounter.builder("orderbook.shard.busy", shard, s -> s.busyNanos() / 1e9)
+          .tags(tags)
+          .baseUnit("seconds")
+          .register(registry);
+      Gauge.builder("orderbook.shard.backlog", shard, s -> s.ring().backlog())
+          .tags(tags)
+          .register(registry);
+      Gauge.builder("orderbook.shard.symbols", shard, s -> s.symbols).tags(tags).register(registry);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T execute(OrderBook orderBook, Function<OrderBook, T> command) {
+    Assignment assignment = assignmentOf(orderBook);
+    while (true) {
+      Object result = join(assignment.shard.ring().publish(orderBook, command));
+      if (result != CommandRingBuffer.NOT_OWNER) {
+        return (T) result;
+      }
+      // the symbol moved to another shard after the command was published
+    }
+  }
+
+  /**
+   * Returns the index of the shard that currently owns an order book, assigning one if needed.
+   *
+   * @param orderBook the order book
+   * @return the shard index
+   */
+  public int shardIndex(OrderBook orderBook) {
+    return assignmentOf(orderBook).shard.id();
+  }
+
+  /**
+   * Returns the number of shards.
+   *
+   * @return the number of matching threads
+   */
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * Moves a symbol to another shard. Commands already published for the symbol run on the old shard
+   * first; later ones run on the new shard. Must only be called while the sequencer runs.
+   *
+   * @param symbol the symbol to move
+   * @param shard the index of the new shard
+   * @return false if the symbol has not run any command yet
+   * @throws IllegalArgumentException if the shard does not exist
+   */
+  public synchronized boolean move(String symbol, int shard) {
+    if (shard < 0 || shard >= shards.length) {
+      throw new IllegalArgumentException("No shard " + shard + " among " + shards.length);
+    }
+    for (Assignment assignment : assignments) {
+      if (assignment.orderBook.getSymbol().equals(symbol)) {
+        move(assignment, shards[shard]);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Moves one symbol from the busiest shard to the idlest one, measured by the commands run since
+   * the previous call, if the imbalance exceeds the configured threshold. The symbol moved is the
+   * most active one whose move narrows the gap between the two shards.
+   *
+   * @return the symbol moved, or null if the shards are balanced
+   */
+  public synchronized String rebalance() {
+    long[] load = new long[shards.length];
+    for (Assignment assignment : assignments) {
+      long commands = assignment.commands;
+      assignment.recentCommands = commands - assignment.lastCommands;
+      assignment.lastCommands = commands;
+      load[assignment.shard.id()] += assignment.recentCommands;
+    }
+    int busiest = 0;
+    int idlest = 0;
+    for (int i = 1; i < shards.length; i++) {
+      busiest = load[i] > load[busiest] ? i : busiest;
+      idlest = load[i] < load[idlest] ? i : idlest;
+    }
+    long gap = load[busiest] - load[idlest];
+    if (gap <= 0 || gap < properties.rebalanceThreshold() * load[busiest]) {
+      return null;
+    }
+    Assignment hottest = null;
+    for (Assignment assignment : assignments) {
+      if (assignment.shard == shards[busiest]
+          && assignment.recentCommands < gap
+          && (hottest == null || assignment.recentCommands > hottest.recentCommands)) {
+        hottest = assignment;
+      }
+    }
+    if (hottest == null || hottest.recentCommands == 0) {
+      return null;
+    }
+    move(hottest, shards[idlest]);
+    return hottest.orderBook.getSymbol();
+  }
+
+  /**
+   * Returns the activity of every shard.
+   *
+   * @return the statistics of each shard, by shard index
+   */
+  public List<ShardStats> getShardStats() {
+    List<Map<String, Long>> symbols = new ArrayList<>();
+    for (int i = 0; i < shards.length; i++) {
+      symbols.add(new TreeMap<>());
+    }
+    for (Assignment assignment : assignments) {
+      symbols.get(assignment.shard.id()).put(assignment.orderBook.getSymbol(), assignment.commands);
+    }
+    List<ShardStats> stats = new ArrayList<>(shards.length);
+    for (MatchingShard shard : shards) {
+      stats.add(
+          new ShardStats(
+              shard.id(),
+              shard.commands(),
+              shard.busyNanos(),
+              shard.ring().backlog(),
+              symbols.get(shard.id())));
+    }
+    return stats;
+  }
+
+  @Override
+  public void start() {
+    for (MatchingShard shard : shards) {
+      shard.start();
+    }
+    running = true;
+    long intervalNanos = properties.rebalanceInterval().toNanos();
+    if (intervalNanos > 0) {
+      rebalancer =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "shard-rebalancer");
+                thread.setDaemon(true);
+                return thread;
+              });
+      rebalancer.scheduleWithFixedDelay(
+          this::rebalanceQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    if (rebalancer != null) {
+      rebalancer.shutdown();
+      try {
+        rebalancer.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    for (MatchingShard shard : shards) {
+      shard.stop();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  private void rebalanceQuietly() {
+    try {
+      rebalance();
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Could not rebalance shards", e);
+    }
+  }
+
+  private Assignment assignmentOf(OrderBook orderBook) {
+    int symbolId = orderBook.getSymbolId();
+    Assignment assignment;
+    if (symbolId >= 0) {
+      AtomicReferenceArray<Assignment> table = bySymbolId;
+      assignment = symbolId < table.length() ? table.get(symbolId) : null;
+    } else {
+      assignment = unregistered.get(orderBook.getSymbol());
+    }
+    return assignment != null ? assignment : assign(orderBook);
+  }
+
+  private synchronized Assignment assign(OrderBook orderBook) {
+    int symbolId = orderBook.getSymbolId();
+    if (symbolId < 0) {
+      // books created outside the registry, for example by tools and tests
+      return unregistered.computeIfAbsent(orderBook.getSymbol(), s -> newAssignment(orderBook));
+    }
+    AtomicReferenceArray<Assignment> table = bySymbolId;
+    if (symbolId >= table.length()) {
+      AtomicReferenceArray<Assignment> grown =
+          new AtomicReferenceArray<>(Math.max(symbolId + 1, table.length() * 2));
+      for (int i = 0; i < table.length(); i++) {
+        grown.set(i, table.get(i));
+      }
+      bySymbolId = table = grown;
+    }
+    Assignment assignment = table.get(symbolId);
+    if (assignment == null) {
+      assignment = newAssignment(orderBook);
+      table.set(symbolId, assignment);
+    }
+    return assignment;
+  }
+
+  private Assignment newAssignment(OrderBook orderBook) {
+    MatchingShard emptiest = shards[0];
+    for (MatchingShard shard : shards) {
+      emptiest = shard.symbols < emptiest.symbols ? shard : emptiest;
+    }
+    emptiest.symbols++;
+    Assignment assignment = new Assignment(orderBook, emptiest);
+    assignments.add(assignment);
+    return assignment;
+  }
+
+  private void move(Assignment assignment, MatchingShard to) {
+    MatchingShard from = assignment.shard;
+    if (from == to) {
+      return;
+    }
+    join(
+        from.ring()
+            .publish(
+                assignment.orderBook,
+                book -> {
+                  // the handoff is not a command of the symbol
+                  assignment.commands--;
+                  assignment.shard = to;
+                  return null;
+                }));
+    from.symbols--;
+    to.symbols++;
+    logger.info(
+        "Moved "
+            + assignment.orderBook.getSymbol()
+            + " from shard "
+            + from.id()
+            + " to "
+            + to.id());
+  }
+
+  /** Runs on the thread of a shard before each of its commands. */
+  private boolean owns(MatchingShard shard, OrderBook orderBook) {
+    Assignment assignment = assignmentOf(orderBook);
+    if (assignment.shard != shard) {
+      return false;
+    }
+    // only the owning shard writes the count, and ownership moves happen-before the new owner
+    assignment.commands++;
+    return true;
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  /** The shard that owns a symbol, and how many commands ran for it. */
+  private static final class Assignment {
+    private final OrderBook orderBook;
+    private volatile MatchingShard shard;
+    private volatile long commands;
+    private long lastCommands;
+    private long recentCommands;
+
+    private Assignment(OrderBook orderBook, MatchingShard shard) {
+      this.orderBook = orderBook;
+      this.shard = shard;
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.trading.orderbook.sequencer;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures the sequencer mode, in which every symbol is owned by a single matching thread.
+ *
+ * @param enabled whether order book commands go through the sequencer
+ * @param shards the number of matching threads; 0 uses one per available processor
+ * @param ringSize the number of pre-allocated command slots per shard, a power of two
+ * @param rebalanceInterval the time between automatic rebalancing of hot symbols, or zero to only
+ *     move symbols on demand
+ * @param rebalanceThreshold the imbalance that triggers a move: the busiest shard must have run
+ *     this fraction more commands than the idlest one during the last interval
+ */
+@ConfigurationProperties(prefix = "orderbook.sequencer")
+public record SequencerProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("0") int shards,
+    @DefaultValue("65536") int ringSize,
+    @DefaultValue("0s") Duration rebalanceInterval,
+    @DefaultValue("0.2") double rebalanceThreshold) {
+
+  public int shardCount() {
+    return shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+  }
+}
@@ -0,0 +1,17 @@
+package com.trading.orderbook.sequencer;
+
+import java.util.Map;
+
+/**
+ * Activity of one matching shard since startup.
+ *
+ * @param shard the index of the shard
+ * @param commands the number of commands the shard ran, including symbol moves and commands passed
+ *     on to the new owner of a moved symbol
+ * @param busyNanos the time the shard spent running commands, in nanoseconds
+ * @param backlog the number of commands published to the shard but not yet run
+ * @param symbols the number of commands run for each symbol currently assigned to the shard,
+ *     including those run while the symbol was assigned elsewhere
+ */
+public record ShardStats(
+    int shard, long commands, long busyNanos, long backlog, Map<String, Long> symbols) {}
@@ -0,0 +1,39 @@
+package com.trading.orderbook.service;
+
+import com.trading.orderbook.engine.OrderStorage;
+import java.math.BigDecimal;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Selects the symbols that use an {@link com.trading.orderbook.model.EngineOrderBook}, which
+ * matches GTC and IOC limit orders in a pooled {@link com.trading.orderbook.engine.MatchingEngine}.
+ *
+ * @param tickSizes the tick size of each symbol that uses the engine
+ * @param storage where the engine of a symbol keeps its resting orders; symbols not listed keep
+ *     them on the heap
+ * @param orderCapacity the maximum number of resting orders per book
+ * @param ladderCapacity the initial number of tick slots per book side
+ */
+@ConfigurationProperties(prefix = "orderbook.engine")
+public record EngineProperties(
+    @DefaultValue Map<String, BigDecimal> tickSizes,
+    @DefaultValue Map<String, OrderStorage> storage,
+    @DefaultValue("65536") int orderCapacity,
+    @DefaultValue("1024") int ladderCapacity) {
+
+  public static EngineProperties none() {
+    return new EngineProperties(Map.of(), Map.of(), 65536, 1024);
+  }
+
+  /**
+   * Returns where the engine of a symbol keeps its resting orders.
+   *
+   * @param symbol the symbol
+   * @return the configured storage, or {@link OrderStorage#HEAP} if the symbol has none
+   */
+  public OrderStorage storageOf(String symbol) {
+    return storage.getOrDefault(symbol, OrderStorage.HEAP);
+  }
+}
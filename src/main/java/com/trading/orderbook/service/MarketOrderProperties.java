@@ -0,0 +1,19 @@
+package com.trading.orderbook.service;
+
+import java.math.BigDecimal;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures orders without a limit price: market orders and triggered stop orders.
+ *
+ * @param protectionBand how far from the best opposite price such an order may trade, as a fraction
+ *     of that price; 0 lets it sweep the whole side
+ */
+@ConfigurationProperties(prefix = "orderbook.market-orders")
+public record MarketOrderProperties(@DefaultValue("0") BigDecimal protectionBand) {
+
+  public static MarketOrderProperties none() {
+    return new MarketOrderProperties(BigDecimal.ZERO);
+  }
+}
@@ -0,0 +1,40 @@
+package com.trading.orderbook.service;
+
+import com.trading.orderbook.model.OrderBook;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+/** Decides which thread runs a command against an order book, and under which guarantees. */
+public interface OrderBookExecutor {
+
+  /**
+   * Runs a command against an order book and waits for its result. The command runs atomically with
+   * respect to every other command on the same book.
+   *
+   * @param orderBook the order book to run the command against
+   * @param command the command to run
+   * @param <T> the type of the result
+   * @return the result of the command
+   */
+  <T> T execute(OrderBook orderBook, Function<OrderBook, T> command);
+
+  /**
+   * Returns an executor that runs commands on the calling thread while holding the book's lock.
+   *
+   * @return the calling-thread executor
+   */
+  static OrderBookExecutor callingThread() {
+    return new OrderBookExecutor() {
+      @Override
+      public <T> T execute(OrderBook orderBook, Function<OrderBook, T> command) {
+        Lock lock = orderBook.getLock();
+        lock.lock();
+        try {
+          return command.apply(orderBook);
+        } finally {
+          lock.unlock();
+        }
+      }
+    };
+  }
+}
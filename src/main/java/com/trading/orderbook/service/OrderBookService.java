@@ -1,26 +1,237 @@
 package com.trading.orderbook.service;
 
+import com.trading.orderbook.model.BookListener;
+import com.trading.orderbook.model.DefaultOrderBook;
+import com.trading.orderbook.model.EngineOrderBook;
 import com.trading.orderbook.model.Order;
 import com.trading.orderbook.model.OrderBook;
-import java.util.HashMap;
+import com.trading.orderbook.model.OrderListener;
+import com.trading.orderbook.model.PriceLadderOrderBook;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+/**
+ * Registry of the order books of every symbol. Looking up an existing book is a lock-free read of a
+ * concurrent map; only creating a book takes the registry's lock. Each symbol gets a dense integer
+ * ID in the order its book was created, so other components can keep per-symbol state in arrays.
+ *
+ * <p>A symbol gets an {@link EngineOrderBook} if {@link EngineProperties} lists it, a {@link
+ * PriceLadderOrderBook} if {@link PriceLadderProperties} does, and a {@link DefaultOrderBook}
+ * otherwise. Engine books that keep their orders off the heap are closed with the registry.
+ */
 @Service
-public class OrderBookService {
-  Map<String, OrderBook> symbolToOrderBook;
+public class OrderBookService implements AutoCloseable {
+  private final Map<String, OrderBook> symbolToOrderBook = new ConcurrentHashMap<>();
+  private final PriceLadderProperties priceLadderProperties;
+  private final MarketOrderProperties marketOrderProperties;
+  private final EngineProperties engineProperties;
+  private volatile OrderBook[] orderBooksById = new OrderBook[16];
+  private volatile int symbolCount;
+  private BookListener bookListener;
+  private OrderListener orderListener;
 
   public OrderBookService() {
-    symbolToOrderBook = new HashMap<>();
+    this(PriceLadderProperties.none());
   }
 
-  public synchronized OrderBook getOrderBook(String symbol) {
-    symbolToOrderBook.putIfAbsent(symbol, new OrderBook(symbol));
-    return symbolToOrderBook.get(symbol);
+  public OrderBookService(PriceLadderProperties priceLadderProperties) {
+    this(priceLadderProperties, MarketOrderProperties.none());
+  }
+
+  public OrderBookService(
+      PriceLadderProperties priceLadderProperties, MarketOrderProperties marketOrderProperties) {
+    this(priceLadderProperties, marketOrderProperties, EngineProperties.none());
+  }
+
+  /**
+   * Constructs the registry.
+   *
+   * @param priceLadderProperties the symbols that use a price ladder book
+   * @param marketOrderProperties the protection band of orders without a limit
+   * @param engineProperties the symbols that use an engine book
+   * @throws IllegalArgumentException if a symbol is configured for both a price ladder and an
+   *     engine book, or has an engine storage but no engine book
+   */
+  @Autowired
+  public OrderBookService(
+      PriceLadderProperties priceLadderProperties,
+      MarketOrderProperties marketOrderProperties,
+      EngineProperties engineProperties) {
+    for (String symbol : engineProperties.tickSizes().keySet()) {
+      if (priceLadderProperties.tickSizes().containsKey(symbol)) {
+        throw new IllegalArgumentException(
+            "Symbol " + symbol + " is configured for both a price ladder and an engine book");
+      }
+    }
+    for (String symbol : engineProperties.storage().keySet()) {
+      if (!engineProperties.tickSizes().containsKey(symbol)) {
+        throw new IllegalArgumentException(
+            "Symbol " + symbol + " has an engine storage but no engine tick size");
+      }
+    }
+    this.priceLadderProperties = priceLadderProperties;
+    this.marketOrderProperties = marketOrderProperties;
+    this.engineProperties = engineProperties;
+  }
+
+  /**
+   * Returns the order book of a symbol, creating it if it does not exist.
+   *
+   * @param symbol the symbol
+   * @return the order book of the symbol
+   */
+  public OrderBook getOrderBook(String symbol) {
+    OrderBook orderBook = symbolToOrderBook.get(symbol);
+    return orderBook != null ? orderBook : register(symbol, null);
+  }
+
+  /**
+   * Returns the order book with the given symbol ID.
+   *
+   * @param symbolId the ID of the symbol
+   * @return the order book, or null if no symbol has the ID
+   */
+  public OrderBook getOrderBook(int symbolId) {
+    OrderBook[] orderBooks = orderBooksById;
+    return symbolId >= 0 && symbolId < orderBooks.length ? orderBooks[symbolId] : null;
+  }
+
+  /**
+   * Returns the ID of a symbol, creating its order book if it does not exist.
+   *
+   * @param symbol the symbol
+   * @return the symbol ID
+   */
+  public int getSymbolId(String symbol) {
+    return getOrderBook(symbol).getSymbolId();
+  }
+
+  /**
+   * Sets the listener that receives the trades and level changes of every order book, existing and
+   * future.
+   *
+   * @param bookListener the listener
+   */
+  public synchronized void setBookListener(BookListener bookListener) {
+    this.bookListener = bookListener;
+    symbolToOrderBook.values().forEach(orderBook -> orderBook.setListener(bookListener));
+  }
+
+  /**
+   * Sets the listener that follows the open quantity of the orders of every order book, existing
+   * and future.
+   *
+   * @param orderListener the listener
+   */
+  public synchronized void setOrderListener(OrderListener orderListener) {
+    this.orderListener = orderListener;
+    symbolToOrderBook.values().forEach(orderBook -> orderBook.setOrderListener(orderListener));
+  }
+
+  /**
+   * Selects the price ladder book for a symbol. Must be called before the first order for the
+   * symbol arrives.
+   *
+   * @param symbol the symbol of the order book
+   * @param tickSize the minimum price increment of the symbol
+   * @return the new order book
+   * @throws IllegalStateException if an order book already exists for the symbol
+   */
+  public synchronized OrderBook registerPriceLadder(String symbol, BigDecimal tickSize) {
+    if (symbolToOrderBook.containsKey(symbol)) {
+      throw new IllegalStateException("Order book already exists for symbol: " + symbol);
+    }
+    return register(symbol, tickSize);
+  }
+
+  /**
+   * Returns the symbols that have an order book.
+   *
+   * @return a copy of the symbols, in the order of their IDs
+   */
+  public List<String> getSymbols() {
+    OrderBook[] orderBooks = orderBooksById;
+    int count = Math.min(symbolCount, orderBooks.length);
+    List<String> symbols = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      symbols.add(orderBooks[i].getSymbol());
+    }
+    return symbols;
+  }
+
+  /**
+   * Returns the number of symbols that have an order book. Symbol IDs run from 0 to one less than
+   * this count.
+   *
+   * @return the number of symbols
+   */
+  public int getSymbolCount() {
+    return symbolCount;
   }
 
   public void cancelOrder(Order o) {
     OrderBook orderBook = symbolToOrderBook.get(o.getSymbol());
     orderBook.cancelOrder(o);
   }
+
+  /** Frees the memory of the engine books, after which they reject every command. */
+  @Override
+  public synchronized void close() {
+    for (int symbolId = 0; symbolId < symbolCount; symbolId++) {
+      if (orderBooksById[symbolId] instanceof EngineOrderBook engineOrderBook) {
+        engineOrderBook.close();
+      }
+    }
+  }
+
+  /**
+   * Creates the order book of a symbol unless another thread created it first.
+   *
+   * @param tickSize the tick size of a price ladder book, or null for the configured book type
+   */
+  private synchronized OrderBook register(String symbol, BigDecimal tickSize) {
+    OrderBook orderBook = symbolToOrderBook.get(symbol);
+    if (orderBook != null) {
+      return orderBook;
+    }
+    BigDecimal engineTickSize = null;
+    if (tickSize == null) {
+      engineTickSize = engineProperties.tickSizes().get(symbol);
+      tickSize = priceLadderProperties.tickSizes().get(symbol);
+    }
+    if (engineTickSize != null) {
+      orderBook =
+          new EngineOrderBook(
+              symbol,
+              engineTickSize,
+              engineProperties.orderCapacity(),
+              engineProperties.ladderCapacity(),
+              engineProperties.storageOf(symbol));
+    } else if (tickSize != null) {
+      orderBook = new PriceLadderOrderBook(symbol, tickSize, priceLadderProperties.capacity());
+    } else {
+      orderBook = new DefaultOrderBook(symbol);
+    }
+    orderBook.setListener(bookListener);
+    orderBook.setOrderListener(orderListener);
+    orderBook.setProtectionBand(marketOrderProperties.protectionBand());
+    int symbolId = symbolCount;
+    orderBook.setSymbolId(symbolId);
+    OrderBook[] orderBooks = orderBooksById;
+    if (symbolId == orderBooks.length) {
+      orderBooks = Arrays.copyOf(orderBooks, orderBooks.length * 2);
+    }
+    orderBooks[symbolId] = orderBook;
+    // publish the array before the count and the map, so readers that find the ID find the book
+    orderBooksById = orderBooks;
+    symbolCount = symbolId + 1;
+    symbolToOrderBook.put(symbol, orderBook);
+    return orderBook;
+  }
 }
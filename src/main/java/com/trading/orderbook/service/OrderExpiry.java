@@ -0,0 +1,80 @@
+package com.trading.orderbook.service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Removes GTD and DAY orders from their books once their expire time has passed, checking every
+ * order book with scheduled expiries at the configured interval. Books without any are skipped
+ * without running a command.
+ */
+@Component
+public class OrderExpiry implements SmartLifecycle {
+  private static final Logger logger = Logger.getLogger(OrderExpiry.class.getName());
+
+  /** Runs after the journal has been replayed and before the web server. */
+  public static final int PHASE = 1050;
+
+  private final OrderService orderService;
+  private final SessionProperties properties;
+  private ScheduledExecutorService scheduler;
+  private volatile boolean running;
+
+  public OrderExpiry(OrderService orderService, SessionProperties properties) {
+    this.orderService = orderService;
+    this.properties = properties;
+  }
+
+  @Override
+  public void start() {
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "order-expiry");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long interval = properties.expiryInterval().toMillis();
+    scheduler.scheduleWithFixedDelay(this::expireOrders, 0, interval, TimeUnit.MILLISECONDS);
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      try {
+        scheduler.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  private void expireOrders() {
+    try {
+      int expired = orderService.expireOrders();
+      if (expired > 0 && logger.isLoggable(Level.FINE)) {
+        logger.fine("Expired " + expired + " orders");
+      }
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Could not expire orders", e);
+    }
+  }
+}
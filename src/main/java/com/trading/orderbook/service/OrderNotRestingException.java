@@ -0,0 +1,11 @@
+package com.trading.orderbook.service;
+
+/** Thrown when a command needs a resting order, but the order was already filled or removed. */
+public class OrderNotRestingException extends IllegalStateException {
+
+  private static final long serialVersionUID = 1L;
+
+  public OrderNotRestingException(String message) {
+    super(message);
+  }
+}
@@ -1,60 +1,776 @@
 package com.trading.orderbook.service;
 
+import com.trading.orderbook.admission.AdmissionControl;
+import com.trading.orderbook.admission.AdmissionRejectedException;
+import com.trading.orderbook.audit.AuditEvent;
+import com.trading.orderbook.audit.AuditLog;
+import com.trading.orderbook.journal.CommandJournal;
+import com.trading.orderbook.journal.JournalEntry;
+import com.trading.orderbook.metrics.Operation;
+import com.trading.orderbook.metrics.OrderBookMetrics;
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
 import com.trading.orderbook.model.Order;
 import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.model.OrderBookDepth;
+import com.trading.orderbook.model.OrderIdGenerator;
+import com.trading.orderbook.model.OrderResult;
+import com.trading.orderbook.model.OrderState;
+import com.trading.orderbook.model.OrderStatus;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.model.Trade;
+import com.trading.orderbook.model.TradeEventBuffer;
+import com.trading.orderbook.replication.ReplicationNode;
+import com.trading.orderbook.replication.ReplicationRole;
+import com.trading.orderbook.risk.RiskEngine;
+import com.trading.orderbook.risk.RiskRejectedException;
+import java.math.BigDecimal;
+import java.time.InstantSource;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-
-import com.trading.orderbook.model.OrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class OrderService {
   private static final Logger logger = Logger.getLogger(OrderService.class.getName());
 
-  private final List<Order> orders;
+  private final Map<UUID, Order> orders;
+  // the orders of each symbol in creation order, only touched by commands of the symbol's book
+  private final Map<String, Map<UUID, Order>> ordersBySymbol;
   private final OrderBookService orderBookService;
+  private InstantSource clock = InstantSource.system();
+  private OrderIdGenerator orderIds = new OrderIdGenerator(clock.millis());
+  private OrderBookExecutor executor = OrderBookExecutor.callingThread();
+  private CommandJournal journal;
+  private OrderBookMetrics metrics;
+  private AuditLog auditLog;
+  private AdmissionControl admissionControl;
+  private RiskEngine riskEngine;
+  private ReplicationNode replicationNode;
+  private SessionProperties sessionProperties = SessionProperties.defaults();
 
   public OrderService(OrderBookService orderBookService) {
-    this.orders = new ArrayList<>();
+    this.orders = new ConcurrentHashMap<>();
+    this.ordersBySymbol = new ConcurrentHashMap<>();
     this.orderBookService = orderBookService;
   }
 
+  /**
+   * Replaces the executor that runs commands against order books, for example with the sequencer.
+   *
+   * @param executor the executor to use
+   */
+  @Autowired(required = false)
+  public void setExecutor(OrderBookExecutor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Enables journaling: every accepted command is appended to the journal before it is applied and
+   * forced as the fsync policy of the journal asks before it is acknowledged.
+   *
+   * @param journal the journal to write to
+   */
+  @Autowired(required = false)
+  public void setJournal(CommandJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Enables latency metrics for the commands run against order books.
+   *
+   * @param metrics the metrics to record into
+   */
+  @Autowired(required = false)
+  public void setMetrics(OrderBookMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Enables the audit log: every accepted command records the resulting state of its order.
+   * Replayed commands are not recorded again.
+   *
+   * @param auditLog the audit log to record into
+   */
+  @Autowired(required = false)
+  public void setAuditLog(AuditLog auditLog) {
+    this.auditLog = auditLog;
+  }
+
+  /**
+   * Enables admission control: commands beyond the pending limit of their order book are rejected
+   * before they queue. Cancels and expiries are always admitted, since they only ever relieve a
+   * book.
+   *
+   * @param admissionControl the admission control to consult
+   */
+  @Autowired(required = false)
+  public void setAdmissionControl(AdmissionControl admissionControl) {
+    this.admissionControl = admissionControl;
+  }
+
+  /**
+   * Enables pre-trade risk checks: new orders and amends that breach a limit of their account are
+   * rejected before they are journaled. Replayed commands are not checked again.
+   *
+   * @param riskEngine the risk engine to consult
+   */
+  @Autowired(required = false)
+  public void setRiskEngine(RiskEngine riskEngine) {
+    this.riskEngine = riskEngine;
+  }
+
+  /**
+   * Enables replication. On the primary, commands are acknowledged only once the quorum of backups
+   * has confirmed their journal records. On a backup, commands from clients are rejected and
+   * expiries are left to the primary, whose journal carries them.
+   *
+   * @param replicationNode the replication node of this instance
+   */
+  public void setReplicationNode(ReplicationNode replicationNode) {
+    this.replicationNode = replicationNode;
+  }
+
+  /**
+   * Sets the trading session that DAY orders expire at the close of.
+   *
+   * @param sessionProperties the session
+   */
+  @Autowired(required = false)
+  public void setSessionProperties(SessionProperties sessionProperties) {
+    this.sessionProperties = sessionProperties;
+  }
+
+  /**
+   * Replaces the clock that commands take their time from. The time of each command is journaled
+   * with it and stamped on its trades, so replaying the journal does not read the clock. Order ids
+   * are numbered from the time of the new clock, so a service on a fixed clock hands out the same
+   * ids for the same input.
+   *
+   * @param clock the clock to use
+   */
+  @Autowired(required = false)
+  public void setClock(InstantSource clock) {
+    this.clock = clock;
+    this.orderIds = new OrderIdGenerator(clock.millis());
+  }
+
+  /**
+   * Returns an id for a new order. Ids are numbered from the time the clock of the service was set
+   * rather than drawn at random, so they are unique across restarts and cheap to create.
+   *
+   * @return a new order id
+   */
+  public UUID nextOrderId() {
+    return orderIds.next();
+  }
+
+  /**
+   * Retrieves all orders, in no particular order. The orders resting in books that {@link
+   * OrderBook#storesOrders() store their orders} are copies, and the orders those books are done
+   * with are not kept.
+   *
+   * @return a list of all orders
+   */
   public List<Order> getAllOrders() {
-    return orders;
+    List<Order> allOrders = new ArrayList<>(orders.values());
+    for (int symbolId = 0; symbolId < orderBookService.getSymbolCount(); symbolId++) {
+      OrderBook orderBook = orderBookService.getOrderBook(symbolId);
+      if (orderBook != null && orderBook.storesOrders()) {
+        orderBook.restingOrders().forEach(state -> allOrders.add(state.toOrder()));
+      }
+    }
+    return allOrders;
   }
 
+  /**
+   * Retrieves an order by its ID, in constant time unless it is not registered here. An order
+   * resting in a book that {@link OrderBook#storesOrders() stores its orders} is looked up in each
+   * such book and returned as a copy of its current state, and such books do not keep the orders
+   * they are done with.
+   *
+   * @param id the ID of the order
+   * @return the order, or null if no order with the ID exists
+   */
   public Order getOrderById(String id) {
-    return orders.stream()
-        .filter(order -> order.getId().toString().equals(id))
-        .findFirst()
-        .orElse(null);
+    UUID orderId;
+    try {
+      orderId = UUID.fromString(id);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    Order order = orders.get(orderId);
+    return order != null ? order : findStoredOrder(orderId);
+  }
+
+  /** Looks an order up in the books that store their orders, and returns a copy of it. */
+  private Order findStoredOrder(UUID id) {
+    for (int symbolId = 0; symbolId < orderBookService.getSymbolCount(); symbolId++) {
+      OrderBook orderBook = orderBookService.getOrderBook(symbolId);
+      Order order;
+      if (orderBook != null
+          && orderBook.storesOrders()
+          && (order = orderBook.findOrder(id)) != null) {
+        return order;
+      }
+    }
+    return null;
   }
 
+  /**
+   * Creates an order and matches it against its order book. A DAY order is given the close of the
+   * current session as its expire time.
+   *
+   * @param order the order to create
+   * @return the order after matching
+   * @throws IllegalArgumentException if the order has no symbol or no positive quantity, a GTD
+   *     order does not expire in the future, or an order of another time in force has an expire
+   *     time
+   * @throws RiskRejectedException if the order fails a pre-trade risk check
+   * @throws com.trading.orderbook.replication.NotPrimaryException if this node is a backup
+   */
   public Order createOrder(Order order) {
+    checkPrimary();
+    long now = clock.millis();
+    checkRequired(order);
+    checkExpireTime(order, now);
+    return createOrder(order, true, now);
+  }
+
+  private Order createOrder(Order order, boolean journaled, long time) {
     OrderBook orderBook = orderBookService.getOrderBook(order.getSymbol());
-    Order adjustedOrder = orderBook.addOrder(order);
-    orders.add(adjustedOrder);
-    logger.info(
-        "Order created: " + adjustedOrder + " in order book: " + orderBook.orderbookDepth());
+    Order adjustedOrder =
+        execute(orderBook, Operation.ADD, book -> add(book, order, journaled, time));
+    if (journaled) {
+      sync();
+    }
     return adjustedOrder;
   }
 
+  /**
+   * Creates a batch of orders. The orders are grouped by symbol and each group runs as a single
+   * command of its order book, in batch order, so entering the book and syncing the journal are
+   * paid once per book or batch instead of once per order. Fills are read from the trade stream of
+   * the book, so an order that executes more trades than the stream retains only reports the most
+   * recent ones.
+   *
+   * <p>An order that is not valid, such as one without a symbol or quantity or with a price off the
+   * tick size of its book, or that fails a pre-trade risk check, is reported as {@link
+   * OrderStatus#REJECTED} without fills and the rest of the batch goes ahead. Admission control
+   * applies per group: a group whose order book has too many pending commands is reported as
+   * rejected as a whole, while the groups of other books still run.
+   *
+   * @param batch the orders to create
+   * @return the result of each order, in batch order
+   * @throws com.trading.orderbook.replication.NotPrimaryException if this node is a backup, before
+   *     any order of the batch is applied
+   */
+  public List<OrderResult> createOrders(List<? extends Order> batch) {
+    checkPrimary();
+    long now = clock.millis();
+    OrderResult[] results = new OrderResult[batch.size()];
+    Map<String, List<Integer>> bySymbol = new LinkedHashMap<>();
+    for (int i = 0; i < batch.size(); i++) {
+      Order order = batch.get(i);
+      try {
+        checkRequired(order);
+        checkExpireTime(order, now);
+      } catch (IllegalArgumentException e) {
+        results[i] = rejected(order, e);
+        continue;
+      }
+      bySymbol.computeIfAbsent(order.getSymbol(), symbol -> new ArrayList<>()).add(i);
+    }
+    try {
+      createOrders(batch, bySymbol, results, now);
+    } finally {
+      sync();
+    }
+    return Arrays.asList(results);
+  }
+
+  private void createOrders(
+      List<? extends Order> batch,
+      Map<String, List<Integer>> bySymbol,
+      OrderResult[] results,
+      long time) {
+    for (Map.Entry<String, List<Integer>> group : bySymbol.entrySet()) {
+      try {
+        execute(
+            orderBookService.getOrderBook(group.getKey()),
+            Operation.BATCH,
+            book -> {
+              createOrders(book, batch, group.getValue(), results, time);
+              return null;
+            });
+      } catch (AdmissionRejectedException e) {
+        for (int index : group.getValue()) {
+          results[index] = rejected(batch.get(index), e);
+        }
+        continue;
+      }
+      if (logger.isLoggable(Level.FINE)) {
+        logger.fine(
+            "Created " + group.getValue().size() + " orders in order book: " + group.getKey());
+      }
+    }
+  }
+
+  /** Creates the orders of one symbol group as a command of their order book. */
+  private void createOrders(
+      OrderBook book,
+      List<? extends Order> batch,
+      List<Integer> group,
+      OrderResult[] results,
+      long time) {
+    // nothing else trades in the book during the command, so every new trade of the order or of
+    // the stops it triggers is in the stream
+    TradeEventBuffer.Subscription trades = book.getTrades().subscribe();
+    for (int index : group) {
+      Order added;
+      try {
+        added = add(book, batch.get(index), true, time);
+      } catch (RuntimeException e) {
+        results[index] = rejected(batch.get(index), e);
+        continue;
+      }
+      List<Trade> fills = new ArrayList<>();
+      trades.poll(
+          trade -> {
+            if (added.getId().equals(trade.takerOrderId())
+                || added.getId().equals(trade.makerOrderId())) {
+              fills.add(trade);
+            }
+          },
+          Integer.MAX_VALUE);
+      results[index] = new OrderResult(added, fills);
+    }
+  }
+
+  /** Marks an order of a batch as rejected and reports it without fills. */
+  private static OrderResult rejected(Order order, RuntimeException reason) {
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine("Rejected order " + order.getId() + " of a batch: " + reason.getMessage());
+    }
+    order.reject();
+    return new OrderResult(order, List.of());
+  }
+
+  /** Validates that a new order names its book and has a quantity to trade. */
+  private static void checkRequired(Order order) {
+    if (order.getSymbol() == null) {
+      throw new IllegalArgumentException("Symbol required for order " + order.getId());
+    }
+    if (order.getQuantity() == null || order.getQuantity() <= 0) {
+      throw new IllegalArgumentException("Quantity must be positive for order " + order.getId());
+    }
+  }
+
+  /** Validates the expire time of a new order, stamping it on a DAY order. */
+  private void checkExpireTime(Order order, long now) {
+    switch (order.getTimeInForce()) {
+      case DAY -> {
+        if (order.getExpireTime() != 0) {
+          throw new IllegalArgumentException("A DAY order expires at the session close: " + order);
+        }
+        order.setExpireTime(sessionProperties.sessionClose(now));
+      }
+      case GTD -> {
+        if (order.getExpireTime() <= now) {
+          throw new IllegalArgumentException("A GTD order must expire in the future: " + order);
+        }
+      }
+      default -> {
+        if (order.getExpireTime() != 0) {
+          throw new IllegalArgumentException(
+              "Only GTD orders take an expire time, not " + order.getTimeInForce());
+        }
+      }
+    }
+  }
+
+  private Order add(OrderBook book, Order order, boolean journaled, long time) {
+    if (journaled) {
+      book.checkOrder(order);
+    }
+    if (journaled && riskEngine != null) {
+      riskEngine.check(book, order);
+    }
+    if (journaled && journal != null) {
+      journal.appendNewOrder(order, time);
+    }
+    Order added = book.addOrder(order, time);
+    if (!book.storesOrders()) {
+      register(added);
+    }
+    if (journaled && auditLog != null) {
+      auditLog.record(AuditEvent.CREATED, added);
+    }
+    return added;
+  }
+
   public void cancelOrder(String id) {
+    checkPrimary();
     Order order = getOrderById(id);
-    if (order != null) {
-      if (order.getStatus() == OrderStatus.OPEN) {
-        orderBookService.cancelOrder(order);
-        orders.remove(order);
-      } else {
-        int filledQuantity = order.getQuantity() - order.getUnfilledQuantity();
-        order.setQuantity(filledQuantity);
-        order.setUnfilledQuantity(0); //fixing a bug
-        orderBookService.cancelOrder(order);
+    if (order == null) {
+      throw new RuntimeException("Could not find order with id: " + id);
+    }
+    cancelOrder(order, true, clock.millis());
+  }
+
+  private void cancelOrder(Order order, boolean journaled, long time) {
+    execute(
+        orderBookService.getOrderBook(order.getSymbol()),
+        Operation.CANCEL,
+        book -> {
+          if (journaled && journal != null) {
+            journal.appendCancel(order.getId(), order.getSymbol(), time);
+          }
+          cancel(book, order);
+          if (journaled && auditLog != null) {
+            auditLog.record(AuditEvent.CANCELLED, order);
+          }
+          return null;
+        });
+    if (journaled) {
+      sync();
+    }
+  }
+
+  /**
+   * Amends the price and quantity of a resting order in one atomic step. A quantity reduction at
+   * the same price keeps the order's time priority; any other amend matches the order again at its
+   * new price and queues it behind the orders already resting there.
+   *
+   * @param id the ID of the order
+   * @param price the new price
+   * @param quantity the new total quantity, including the quantity already filled
+   * @return the amended order
+   * @throws RuntimeException if no order with the ID exists
+   * @throws OrderNotRestingException if the order is no longer resting
+   * @throws IllegalArgumentException if the quantity does not exceed the filled quantity, or the
+   *     price is not valid for the order book
+   * @throws RiskRejectedException if the amended order fails a pre-trade risk check
+   */
+  public Order amendOrder(String id, BigDecimal price, int quantity) {
+    checkPrimary();
+    return amendOrder(id, price, quantity, true, clock.millis());
+  }
+
+  private Order amendOrder(
+      String id, BigDecimal price, int quantity, boolean journaled, long time) {
+    Order found = getOrderById(id);
+    if (found == null) {
+      throw new RuntimeException("Could not find order with id: " + id);
+    }
+    Order amended =
+        execute(
+            orderBookService.getOrderBook(found.getSymbol()),
+            Operation.AMEND,
+            book -> {
+              // a book that stores its orders hands out copies, so take the current one
+              Order order = book.storesOrders() ? book.findOrder(found.getId()) : found;
+              // refused before it is journaled, so replaying the journal never meets the refusal
+              if (order == null || !book.isResting(order)) {
+                throw new OrderNotRestingException("Order is no longer resting: " + id);
+              }
+              if (quantity <= order.getQuantity() - order.getUnfilledQuantity()) {
+                throw new IllegalArgumentException(
+                    "Amended quantity " + quantity + " does not exceed the filled quantity: " + id);
+              }
+              if (journaled) {
+                book.checkAmend(order, price);
+              }
+              if (journaled && riskEngine != null) {
+                riskEngine.checkAmend(book, order, price, quantity);
+              }
+              if (journaled && journal != null) {
+                journal.appendAmend(order.getId(), order.getSymbol(), price, quantity, time);
+              }
+              if (!book.amendOrder(order, price, quantity, time)) {
+                throw new OrderNotRestingException("Order is no longer resting: " + id);
+              }
+              if (journaled && auditLog != null) {
+                auditLog.record(AuditEvent.AMENDED, order);
+              }
+              return order;
+            });
+    if (journaled) {
+      sync();
+    }
+    return amended;
+  }
+
+  /**
+   * Removes the orders whose expire time has passed by the clock of the service. See {@link
+   * #expireOrders(long)}.
+   *
+   * @return the number of orders that expired, always 0 on a replication backup
+   */
+  public int expireOrders() {
+    return expireOrders(clock.millis());
+  }
+
+  /**
+   * Removes the orders whose expire time has passed from every order book that has any, as one
+   * command of each such book. Each expiry is journaled and audited within that command, so it
+   * replays in the same place relative to the other commands of the book.
+   *
+   * @param now the current time in milliseconds since the epoch
+   * @return the number of orders that expired, always 0 on a replication backup
+   */
+  public int expireOrders(long now) {
+    if (replicationNode != null && replicationNode.getRole() != ReplicationRole.PRIMARY) {
+      // the expiries of a backup arrive in the journal of its primary
+      return 0;
+    }
+    int expired = 0;
+    for (int symbolId = 0; symbolId < orderBookService.getSymbolCount(); symbolId++) {
+      OrderBook orderBook = orderBookService.getOrderBook(symbolId);
+      if (orderBook == null || !orderBook.hasScheduledExpiries()) {
+        continue;
+      }
+      expired +=
+          execute(
+              orderBook,
+              Operation.EXPIRE,
+              book -> {
+                List<Order> orders = book.expireOrders(now);
+                for (Order order : orders) {
+                  if (journal != null) {
+                    journal.appendExpire(order.getId(), order.getSymbol(), now);
+                  }
+                  if (auditLog != null) {
+                    auditLog.record(AuditEvent.EXPIRED, order);
+                  }
+                }
+                return orders.size();
+              });
+    }
+    if (expired > 0) {
+      sync();
+    }
+    return expired;
+  }
+
+  /**
+   * Applies a journaled command without journaling it again, at the time it originally ran at, so
+   * it executes the same trades with the same timestamps. Used to rebuild state on startup and to
+   * apply the journal of a replication primary.
+   *
+   * <p>A cancel of an order that is already gone changes nothing and is skipped, the way a second
+   * cancel of an order that is already cancelled is accepted when a client sends it. Any other
+   * command that fails means the books no longer match those the journal was written from.
+   *
+   * @param entry the journaled command
+   */
+  public void replay(JournalEntry entry) {
+    switch (entry.type()) {
+      case NEW -> {
+        Order order =
+            entry.side() == OrderType.BUY
+                ? new BidOrder(
+                    entry.orderId(),
+                    entry.symbol(),
+                    entry.kind(),
+                    entry.price(),
+                    entry.stopPrice(),
+                    entry.quantity())
+                : new OfferOrder(
+                    entry.orderId(),
+                    entry.symbol(),
+                    entry.kind(),
+                    entry.price(),
+                    entry.stopPrice(),
+                    entry.quantity());
+        order.setTimeInForce(entry.timeInForce());
+        order.setExpireTime(entry.expireTime());
+        order.setAccount(entry.account());
+        createOrder(order, false, entry.time());
+      }
+      case CANCEL -> {
+        Order order = getOrderById(entry.orderId().toString());
+        if (order != null) {
+          cancelOrder(order, false, entry.time());
+        } else if (logger.isLoggable(Level.FINE)) {
+          logger.fine("Skipped journaled cancel of order " + entry.orderId() + " that is gone");
+        }
+      }
+      case AMEND ->
+          amendOrder(
+              entry.orderId().toString(), entry.price(), entry.quantity(), false, entry.time());
+      case EXPIRE -> {
+        Order order = orders.get(entry.orderId());
+        if (order != null) {
+          execute(
+              orderBookService.getOrderBook(order.getSymbol()),
+              Operation.EXPIRE,
+              book -> book.expireOrder(order));
+        }
       }
+    }
+  }
+
+  /**
+   * Runs a command against the order book of a symbol on the executor that owns it.
+   *
+   * @param symbol the symbol of the order book
+   * @param command the command to run
+   * @return the result of the command
+   */
+  public <T> T execute(String symbol, Function<OrderBook, T> command) {
+    return executor.execute(orderBookService.getOrderBook(symbol), command);
+  }
+
+  /**
+   * Retrieves the depth of the order book of a symbol.
+   *
+   * @param symbol the symbol of the order book
+   * @param depth the number of best price levels per side, or null for all levels
+   * @return the depth in the order of {@link OrderBook#topN(int)}, or for all levels, of {@link
+   *     OrderBook#orderbookDepth()}
+   */
+  public List<OrderBookDepth> getDepth(String symbol, Integer depth) {
+    return execute(
+        orderBookService.getOrderBook(symbol),
+        Operation.DEPTH,
+        book -> depth == null ? book.orderbookDepth() : book.topN(depth));
+  }
+
+  /**
+   * Runs a command on the executor once admitted, timing how long it waited and ran if metrics are
+   * enabled.
+   *
+   * @throws com.trading.orderbook.admission.AdmissionRejectedException if the order book has too
+   *     many pending commands
+   */
+  private <T> T execute(OrderBook orderBook, Operation operation, Function<OrderBook, T> command) {
+    if (admissionControl == null
+        || operation == Operation.CANCEL
+        || operation == Operation.EXPIRE) {
+      return run(orderBook, operation, command);
+    }
+    admissionControl.acquire(orderBook);
+    try {
+      return run(orderBook, operation, command);
+    } finally {
+      admissionControl.release(orderBook);
+    }
+  }
+
+  private <T> T run(OrderBook orderBook, Operation operation, Function<OrderBook, T> command) {
+    if (metrics == null) {
+      return executor.execute(orderBook, command);
+    }
+    long submitted = System.nanoTime();
+    return executor.execute(
+        orderBook,
+        book -> {
+          long started = System.nanoTime();
+          try {
+            return command.apply(book);
+          } finally {
+            metrics.record(book, operation, started - submitted, System.nanoTime() - started);
+          }
+        });
+  }
+
+  /**
+   * Copies the state of the orders of a symbol that are no longer in its order book: fully filled
+   * orders, cancelled orders that had been partially filled, and orders the book itself cancelled
+   * or expired. Must run as a command of the symbol's order book, so the copy is consistent with
+   * the book.
+   *
+   * @param symbol the symbol of the orders
+   * @return the completed orders of the symbol
+   */
+  public List<OrderState> completedOrders(String symbol) {
+    List<OrderState> completed = new ArrayList<>();
+    for (Order order : ordersBySymbol.getOrDefault(symbol, Map.of()).values()) {
+      boolean done =
+          order.getUnfilledQuantity() == 0
+              || order.getStatus() == OrderStatus.CANCELLED
+              || order.getStatus() == OrderStatus.EXPIRED;
+      if (done) {
+        completed.add(OrderState.of(order));
+      }
+    }
+    return completed;
+  }
+
+  /**
+   * Registers an order restored from a snapshot, without touching its order book, and counts its
+   * exposure if risk checks are enabled. Orders of a book that stores its orders are not
+   * registered. Must run as a command of the order's book.
+   *
+   * @param order the restored order
+   */
+  public void restoreOrder(Order order) {
+    OrderBook orderBook = orderBookService.getOrderBook(order.getSymbol());
+    if (!orderBook.storesOrders()) {
+      register(order);
+    }
+    if (riskEngine != null) {
+      riskEngine.restore(orderBook, order);
+    }
+  }
+
+  /** Registers an order by id and under its symbol. Must run as a command of the order's book. */
+  private void register(Order order) {
+    orders.put(order.getId(), order);
+    ordersBySymbol
+        .computeIfAbsent(order.getSymbol(), symbol -> new LinkedHashMap<>())
+        .put(order.getId(), order);
+  }
+
+  /** Rejects commands from clients on a replication backup. */
+  private void checkPrimary() {
+    if (replicationNode != null) {
+      replicationNode.checkPrimary();
+    }
+  }
+
+  /**
+   * Makes the journaled commands durable and, on a replication primary, waits until the quorum of
+   * backups has confirmed them. Callers acknowledge their commands only after this returns.
+   */
+  private void sync() {
+    if (journal != null) {
+      journal.sync();
+      if (replicationNode != null) {
+        replicationNode.awaitReplicated(journal.lastSequence());
+      }
+    }
+  }
+
+  private void cancel(OrderBook book, Order order) {
+    if (book.storesOrders()) {
+      // the book brings its copy of the order up to date and keeps nothing of it
+      book.cancelOrder(order);
+      return;
+    }
+    if (order.getStatus() == OrderStatus.CANCELLED || order.getStatus() == OrderStatus.EXPIRED) {
+      // the book already removed the order
+      return;
+    }
+    if (order.getStatus() == OrderStatus.OPEN || order.getStatus() == OrderStatus.PENDING) {
+      orderBookService.cancelOrder(order);
+      orders.remove(order.getId());
+      ordersBySymbol.get(order.getSymbol()).remove(order.getId());
     } else {
-      throw new RuntimeException("Could not find order with id: " + id);
+      int filledQuantity = order.getQuantity() - order.getUnfilledQuantity();
+      order.setQuantity(filledQuantity);
+      order.setUnfilledQuantity(0); // fixing a bug
+      orderBookService.cancelOrder(order);
     }
   }
 }
@@ -0,0 +1,21 @@
+package com.trading.orderbook.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Selects the symbols that use a {@link com.trading.orderbook.model.PriceLadderOrderBook}.
+ *
+ * @param tickSizes the tick size of each symbol that uses a price ladder
+ * @param capacity the initial number of tick slots per book side
+ */
+@ConfigurationProperties(prefix = "orderbook.price-ladder")
+public record PriceLadderProperties(
+    @DefaultValue Map<String, BigDecimal> tickSizes, @DefaultValue("1024") int capacity) {
+
+  public static PriceLadderProperties none() {
+    return new PriceLadderProperties(Map.of(), 1024);
+  }
+}
@@ -0,0 +1,43 @@
+package com.trading.orderbook.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures the trading session that DAY orders last for, and how often expired orders are
+ * removed.
+ *
+ * @param zone the time zone of the session close
+ * @param closeTime the local time at which the session closes and DAY orders expire
+ * @param expiryInterval how often order books are checked for expired orders
+ */
+@ConfigurationProperties(prefix = "orderbook.session")
+public record SessionProperties(
+    @DefaultValue("UTC") ZoneId zone,
+    @DefaultValue("17:00") LocalTime closeTime,
+    @DefaultValue("100ms") Duration expiryInterval) {
+
+  public static SessionProperties defaults() {
+    return new SessionProperties(ZoneId.of("UTC"), LocalTime.of(17, 0), Duration.ofMillis(100));
+  }
+
+  /**
+   * Returns the end of the session a given time falls in: the first close after it.
+   *
+   * @param time a time in milliseconds since the epoch
+   * @return the time of the session close in milliseconds since the epoch
+   */
+  public long sessionClose(long time) {
+    ZonedDateTime now = Instant.ofEpochMilli(time).atZone(zone);
+    ZonedDateTime close = now.with(closeTime);
+    if (!close.isAfter(now)) {
+      close = close.plusDays(1);
+    }
+    return close.toInstant().toEpochMilli();
+  }
+}
@@ -0,0 +1,28 @@
+package com.trading.orderbook.snapshot;
+
+import com.trading.orderbook.model.OrderState;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A consistent copy of one order book and its orders.
+ *
+ * @param symbol the symbol of the order book
+ * @param journalSequence the sequence of the last journaled command applied to the book, or 0 if
+ *     journaling is disabled
+ * @param nextTradeSequence the sequence the book's next trade will be published with
+ * @param lastTradePrice the price of the book's last trade, or null if it has not traded
+ * @param restingOrders the orders resting in the book, bids from the best price down and then
+ *     offers from the best price up, each level in time priority
+ * @param completedOrders the orders of the symbol that are no longer in the book
+ * @param pendingStops the dormant stop orders of the book, buys and then sells, each in trigger
+ *     order
+ */
+public record BookSnapshot(
+    String symbol,
+    long journalSequence,
+    long nextTradeSequence,
+    BigDecimal lastTradePrice,
+    List<OrderState> restingOrders,
+    List<OrderState> completedOrders,
+    List<OrderState> pendingStops) {}
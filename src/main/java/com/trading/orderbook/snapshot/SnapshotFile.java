@@ -0,0 +1,293 @@
+package com.trading.orderbook.snapshot;
+
+import com.trading.orderbook.model.OrderKind;
+import com.trading.orderbook.model.OrderState;
+import com.trading.orderbook.model.OrderStatus;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.model.TimeInForce;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Reads and writes snapshot files.
+ *
+ * <p>A file starts with the magic number {@code OBSN}, the format version and the creation time,
+ * followed by each book: its symbol, journal and trade sequences, its last trade price, its resting
+ * orders grouped into runs of one side and price in time priority, its completed orders and its
+ * dormant stop orders. Every order carries its kind, followed by its stop price if it is a stop
+ * order, then its time in force, expire time, status and account, empty if it has none. Prices are
+ * stored as scale and unscaled value; completed market orders, which have no price, are stored at
+ * 0. Strings and unscaled values are written as an int length followed by their bytes. The file
+ * ends with a CRC32C of everything before it. Files of any other version are refused.
+ *
+ * <p>Files are written to a temporary file, forced to disk and atomically renamed, so a crash never
+ * leaves a partial snapshot under a snapshot name.
+ */
+final class SnapshotFile {
+
+  static final int MAGIC = 0x4F42534E;
+  static final short VERSION = 2;
+
+  private static final OrderType[] SIDES = OrderType.values();
+  private static final OrderKind[] KINDS = OrderKind.values();
+  private static final TimeInForce[] TIME_IN_FORCES = TimeInForce.values();
+  private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+  private SnapshotFile() {}
+
+  /**
+   * Writes a snapshot.
+   *
+   * @param path the snapshot file
+   * @param createdAt the creation time, in milliseconds since the epoch
+   * @param books the books to write
+   * @throws IOException if the file could not be written
+   */
+  static void write(Path path, long createdAt, List<BookSnapshot> books) throws IOException {
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      CRC32C checksum = new CRC32C();
+      DataOutputStream out =
+          new DataOutputStream(
+              new CheckedOutputStream(
+                  new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), checksum));
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      out.writeLong(createdAt);
+      out.writeInt(books.size());
+      for (BookSnapshot book : books) {
+        writeBook(out, book);
+      }
+      out.flush();
+      out.writeInt((int) checksum.getValue());
+      out.flush();
+      channel.force(true);
+    }
+    Files.move(
+        temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static void writeBook(DataOutputStream out, BookSnapshot book) throws IOException {
+    writeString(out, book.symbol());
+    out.writeLong(book.journalSequence());
+    out.writeLong(book.nextTradeSequence());
+    out.writeBoolean(book.lastTradePrice() != null);
+    if (book.lastTradePrice() != null) {
+      writePrice(out, book.lastTradePrice());
+    }
+
+    List<OrderState> resting = book.restingOrders();
+    int runs = 0;
+    for (int i = 0; i < resting.size(); i++) {
+      if (i == 0 || !sameRun(resting.get(i - 1), resting.get(i))) {
+        runs++;
+      }
+    }
+    out.writeInt(runs);
+    for (int start = 0, end; start < resting.size(); start = end) {
+      OrderState first = resting.get(start);
+      end = start + 1;
+      while (end < resting.size() && sameRun(first, resting.get(end))) {
+        end++;
+      }
+      out.writeByte(first.side().ordinal());
+      writePrice(out, first.price());
+      out.writeInt(end - start);
+      for (OrderState order : resting.subList(start, end)) {
+        writeQuantities(out, order);
+      }
+    }
+
+    writeOrders(out, book.completedOrders());
+    writeOrders(out, book.pendingStops());
+  }
+
+  private static void writeOrders(DataOutputStream out, List<OrderState> orders)
+      throws IOException {
+    out.writeInt(orders.size());
+    for (OrderState order : orders) {
+      out.writeByte(order.side().ordinal());
+      // a market order has no price and is stored at 0
+      writePrice(out, order.price() != null ? order.price() : BigDecimal.ZERO);
+      writeQuantities(out, order);
+    }
+  }
+
+  private static boolean sameRun(OrderState previous, OrderState order) {
+    // equals rather than compareTo, so each order keeps the exact scale it was entered with
+    return previous.side() == order.side() && previous.price().equals(order.price());
+  }
+
+  private static void writeQuantities(DataOutputStream out, OrderState order) throws IOException {
+    out.writeLong(order.id().getMostSignificantBits());
+    out.writeLong(order.id().getLeastSignificantBits());
+    out.writeInt(order.quantity());
+    out.writeInt(order.unfilledQuantity());
+    out.writeByte(order.kind().ordinal());
+    if (order.kind().hasStopPrice()) {
+      writePrice(out, order.stopPrice());
+    }
+    out.writeByte(order.timeInForce().ordinal());
+    out.writeLong(order.expireTime());
+    out.writeByte(order.status().ordinal());
+    writeString(out, order.account() != null ? order.account() : "");
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static void writePrice(DataOutputStream out, BigDecimal price) throws IOException {
+    byte[] unscaled = price.unscaledValue().toByteArray();
+    out.writeInt(price.scale());
+    out.writeInt(unscaled.length);
+    out.write(unscaled);
+  }
+
+  /**
+   * Reads a snapshot through a read-only memory mapping of the file.
+   *
+   * @param path the snapshot file
+   * @return the books in the snapshot
+   * @throws IOException if the file could not be read or is not an intact snapshot
+   */
+  static List<BookSnapshot> read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < 18 || size > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot " + path + " has an invalid size of " + size + " bytes");
+      }
+      MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      int trailer = (int) size - 4;
+      CRC32C checksum = new CRC32C();
+      checksum.update(in.slice(0, trailer));
+      if ((int) checksum.getValue() != in.getInt(trailer)) {
+        throw new IOException("Snapshot " + path + " fails its checksum");
+      }
+      if (in.getInt() != MAGIC) {
+        throw new IOException(path + " is not a snapshot");
+      }
+      short version = in.getShort();
+      if (version != VERSION) {
+        throw new IOException("Snapshot " + path + " has unsupported version " + version);
+      }
+      in.getLong();
+      int bookCount = in.getInt();
+      List<BookSnapshot> books = new ArrayList<>(bookCount);
+      for (int i = 0; i < bookCount; i++) {
+        books.add(readBook(in));
+      }
+      return books;
+    }
+  }
+
+  private static BookSnapshot readBook(MappedByteBuffer in) {
+    String symbol = readString(in);
+    long journalSequence = in.getLong();
+    long nextTradeSequence = in.getLong();
+    BigDecimal lastTradePrice = in.get() != 0 ? readPrice(in) : null;
+
+    List<OrderState> resting = new ArrayList<>();
+    int runs = in.getInt();
+    for (int i = 0; i < runs; i++) {
+      OrderType side = SIDES[in.get()];
+      BigDecimal price = readPrice(in);
+      int orderCount = in.getInt();
+      for (int j = 0; j < orderCount; j++) {
+        resting.add(readOrder(in, symbol, side, price, true));
+      }
+    }
+
+    List<OrderState> completed = readOrders(in, symbol, true);
+    List<OrderState> pendingStops = readOrders(in, symbol, false);
+    return new BookSnapshot(
+        symbol,
+        journalSequence,
+        nextTradeSequence,
+        lastTradePrice,
+        resting,
+        completed,
+        pendingStops);
+  }
+
+  private static List<OrderState> readOrders(
+      MappedByteBuffer in, String symbol, boolean triggered) {
+    int count = in.getInt();
+    List<OrderState> orders = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      OrderType side = SIDES[in.get()];
+      orders.add(readOrder(in, symbol, side, readPrice(in), triggered));
+    }
+    return orders;
+  }
+
+  /**
+   * Reads one order.
+   *
+   * @param triggered whether a stop order among these has been triggered: true for resting and
+   *     completed orders, false for dormant stops
+   */
+  private static OrderState readOrder(
+      MappedByteBuffer in, String symbol, OrderType side, BigDecimal price, boolean triggered) {
+    UUID id = new UUID(in.getLong(), in.getLong());
+    int quantity = in.getInt();
+    int unfilledQuantity = in.getInt();
+    OrderKind kind = KINDS[in.get()];
+    BigDecimal stopPrice = kind.hasStopPrice() ? readPrice(in) : null;
+    triggered &= kind.hasStopPrice();
+    TimeInForce timeInForce = TIME_IN_FORCES[in.get()];
+    long expireTime = in.getLong();
+    OrderStatus status = STATUSES[in.get()];
+    String account = readString(in);
+    return new OrderState(
+        id,
+        symbol,
+        side,
+        kind == OrderKind.MARKET ? null : price,
+        quantity,
+        unfilledQuantity,
+        kind,
+        stopPrice,
+        triggered,
+        timeInForce,
+        expireTime,
+        status,
+        account.isEmpty() ? null : account);
+  }
+
+  private static String readString(MappedByteBuffer in) {
+    byte[] bytes = new byte[in.getInt()];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static BigDecimal readPrice(MappedByteBuffer in) {
+    int scale = in.getInt();
+    byte[] unscaled = new byte[in.getInt()];
+    in.get(unscaled);
+    return new BigDecimal(new BigInteger(unscaled), scale);
+  }
+}
@@ -0,0 +1,21 @@
+package com.trading.orderbook.snapshot;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures order book snapshots.
+ *
+ * @param enabled whether snapshots are written and restored on startup
+ * @param directory the directory snapshots are written to
+ * @param interval the time between scheduled snapshots, or zero to only write them on demand
+ * @param retain the number of most recent snapshots to keep
+ */
+@ConfigurationProperties(prefix = "orderbook.snapshot")
+public record SnapshotProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("data/snapshots") Path directory,
+    @DefaultValue("0s") Duration interval,
+    @DefaultValue("3") int retain) {}
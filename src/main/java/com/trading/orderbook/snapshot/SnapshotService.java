@@ -0,0 +1,227 @@
+package com.trading.orderbook.snapshot;
+
+import com.trading.orderbook.journal.CommandJournal;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderState;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes binary snapshots of every order book, on a schedule or on demand, and restores the newest
+ * intact snapshot on startup.
+ *
+ * <p>Each book is copied by a command on the executor that owns it, so the copy is consistent and
+ * matching on that book only pauses for the copy. Serialization and disk writes happen afterwards,
+ * outside any book. With the journal enabled, each book records the last journaled command applied
+ * to it, and only the journal tail after that is replayed on startup.
+ */
+@Service
+@ConditionalOnProperty(prefix = "orderbook.snapshot", name = "enabled", havingValue = "true")
+public class SnapshotService implements SmartLifecycle {
+  private static final Logger logger = Logger.getLogger(SnapshotService.class.getName());
+
+  /** Runs after the sequencer and before the journal replayer. */
+  public static final int PHASE = 900;
+
+  private static final String PREFIX = "snapshot-";
+  private static final String SUFFIX = ".bin";
+
+  private final SnapshotProperties properties;
+  private final OrderBookService orderBookService;
+  private final OrderService orderService;
+  private final Map<String, Long> restoredSequences = new HashMap<>();
+  private CommandJournal journal;
+  private ScheduledExecutorService scheduler;
+  private volatile boolean running;
+
+  public SnapshotService(
+      SnapshotProperties properties, OrderBookService orderBookService, OrderService orderService) {
+    this.properties = properties;
+    this.orderBookService = orderBookService;
+    this.orderService = orderService;
+  }
+
+  /**
+   * Records journal positions in snapshots, so startup only replays the journal tail.
+   *
+   * @param journal the command journal
+   */
+  @Autowired(required = false)
+  public void setJournal(CommandJournal journal) {
+    this.journal = journal;
+  }
+
+  @Override
+  public void start() {
+    restoreNewest();
+    if (properties.interval().isPositive()) {
+      scheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+              });
+      long interval = properties.interval().toMillis();
+      scheduler.scheduleWithFixedDelay(
+          this::scheduledSnapshot, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  /**
+   * Returns the sequence of the last journaled command contained in the restored snapshot of a
+   * symbol. Journaled commands for the symbol up to this sequence must not be replayed.
+   *
+   * @param symbol the symbol of the order book
+   * @return the last restored sequence, or 0 if the symbol was not restored
+   */
+  public synchronized long restoredSequence(String symbol) {
+    return restoredSequences.getOrDefault(symbol, 0L);
+  }
+
+  /**
+   * Writes a snapshot of every order book and deletes snapshots beyond the retention count.
+   *
+   * @return the snapshot file
+   */
+  public synchronized Path snapshot() {
+    List<BookSnapshot> books = new ArrayList<>();
+    for (String symbol : orderBookService.getSymbols()) {
+      books.add(
+          orderService.execute(
+              symbol,
+              book ->
+                  new BookSnapshot(
+                      symbol,
+                      journal == null ? 0 : journal.lastSequence(),
+                      book.getTrades().nextSequence(),
+                      book.getLastTradePrice(),
+                      book.restingOrders(),
+                      orderService.completedOrders(symbol),
+                      book.pendingStops())));
+    }
+    long createdAt = System.currentTimeMillis();
+    Path path =
+        properties.directory().resolve(String.format("%s%019d%s", PREFIX, createdAt, SUFFIX));
+    try {
+      Files.createDirectories(properties.directory());
+      SnapshotFile.write(path, createdAt, books);
+      List<Path> snapshots = list();
+      for (Path old : snapshots.subList(0, Math.max(0, snapshots.size() - properties.retain()))) {
+        Files.deleteIfExists(old);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write snapshot " + path, e);
+    }
+    logger.info("Wrote snapshot " + path + " of " + books.size() + " order books");
+    return path;
+  }
+
+  private void scheduledSnapshot() {
+    try {
+      snapshot();
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Scheduled snapshot failed", e);
+    }
+  }
+
+  private synchronized void restoreNewest() {
+    List<Path> snapshots;
+    try {
+      snapshots = list();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not list snapshots", e);
+    }
+    for (int i = snapshots.size() - 1; i >= 0; i--) {
+      List<BookSnapshot> books;
+      try {
+        books = SnapshotFile.read(snapshots.get(i));
+      } catch (IOException | RuntimeException e) {
+        // a snapshot that passes its checksum but cannot be parsed is skipped all the same
+        logger.log(Level.WARNING, "Skipping unreadable snapshot " + snapshots.get(i), e);
+        continue;
+      }
+      books.forEach(this::restore);
+      logger.info("Restored " + books.size() + " order books from " + snapshots.get(i));
+      return;
+    }
+  }
+
+  private void restore(BookSnapshot snapshot) {
+    orderService.execute(
+        snapshot.symbol(),
+        book -> {
+          book.restoreTradeSequence(snapshot.nextTradeSequence());
+          book.restoreLastTradePrice(snapshot.lastTradePrice());
+          for (OrderState state : snapshot.restingOrders()) {
+            Order order = state.toOrder();
+            book.restoreRestingOrder(order);
+            orderService.restoreOrder(order);
+          }
+          for (OrderState state : snapshot.completedOrders()) {
+            orderService.restoreOrder(state.toOrder());
+          }
+          for (OrderState state : snapshot.pendingStops()) {
+            Order order = state.toOrder();
+            book.restorePendingStop(order);
+            orderService.restoreOrder(order);
+          }
+          return null;
+        });
+    restoredSequences.put(snapshot.symbol(), snapshot.journalSequence());
+  }
+
+  /** Lists the snapshot files, oldest first. */
+  private List<Path> list() throws IOException {
+    if (!Files.isDirectory(properties.directory())) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(properties.directory())) {
+      return files
+          .filter(
+              file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+              })
+          .sorted()
+          .toList();
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.trading.orderbook.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.controller.AdmissionExceptionHandler;
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.model.OrderResult;
+import com.trading.orderbook.model.OrderStatus;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+class AdmissionControlTest {
+
+  private final OrderBookService orderBookService = new OrderBookService();
+  private final OrderService orderService = new OrderService(orderBookService);
+  private final AdmissionControl admissionControl =
+      new AdmissionControl(new AdmissionProperties(true, 1, Duration.ofMillis(1500)));
+
+  @Test
+  void commandsBeyondTheLimitAreRejectedWhileCancelsGetThrough() throws Exception {
+    orderService.setAdmissionControl(admissionControl);
+    Order resting = orderService.createOrder(new BidOrder("AAPL", BigDecimal.ONE, 1));
+    assertEquals(0, admissionControl.getPending("AAPL"));
+
+    ReentrantLock lock = orderBookService.getOrderBook("AAPL").getLock();
+    lock.lock();
+    Thread blocked;
+    try {
+      // a virtual thread waiting for the book is parked, not pinned to its carrier
+      blocked =
+          Thread.ofVirtual()
+              .start(() -> orderService.createOrder(new BidOrder("AAPL", BigDecimal.ONE, 2)));
+      awaitPending("AAPL", 1);
+
+      AdmissionRejectedException rejected =
+          assertThrows(
+              AdmissionRejectedException.class,
+              () -> orderService.createOrder(new BidOrder("AAPL", BigDecimal.ONE, 3)));
+      assertEquals("AAPL", rejected.getSymbol());
+      assertThrows(
+          AdmissionRejectedException.class,
+          () -> orderService.amendOrder(resting.getId().toString(), BigDecimal.ONE, 2));
+      // other symbols are not affected
+      orderService.createOrder(new BidOrder("MSFT", BigDecimal.ONE, 1));
+
+      orderService.cancelOrder(resting.getId().toString());
+    } finally {
+      lock.unlock();
+    }
+    blocked.join();
+    assertEquals(0, admissionControl.getPending("AAPL"));
+    OrderBook orderBook = orderBookService.getOrderBook("AAPL");
+    assertEquals(1, orderBook.orderbookDepth().size());
+  }
+
+  @Test
+  void aBatchIsAdmittedPerBook() throws Exception {
+    orderService.setAdmissionControl(admissionControl);
+    ReentrantLock lock = orderBookService.getOrderBook("AAPL").getLock();
+    lock.lock();
+    Thread blocked;
+    List<OrderResult> results;
+    try {
+      blocked =
+          Thread.ofVirtual()
+              .start(() -> orderService.createOrder(new BidOrder("AAPL", BigDecimal.ONE, 1)));
+      awaitPending("AAPL", 1);
+
+      results =
+          orderService.createOrders(
+              List.of(
+                  new BidOrder("AAPL", BigDecimal.ONE, 2),
+                  new BidOrder("MSFT", BigDecimal.ONE, 2),
+                  new BidOrder("AAPL", BigDecimal.ONE, 3)));
+    } finally {
+      lock.unlock();
+    }
+    blocked.join();
+    assertEquals(OrderStatus.REJECTED, results.get(0).order().getStatus());
+    assertEquals(OrderStatus.OPEN, results.get(1).order().getStatus());
+    assertEquals(OrderStatus.REJECTED, results.get(2).order().getStatus());
+    assertEquals(1, orderBookService.getOrderBook("AAPL").orderbookDepth().size());
+  }
+
+  @Test
+  void rejectionsBecomeTooManyRequestsWithARetryHint() {
+    ResponseEntity<?> response =
+        new AdmissionExceptionHandler()
+            .handleRejected(new AdmissionRejectedException("AAPL", Duration.ofMillis(1500)));
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+    assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+    response =
+        new AdmissionExceptionHandler()
+            .handleRejected(new AdmissionRejectedException("AAPL", Duration.ZERO));
+    assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+  }
+
+  private void awaitPending(String symbol, int count) throws InterruptedException {
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (admissionControl.getPending(symbol) < count && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertTrue(admissionControl.getPending(symbol) >= count, "command was not admitted in time");
+  }
+}
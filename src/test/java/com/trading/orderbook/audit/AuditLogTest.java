@@ -0,0 +1,138 @@
+package com.trading.orderbook.audit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AuditLogTest {
+
+  @TempDir Path directory;
+
+  private final OrderBookService orderBookService = new OrderBookService();
+
+  private AuditLog auditLog(AuditLevel level, int sampleRate, int bufferSize, long maxFileSize) {
+    return new AuditLog(
+        new AuditProperties(true, level, sampleRate, directory, bufferSize, maxFileSize, 2),
+        orderBookService);
+  }
+
+  @Test
+  void ordersAndTradesAreWrittenAfterEachCommand() throws Exception {
+    AuditLog auditLog = auditLog(AuditLevel.TRADES, 1, 1024, 1 << 20);
+    OrderService orderService = new OrderService(orderBookService);
+    orderService.setAuditLog(auditLog);
+    orderBookService.getOrderBook("AAPL");
+    auditLog.start();
+
+    Order bid = orderService.createOrder(new BidOrder("AAPL", new BigDecimal("100.5"), 5));
+    Order offer = orderService.createOrder(new OfferOrder("AAPL", new BigDecimal("100"), 3));
+    orderService.cancelOrder(bid.getId().toString());
+    auditLog.stop();
+
+    List<AuditRecord> orders = new ArrayList<>();
+    List<AuditRecord> trades = new ArrayList<>();
+    for (Path file : AuditFile.list(directory)) {
+      AuditFile.read(
+          file, record -> (record.event() == AuditEvent.TRADE ? trades : orders).add(record));
+    }
+    assertEquals(3, orders.size());
+    assertEquals(List.of(0L, 1L, 2L), orders.stream().map(AuditRecord::sequence).toList());
+    AuditRecord created = orders.get(0);
+    assertEquals(AuditEvent.CREATED, created.event());
+    assertEquals("AAPL", created.symbol());
+    assertEquals(bid.getId(), created.orderId());
+    assertEquals(OrderType.BUY, created.side());
+    assertEquals(new BigDecimal("100.5"), created.price());
+    assertEquals(5, created.quantity());
+    assertEquals(5, created.unfilledQuantity());
+    assertNull(created.counterpartyOrderId());
+    assertEquals(offer.getId(), orders.get(1).orderId());
+    assertEquals(0, orders.get(1).unfilledQuantity());
+    AuditRecord cancelled = orders.get(2);
+    assertEquals(AuditEvent.CANCELLED, cancelled.event());
+    assertEquals(3, cancelled.quantity());
+    assertEquals(0, cancelled.unfilledQuantity());
+
+    assertEquals(1, trades.size());
+    AuditRecord trade = trades.get(0);
+    assertEquals(0, trade.sequence());
+    assertEquals(offer.getId(), trade.orderId());
+    assertEquals(bid.getId(), trade.counterpartyOrderId());
+    assertEquals(OrderType.SELL, trade.side());
+    assertEquals(new BigDecimal("100.5"), trade.price());
+    assertEquals(3, trade.quantity());
+    assertEquals(4, auditLog.getWritten());
+  }
+
+  @Test
+  void unsampledAndOverflowingEventsAreSkipped() {
+    AuditLog auditLog = auditLog(AuditLevel.ORDERS, 2, 2, 1 << 20);
+    Order sampled = new BidOrder(new UUID(0, 2), "AAPL", BigDecimal.ONE, 1);
+    Order unsampled = new BidOrder(new UUID(0, 1), "AAPL", BigDecimal.ONE, 1);
+
+    // the writer is not running, so only two events fit
+    auditLog.record(AuditEvent.CREATED, unsampled);
+    auditLog.record(AuditEvent.CREATED, sampled);
+    auditLog.record(AuditEvent.AMENDED, sampled);
+    assertEquals(0, auditLog.getDropped());
+    auditLog.record(AuditEvent.CANCELLED, sampled);
+    assertEquals(1, auditLog.getDropped());
+
+    auditLog.setLevel(AuditLevel.OFF);
+    auditLog.record(AuditEvent.CANCELLED, sampled);
+    assertEquals(1, auditLog.getDropped());
+  }
+
+  @Test
+  void filesRollOverAndOldFilesAreDeleted() throws Exception {
+    AuditLog auditLog = auditLog(AuditLevel.ORDERS, 1, 16, 1);
+    auditLog.start();
+    for (int i = 1; i <= 3; i++) {
+      auditLog.record(AuditEvent.CREATED, new BidOrder("AAPL", BigDecimal.ONE, i));
+      awaitWritten(auditLog, i);
+    }
+    auditLog.stop();
+
+    List<Path> files = AuditFile.list(directory);
+    assertEquals(List.of(AuditFile.name(1), AuditFile.name(2)), names(files));
+    List<Integer> quantities = new ArrayList<>();
+    for (Path file : files) {
+      AuditFile.read(file, record -> quantities.add(record.quantity()));
+    }
+    assertEquals(List.of(2, 3), quantities);
+
+    // a restarted log continues after the existing files
+    auditLog = auditLog(AuditLevel.ORDERS, 1, 16, 1);
+    auditLog.start();
+    auditLog.record(AuditEvent.CREATED, new BidOrder("AAPL", BigDecimal.ONE, 4));
+    awaitWritten(auditLog, 1);
+    auditLog.stop();
+    assertEquals(List.of(AuditFile.name(2), AuditFile.name(3)), names(AuditFile.list(directory)));
+  }
+
+  private static void awaitWritten(AuditLog auditLog, long count) throws InterruptedException {
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (auditLog.getWritten() < count && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertTrue(auditLog.getWritten() >= count, "audit events were not written in time");
+  }
+
+  private static List<String> names(List<Path> files) {
+    return files.stream().map(file -> file.getFileName().toString()).toList();
+  }
+}
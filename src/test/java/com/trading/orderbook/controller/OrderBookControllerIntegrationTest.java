@@ -133,4 +133,83 @@ public class OrderBookControllerIntegrationTest {
     }
 
 
+    @Test
+    public void testAmendOrderThatCannotBeAmended() throws Exception {
+        testOrder = orderService.createOrder(new BidOrder("AMEND", new BigDecimal("150.00"), 10));
+        orderService.createOrder(new OfferOrder("AMEND", new BigDecimal("150.00"), 4));
+
+        //the quantity must exceed the 4 already filled
+        mockMvc.perform(patch("/api/orders/" + testOrder.getId()).param("price", "150.00").param("quantity", "4"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+
+        //a filled order no longer rests in the book
+        orderService.createOrder(new OfferOrder("AMEND", new BigDecimal("150.00"), 6));
+        mockMvc.perform(patch("/api/orders/" + testOrder.getId()).param("price", "150.00").param("quantity", "20"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    public void testCreateOrderWithoutAPositiveQuantity() throws Exception {
+        mockMvc.perform(post("/api/orders").param("symbol", "QTY").param("type", "BUY")
+                        .param("price", "100.00").param("quantity", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+        mockMvc.perform(post("/api/orders").param("symbol", "QTY").param("type", "BUY")
+                        .param("price", "100.00").param("quantity", "-5"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+
+        mockMvc.perform(get("/api/order-books/QTY"))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void testCreateOrdersInBatch() throws Exception {
+        String batch = """
+                [{"symbol": "BATCH", "type": "SELL", "price": 10.00, "quantity": 5},
+                 {"symbol": "BATCH2", "type": "SELL", "price": 20.00, "quantity": 2},
+                 {"symbol": "BATCH", "type": "BUY", "price": 10.00, "quantity": 3}]""";
+        mockMvc.perform(post("/api/orders/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].order.status").value("PARTIALLY_FILLED"))
+                .andExpect(jsonPath("$[0].fills.length()").value(0))
+                .andExpect(jsonPath("$[1].order.symbol").value("BATCH2"))
+                .andExpect(jsonPath("$[2].order.status").value("FILLED"))
+                .andExpect(jsonPath("$[2].fills.length()").value(1))
+                .andExpect(jsonPath("$[2].fills[0].quantity").value(3))
+                .andExpect(jsonPath("$[2].fills[0].makerOrderId").exists());
+
+    }
+
+    @Test
+    public void testInvalidOrdersOfABatchAreRejectedOnTheirOwn() throws Exception {
+        String batch = """
+                [{"symbol": "CHECKED", "price": 10.00, "quantity": 5},
+                 {"type": "SELL", "price": 10.00, "quantity": 5},
+                 {"symbol": "CHECKED", "type": "HOLD", "price": 10.00, "quantity": 5},
+                 {"symbol": "CHECKED", "type": "BUY", "kind": "STOP", "quantity": 5},
+                 {"symbol": "CHECKED", "type": "BUY", "price": 10.00},
+                 {"symbol": "CHECKED", "type": "SELL", "price": 10.00, "quantity": 5}]""";
+        mockMvc.perform(post("/api/orders/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(6))
+                .andExpect(jsonPath("$[0].order").doesNotExist())
+                .andExpect(jsonPath("$[0].request.symbol").value("CHECKED"))
+                .andExpect(jsonPath("$[0].error").exists())
+                .andExpect(jsonPath("$[1].order.status").value("REJECTED"))
+                .andExpect(jsonPath("$[1].order.type").value("SELL"))
+                .andExpect(jsonPath("$[1].request").doesNotExist())
+                .andExpect(jsonPath("$[2].order").doesNotExist())
+                .andExpect(jsonPath("$[2].request.type").value("HOLD"))
+                .andExpect(jsonPath("$[3].order").doesNotExist())
+                .andExpect(jsonPath("$[3].request.kind").value("STOP"))
+                .andExpect(jsonPath("$[3].fills.length()").value(0))
+                .andExpect(jsonPath("$[4].order.status").value("REJECTED"))
+                .andExpect(jsonPath("$[4].fills.length()").value(0))
+                .andExpect(jsonPath("$[5].order.status").value("OPEN"));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+package com.trading.orderbook.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.model.OrderType;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class MatchingEngineTest {
+
+  private final MatchingEngine engine = new MatchingEngine("AAPL", 1024, 16);
+  private final Fills fills = new Fills(2);
+
+  @Test
+  void ordersFillInPriceThenTimePriorityAtTheRestingPrice() {
+    long first = engine.submit(OrderType.SELL, 101, 5, fills);
+    long second = engine.submit(OrderType.SELL, 101, 5, fills);
+    long better = engine.submit(OrderType.SELL, 100, 3, fills);
+    assertEquals(0, fills.count());
+
+    long taker = engine.submit(OrderType.BUY, 102, 10, fills);
+
+    assertEquals(taker, fills.takerOrderId());
+    assertEquals(3, fills.count());
+    assertEquals(10, fills.totalQuantity());
+    assertEquals(better, fills.makerOrderId(0));
+    assertEquals(100, fills.priceTicks(0));
+    assertEquals(first, fills.makerOrderId(1));
+    assertEquals(5, fills.quantity(1));
+    assertEquals(second, fills.makerOrderId(2));
+    assertEquals(2, fills.quantity(2));
+    assertEquals(3, engine.quantityAt(OrderType.SELL, 101));
+    assertEquals(101, engine.bestPrice(OrderType.SELL));
+    assertEquals(0, engine.bestPrice(OrderType.BUY));
+    assertEquals(1, engine.restingOrderCount());
+  }
+
+  @Test
+  void unfilledRemainderRestsAndCanBeCancelled() {
+    engine.submit(OrderType.BUY, 99, 4, fills);
+    long remainder = engine.submit(OrderType.SELL, 99, 10, fills);
+
+    OrderFlyweight order = new OrderFlyweight();
+    assertTrue(engine.order(remainder, order));
+    assertEquals(OrderType.SELL, order.side());
+    assertEquals(10, order.quantity());
+    assertEquals(6, order.unfilledQuantity());
+    assertEquals(6, engine.quantityAt(OrderType.SELL, 99));
+
+    assertTrue(engine.cancel(remainder));
+    assertFalse(engine.cancel(remainder));
+    assertFalse(engine.order(remainder, order));
+    assertEquals(0, engine.quantityAt(OrderType.SELL, 99));
+    assertEquals(0, engine.restingOrderCount());
+  }
+
+  @Test
+  void amendsKeepPriorityOnlyForReductionsAtTheSamePrice() {
+    long first = engine.submit(OrderType.SELL, 101, 5, fills);
+    long second = engine.submit(OrderType.SELL, 101, 5, fills);
+    engine.submit(OrderType.BUY, 101, 2, fills);
+
+    assertTrue(engine.amend(first, 101, 4, fills));
+    assertEquals(0, fills.count());
+    assertEquals(7, engine.quantityAt(OrderType.SELL, 101));
+    assertThrows(IllegalArgumentException.class, () -> engine.amend(first, 101, 2, fills));
+
+    assertTrue(engine.amend(second, 101, 6, fills));
+    engine.submit(OrderType.BUY, 101, 2, fills);
+    assertEquals(first, fills.makerOrderId(0));
+
+    // crossing the bids fills the amended order like a new one
+    engine.submit(OrderType.BUY, 99, 3, fills);
+    assertTrue(engine.amend(second, 99, 4, fills));
+    assertEquals(3, fills.totalQuantity());
+    assertEquals(second, fills.takerOrderId());
+    assertEquals(1, engine.quantityAt(OrderType.SELL, 99));
+    assertFalse(engine.amend(first, 101, 4, fills));
+  }
+
+  @Test
+  void callerIdsKeepTheirTagAndAccountAndRestoredOrdersKeepTheirQueue() {
+    assertEquals(5, engine.submit(42, 7, 3, OrderType.BUY, 100, 5, true, fills));
+    assertEquals(0, engine.submit(43, 8, 0, OrderType.SELL, 100, 1, false, fills));
+    assertEquals(7, fills.makerTag(0));
+    assertEquals(3, fills.makerAccount(0));
+    assertEquals(4, fills.makerUnfilledQuantity(0));
+    assertEquals(1, engine.restingOrderCount());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> engine.submit(42, 0, 0, OrderType.BUY, 100, 1, true, fills));
+
+    engine.restore(44, 9, 1, OrderType.BUY, 100, 6, 2);
+    engine.restore(45, 9, 1, OrderType.BUY, 98, 1, 1);
+    assertEquals(2, engine.orderCountAt(OrderType.BUY, 100));
+    assertEquals(2, engine.levelCount(OrderType.BUY));
+    assertEquals(98, engine.nextPrice(OrderType.BUY, 100));
+    assertEquals(0, engine.nextPrice(OrderType.BUY, 98));
+    List<Long> ids = new ArrayList<>();
+    engine.forEachOrder(OrderType.BUY, order -> ids.add(order.id()));
+    assertEquals(List.of(42L, 44L, 45L), ids);
+
+    OrderFlyweight order = new OrderFlyweight();
+    assertTrue(engine.order(44, order));
+    assertEquals(9, order.tag());
+    assertEquals(1, order.account());
+    assertEquals(6, order.quantity());
+    assertEquals(2, order.unfilledQuantity());
+  }
+
+  @Test
+  void exhaustedPoolRejectsOrdersBeforeTheyTrade() {
+    MatchingEngine small = new MatchingEngine("AAPL", 2, 4);
+    small.submit(OrderType.SELL, 100, 1, fills);
+    small.submit(OrderType.SELL, 101, 1, fills);
+    assertTrue(small.isFull());
+    assertThrows(IllegalStateException.class, () -> small.submit(OrderType.BUY, 101, 2, fills));
+    assertEquals(2, small.restingOrderCount());
+    assertThrows(IllegalArgumentException.class, () -> small.submit(OrderType.BUY, 0, 2, fills));
+  }
+
+  @Test
+  void ordersBeyondThePriceSpanAreRefusedBeforeTheyTrade() {
+    long far = 100 + MatchingEngine.MAX_PRICE_SPAN;
+    long bid = engine.submit(OrderType.BUY, 100, 4, fills);
+    long offer = engine.submit(OrderType.SELL, far, 1, fills);
+    assertFalse(engine.isFull());
+
+    // would fill the bid and rest the rest at 100, too far from the offer
+    assertThrows(
+        IllegalArgumentException.class, () -> engine.submit(OrderType.SELL, 100, 6, fills));
+    assertThrows(IllegalArgumentException.class, () -> engine.checkPrice(OrderType.SELL, 100));
+    assertThrows(IllegalArgumentException.class, () -> engine.amend(bid, far, 4, fills));
+    assertEquals(4, engine.quantityAt(OrderType.BUY, 100));
+    assertEquals(2, engine.restingOrderCount());
+
+    // an order that does not rest never stretches its side
+    engine.submit(7, 0, 0, OrderType.SELL, 100, 6, false, fills);
+    assertEquals(bid, fills.makerOrderId(0));
+    assertTrue(engine.cancel(offer));
+    engine.submit(OrderType.SELL, 100, 1, fills);
+    assertEquals(100, engine.bestPrice(OrderType.SELL));
+  }
+
+  @Test
+  void ladderGrowsWithThePriceRangeAndKeepsQueues() {
+    long low = engine.submit(OrderType.BUY, 1_000, 1, fills);
+    long high = engine.submit(OrderType.BUY, 1_500, 2, fills);
+    engine.submit(OrderType.BUY, 1_000, 3, fills);
+    assertEquals(1_500, engine.bestPrice(OrderType.BUY));
+    assertEquals(4, engine.quantityAt(OrderType.BUY, 1_000));
+
+    engine.submit(OrderType.SELL, 900, 3, fills);
+    assertEquals(high, fills.makerOrderId(0));
+    assertEquals(low, fills.makerOrderId(1));
+    assertEquals(1_000, engine.bestPrice(OrderType.BUY));
+    assertEquals(3, engine.quantityAt(OrderType.BUY, 1_000));
+  }
+
+  @Test
+  void randomFlowMatchesAReferenceCountOfRestingQuantity() {
+    SplittableRandom random = new SplittableRandom(7);
+    long[] ids = new long[512];
+    long submitted = 0;
+    long filled = 0;
+    long cancelled = 0;
+    OrderFlyweight order = new OrderFlyweight();
+    for (int i = 0; i < 100_000; i++) {
+      int index = random.nextInt(ids.length);
+      if (ids[index] != 0 && engine.order(ids[index], order)) {
+        cancelled += order.unfilledQuantity();
+        assertTrue(engine.cancel(ids[index]));
+      }
+      long quantity = 1 + random.nextInt(50);
+      OrderType side = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+      ids[index] = engine.submit(side, 990 + random.nextInt(21), quantity, fills);
+      submitted += quantity;
+      filled += 2 * fills.totalQuantity();
+      assertTrue(
+          engine.bestPrice(OrderType.BUY) == 0
+              || engine.bestPrice(OrderType.SELL) == 0
+              || engine.bestPrice(OrderType.BUY) < engine.bestPrice(OrderType.SELL));
+    }
+    long resting = 0;
+    for (long ticks = 990; ticks <= 1010; ticks++) {
+      resting += engine.quantityAt(OrderType.BUY, ticks) + engine.quantityAt(OrderType.SELL, ticks);
+    }
+    assertEquals(submitted, filled + cancelled + resting);
+  }
+
+  @Test
+  void steadyStateSubmitMatchAndCancelDoNotAllocate() {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Fills sized = new Fills(64);
+    long[] ids = new long[256];
+    for (int round = 0; round < 2; round++) {
+      long before = threads.getCurrentThreadAllocatedBytes();
+      for (int i = 0; i < 200_000; i++) {
+        int index = i & (ids.length - 1);
+        engine.cancel(ids[index]);
+        OrderType side = (i & 1) == 0 ? OrderType.BUY : OrderType.SELL;
+        ids[index] = engine.submit(side, 995 + (i * 7) % 11, 1 + i % 13, sized);
+      }
+      long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+      if (round == 1) {
+        assertEquals(0, allocated);
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.trading.orderbook.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.model.OrderType;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class OffHeapMatchingEngineTest {
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private final MatchingEngine engine = new MatchingEngine("AAPL", 1024, 16, OrderStorage.OFF_HEAP);
+  private final Fills fills = new Fills(64);
+
+  @AfterEach
+  void close() {
+    engine.close();
+  }
+
+  @Test
+  void offHeapEngineMatchesExactlyLikeTheHeapEngine() {
+    MatchingEngine heap = new MatchingEngine("AAPL", 1024, 16);
+    Fills heapFills = new Fills(64);
+    SplittableRandom random = new SplittableRandom(11);
+    long[] ids = new long[512];
+    OrderFlyweight order = new OrderFlyweight();
+    OrderFlyweight heapOrder = new OrderFlyweight();
+    for (int i = 0; i < 100_000; i++) {
+      int index = random.nextInt(ids.length);
+      if (ids[index] != 0) {
+        assertEquals(heap.order(ids[index], heapOrder), engine.order(ids[index], order));
+        assertEquals(heap.cancel(ids[index]), engine.cancel(ids[index]));
+      }
+      OrderType side = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+      long price = 990 + random.nextInt(21);
+      long quantity = 1 + random.nextInt(50);
+      ids[index] = engine.submit(side, price, quantity, fills);
+      assertEquals(heap.submit(side, price, quantity, heapFills), ids[index]);
+      assertEquals(heapFills.count(), fills.count());
+      for (int fill = 0; fill < fills.count(); fill++) {
+        assertEquals(heapFills.makerOrderId(fill), fills.makerOrderId(fill));
+        assertEquals(heapFills.priceTicks(fill), fills.priceTicks(fill));
+        assertEquals(heapFills.quantity(fill), fills.quantity(fill));
+      }
+    }
+    assertEquals(heap.restingOrderCount(), engine.restingOrderCount());
+    for (long ticks = 990; ticks <= 1010; ticks++) {
+      assertEquals(heap.quantityAt(OrderType.BUY, ticks), engine.quantityAt(OrderType.BUY, ticks));
+      assertEquals(
+          heap.quantityAt(OrderType.SELL, ticks), engine.quantityAt(OrderType.SELL, ticks));
+    }
+    for (long id : ids) {
+      if (engine.order(id, order)) {
+        assertTrue(heap.order(id, heapOrder));
+        assertEquals(heapOrder.side(), order.side());
+        assertEquals(heapOrder.priceTicks(), order.priceTicks());
+        assertEquals(heapOrder.quantity(), order.quantity());
+        assertEquals(heapOrder.unfilledQuantity(), order.unfilledQuantity());
+      }
+    }
+  }
+
+  @Test
+  void deepBookKeepsTheHeapFlat() {
+    int depth = 1_000_000;
+    long before = THREADS.getCurrentThreadAllocatedBytes();
+    try (MatchingEngine deep = new MatchingEngine("MSFT", depth + 1, 1024, OrderStorage.OFF_HEAP)) {
+      for (int i = 0; i < depth; i++) {
+        deep.submit(OrderType.BUY, 1 + i % 1000, 10, fills);
+      }
+      long allocated = THREADS.getCurrentThreadAllocatedBytes() - before;
+      assertEquals(depth, deep.restingOrderCount());
+      // a heap engine of this depth takes 80 MB for its records and index alone
+      assertTrue(allocated < 1 << 20, "allocated " + allocated + " bytes");
+
+      deep.submit(OrderType.SELL, 1000, 25, fills);
+      assertEquals(3, fills.count());
+      assertEquals(1000, fills.priceTicks(0));
+      assertEquals(depth - 2, deep.restingOrderCount());
+    }
+  }
+
+  @Test
+  void closingFreesTheOrdersAndInvalidatesHandles() {
+    long id = engine.submit(OrderType.SELL, 101, 5, fills);
+    OrderFlyweight order = new OrderFlyweight();
+    assertTrue(engine.order(id, order));
+    assertEquals(5, order.unfilledQuantity());
+
+    engine.close();
+    assertThrows(IllegalStateException.class, order::unfilledQuantity);
+    assertThrows(IllegalStateException.class, () -> engine.cancel(id));
+    assertThrows(IllegalStateException.class, () -> engine.submit(OrderType.BUY, 101, 5, fills));
+    engine.close();
+  }
+}
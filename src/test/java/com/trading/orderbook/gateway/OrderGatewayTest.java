@@ -0,0 +1,281 @@
+package com.trading.orderbook.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.journal.CommandJournal;
+import com.trading.orderbook.journal.FsyncPolicy;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.OrderStatus;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.replication.ReplicationNode;
+import com.trading.orderbook.replication.ReplicationProperties;
+import com.trading.orderbook.replication.ReplicationRole;
+import com.trading.orderbook.replication.ReplicationTimeoutException;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OrderGatewayTest {
+
+  private final OrderBookService orderBookService = new OrderBookService();
+  private final OrderService orderService = new OrderService(orderBookService);
+  private OrderGateway gateway;
+  private SocketChannel client;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    gateway =
+        new OrderGateway(
+            new GatewayProperties(true, "127.0.0.1", 0, 4096), orderService, orderBookService);
+    gateway.start();
+    client = SocketChannel.open(new InetSocketAddress("127.0.0.1", gateway.getPort()));
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    client.close();
+    gateway.stop();
+  }
+
+  private void send(ByteBuffer request) throws IOException {
+    request.flip();
+    while (request.hasRemaining()) {
+      client.write(request);
+    }
+  }
+
+  private ByteBuffer receive() throws IOException {
+    ByteBuffer length = ByteBuffer.allocate(2);
+    readFully(length);
+    ByteBuffer message = ByteBuffer.allocate(length.getShort(0) & 0xFFFF);
+    readFully(message);
+    return message.flip();
+  }
+
+  private void readFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (client.read(buffer) < 0) {
+        throw new IOException("Connection closed");
+      }
+    }
+  }
+
+  private List<ByteBuffer> receive(int count) throws IOException {
+    List<ByteBuffer> messages = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      messages.add(receive());
+    }
+    return messages;
+  }
+
+  private static List<ByteBuffer> ofType(List<ByteBuffer> messages, byte type) {
+    return messages.stream().filter(message -> message.get(0) == type).toList();
+  }
+
+  @Test
+  void pipelinedRequestsAreAcknowledgedInOrderAndFillsReachBothSides() throws IOException {
+    ByteBuffer requests = ByteBuffer.allocate(512);
+    byte sell = (byte) OrderType.SELL.ordinal();
+    byte buy = (byte) OrderType.BUY.ordinal();
+    GatewayProtocol.putNewOrder(requests, 1, sell, "AAPL", new BigDecimal("100.25"), 10);
+    GatewayProtocol.putNewOrder(requests, 2, buy, "AAPL", new BigDecimal("101"), 4);
+    GatewayProtocol.putAmend(requests, 3, UUID.randomUUID(), BigDecimal.TEN, 1);
+    GatewayProtocol.putCancel(requests, 4, UUID.randomUUID());
+    GatewayProtocol.putNewOrder(requests, 5, buy, "AAPL", BigDecimal.TEN, 0);
+    send(requests);
+
+    List<ByteBuffer> messages = receive(7);
+    List<ByteBuffer> acks = ofType(messages, GatewayProtocol.ACK);
+    assertEquals(2, acks.size());
+    ByteBuffer sellAck = acks.get(0).position(1);
+    assertEquals(1, sellAck.getLong());
+    UUID sellId = GatewayProtocol.getId(sellAck);
+    assertEquals(10, sellAck.getInt());
+    ByteBuffer buyAck = acks.get(1).position(1);
+    assertEquals(2, buyAck.getLong());
+    UUID buyId = GatewayProtocol.getId(buyAck);
+    assertEquals(0, buyAck.getInt());
+
+    List<ByteBuffer> rejects = ofType(messages, GatewayProtocol.REJECT);
+    assertEquals(3, rejects.size());
+    assertEquals(GatewayProtocol.REJECT_UNKNOWN_ORDER, rejects.get(0).get(9));
+    assertEquals(GatewayProtocol.REJECT_UNKNOWN_ORDER, rejects.get(1).get(9));
+    assertEquals(GatewayProtocol.REJECT_INVALID, rejects.get(2).get(9));
+
+    List<ByteBuffer> fills = ofType(messages, GatewayProtocol.FILL);
+    assertEquals(2, fills.size());
+    for (ByteBuffer fill : fills) {
+      fill.position(1);
+      UUID orderId = GatewayProtocol.getId(fill);
+      assertEquals(0, fill.getLong());
+      assertEquals(new BigDecimal("100.25"), GatewayProtocol.getPrice(fill));
+      assertEquals(4, fill.getInt());
+      byte liquidity = fill.get();
+      assertEquals(liquidity == GatewayProtocol.MAKER ? sellId : buyId, orderId);
+    }
+
+    ByteBuffer cancel = ByteBuffer.allocate(64);
+    GatewayProtocol.putCancel(cancel, 6, sellId);
+    send(cancel);
+    ByteBuffer cancelAck = receive();
+    assertEquals(GatewayProtocol.ACK, cancelAck.get());
+    assertEquals(6, cancelAck.getLong());
+    assertEquals(sellId, GatewayProtocol.getId(cancelAck));
+    assertEquals(OrderStatus.FILLED, orderService.getOrderById(sellId.toString()).getStatus());
+    assertEquals(4, orderService.getOrderById(sellId.toString()).getQuantity());
+  }
+
+  @Test
+  void restingOrdersAreFilledByOrdersFromOtherChannels() throws IOException {
+    ByteBuffer request = ByteBuffer.allocate(64);
+    GatewayProtocol.putNewOrder(
+        request, 1, (byte) OrderType.BUY.ordinal(), "MSFT", BigDecimal.valueOf(300), 5);
+    send(request);
+    assertEquals(GatewayProtocol.ACK, receive().get(0));
+
+    orderService.createOrder(new OfferOrder("MSFT", BigDecimal.valueOf(299), 2));
+
+    ByteBuffer fill = receive();
+    assertEquals(GatewayProtocol.FILL, fill.get());
+    GatewayProtocol.getId(fill);
+    fill.getLong();
+    assertEquals(BigDecimal.valueOf(300), GatewayProtocol.getPrice(fill));
+    assertEquals(2, fill.getInt());
+    assertEquals(GatewayProtocol.MAKER, fill.get());
+  }
+
+  @Test
+  void amendedOrdersAreFilledUpToTheirNewQuantity() throws IOException {
+    ByteBuffer request = ByteBuffer.allocate(128);
+    GatewayProtocol.putNewOrder(
+        request, 1, (byte) OrderType.BUY.ordinal(), "MSFT", BigDecimal.valueOf(300), 5);
+    send(request);
+    ByteBuffer ack = receive().position(9);
+    UUID orderId = GatewayProtocol.getId(ack);
+
+    request.clear();
+    GatewayProtocol.putAmend(request, 2, orderId, BigDecimal.valueOf(300), 3);
+    GatewayProtocol.putAmend(request, 3, orderId, BigDecimal.valueOf(300), 0);
+    send(request);
+    ByteBuffer amendAck = receive();
+    assertEquals(GatewayProtocol.ACK, amendAck.get());
+    assertEquals(2, amendAck.getLong());
+    assertEquals(orderId, GatewayProtocol.getId(amendAck));
+    assertEquals(3, amendAck.getInt());
+    ByteBuffer reject = receive();
+    assertEquals(GatewayProtocol.REJECT, reject.get());
+    assertEquals(3, reject.getLong());
+    assertEquals(GatewayProtocol.REJECT_INVALID, reject.get());
+
+    orderService.createOrder(new OfferOrder("MSFT", BigDecimal.valueOf(299), 5));
+    ByteBuffer fill = receive().position(1);
+    assertEquals(orderId, GatewayProtocol.getId(fill));
+    fill.getLong();
+    GatewayProtocol.getPrice(fill);
+    assertEquals(3, fill.getInt());
+  }
+
+  @Test
+  void aConnectionWaitingForItsBookDoesNotHoldUpTheOthers() throws IOException {
+    byte buy = (byte) OrderType.BUY.ordinal();
+    ReentrantLock lock = orderBookService.getOrderBook("SLOW").getLock();
+    lock.lock();
+    try (SocketChannel other =
+        SocketChannel.open(new InetSocketAddress("127.0.0.1", gateway.getPort()))) {
+      ByteBuffer requests = ByteBuffer.allocate(128);
+      GatewayProtocol.putNewOrder(requests, 1, buy, "SLOW", BigDecimal.ONE, 1);
+      GatewayProtocol.putNewOrder(requests, 2, buy, "AAPL", BigDecimal.ONE, 1);
+      send(requests);
+
+      SocketChannel waiting = client;
+      client = other;
+      ByteBuffer request = ByteBuffer.allocate(64);
+      GatewayProtocol.putNewOrder(request, 3, buy, "AAPL", BigDecimal.ONE, 1);
+      send(request);
+      ByteBuffer ack = receive();
+      assertEquals(GatewayProtocol.ACK, ack.get());
+      assertEquals(3, ack.getLong());
+      client = waiting;
+    } finally {
+      lock.unlock();
+    }
+    // the requests of one connection are still answered in order
+    List<ByteBuffer> acks = receive(2);
+    assertEquals(1, acks.get(0).position(1).getLong());
+    assertEquals(2, acks.get(1).position(1).getLong());
+  }
+
+  @Test
+  void requestsTheBackupsDidNotConfirmKeepTheirOrder(@TempDir Path directory) throws IOException {
+    try (CommandJournal journal =
+        new CommandJournal(
+            directory.resolve("commands.journal"), 4096, FsyncPolicy.NONE, 1, Duration.ZERO)) {
+      orderService.setJournal(journal);
+      // a primary without backups never reaches its quorum
+      new ReplicationNode(
+          new ReplicationProperties(
+              true,
+              ReplicationRole.PRIMARY,
+              "localhost",
+              0,
+              "localhost",
+              0,
+              1,
+              Duration.ofMillis(10),
+              Duration.ofMillis(20),
+              Duration.ZERO),
+          journal,
+          orderService);
+
+      ByteBuffer request = ByteBuffer.allocate(64);
+      GatewayProtocol.putNewOrder(
+          request, 1, (byte) OrderType.BUY.ordinal(), "MSFT", BigDecimal.valueOf(300), 5);
+      send(request);
+      ByteBuffer ack = receive();
+      assertEquals(GatewayProtocol.ACK, ack.get());
+      assertEquals(1, ack.getLong());
+      UUID orderId = GatewayProtocol.getId(ack);
+      ByteBuffer unconfirmed = receive();
+      assertEquals(GatewayProtocol.REJECT, unconfirmed.get());
+      assertEquals(1, unconfirmed.getLong());
+      assertEquals(GatewayProtocol.REJECT_UNCONFIRMED, unconfirmed.get());
+
+      assertThrows(
+          ReplicationTimeoutException.class,
+          () -> orderService.createOrder(new OfferOrder("MSFT", BigDecimal.valueOf(300), 2)));
+      ByteBuffer fill = receive().position(1);
+      assertEquals(orderId, GatewayProtocol.getId(fill));
+
+      request.clear();
+      GatewayProtocol.putCancel(request, 2, orderId);
+      send(request);
+      assertEquals(GatewayProtocol.ACK, receive().get());
+      assertEquals(GatewayProtocol.REJECT_UNCONFIRMED, receive().get(9));
+      assertEquals(OrderStatus.FILLED, orderService.getOrderById(orderId.toString()).getStatus());
+    }
+  }
+
+  @Test
+  void malformedMessagesCloseTheConnection() throws IOException {
+    ByteBuffer garbage = ByteBuffer.allocate(8);
+    garbage.putShort((short) 5).put((byte) 99).putInt(0);
+    send(garbage);
+    assertTrue(client.read(ByteBuffer.allocate(16)) < 0);
+  }
+}
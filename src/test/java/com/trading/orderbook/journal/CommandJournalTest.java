@@ -0,0 +1,380 @@
+package com.trading.orderbook.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderKind;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.model.TimeInForce;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderNotRestingException;
+import com.trading.orderbook.service.OrderService;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CommandJournalTest {
+
+  @TempDir Path directory;
+
+  private CommandJournal open(int segmentSize) {
+    return new CommandJournal(
+        directory.resolve("commands.journal"), segmentSize, FsyncPolicy.SYNC, 1, Duration.ZERO);
+  }
+
+  private List<JournalEntry> replay(CommandJournal journal) {
+    List<JournalEntry> entries = new ArrayList<>();
+    journal.replay(entries::add);
+    return entries;
+  }
+
+  @Test
+  void commandsAreReplayedAfterReopening() {
+    Order bid = new BidOrder("AAPL", new BigDecimal("150.25"), 10);
+    Order offer = new OfferOrder("MSFT", new BigDecimal("1E+3"), 7);
+    try (CommandJournal journal = open(4096)) {
+      assertEquals(1, journal.appendNewOrder(bid));
+      assertEquals(2, journal.appendNewOrder(offer));
+      assertEquals(3, journal.appendCancel(bid.getId(), "AAPL"));
+      assertEquals(4, journal.appendAmend(offer.getId(), "MSFT", new BigDecimal("999.5"), 5));
+      journal.sync();
+    }
+
+    try (CommandJournal journal = open(4096)) {
+      assertEquals(4, journal.lastSequence());
+      assertEquals(
+          List.of(
+              new JournalEntry(
+                  1,
+                  CommandType.NEW,
+                  bid.getId(),
+                  "AAPL",
+                  OrderType.BUY,
+                  new BigDecimal("150.25"),
+                  10),
+              new JournalEntry(
+                  2,
+                  CommandType.NEW,
+                  offer.getId(),
+                  "MSFT",
+                  OrderType.SELL,
+                  new BigDecimal("1E+3"),
+                  7),
+              new JournalEntry(3, CommandType.CANCEL, bid.getId(), "AAPL", null, null, 0),
+              new JournalEntry(
+                  4, CommandType.AMEND, offer.getId(), "MSFT", null, new BigDecimal("999.5"), 5)),
+          replay(journal));
+      assertEquals(5, journal.appendCancel(offer.getId(), "MSFT"));
+    }
+  }
+
+  @Test
+  void ordersKeepTheirTermsAndAccount() {
+    Order stop =
+        new OfferOrder(UUID.randomUUID(), "AAPL", OrderKind.STOP, null, new BigDecimal("99.5"), 3);
+    Order stopLimit =
+        new BidOrder(
+            UUID.randomUUID(),
+            "AAPL",
+            OrderKind.STOP_LIMIT,
+            new BigDecimal("101"),
+            new BigDecimal("100.75"),
+            4);
+    stopLimit.setTimeInForce(TimeInForce.GTD);
+    stopLimit.setExpireTime(1_700_000_000_000L);
+    Order immediate = new BidOrder("AAPL", new BigDecimal("100"), 5);
+    immediate.setTimeInForce(TimeInForce.IOC);
+    Order market = new OfferOrder(UUID.randomUUID(), "AAPL", OrderKind.MARKET, null, null, 6);
+    market.setAccount("ACME");
+    try (CommandJournal journal = open(4096)) {
+      journal.appendNewOrder(stop);
+      journal.appendNewOrder(stopLimit);
+      journal.appendNewOrder(immediate);
+      journal.appendExpire(stopLimit.getId(), "AAPL");
+      journal.appendNewOrder(market);
+    }
+
+    try (CommandJournal journal = open(4096)) {
+      assertEquals(
+          List.of(
+              new JournalEntry(
+                  1,
+                  CommandType.NEW,
+                  stop.getId(),
+                  "AAPL",
+                  OrderType.SELL,
+                  new BigDecimal("99.5"),
+                  3,
+                  OrderKind.STOP,
+                  new BigDecimal("99.5"),
+                  TimeInForce.GTC,
+                  0,
+                  null),
+              new JournalEntry(
+                  2,
+                  CommandType.NEW,
+                  stopLimit.getId(),
+                  "AAPL",
+                  OrderType.BUY,
+                  new BigDecimal("101"),
+                  4,
+                  OrderKind.STOP_LIMIT,
+                  new BigDecimal("100.75"),
+                  TimeInForce.GTD,
+                  1_700_000_000_000L,
+                  null),
+              new JournalEntry(
+                  3,
+                  CommandType.NEW,
+                  immediate.getId(),
+                  "AAPL",
+                  OrderType.BUY,
+                  new BigDecimal("100"),
+                  5,
+                  OrderKind.LIMIT,
+                  null,
+                  TimeInForce.IOC,
+                  0,
+                  null),
+              new JournalEntry(4, CommandType.EXPIRE, stopLimit.getId(), "AAPL", null, null, 0),
+              new JournalEntry(
+                  5,
+                  CommandType.NEW,
+                  market.getId(),
+                  "AAPL",
+                  OrderType.SELL,
+                  null,
+                  6,
+                  OrderKind.MARKET,
+                  null,
+                  TimeInForce.GTC,
+                  0,
+                  "ACME")),
+          replay(journal));
+    }
+  }
+
+  @Test
+  void commandsKeepTheTimeTheyRanAt() {
+    Order bid = new BidOrder("AAPL", new BigDecimal("150.25"), 10);
+    long time = 1_700_000_000_000L;
+    try (CommandJournal journal = open(4096)) {
+      journal.appendNewOrder(bid, time);
+      journal.appendAmend(bid.getId(), "AAPL", new BigDecimal("150.5"), 8, time + 1);
+      journal.appendCancel(bid.getId(), "AAPL");
+      journal.appendExpire(bid.getId(), "AAPL", time + 3);
+    }
+
+    try (CommandJournal journal = open(4096)) {
+      List<JournalEntry> entries = replay(journal);
+      assertEquals(
+          List.of(time, time + 1, 0L, time + 3), entries.stream().map(JournalEntry::time).toList());
+      assertEquals(
+          new JournalEntry(
+              1,
+              CommandType.NEW,
+              bid.getId(),
+              "AAPL",
+              OrderType.BUY,
+              new BigDecimal("150.25"),
+              10,
+              OrderKind.LIMIT,
+              null,
+              TimeInForce.GTC,
+              0,
+              null,
+              time),
+          entries.get(0));
+      assertEquals(CommandType.CANCEL, entries.get(2).type());
+    }
+  }
+
+  @Test
+  void stringsLongerThanAShortLengthKeepTheirLength() {
+    String symbol = "S".repeat(40_000);
+    Order bid = new BidOrder(symbol, BigDecimal.TEN, 1);
+    bid.setAccount("A".repeat(70_000));
+    try (CommandJournal journal = open(1 << 20)) {
+      journal.appendNewOrder(bid);
+      journal.appendCancel(bid.getId(), symbol);
+    }
+
+    try (CommandJournal journal = open(1 << 20)) {
+      List<JournalEntry> entries = replay(journal);
+      assertEquals(2, entries.size());
+      assertEquals(symbol, entries.get(0).symbol());
+      assertEquals(bid.getAccount(), entries.get(0).account());
+      assertEquals(symbol, entries.get(1).symbol());
+    }
+  }
+
+  @Test
+  void recordsRollOverIntoNewWindows() {
+    try (CommandJournal journal = open(128)) {
+      for (int i = 0; i < 50; i++) {
+        journal.appendNewOrder(new BidOrder("AAPL", BigDecimal.valueOf(i), i + 1));
+      }
+    }
+
+    try (CommandJournal journal = open(128)) {
+      List<JournalEntry> entries = replay(journal);
+      assertEquals(50, entries.size());
+      for (int i = 0; i < 50; i++) {
+        assertEquals(i + 1, entries.get(i).sequence());
+        assertEquals(i + 1, entries.get(i).quantity());
+      }
+    }
+  }
+
+  @Test
+  void replayStopsAtATornRecord() throws Exception {
+    try (CommandJournal journal = open(4096)) {
+      journal.appendNewOrder(new BidOrder("AAPL", BigDecimal.TEN, 1));
+      journal.appendNewOrder(new BidOrder("AAPL", BigDecimal.TEN, 2));
+    }
+    try (RandomAccessFile file =
+        new RandomAccessFile(directory.resolve("commands.journal").toFile(), "rw")) {
+      // flip a byte in the body of the second record
+      long secondRecord = 8 + 33 + 4 + 4 + 1 + 4 + 4 + 1 + 4 + 1 + 1 + 8 + 4;
+      file.seek(secondRecord + 20);
+      int flipped = file.readByte() ^ 0xFF;
+      file.seek(secondRecord + 20);
+      file.write(flipped);
+    }
+
+    try (CommandJournal journal = open(4096)) {
+      assertEquals(1, replay(journal).size());
+      assertEquals(2, journal.appendCancel(UUID.randomUUID(), "AAPL"));
+      assertEquals(2, replay(journal).size());
+    }
+  }
+
+  @Test
+  void replayRebuildsOrderServiceState() {
+    OrderService original = new OrderService(new OrderBookService());
+    Order resting;
+    Order partiallyFilled;
+    try (CommandJournal journal = open(4096)) {
+      original.setJournal(journal);
+      resting = original.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(99), 5));
+      partiallyFilled = original.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 10));
+      original.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 4));
+      Order cancelled = original.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(105), 3));
+      original.cancelOrder(cancelled.getId().toString());
+      original.cancelOrder(partiallyFilled.getId().toString());
+    }
+
+    OrderService recovered = new OrderService(new OrderBookService());
+    try (CommandJournal journal = open(4096)) {
+      journal.replay(recovered::replay);
+    }
+
+    assertEquals(original.getAllOrders().size(), recovered.getAllOrders().size());
+    Order recoveredFill = recovered.getOrderById(partiallyFilled.getId().toString());
+    assertEquals(4, recoveredFill.getQuantity());
+    assertEquals(0, recoveredFill.getUnfilledQuantity());
+    assertEquals(5, recovered.getOrderById(resting.getId().toString()).getUnfilledQuantity());
+  }
+
+  @Test
+  void aCommandRejectedOnReplayFailsStartup() {
+    try (CommandJournal journal = open(4096)) {
+      journal.appendNewOrder(new BidOrder("AAPL", BigDecimal.TEN, 5), 1);
+      // an amend of an order the journal never created cannot have been accepted
+      journal.appendAmend(UUID.randomUUID(), "AAPL", BigDecimal.TEN, 3, 2);
+      journal.sync();
+    }
+
+    try (CommandJournal journal = open(4096)) {
+      OrderService recovered = new OrderService(new OrderBookService());
+      JournalReplayer replayer = new JournalReplayer(journal, recovered);
+      IllegalStateException e = assertThrows(IllegalStateException.class, replayer::start);
+      assertTrue(e.getMessage().startsWith("1 of 2 journaled commands"), e.getMessage());
+      assertFalse(replayer.isRunning());
+    }
+  }
+
+  @Test
+  void aCancelOfAnOrderAlreadyGoneIsSkippedOnReplay() {
+    Order bid = new BidOrder("AAPL", BigDecimal.TEN, 5);
+    try (CommandJournal journal = open(4096)) {
+      journal.appendNewOrder(bid, 1);
+      // two clients cancelled the order at once, and both cancels were journaled
+      journal.appendCancel(bid.getId(), "AAPL", 2);
+      journal.appendCancel(bid.getId(), "AAPL", 2);
+      journal.sync();
+    }
+
+    try (CommandJournal journal = open(4096)) {
+      OrderService recovered = new OrderService(new OrderBookService());
+      JournalReplayer replayer = new JournalReplayer(journal, recovered);
+      replayer.start();
+      assertTrue(replayer.isRunning());
+      assertEquals(List.of(), recovered.getAllOrders());
+    }
+  }
+
+  @Test
+  void anAmendOfAnOrderThatIsNotRestingIsNotJournaled() {
+    try (CommandJournal journal = open(4096)) {
+      OrderService original = new OrderService(new OrderBookService());
+      original.setJournal(journal);
+      Order expiring = new BidOrder("AAPL", BigDecimal.TEN, 5);
+      expiring.setTimeInForce(TimeInForce.GTD);
+      expiring.setExpireTime(System.currentTimeMillis() + 60_000);
+      original.createOrder(expiring);
+      original.expireOrders(expiring.getExpireTime());
+      assertThrows(
+          OrderNotRestingException.class,
+          () -> original.amendOrder(expiring.getId().toString(), BigDecimal.TEN, 4));
+      assertEquals(2, journal.lastSequence());
+    }
+
+    try (CommandJournal journal = open(4096)) {
+      JournalReplayer replayer =
+          new JournalReplayer(journal, new OrderService(new OrderBookService()));
+      replayer.start();
+      assertTrue(replayer.isRunning());
+    }
+  }
+
+  @Test
+  void cursorRecordsCopyIntoAnotherJournal() {
+    List<JournalEntry> copied = new ArrayList<>();
+    try (CommandJournal source = open(128);
+        CommandJournal copy =
+            new CommandJournal(
+                directory.resolve("copy.journal"), 128, FsyncPolicy.SYNC, 1, Duration.ZERO)) {
+      JournalCursor cursor = source.cursor();
+      for (int i = 0; i < 50; i++) {
+        source.appendNewOrder(new BidOrder("AAPL", BigDecimal.valueOf(i), i + 1));
+        if (i % 7 == 0) {
+          cursor.read((record, sequence) -> copied.add(append(copy, record, sequence)));
+        }
+      }
+      cursor.read((record, sequence) -> copied.add(append(copy, record, sequence)));
+      assertEquals(50, copy.lastSequence());
+      assertEquals(replay(source), copied);
+      assertEquals(replay(source), replay(copy));
+    }
+  }
+
+  private static JournalEntry append(CommandJournal journal, ByteBuffer record, long sequence) {
+    JournalEntry entry = CommandJournal.decode(record);
+    assertEquals(sequence, entry.sequence());
+    assertEquals(sequence, journal.appendRecord(record));
+    return entry;
+  }
+}
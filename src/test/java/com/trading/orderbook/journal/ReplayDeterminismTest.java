@@ -0,0 +1,244 @@
+package com.trading.orderbook.journal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderBookDepth;
+import com.trading.orderbook.model.OrderKind;
+import com.trading.orderbook.model.TimeInForce;
+import com.trading.orderbook.model.TradeEventBuffer;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Replays command logs and checks that the output events of the books come out byte for byte the
+ * same: the trades with their ids and timestamps, the depth and the state of every order.
+ */
+class ReplayDeterminismTest {
+
+  private static final List<String> SYMBOLS = List.of("AAPL", "MSFT");
+  private static final long START = 1_700_000_000_000L;
+
+  @TempDir Path directory;
+
+  /** A service with a clock the harness moves, recording the trades of every book. */
+  private static final class Run {
+    final OrderService orderService;
+    final long[] now = {START};
+    final Map<String, TradeEventBuffer.Subscription> trades = new LinkedHashMap<>();
+
+    Run(CommandJournal journal) {
+      OrderBookService orderBookService = new OrderBookService();
+      for (String symbol : SYMBOLS) {
+        trades.put(symbol, orderBookService.getOrderBook(symbol).getTrades().subscribe());
+      }
+      orderService = new OrderService(orderBookService);
+      orderService.setClock(() -> Instant.ofEpochMilli(now[0]));
+      orderService.setJournal(journal);
+    }
+
+    byte[] output() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      for (Map.Entry<String, TradeEventBuffer.Subscription> book : trades.entrySet()) {
+        out.writeUTF(book.getKey());
+        book.getValue()
+            .poll(
+                trade -> {
+                  try {
+                    out.writeLong(trade.sequence());
+                    writeId(out, trade.makerOrderId());
+                    writeId(out, trade.takerOrderId());
+                    out.writeByte(trade.takerSide().ordinal());
+                    out.writeUTF(trade.price().toString());
+                    out.writeInt(trade.quantity());
+                    out.writeLong(trade.timestamp());
+                  } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                  }
+                },
+                Integer.MAX_VALUE);
+        for (OrderBookDepth level : orderService.getDepth(book.getKey(), null)) {
+          out.writeUTF(level.price().toString());
+          out.writeInt(level.quantity());
+          out.writeByte(level.type().ordinal());
+        }
+      }
+      List<Order> orders = orderService.getAllOrders();
+      orders.sort(Comparator.comparing(Order::getId));
+      for (Order order : orders) {
+        writeId(out, order.getId());
+        out.writeByte(order.getStatus().ordinal());
+        out.writeInt(order.getQuantity());
+        out.writeInt(order.getUnfilledQuantity());
+        out.writeUTF(String.valueOf(order.getPrice()));
+      }
+      return bytes.toByteArray();
+    }
+
+    private static void writeId(DataOutputStream out, UUID id) throws IOException {
+      out.writeLong(id.getMostSignificantBits());
+      out.writeLong(id.getLeastSignificantBits());
+    }
+  }
+
+  private CommandJournal open(String name) {
+    return new CommandJournal(directory.resolve(name), 1 << 20, FsyncPolicy.NONE, 1, Duration.ZERO);
+  }
+
+  /**
+   * Feeds a random but seeded flow of limit, market, stop, IOC, FOK and GTD orders, cancels, amends
+   * and expiries to a run, advancing its clock between commands. Order ids come from the service,
+   * whose clock starts at the same time in every run.
+   */
+  private static void feed(Run run, long seed, int commands) {
+    Random random = new Random(seed);
+    List<Order> created = new ArrayList<>();
+    for (int i = 0; i < commands; i++) {
+      run.now[0] += 1 + random.nextInt(3);
+      String symbol = SYMBOLS.get(random.nextInt(SYMBOLS.size()));
+      boolean buy = random.nextBoolean();
+      BigDecimal price = BigDecimal.valueOf(9_950 + random.nextInt(100), 2);
+      int quantity = 1 + random.nextInt(20);
+      int action = random.nextInt(100);
+      try {
+        if (action < 55) {
+          Order order =
+              order(
+                  run.orderService.nextOrderId(),
+                  symbol,
+                  buy,
+                  OrderKind.LIMIT,
+                  price,
+                  null,
+                  quantity);
+          int timeInForce = random.nextInt(10);
+          if (timeInForce == 0) {
+            order.setTimeInForce(TimeInForce.IOC);
+          } else if (timeInForce == 1) {
+            order.setTimeInForce(TimeInForce.FOK);
+          } else if (timeInForce == 2) {
+            order.setTimeInForce(TimeInForce.GTD);
+            order.setExpireTime(run.now[0] + 1 + random.nextInt(200));
+          }
+          created.add(run.orderService.createOrder(order));
+        } else if (action < 60) {
+          run.orderService.createOrder(
+              order(
+                  run.orderService.nextOrderId(),
+                  symbol,
+                  buy,
+                  OrderKind.MARKET,
+                  null,
+                  null,
+                  quantity));
+        } else if (action < 68) {
+          BigDecimal stopPrice = price.add(BigDecimal.valueOf(buy ? 10 : -10, 2));
+          boolean limit = random.nextBoolean();
+          created.add(
+              run.orderService.createOrder(
+                  order(
+                      run.orderService.nextOrderId(),
+                      symbol,
+                      buy,
+                      limit ? OrderKind.STOP_LIMIT : OrderKind.STOP,
+                      limit ? price : null,
+                      stopPrice,
+                      quantity)));
+        } else if (action < 85 && !created.isEmpty()) {
+          Order order = created.remove(random.nextInt(created.size()));
+          run.orderService.cancelOrder(order.getId().toString());
+        } else if (action < 97 && !created.isEmpty()) {
+          Order order = created.get(random.nextInt(created.size()));
+          run.orderService.amendOrder(
+              order.getId().toString(), price, order.getQuantity() + random.nextInt(5));
+        } else {
+          run.orderService.expireOrders();
+        }
+      } catch (RuntimeException e) {
+        // rejected the same way whenever the flow is fed or replayed
+      }
+    }
+  }
+
+  private static Order order(
+      UUID id,
+      String symbol,
+      boolean buy,
+      OrderKind kind,
+      BigDecimal price,
+      BigDecimal stopPrice,
+      int quantity) {
+    return buy
+        ? new BidOrder(id, symbol, kind, price, stopPrice, quantity)
+        : new OfferOrder(id, symbol, kind, price, stopPrice, quantity);
+  }
+
+  private static byte[] replay(CommandJournal journal) throws IOException {
+    // the clock of the replaying service stays at the start: replay must not read it
+    Run run = new Run(null);
+    journal.replay(
+        entry -> {
+          try {
+            run.orderService.replay(entry);
+          } catch (RuntimeException e) {
+            // a command journaled before it failed fails again
+          }
+        });
+    return run.output();
+  }
+
+  @Test
+  void replayingTheJournalReproducesTheOutput() throws IOException {
+    try (CommandJournal journal = open("live.journal")) {
+      Run live = new Run(journal);
+      feed(live, 7, 2000);
+      byte[] output = live.output();
+      assertTrue(output.length > 50_000, "The flow should trade and leave orders behind");
+
+      assertArrayEquals(output, replay(journal));
+      assertArrayEquals(output, replay(journal));
+    }
+  }
+
+  @Test
+  void feedingTheSameFlowTwiceWritesTheSameJournalAndOutput() throws IOException {
+    byte[] first;
+    byte[] second;
+    try (CommandJournal journal = open("first.journal")) {
+      Run run = new Run(journal);
+      feed(run, 11, 2000);
+      first = run.output();
+    }
+    try (CommandJournal journal = open("second.journal")) {
+      Run run = new Run(journal);
+      feed(run, 11, 2000);
+      second = run.output();
+    }
+
+    assertArrayEquals(first, second);
+    assertArrayEquals(
+        Files.readAllBytes(directory.resolve("first.journal")),
+        Files.readAllBytes(directory.resolve("second.journal")));
+  }
+}
@@ -0,0 +1,71 @@
+package com.trading.orderbook.marketdata;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import java.math.BigDecimal;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class DepthCacheTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final OrderBookService orderBookService = new OrderBookService();
+  private final OrderService orderService = new OrderService(orderBookService);
+  private final DepthCache depthCache =
+      new DepthCache(
+          new DepthCacheProperties(true, Duration.ofMillis(10), 2),
+          orderBookService,
+          orderService,
+          objectMapper);
+
+  @Test
+  void snapshotsServeSerializedDepthUntilTheBookChanges() throws Exception {
+    orderService.createOrder(new BidOrder("AAPL", new BigDecimal("99"), 1));
+    orderService.createOrder(new BidOrder("AAPL", new BigDecimal("98"), 2));
+    Order worstBid = orderService.createOrder(new BidOrder("AAPL", new BigDecimal("97"), 3));
+    orderService.createOrder(new OfferOrder("AAPL", new BigDecimal("101"), 4));
+    orderService.createOrder(new OfferOrder("AAPL", new BigDecimal("102"), 5));
+    OrderBook orderBook = orderBookService.getOrderBook("AAPL");
+
+    depthCache.refresh();
+    DepthSnapshot snapshot = depthCache.getSnapshot("AAPL");
+    byte[] topTwo = depthCache.depthJson("AAPL", 2);
+    assertArrayEquals(objectMapper.writeValueAsBytes(orderBook.topN(2)), topTwo);
+    assertSame(topTwo, depthCache.depthJson("AAPL", 2));
+    assertArrayEquals(
+        objectMapper.writeValueAsBytes(orderBook.topN(1)), depthCache.depthJson("AAPL", 1));
+    // the bids were cut off at two levels, so deeper reads go to the book
+    assertNull(depthCache.depthJson("AAPL", 3));
+    assertNull(depthCache.depthJson("AAPL", null));
+    assertNull(depthCache.depthJson("AAPL", 0));
+    assertNull(depthCache.depthJson("MSFT", 1));
+
+    depthCache.refresh();
+    assertSame(snapshot, depthCache.getSnapshot("AAPL"));
+
+    orderService.cancelOrder(worstBid.getId().toString());
+    assertNotEquals(orderBook.getVersion(), snapshot.getVersion());
+    assertSame(topTwo, depthCache.depthJson("AAPL", 2));
+
+    depthCache.refresh();
+    assertNotSame(snapshot, depthCache.getSnapshot("AAPL"));
+    assertArrayEquals(
+        objectMapper.writeValueAsBytes(orderBook.orderbookDepth()),
+        depthCache.depthJson("AAPL", null));
+    assertArrayEquals(
+        objectMapper.writeValueAsBytes(orderBook.topN(5)), depthCache.depthJson("AAPL", 5));
+    // depths beyond the held levels share one serialization instead of sizing a list each
+    assertSame(depthCache.depthJson("AAPL", 2), depthCache.depthJson("AAPL", Integer.MAX_VALUE));
+  }
+}
@@ -0,0 +1,261 @@
+package com.trading.orderbook.marketdata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading.orderbook.marketdata.GapDetector.Result;
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.OrderBookDepth;
+import com.trading.orderbook.model.OrderType;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class MarketDataPublisherTest {
+
+  private final OrderBookService orderBookService = new OrderBookService();
+  private final OrderService orderService = new OrderService(orderBookService);
+  private DatagramSocket receiver;
+  private MarketDataPublisher publisher;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+    receiver.setSoTimeout(5000);
+    publisher =
+        new MarketDataPublisher(
+            new MarketDataProperties(
+                true, Duration.ofHours(1), 20, 1024, "127.0.0.1", receiver.getLocalPort(), 16),
+            orderBookService,
+            orderService,
+            new ObjectMapper());
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (publisher.isRunning()) {
+      publisher.stop();
+    }
+    receiver.close();
+  }
+
+  private List<MarketDataEvent> receive(int count) throws IOException {
+    List<MarketDataEvent> events = new ArrayList<>();
+    byte[] data = new byte[MarketDataPublisher.MAX_DATAGRAM_SIZE];
+    while (events.size() < count) {
+      DatagramPacket packet = new DatagramPacket(data, data.length);
+      receiver.receive(packet);
+      ByteBuffer datagram = ByteBuffer.wrap(data, 0, packet.getLength());
+      while (datagram.hasRemaining()) {
+        events.add(MarketDataCodec.decode(datagram));
+      }
+    }
+    return events;
+  }
+
+  @Test
+  void tradesAreFollowedByTheFinalStateOfEachChangedLevel() throws IOException {
+    orderBookService.getOrderBook("AAPL");
+    publisher.start();
+    orderService.createOrder(new OfferOrder("AAPL", new BigDecimal("100"), 10));
+    orderService.createOrder(new OfferOrder("AAPL", new BigDecimal("101"), 5));
+    orderService.createOrder(new BidOrder("AAPL", new BigDecimal("101"), 12));
+
+    List<MarketDataEvent> events = receive(7);
+    assertEquals(MarketDataType.REFRESH, events.getFirst().type());
+    events = events.subList(1, events.size());
+    assertEquals(
+        List.of(
+            MarketDataType.ADD_LEVEL,
+            MarketDataType.ADD_LEVEL,
+            MarketDataType.TRADE,
+            MarketDataType.TRADE,
+            MarketDataType.DELETE_LEVEL,
+            MarketDataType.CHANGE_LEVEL),
+        events.stream().map(MarketDataEvent::type).toList());
+    for (int i = 0; i < events.size(); i++) {
+      assertEquals(i + 1, events.get(i).sequence());
+      assertEquals("AAPL", events.get(i).symbol());
+    }
+    assertEquals(OrderType.BUY, events.get(2).side());
+    assertEquals(new BigDecimal("100"), events.get(2).price());
+    assertEquals(10, events.get(2).quantity());
+    assertEquals(new BigDecimal("101"), events.get(3).price());
+    assertEquals(2, events.get(3).quantity());
+    assertEquals(new BigDecimal("100"), events.get(4).price());
+    assertEquals(OrderType.SELL, events.get(5).side());
+    assertEquals(3, events.get(5).quantity());
+    assertEquals(1, events.get(5).orderCount());
+  }
+
+  @Test
+  void refreshCarriesTheBookAndTheSequenceItIncludes() throws IOException {
+    orderService.createOrder(new BidOrder("AAPL", new BigDecimal("99"), 7));
+    orderService.createOrder(new OfferOrder("AAPL", new BigDecimal("101"), 3));
+    publisher.start();
+
+    MarketDataEvent refresh = receive(1).getFirst();
+    assertEquals(MarketDataType.REFRESH, refresh.type());
+    assertEquals(2, refresh.sequence());
+    GapDetector gapDetector = new GapDetector();
+    assertEquals(Result.APPLY, gapDetector.onEvent(refresh));
+    assertEquals(
+        new OrderBookDepth(new BigDecimal("99"), 7, OrderType.BUY), refresh.levels().get(0));
+    assertEquals(
+        new OrderBookDepth(new BigDecimal("101"), 3, OrderType.SELL), refresh.levels().get(1));
+    assertEquals(0, publisher.getDropped());
+  }
+
+  @Test
+  void aStalledSubscriberIsDisconnectedWithoutHoldingUpTheOthers() throws Exception {
+    orderBookService.getOrderBook("AAPL");
+    Semaphore release = new Semaphore(0);
+    CountDownLatch completed = new CountDownLatch(1);
+    List<String> stalledEvents = new CopyOnWriteArrayList<>();
+    List<String> events = new CopyOnWriteArrayList<>();
+    SseEmitter stalled =
+        new SseEmitter(0L) {
+          @Override
+          public synchronized void send(Set<DataWithMediaType> items) {
+            stalledEvents.add(text(items));
+            // like a socket write to a client that stopped reading, interrupts do not end it
+            release.acquireUninterruptibly();
+          }
+
+          @Override
+          public void complete() {
+            completed.countDown();
+            super.complete();
+          }
+        };
+    SseEmitter live =
+        new SseEmitter(0L) {
+          @Override
+          public synchronized void send(Set<DataWithMediaType> items) {
+            events.add(text(items));
+          }
+        };
+    publisher.start();
+    publisher.subscribe(null, stalled);
+    publisher.subscribe("AAPL", live);
+    // the live subscriber keeps up with every update while the stalled one falls behind
+    for (int i = 1; i <= 20; i++) {
+      orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100 + i), 1));
+      long deadline = System.nanoTime() + 5_000_000_000L;
+      while (levelUpdates(events) < i && System.nanoTime() < deadline) {
+        Thread.sleep(1);
+      }
+      assertEquals(i, levelUpdates(events));
+    }
+    release.release(Integer.MAX_VALUE);
+    assertTrue(completed.await(5, TimeUnit.SECONDS), "stalled subscriber was not disconnected");
+    assertTrue(levelUpdates(stalledEvents) < 20);
+  }
+
+  @Test
+  void aNewSubscriberGetsItsRefreshWithoutOneOnTheSharedFeed() throws Exception {
+    orderService.createOrder(new BidOrder("AAPL", new BigDecimal("99"), 7));
+    orderService.createOrder(new BidOrder("MSFT", new BigDecimal("50"), 1));
+    List<String> first = new CopyOnWriteArrayList<>();
+    List<String> second = new CopyOnWriteArrayList<>();
+    publisher.start();
+    assertEquals(MarketDataType.REFRESH, receive(2).getFirst().type());
+    // subscribers join with the next batch of updates
+    publisher.subscribe(null, recording(first));
+    orderService.createOrder(new BidOrder("AAPL", new BigDecimal("98"), 1));
+    awaitEvents(first, 3);
+    publisher.subscribe("AAPL", recording(second));
+    orderService.createOrder(new BidOrder("AAPL", new BigDecimal("97"), 1));
+    awaitEvents(second, 2);
+    awaitEvents(first, 4);
+
+    assertEquals(
+        List.of(MarketDataType.ADD_LEVEL, MarketDataType.ADD_LEVEL),
+        receive(2).stream().map(MarketDataEvent::type).toList());
+    assertEquals(2, first.stream().filter(event -> event.contains("event:REFRESH")).count());
+    assertTrue(second.getFirst().contains("event:REFRESH"));
+    assertTrue(second.getLast().contains("event:ADD_LEVEL"));
+  }
+
+  private static SseEmitter recording(List<String> events) {
+    return new SseEmitter(0L) {
+      @Override
+      public synchronized void send(Set<DataWithMediaType> items) {
+        events.add(text(items));
+      }
+    };
+  }
+
+  private static void awaitEvents(List<String> events, int count) throws InterruptedException {
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (events.size() < count && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(count, events.size());
+  }
+
+  private static String text(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+    StringBuilder text = new StringBuilder();
+    items.forEach(item -> text.append(item.getData()));
+    return text.toString();
+  }
+
+  private static long levelUpdates(List<String> events) {
+    return events.stream().filter(event -> event.contains("event:ADD_LEVEL")).count();
+  }
+
+  @Test
+  void gapDetectorRequiresARefreshAfterLostEvents() {
+    GapDetector gapDetector = new GapDetector();
+    assertEquals(Result.GAP, gapDetector.onEvent(level(1)));
+    assertEquals(Result.APPLY, gapDetector.onEvent(refresh(2)));
+    assertEquals(Result.STALE, gapDetector.onEvent(level(2)));
+    assertEquals(Result.APPLY, gapDetector.onEvent(level(3)));
+    assertEquals(Result.GAP, gapDetector.onEvent(level(5)));
+    assertFalse(gapDetector.inSync("AAPL"));
+    assertEquals(Result.GAP, gapDetector.onEvent(level(6)));
+    assertEquals(Result.APPLY, gapDetector.onEvent(refresh(6)));
+    assertEquals(Result.APPLY, gapDetector.onEvent(level(7)));
+    assertEquals(Result.STALE, gapDetector.onEvent(refresh(4)));
+    assertEquals(1, gapDetector.getGaps());
+  }
+
+  private static MarketDataEvent level(long sequence) {
+    return new MarketDataEvent(
+        sequence,
+        "AAPL",
+        MarketDataType.CHANGE_LEVEL,
+        OrderType.BUY,
+        BigDecimal.ONE,
+        1,
+        1,
+        0,
+        null);
+  }
+
+  private static MarketDataEvent refresh(long sequence) {
+    return new MarketDataEvent(
+        sequence, "AAPL", MarketDataType.REFRESH, null, null, 0, 0, 0, List.of());
+  }
+}
@@ -0,0 +1,93 @@
+package com.trading.orderbook.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.BookStats;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class OrderBookMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final OrderBookMetrics metrics =
+      new OrderBookMetrics(new MetricsProperties(true, 2, Duration.ofMinutes(1)), registry);
+  private final OrderService orderService = new OrderService(new OrderBookService());
+
+  @Test
+  void commandsAreTimedPerSymbolAndOperation() {
+    orderService.setMetrics(metrics);
+    Order bid = orderService.createOrder(new BidOrder("AAPL", new BigDecimal("99"), 5));
+    orderService.createOrder(new BidOrder("AAPL", new BigDecimal("98"), 5));
+    orderService.createOrder(new OfferOrder("AAPL", new BigDecimal("99"), 2));
+    orderService.createOrder(new OfferOrder("MSFT", new BigDecimal("300"), 1));
+    orderService.cancelOrder(bid.getId().toString());
+    orderService.getDepth("AAPL", 5);
+
+    Map<String, SymbolStats> stats = metrics.stats();
+    assertEquals(2, stats.size());
+    SymbolStats aapl = stats.get("AAPL");
+    assertEquals(new BookStats(1, 0, 1, 1, 4), aapl.book());
+    assertEquals(3, aapl.operations().get(Operation.ADD).count());
+    assertEquals(1, aapl.operations().get(Operation.CANCEL).count());
+    assertEquals(1, aapl.operations().get(Operation.DEPTH).count());
+    LatencyStats service = aapl.operations().get(Operation.ADD).serviceTime();
+    assertTrue(service.p50() > 0);
+    assertTrue(service.p9999() <= service.max());
+    assertEquals(1, stats.get("MSFT").operations().size());
+
+    assertEquals(
+        3,
+        registry
+            .get("orderbook.operations")
+            .tags("symbol", "AAPL", "operation", "ADD")
+            .functionCounter()
+            .count());
+    assertTrue(
+        registry
+                .get("orderbook.latency")
+                .tags("symbol", "AAPL", "operation", "ADD", "phase", "service", "quantile", "0.99")
+                .gauge()
+                .value()
+            > 0);
+    assertEquals(
+        1,
+        registry
+            .get("orderbook.book.levels")
+            .tags("symbol", "AAPL", "side", "bid")
+            .gauge()
+            .value());
+    assertEquals(
+        1, registry.get("orderbook.book.trades").tags("symbol", "AAPL").functionCounter().count());
+  }
+
+  @Test
+  void percentilesCoverASlidingWindow() {
+    long[] now = {0};
+    LatencyHistogram histogram = new LatencyHistogram(2, 60_000, () -> now[0]);
+    for (int i = 0; i < 100; i++) {
+      histogram.record(1_000_000);
+    }
+    assertEquals(1_000_000, histogram.percentile(50), 10_000);
+    now[0] = 30_000;
+    histogram.record(1_000);
+    assertEquals(1_000_000, histogram.max(), 10_000);
+
+    // the slow latencies age out of the window, the fast one recorded later is still in it
+    now[0] = 65_000;
+    assertEquals(1_000, histogram.percentile(50), 10);
+    assertEquals(1_000, histogram.max(), 10);
+    assertEquals(101, histogram.count());
+    now[0] = 200_000;
+    assertEquals(0, histogram.summary().max());
+    assertEquals(101, histogram.count());
+  }
+}
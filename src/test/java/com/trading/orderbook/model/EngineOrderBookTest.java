@@ -0,0 +1,234 @@
+package com.trading.orderbook.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.engine.OrderStorage;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class EngineOrderBookTest {
+
+  private static final BigDecimal TICK = new BigDecimal("0.01");
+
+  private final EngineOrderBook orderBook =
+      new EngineOrderBook("AAPL", TICK, 1024, 16, OrderStorage.HEAP);
+
+  @Test
+  void matchesAndReportsExactlyLikeAPriceLadderBook() {
+    PriceLadderOrderBook ladder = new PriceLadderOrderBook("AAPL", TICK, 16);
+    List<String> engineEvents = new ArrayList<>();
+    List<String> ladderEvents = new ArrayList<>();
+    orderBook.setListener(new RecordingListener(engineEvents));
+    orderBook.setOrderListener(new RecordingListener(engineEvents));
+    ladder.setListener(new RecordingListener(ladderEvents));
+    ladder.setOrderListener(new RecordingListener(ladderEvents));
+    SplittableRandom random = new SplittableRandom(5);
+    List<Order> orders = new ArrayList<>();
+    String[] accounts = {null, "ACME", "INITECH"};
+
+    for (int i = 0; i < 20_000; i++) {
+      int command = random.nextInt(10);
+      Order known = orders.isEmpty() ? null : orders.get(random.nextInt(orders.size()));
+      if (command < 6 || known == null) {
+        UUID id = UUID.randomUUID();
+        BigDecimal price = BigDecimal.valueOf(9990 + random.nextInt(21), 2);
+        int quantity = 1 + random.nextInt(20);
+        boolean buy = random.nextBoolean();
+        TimeInForce timeInForce = random.nextInt(5) == 0 ? TimeInForce.IOC : TimeInForce.GTC;
+        String account = accounts[random.nextInt(accounts.length)];
+        Order order = order(id, buy, price, quantity, timeInForce, account);
+        ladder.addOrder(order, i);
+        Order copy = order(id, buy, price, quantity, timeInForce, account);
+        orderBook.addOrder(copy, i);
+        assertEquals(order.getStatus(), copy.getStatus());
+        assertEquals(order.getUnfilledQuantity(), copy.getUnfilledQuantity());
+        orders.add(order);
+      } else if (command < 8) {
+        Order copy = orderBook.findOrder(known.getId());
+        if (copy == null) {
+          assertTrue(
+              known.getUnfilledQuantity() == 0 || known.getStatus() == OrderStatus.CANCELLED);
+          continue;
+        }
+        assertEquals(OrderState.of(known), OrderState.of(copy));
+        ladder.cancelOrder(known);
+        orderBook.cancelOrder(copy);
+        assertEquals(OrderStatus.CANCELLED, copy.getStatus());
+        orders.remove(known);
+      } else {
+        Order copy = orderBook.findOrder(known.getId());
+        int quantity = known.getQuantity() - known.getUnfilledQuantity() + 1 + random.nextInt(20);
+        BigDecimal price = BigDecimal.valueOf(9990 + random.nextInt(21), 2);
+        boolean amended = ladder.amendOrder(known, price, quantity, i);
+        assertEquals(amended, copy != null && orderBook.amendOrder(copy, price, quantity, i));
+      }
+    }
+
+    assertEquals(ladderEvents, engineEvents);
+    assertEquals(ladder.orderbookDepth(), orderBook.orderbookDepth());
+    assertEquals(ladder.topN(5), orderBook.topN(5));
+    assertEquals(ladder.restingOrders(), orderBook.restingOrders());
+    BookStats stats = orderBook.stats();
+    BookStats ladderStats = ladder.stats();
+    assertEquals(ladderStats.bidLevels(), stats.bidLevels());
+    assertEquals(ladderStats.offerLevels(), stats.offerLevels());
+    assertEquals(ladderStats.restingOrders(), stats.restingOrders());
+    assertEquals(ladderStats.trades(), stats.trades());
+    assertEquals(ladder.getLastTradePrice(), orderBook.getLastTradePrice());
+    List<Trade> trades = new ArrayList<>();
+    List<Trade> ladderTrades = new ArrayList<>();
+    orderBook.getTrades().subscribe(0).poll(trades::add, Integer.MAX_VALUE);
+    ladder.getTrades().subscribe(0).poll(ladderTrades::add, Integer.MAX_VALUE);
+    assertEquals(ladderTrades, trades);
+  }
+
+  @Test
+  void refusesOrdersTheEngineCannotTake() {
+    Order stop =
+        new BidOrder(UUID.randomUUID(), "AAPL", OrderKind.STOP, null, new BigDecimal("100"), 1);
+    Order market = new BidOrder(UUID.randomUUID(), "AAPL", OrderKind.MARKET, null, null, 1);
+    Order fillOrKill = new BidOrder("AAPL", new BigDecimal("100.00"), 1);
+    fillOrKill.setTimeInForce(TimeInForce.FOK);
+    Order offTick = new BidOrder("AAPL", new BigDecimal("100.005"), 1);
+    // the ID whose index key is 0, which marks an empty entry of the index
+    Order reservedKey =
+        new BidOrder(new UUID(1, 0x9E3779B97F4A7C15L), "AAPL", new BigDecimal("100.00"), 1);
+    for (Order order : List.of(stop, market, fillOrKill, offTick, reservedKey)) {
+      assertThrows(IllegalArgumentException.class, () -> orderBook.addOrder(order));
+    }
+    Order resting = orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("100.00"), 1));
+    assertThrows(IllegalArgumentException.class, () -> orderBook.addOrder(resting));
+    assertThrows(IllegalArgumentException.class, () -> orderBook.restorePendingStop(stop));
+    assertEquals(1, orderBook.stats().restingOrders());
+  }
+
+  @Test
+  void restingOrdersAreHandedOutAsCopies() {
+    BidOrder order = new BidOrder("AAPL", new BigDecimal("100.00"), 5);
+    order.setAccount("ACME");
+    orderBook.addOrder(order);
+    orderBook.addOrder(new OfferOrder("AAPL", new BigDecimal("100.00"), 2));
+
+    // the order given to the book is not told of the fills of its resting remainder
+    assertEquals(5, order.getUnfilledQuantity());
+    Order copy = orderBook.findOrder(order.getId());
+    assertNotSame(order, copy);
+    assertEquals(order.getId(), copy.getId());
+    assertEquals(3, copy.getUnfilledQuantity());
+    assertEquals(OrderStatus.PARTIALLY_FILLED, copy.getStatus());
+    assertEquals("ACME", copy.getAccount());
+    assertNull(orderBook.findOrder(new UUID(order.getId().getMostSignificantBits() + 1, 0)));
+
+    orderBook.cancelOrder(copy);
+    assertEquals(OrderStatus.CANCELLED, copy.getStatus());
+    assertEquals(3, copy.getUnfilledQuantity());
+    assertNull(orderBook.findOrder(order.getId()));
+    assertTrue(orderBook.orderbookDepth().isEmpty());
+  }
+
+  @Test
+  void restoredOrdersKeepTheirTimePriority() {
+    EngineOrderBook restored = new EngineOrderBook("AAPL", TICK, 1024, 16, OrderStorage.HEAP);
+    Order first = orderBook.addOrder(new OfferOrder("AAPL", new BigDecimal("101.00"), 5));
+    orderBook.addOrder(new OfferOrder("AAPL", new BigDecimal("101.00"), 5));
+    orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("101.00"), 2));
+    for (OrderState state : orderBook.restingOrders()) {
+      restored.restoreRestingOrder(state.toOrder());
+    }
+    assertEquals(orderBook.restingOrders(), restored.restingOrders());
+
+    Order taker = new BidOrder("AAPL", new BigDecimal("101.00"), 3);
+    restored.addOrder(taker);
+    assertEquals(0, taker.getUnfilledQuantity());
+    assertNull(restored.findOrder(first.getId()));
+  }
+
+  private static Order order(
+      UUID id,
+      boolean buy,
+      BigDecimal price,
+      int quantity,
+      TimeInForce timeInForce,
+      String account) {
+    Order order =
+        buy
+            ? new BidOrder(id, "AAPL", price, quantity)
+            : new OfferOrder(id, "AAPL", price, quantity);
+    order.setTimeInForce(timeInForce);
+    order.setAccount(account);
+    return order;
+  }
+
+  private record RecordingListener(List<String> events) implements BookListener, OrderListener {
+
+    @Override
+    public void tradeExecuted(
+        String symbol, long tradeSequence, OrderType takerSide, BigDecimal price, int quantity) {
+      events.add("trade " + tradeSequence + " " + takerSide + " " + price + " " + quantity);
+    }
+
+    @Override
+    public void levelUpdated(
+        String symbol,
+        LevelAction action,
+        OrderType side,
+        BigDecimal price,
+        int quantity,
+        int orderCount) {
+      events.add(action + " " + side + " " + price + " " + quantity + " " + orderCount);
+    }
+
+    @Override
+    public void quantityChanged(OrderBook orderBook, Order order, int delta) {
+      events.add("changed " + order.getId() + " " + order.getAccount() + " " + delta);
+    }
+
+    @Override
+    public void restingOrderFilled(
+        OrderBook orderBook,
+        long idHigh,
+        long idLow,
+        OrderType side,
+        String account,
+        BigDecimal price,
+        int quantity,
+        int unfilledQuantity) {
+      events.add(
+          "resting filled "
+              + new UUID(idHigh, idLow)
+              + " "
+              + side
+              + " "
+              + account
+              + " "
+              + price
+              + " "
+              + quantity
+              + " "
+              + unfilledQuantity);
+    }
+
+    @Override
+    public void orderFilled(OrderBook orderBook, Order order, BigDecimal price, int quantity) {
+      events.add(
+          "filled "
+              + order.getId()
+              + " "
+              + order.getAccount()
+              + " "
+              + price
+              + " "
+              + quantity
+              + " "
+              + order.getUnfilledQuantity());
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package com.trading.orderbook.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class MarketOrderTest {
+
+  private static BidOrder marketBuy(int quantity) {
+    return new BidOrder(UUID.randomUUID(), "AAPL", OrderKind.MARKET, null, null, quantity);
+  }
+
+  private static OfferOrder marketSell(int quantity) {
+    return new OfferOrder(UUID.randomUUID(), "AAPL", OrderKind.MARKET, null, null, quantity);
+  }
+
+  private static List<Trade> trades(OrderBook orderBook) {
+    List<Trade> trades = new ArrayList<>();
+    orderBook.getTrades().subscribe(0).poll(trades::add, Integer.MAX_VALUE);
+    return trades;
+  }
+
+  @Test
+  void marketOrderHasNoPrice() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new BidOrder(UUID.randomUUID(), "AAPL", OrderKind.MARKET, BigDecimal.ONE, null, 1));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new BidOrder(UUID.randomUUID(), "AAPL", OrderKind.MARKET, null, BigDecimal.ONE, 1));
+  }
+
+  @Test
+  void marketOrderSweepsTheBookAndDropsTheRest() {
+    OrderBook orderBook = new DefaultOrderBook("AAPL");
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 2));
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(90), 2));
+    OfferOrder sell = marketSell(5);
+    orderBook.addOfferOrder(sell);
+
+    assertNull(sell.getPrice());
+    assertEquals(1, sell.getUnfilledQuantity());
+    assertEquals(OrderStatus.CANCELLED, sell.getStatus());
+    assertEquals(
+        List.of(BigDecimal.valueOf(100), BigDecimal.valueOf(90)),
+        trades(orderBook).stream().map(Trade::price).toList());
+    assertTrue(orderBook.orderbookDepth().isEmpty());
+
+    OfferOrder nothing = marketSell(1);
+    orderBook.addOfferOrder(nothing);
+    assertEquals(OrderStatus.CANCELLED, nothing.getStatus());
+  }
+
+  @Test
+  void protectionBandStopsTheSweep() {
+    OrderBook orderBook = new PriceLadderOrderBook("AAPL", new BigDecimal("0.01"), 16);
+    orderBook.setProtectionBand(new BigDecimal("0.05"));
+    for (int price = 100; price <= 110; price++) {
+      orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(price), 1));
+    }
+    BidOrder buy = marketBuy(10);
+    orderBook.adBidOrder(buy);
+
+    // the band reaches 105 from a best offer of 100
+    assertEquals(4, buy.getUnfilledQuantity());
+    assertEquals(OrderStatus.CANCELLED, buy.getStatus());
+    assertEquals(BigDecimal.valueOf(105), orderBook.getLastTradePrice());
+    assertEquals(new OrderBookDepth(BigDecimal.valueOf(106), 1, OrderType.SELL), best(orderBook));
+
+    // a FOK market order only counts the quantity within the band
+    BidOrder killed = marketBuy(6);
+    killed.setTimeInForce(TimeInForce.FOK);
+    orderBook.adBidOrder(killed);
+    assertEquals(OrderStatus.CANCELLED, killed.getStatus());
+    assertEquals(6, killed.getUnfilledQuantity());
+    assertEquals(5, orderBook.stats().offerLevels());
+  }
+
+  @Test
+  void triggeredStopOrderRespectsTheProtectionBand() {
+    OrderBook orderBook = new DefaultOrderBook("AAPL");
+    orderBook.setProtectionBand(new BigDecimal("0.01"));
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 1));
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(99), 1));
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(98), 1));
+    OfferOrder stop =
+        new OfferOrder(UUID.randomUUID(), "AAPL", OrderKind.STOP, null, BigDecimal.valueOf(100), 3);
+    orderBook.addOfferOrder(stop);
+
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 1));
+
+    // triggered at 100 with a best bid of 99, the band reaches down to 98.01
+    assertEquals(2, stop.getUnfilledQuantity());
+    assertEquals(OrderStatus.CANCELLED, stop.getStatus());
+    assertEquals(
+        List.of(new OrderBookDepth(BigDecimal.valueOf(98), 1, OrderType.BUY)),
+        orderBook.orderbookDepth());
+  }
+
+  @Test
+  void sweepThroughManyLevelsRemovesThemTogether() {
+    int levels = 50_000;
+    for (OrderBook orderBook :
+        List.of(
+            new DefaultOrderBook("AAPL"),
+            new PriceLadderOrderBook("AAPL", BigDecimal.ONE, levels * 2))) {
+      for (int i = 0; i < levels; i++) {
+        orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(1_000 + 2L * i), 1));
+      }
+      orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(1_000_000), 1));
+      BidOrder buy = marketBuy(levels - 1);
+      orderBook.adBidOrder(buy);
+
+      assertEquals(OrderStatus.FILLED, buy.getStatus());
+      assertEquals(2, orderBook.stats().offerLevels());
+      assertEquals(
+          new OrderBookDepth(BigDecimal.valueOf(1_000 + 2L * (levels - 1)), 1, OrderType.SELL),
+          best(orderBook));
+
+      // the side keeps working after the bulk removal
+      orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(1_000), 1));
+      BidOrder limit = new BidOrder("AAPL", BigDecimal.valueOf(1_000_000), 3);
+      orderBook.adBidOrder(limit);
+      assertEquals(OrderStatus.FILLED, limit.getStatus());
+      assertTrue(orderBook.orderbookDepth().isEmpty());
+    }
+  }
+
+  private static OrderBookDepth best(OrderBook orderBook) {
+    return orderBook.topN(1).get(0);
+  }
+}
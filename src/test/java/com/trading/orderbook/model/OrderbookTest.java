@@ -1,9 +1,12 @@
 package com.trading.orderbook.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,7 +17,7 @@ class OrderbookTest {
 
   @BeforeEach
   void setUp() {
-    orderBook = new OrderBook("AAPL");
+    orderBook = new DefaultOrderBook("AAPL");
   }
 
   @Test
@@ -106,4 +109,123 @@ class OrderbookTest {
     assertEquals(OrderType.SELL, depths.get(0).type());
     assertEquals(10, depths.get(0).quantity());
   }
+
+  @Test
+  void offerOrderSweepsMultipleBidLevels() {
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 5));
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(101), 5));
+    OfferOrder offerOrder = new OfferOrder("AAPL", BigDecimal.valueOf(100), 10);
+    OfferOrder result = orderBook.addOfferOrder(offerOrder);
+    assertEquals(0, result.getUnfilledQuantity());
+    assertTrue(orderBook.orderbookDepth().isEmpty());
+  }
+
+  @Test
+  void depthAggregatesAreMaintainedAcrossFillsAndCancels() {
+    BidOrder first = new BidOrder("AAPL", BigDecimal.valueOf(100), 5);
+    BidOrder second = new BidOrder("AAPL", BigDecimal.valueOf(100), 7);
+    orderBook.adBidOrder(first);
+    orderBook.adBidOrder(second);
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 3));
+    assertEquals(9, orderBook.orderbookDepth().get(0).quantity());
+
+    orderBook.cancelOrder(second);
+    assertEquals(2, orderBook.orderbookDepth().get(0).quantity());
+
+    orderBook.cancelOrder(first);
+    assertTrue(orderBook.orderbookDepth().isEmpty());
+  }
+
+  @Test
+  void topNReturnsBestLevelsOfEachSide() {
+    for (int price = 90; price < 100; price++) {
+      orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(price), 1));
+      orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(price + 20), 2));
+    }
+
+    assertEquals(
+        List.of(
+            new OrderBookDepth(BigDecimal.valueOf(99), 1, OrderType.BUY),
+            new OrderBookDepth(BigDecimal.valueOf(98), 1, OrderType.BUY),
+            new OrderBookDepth(BigDecimal.valueOf(110), 2, OrderType.SELL),
+            new OrderBookDepth(BigDecimal.valueOf(111), 2, OrderType.SELL)),
+        orderBook.topN(2));
+    assertEquals(20, orderBook.topN(50).size());
+  }
+
+  @Test
+  void amendDownKeepsPriorityAndAmendUpLosesIt() {
+    BidOrder first = new BidOrder("AAPL", BigDecimal.valueOf(100), 5);
+    BidOrder second = new BidOrder("AAPL", BigDecimal.valueOf(100), 5);
+    orderBook.adBidOrder(first);
+    orderBook.adBidOrder(second);
+
+    assertTrue(orderBook.amendOrder(first, BigDecimal.valueOf(100), 3));
+    assertEquals(8, orderBook.orderbookDepth().get(0).quantity());
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 2));
+    assertEquals(1, first.getUnfilledQuantity());
+    assertEquals(5, second.getUnfilledQuantity());
+
+    // 2 of the new quantity of 6 were already filled, the rest queues behind the second bid
+    assertTrue(orderBook.amendOrder(first, BigDecimal.valueOf(100), 6));
+    assertEquals(4, first.getUnfilledQuantity());
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 5));
+    assertEquals(0, second.getUnfilledQuantity());
+    assertEquals(4, first.getUnfilledQuantity());
+  }
+
+  @Test
+  void amendToACrossingPriceMatches() {
+    OfferOrder offer = new OfferOrder("AAPL", BigDecimal.valueOf(101), 3);
+    BidOrder bid = new BidOrder("AAPL", BigDecimal.valueOf(100), 5);
+    orderBook.addOfferOrder(offer);
+    orderBook.adBidOrder(bid);
+
+    assertTrue(orderBook.amendOrder(bid, BigDecimal.valueOf(101), 5));
+    assertEquals(0, offer.getUnfilledQuantity());
+    assertEquals(2, bid.getUnfilledQuantity());
+    assertEquals(
+        List.of(new OrderBookDepth(BigDecimal.valueOf(101), 2, OrderType.BUY)),
+        orderBook.orderbookDepth());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> orderBook.amendOrder(bid, BigDecimal.valueOf(101), 3));
+    assertFalse(orderBook.amendOrder(offer, BigDecimal.valueOf(101), 5));
+  }
+
+  @Test
+  void cancelMillionOrdersWithFlatPerCancelLatency() {
+    int orderCount = 1_000_000;
+    int batchSize = 100_000;
+    BidOrder[] resting = new BidOrder[orderCount];
+    for (int i = 0; i < orderCount; i++) {
+      resting[i] = new BidOrder("AAPL", BigDecimal.valueOf(100 + i % 10), 1);
+      orderBook.adBidOrder(resting[i]);
+    }
+
+    // cancel from the back of the deep queues, the worst case for a scanning cancel
+    long[] batchNanos = new long[orderCount / batchSize];
+    for (int batch = 0; batch < batchNanos.length; batch++) {
+      long start = System.nanoTime();
+      for (int i = orderCount - 1 - batch * batchSize;
+          i >= orderCount - (batch + 1) * batchSize;
+          i--) {
+        orderBook.cancelOrder(resting[i]);
+      }
+      batchNanos[batch] = System.nanoTime() - start;
+    }
+
+    assertTrue(orderBook.orderbookDepth().isEmpty());
+    // the first batch includes JIT warm-up, the rest should cost the same per cancel
+    long fastest = Long.MAX_VALUE;
+    long slowest = 0;
+    for (int batch = 1; batch < batchNanos.length; batch++) {
+      fastest = Math.min(fastest, batchNanos[batch]);
+      slowest = Math.max(slowest, batchNanos[batch]);
+    }
+    assertTrue(
+        slowest < fastest * 10,
+        "per-cancel latency is not flat, batch nanos: " + Arrays.toString(batchNanos));
+  }
 }
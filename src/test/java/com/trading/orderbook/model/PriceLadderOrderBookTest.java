@@ -0,0 +1,162 @@
+package com.trading.orderbook.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PriceLadderOrderBookTest {
+
+  private PriceLadderOrderBook orderBook;
+
+  @BeforeEach
+  void setUp() {
+    orderBook = new PriceLadderOrderBook("AAPL", new BigDecimal("0.01"), 16);
+  }
+
+  @Test
+  void matchBidOrderWithOfferOrder() {
+    OfferOrder offerOrder = new OfferOrder("AAPL", new BigDecimal("100.00"), 5);
+    orderBook.addOrder(offerOrder);
+    BidOrder bidOrder = new BidOrder("AAPL", new BigDecimal("100"), 5);
+    orderBook.addOrder(bidOrder);
+    assertEquals(0, bidOrder.getUnfilledQuantity());
+    assertEquals(0, offerOrder.getUnfilledQuantity());
+    assertTrue(orderBook.orderbookDepth().isEmpty());
+  }
+
+  @Test
+  void bidOrderSweepsOfferLevelsInPriceTimePriority() {
+    OfferOrder first = new OfferOrder("AAPL", new BigDecimal("100.01"), 5);
+    OfferOrder second = new OfferOrder("AAPL", new BigDecimal("100.01"), 5);
+    OfferOrder cheapest = new OfferOrder("AAPL", new BigDecimal("100.00"), 5);
+    OfferOrder tooExpensive = new OfferOrder("AAPL", new BigDecimal("100.03"), 5);
+    orderBook.addOrder(first);
+    orderBook.addOrder(second);
+    orderBook.addOrder(cheapest);
+    orderBook.addOrder(tooExpensive);
+
+    BidOrder bidOrder = new BidOrder("AAPL", new BigDecimal("100.02"), 12);
+    orderBook.addOrder(bidOrder);
+
+    assertEquals(0, bidOrder.getUnfilledQuantity());
+    assertEquals(0, cheapest.getUnfilledQuantity());
+    assertEquals(0, first.getUnfilledQuantity());
+    assertEquals(3, second.getUnfilledQuantity());
+    assertEquals(
+        List.of(
+            new OrderBookDepth(new BigDecimal("100.01"), 3, OrderType.SELL),
+            new OrderBookDepth(new BigDecimal("100.03"), 5, OrderType.SELL)),
+        orderBook.orderbookDepth());
+  }
+
+  @Test
+  void offerOrderSweepsBidLevelsAndRestsRemainder() {
+    orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("99.99"), 5));
+    orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("100.00"), 5));
+
+    OfferOrder offerOrder = new OfferOrder("AAPL", new BigDecimal("99.99"), 12);
+    orderBook.addOrder(offerOrder);
+
+    assertEquals(2, offerOrder.getUnfilledQuantity());
+    assertEquals(
+        List.of(new OrderBookDepth(new BigDecimal("99.99"), 2, OrderType.SELL)),
+        orderBook.orderbookDepth());
+  }
+
+  @Test
+  void ladderGrowsWhenPricesSpanMoreThanCapacity() {
+    orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("1.00"), 1));
+    orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("5.00"), 2));
+    orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("3.00"), 3));
+
+    List<OrderBookDepth> depths = orderBook.orderbookDepth();
+    assertEquals(3, depths.size());
+    assertEquals(new BigDecimal("1.00"), depths.get(0).price());
+    assertEquals(new BigDecimal("3.00"), depths.get(1).price());
+    assertEquals(new BigDecimal("5.00"), depths.get(2).price());
+
+    OfferOrder offerOrder = new OfferOrder("AAPL", new BigDecimal("1.00"), 6);
+    orderBook.addOrder(offerOrder);
+    assertEquals(0, offerOrder.getUnfilledQuantity());
+    assertTrue(orderBook.orderbookDepth().isEmpty());
+  }
+
+  @Test
+  void ladderFollowsTheMarketAfterLevelsEmpty() {
+    orderBook.addOrder(new OfferOrder("AAPL", new BigDecimal("10.00"), 1));
+    orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("10.00"), 1));
+    orderBook.addOrder(new OfferOrder("AAPL", new BigDecimal("20.00"), 1));
+    orderBook.addOrder(new OfferOrder("AAPL", new BigDecimal("20.05"), 1));
+
+    assertEquals(
+        List.of(
+            new OrderBookDepth(new BigDecimal("20.00"), 1, OrderType.SELL),
+            new OrderBookDepth(new BigDecimal("20.05"), 1, OrderType.SELL)),
+        orderBook.orderbookDepth());
+  }
+
+  @Test
+  void cancelOrderRemovesItFromTheLadder() {
+    BidOrder best = new BidOrder("AAPL", new BigDecimal("100.00"), 5);
+    BidOrder next = new BidOrder("AAPL", new BigDecimal("99.98"), 5);
+    orderBook.addOrder(best);
+    orderBook.addOrder(next);
+
+    orderBook.cancelOrder(best);
+
+    OfferOrder offerOrder = new OfferOrder("AAPL", new BigDecimal("99.98"), 5);
+    orderBook.addOrder(offerOrder);
+    assertEquals(0, next.getUnfilledQuantity());
+    assertEquals(5, best.getUnfilledQuantity());
+    assertTrue(orderBook.orderbookDepth().isEmpty());
+  }
+
+  @Test
+  void topNWalksFromTheBestTick() {
+    orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("99.90"), 1));
+    orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("99.95"), 2));
+    orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("99.95"), 3));
+    orderBook.addOrder(new OfferOrder("AAPL", new BigDecimal("100.05"), 4));
+    orderBook.addOrder(new OfferOrder("AAPL", new BigDecimal("100.10"), 5));
+
+    assertEquals(
+        List.of(
+            new OrderBookDepth(new BigDecimal("99.95"), 5, OrderType.BUY),
+            new OrderBookDepth(new BigDecimal("100.05"), 4, OrderType.SELL)),
+        orderBook.topN(1));
+    assertEquals(4, orderBook.topN(10).size());
+  }
+
+  @Test
+  void rejectsPriceOffTheTickGrid() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> orderBook.addOrder(new BidOrder("AAPL", new BigDecimal("100.005"), 1)));
+  }
+
+  @Test
+  void refusesPricesTooFarFromTheSideBeforeTheyTrade() {
+    BidOrder resting = new BidOrder("AAPL", new BigDecimal("1.00"), 5);
+    orderBook.addOrder(resting);
+    OfferOrder offer = new OfferOrder("AAPL", new BigDecimal("1.01"), 5);
+    orderBook.addOrder(offer);
+
+    BidOrder far = new BidOrder("AAPL", new BigDecimal("20000.00"), 5);
+    assertThrows(IllegalArgumentException.class, () -> orderBook.checkOrder(far));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> orderBook.checkAmend(resting, new BigDecimal("20000.00")));
+    orderBook.checkOrder(new BidOrder("AAPL", new BigDecimal("5000.00"), 5));
+
+    orderBook.addOrder(far);
+    assertEquals(OrderStatus.CANCELLED, far.getStatus());
+    assertEquals(5, far.getUnfilledQuantity());
+    assertEquals(5, offer.getUnfilledQuantity());
+    assertEquals(2, orderBook.orderbookDepth().size());
+  }
+}
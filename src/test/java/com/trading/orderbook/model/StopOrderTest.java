@@ -0,0 +1,195 @@
+package com.trading.orderbook.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class StopOrderTest {
+
+  private final OrderBook orderBook = new DefaultOrderBook("AAPL");
+  private final TradeEventBuffer.Subscription trades = orderBook.getTrades().subscribe();
+
+  private static BidOrder buy(OrderKind kind, String price, String stopPrice, int quantity) {
+    return new BidOrder(
+        UUID.randomUUID(),
+        "AAPL",
+        kind,
+        price == null ? null : new BigDecimal(price),
+        new BigDecimal(stopPrice),
+        quantity);
+  }
+
+  private static OfferOrder sell(OrderKind kind, String price, String stopPrice, int quantity) {
+    return new OfferOrder(
+        UUID.randomUUID(),
+        "AAPL",
+        kind,
+        price == null ? null : new BigDecimal(price),
+        new BigDecimal(stopPrice),
+        quantity);
+  }
+
+  private List<Trade> newTrades() {
+    List<Trade> polled = new ArrayList<>();
+    trades.poll(polled::add, Integer.MAX_VALUE);
+    return polled;
+  }
+
+  @Test
+  void stopOrderStaysDormantUntilTheLastTradeReachesItsStopPrice() {
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(101), 2));
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(105), 2));
+    BidOrder stop = buy(OrderKind.STOP, null, "101", 3);
+    orderBook.adBidOrder(stop);
+
+    assertEquals(OrderStatus.PENDING, stop.getStatus());
+    assertEquals(new BigDecimal("101"), stop.getPrice());
+    assertNull(orderBook.getLastTradePrice());
+    assertEquals(2, orderBook.orderbookDepth().size());
+    assertEquals(1, orderBook.pendingStops().size());
+
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 1));
+    assertEquals(OrderStatus.PENDING, stop.getStatus());
+
+    // a trade at 101 triggers the stop, which buys at any price and does not rest
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(101), 1));
+    assertTrue(stop.isTriggered());
+    assertEquals(0, stop.getUnfilledQuantity());
+    List<Trade> polled = newTrades();
+    assertEquals(3, polled.size());
+    assertEquals(stop.getId(), polled.get(1).takerOrderId());
+    assertEquals(new BigDecimal("101"), polled.get(1).price());
+    assertEquals(new BigDecimal("105"), polled.get(2).price());
+    assertEquals(new BigDecimal("105"), orderBook.getLastTradePrice());
+    assertTrue(orderBook.pendingStops().isEmpty());
+    assertEquals(1, orderBook.orderbookDepth().size());
+  }
+
+  @Test
+  void stopOrderDropsWhatItCannotFill() {
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 2));
+    OfferOrder stop = sell(OrderKind.STOP, null, "100", 5);
+    orderBook.addOfferOrder(stop);
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 1));
+
+    assertEquals(OrderStatus.CANCELLED, stop.getStatus());
+    assertEquals(4, stop.getUnfilledQuantity());
+    assertTrue(orderBook.orderbookDepth().isEmpty());
+  }
+
+  @Test
+  void stopLimitOrderEntersTheBookAtItsLimitOnceTriggered() {
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(99), 1));
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(97), 1));
+    OfferOrder stopLimit = sell(OrderKind.STOP_LIMIT, "98", "99", 3);
+    orderBook.addOfferOrder(stopLimit);
+
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(99), 1));
+
+    assertTrue(stopLimit.isTriggered());
+    assertEquals(OrderStatus.OPEN, stopLimit.getStatus());
+    assertEquals(
+        List.of(
+            new OrderBookDepth(BigDecimal.valueOf(97), 1, OrderType.BUY),
+            new OrderBookDepth(new BigDecimal("98"), 3, OrderType.SELL)),
+        orderBook.orderbookDepth());
+  }
+
+  @Test
+  void stopEnteredAfterTheMarketPassedItsStopPriceTriggersAtOnce() {
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 1));
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 1));
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(102), 1));
+
+    BidOrder stop = buy(OrderKind.STOP_LIMIT, "102", "99", 2);
+    orderBook.adBidOrder(stop);
+
+    assertTrue(stop.isTriggered());
+    assertEquals(1, stop.getUnfilledQuantity());
+    assertEquals(
+        List.of(new OrderBookDepth(new BigDecimal("102"), 1, OrderType.BUY)),
+        orderBook.orderbookDepth());
+  }
+
+  @Test
+  void cascadingStopsRunInTriggerOrderWithoutRecursion() {
+    int levels = 20_000;
+    for (int price = 1; price <= levels; price++) {
+      orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(price), 1));
+    }
+    // each sell stop sells into the next bid down, whose trade triggers the next stop
+    for (int price = levels; price >= 2; price--) {
+      orderBook.addOfferOrder(sell(OrderKind.STOP, null, Integer.toString(price), 1));
+    }
+    newTrades();
+
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(levels), 1));
+
+    // the trade stream only retains the most recent trades, which walk down to the lowest bid
+    List<Trade> polled = newTrades();
+    assertEquals(levels, orderBook.getTrades().nextSequence());
+    for (int i = 0; i < polled.size(); i++) {
+      assertEquals(BigDecimal.valueOf(polled.size() - i), polled.get(i).price());
+    }
+    assertEquals(BigDecimal.ONE, orderBook.getLastTradePrice());
+    assertTrue(orderBook.orderbookDepth().isEmpty());
+    assertTrue(orderBook.pendingStops().isEmpty());
+  }
+
+  @Test
+  void stopsTriggeredTogetherRunByStopPriceThenTimePriority() {
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 1));
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(101), 1));
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(102), 1));
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(103), 1));
+    BidOrder later = buy(OrderKind.STOP, null, "99", 1);
+    BidOrder first = buy(OrderKind.STOP, null, "98", 1);
+    BidOrder second = buy(OrderKind.STOP, null, "99", 1);
+    orderBook.adBidOrder(later);
+    orderBook.adBidOrder(first);
+    orderBook.adBidOrder(second);
+    newTrades();
+
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 1));
+
+    List<Trade> polled = newTrades();
+    assertEquals(
+        List.of(
+            new BigDecimal("100"), new BigDecimal("101"),
+            new BigDecimal("102"), new BigDecimal("103")),
+        polled.stream().map(Trade::price).toList());
+    assertEquals(
+        List.of(first.getId(), later.getId(), second.getId()),
+        polled.subList(1, 4).stream().map(Trade::takerOrderId).toList());
+  }
+
+  @Test
+  void cancelledStopNeverTriggers() {
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 2));
+    BidOrder stop = buy(OrderKind.STOP, null, "100", 1);
+    orderBook.adBidOrder(stop);
+    orderBook.cancelOrder(stop);
+    assertTrue(orderBook.pendingStops().isEmpty());
+
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 1));
+    assertFalse(stop.isTriggered());
+    assertEquals(1, orderBook.orderbookDepth().get(0).quantity());
+  }
+
+  @Test
+  void ordersMustHaveThePricesOfTheirKind() {
+    assertThrows(IllegalArgumentException.class, () -> buy(OrderKind.STOP_LIMIT, null, "1", 1));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new BidOrder(UUID.randomUUID(), "AAPL", OrderKind.STOP, BigDecimal.ONE, null, 1));
+    assertThrows(IllegalArgumentException.class, () -> buy(OrderKind.LIMIT, "1", "1", 1));
+  }
+}
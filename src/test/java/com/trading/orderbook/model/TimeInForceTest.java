@@ -0,0 +1,168 @@
+package com.trading.orderbook.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class TimeInForceTest {
+
+  private static final long NOW = 1_700_000_000_000L;
+
+  private final OrderBook orderBook = new DefaultOrderBook("AAPL");
+
+  private static BidOrder buy(String price, int quantity, TimeInForce timeInForce) {
+    BidOrder order = new BidOrder("AAPL", new BigDecimal(price), quantity);
+    order.setTimeInForce(timeInForce);
+    return order;
+  }
+
+  private static OfferOrder sell(String price, int quantity, long expireTime) {
+    OfferOrder order = new OfferOrder("AAPL", new BigDecimal(price), quantity);
+    order.setTimeInForce(TimeInForce.GTD);
+    order.setExpireTime(expireTime);
+    return order;
+  }
+
+  private List<OrderBookDepth> depth() {
+    return orderBook.orderbookDepth();
+  }
+
+  @Test
+  void immediateOrCancelOrderDropsWhatItCannotFill() {
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 2));
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(102), 2));
+    BidOrder order = buy("101", 5, TimeInForce.IOC);
+    orderBook.adBidOrder(order);
+
+    assertEquals(3, order.getUnfilledQuantity());
+    assertEquals(OrderStatus.CANCELLED, order.getStatus());
+    assertEquals(List.of(new OrderBookDepth(BigDecimal.valueOf(102), 2, OrderType.SELL)), depth());
+  }
+
+  @Test
+  void fillOrKillOrderTradesOnlyIfItsWholeQuantityIsAvailable() {
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 2));
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(101), 2));
+    orderBook.addOfferOrder(new OfferOrder("AAPL", BigDecimal.valueOf(103), 5));
+    TradeEventBuffer.Subscription trades = orderBook.getTrades().subscribe();
+
+    // 4 are offered at or below 101, and the 5 at 103 are beyond the limit
+    BidOrder killed = buy("101", 5, TimeInForce.FOK);
+    orderBook.adBidOrder(killed);
+    assertEquals(OrderStatus.CANCELLED, killed.getStatus());
+    assertEquals(5, killed.getUnfilledQuantity());
+    assertEquals(0, trades.poll(trade -> {}, Integer.MAX_VALUE));
+    assertEquals(3, depth().size());
+
+    BidOrder filled = buy("103", 5, TimeInForce.FOK);
+    orderBook.adBidOrder(filled);
+    assertEquals(OrderStatus.FILLED, filled.getStatus());
+    assertEquals(3, trades.poll(trade -> {}, Integer.MAX_VALUE));
+    assertEquals(List.of(new OrderBookDepth(BigDecimal.valueOf(103), 4, OrderType.SELL)), depth());
+  }
+
+  @Test
+  void fillOrKillCheckWorksOnThePriceLadder() {
+    OrderBook ladder = new PriceLadderOrderBook("AAPL", new BigDecimal("0.5"), 8);
+    ladder.addOfferOrder(new OfferOrder("AAPL", new BigDecimal("100"), 2));
+    ladder.addOfferOrder(new OfferOrder("AAPL", new BigDecimal("104.5"), 2));
+
+    OfferOrder sell = new OfferOrder("AAPL", new BigDecimal("99"), 1);
+    sell.setTimeInForce(TimeInForce.FOK);
+    ladder.addOfferOrder(sell);
+    assertEquals(OrderStatus.CANCELLED, sell.getStatus());
+
+    BidOrder killed = buy("104", 3, TimeInForce.FOK);
+    ladder.adBidOrder(killed);
+    assertEquals(OrderStatus.CANCELLED, killed.getStatus());
+
+    BidOrder filled = buy("104.5", 3, TimeInForce.FOK);
+    ladder.adBidOrder(filled);
+    assertEquals(OrderStatus.FILLED, filled.getStatus());
+    assertEquals(
+        List.of(new OrderBookDepth(new BigDecimal("104.5"), 1, OrderType.SELL)),
+        ladder.orderbookDepth());
+  }
+
+  @Test
+  void expiredOrdersLeaveTheBookTogetherAtTheirExpireTime() {
+    List<OfferOrder> expiring = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      OfferOrder order = sell(Integer.toString(100 + i % 10), 1, NOW + 60_000);
+      expiring.add(order);
+      orderBook.addOfferOrder(order);
+    }
+    OfferOrder later = sell("100", 1, NOW + 60_001);
+    orderBook.addOfferOrder(later);
+    OfferOrder forever = new OfferOrder("AAPL", BigDecimal.valueOf(100), 1);
+    orderBook.addOfferOrder(forever);
+
+    assertTrue(orderBook.expireOrders(NOW).isEmpty());
+    assertTrue(orderBook.expireOrders(NOW + 59_999).isEmpty());
+    List<Order> expired = orderBook.expireOrders(NOW + 60_000);
+    assertEquals(expiring, expired);
+    assertTrue(expired.stream().allMatch(order -> order.getStatus() == OrderStatus.EXPIRED));
+    assertEquals(List.of(new OrderBookDepth(BigDecimal.valueOf(100), 2, OrderType.SELL)), depth());
+
+    assertEquals(List.of(later), orderBook.expireOrders(NOW + 61_000));
+    assertFalse(orderBook.hasScheduledExpiries());
+    assertEquals(OrderStatus.OPEN, forever.getStatus());
+  }
+
+  @Test
+  void distantExpiriesCascadeDownToTheMillisecond() {
+    long[] expireTimes = {
+      NOW + 63, NOW + 64, NOW + 4_095, NOW + 4_097, NOW + 86_400_000L, NOW + (1L << 43)
+    };
+    List<OfferOrder> orders = new ArrayList<>();
+    for (long expireTime : expireTimes) {
+      OfferOrder order = sell("100", 1, expireTime);
+      orders.add(order);
+      orderBook.addOfferOrder(order);
+    }
+    orderBook.expireOrders(NOW);
+
+    for (int i = 0; i < expireTimes.length; i++) {
+      assertTrue(orderBook.expireOrders(expireTimes[i] - 1).isEmpty());
+      assertEquals(List.of(orders.get(i)), orderBook.expireOrders(expireTimes[i]));
+    }
+    assertFalse(orderBook.hasScheduledExpiries());
+  }
+
+  @Test
+  void filledCancelledAndTriggeredOrdersNoLongerExpire() {
+    OfferOrder filled = sell("100", 1, NOW + 10);
+    OfferOrder cancelled = sell("101", 1, NOW + 10);
+    OfferOrder resting = sell("102", 1, NOW + 10);
+    orderBook.addOfferOrder(filled);
+    orderBook.addOfferOrder(cancelled);
+    orderBook.addOfferOrder(resting);
+    orderBook.expireOrders(NOW);
+    orderBook.adBidOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 1));
+    orderBook.cancelOrder(cancelled);
+
+    BidOrder stop =
+        new BidOrder(
+            UUID.randomUUID(),
+            "AAPL",
+            OrderKind.STOP_LIMIT,
+            BigDecimal.valueOf(99),
+            BigDecimal.valueOf(200),
+            1);
+    stop.setTimeInForce(TimeInForce.GTD);
+    stop.setExpireTime(NOW + 5);
+    orderBook.adBidOrder(stop);
+
+    assertEquals(List.of(stop, resting), orderBook.expireOrders(NOW + 10));
+    assertEquals(OrderStatus.EXPIRED, stop.getStatus());
+    assertTrue(orderBook.pendingStops().isEmpty());
+    assertEquals(OrderStatus.FILLED, filled.getStatus());
+    assertTrue(depth().isEmpty());
+  }
+}
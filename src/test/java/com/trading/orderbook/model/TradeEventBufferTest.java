@@ -0,0 +1,67 @@
+package com.trading.orderbook.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TradeEventBufferTest {
+
+  @Test
+  void matchingEmitsOneTradePerFillAtTheMakerPrice() {
+    OrderBook orderBook = new DefaultOrderBook("AAPL");
+    TradeEventBuffer.Subscription subscription = orderBook.getTrades().subscribe();
+    OfferOrder first = new OfferOrder("AAPL", BigDecimal.valueOf(100), 3);
+    OfferOrder second = new OfferOrder("AAPL", BigDecimal.valueOf(101), 3);
+    orderBook.addOrder(first);
+    orderBook.addOrder(second);
+    BidOrder bidOrder = new BidOrder("AAPL", BigDecimal.valueOf(102), 5);
+    orderBook.addOrder(bidOrder, 1_700_000_000_000L);
+
+    List<Trade> trades = new ArrayList<>();
+    assertEquals(2, subscription.poll(trades::add, 10));
+
+    assertEquals(0, trades.get(0).sequence());
+    assertEquals(first.getId(), trades.get(0).makerOrderId());
+    assertEquals(bidOrder.getId(), trades.get(0).takerOrderId());
+    assertEquals(OrderType.BUY, trades.get(0).takerSide());
+    assertEquals(BigDecimal.valueOf(100), trades.get(0).price());
+    assertEquals(3, trades.get(0).quantity());
+    assertEquals(1_700_000_000_000L, trades.get(0).timestamp());
+
+    assertEquals(1, trades.get(1).sequence());
+    assertEquals(second.getId(), trades.get(1).makerOrderId());
+    assertEquals(BigDecimal.valueOf(101), trades.get(1).price());
+    assertEquals(2, trades.get(1).quantity());
+    assertEquals(1_700_000_000_000L, trades.get(1).timestamp());
+    assertEquals(0, subscription.poll(trades::add, 10));
+  }
+
+  @Test
+  void subscribersReadInBatchesAtTheirOwnPace() {
+    TradeEventBuffer buffer = new TradeEventBuffer("AAPL", 8);
+    TradeEventBuffer.Subscription fast = buffer.subscribe();
+    TradeEventBuffer.Subscription slow = buffer.subscribe();
+    BidOrder taker = new BidOrder("AAPL", BigDecimal.ONE, 100);
+    OfferOrder maker = new OfferOrder("AAPL", BigDecimal.ONE, 100);
+    for (int i = 0; i < 5; i++) {
+      buffer.publish(maker, taker, BigDecimal.ONE, i + 1, 1000L * i);
+    }
+
+    List<Integer> quantities = new ArrayList<>();
+    assertEquals(3, fast.poll(trade -> quantities.add(trade.quantity()), 3));
+    assertEquals(2, fast.poll(trade -> quantities.add(trade.quantity()), 3));
+    assertEquals(List.of(1, 2, 3, 4, 5), quantities);
+
+    for (int i = 5; i < 12; i++) {
+      buffer.publish(maker, taker, BigDecimal.ONE, i + 1, 1000L * i);
+    }
+    List<Long> sequences = new ArrayList<>();
+    assertEquals(8, slow.poll(trade -> sequences.add(trade.sequence()), 100));
+    assertEquals(4, slow.lost());
+    assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L), sequences);
+    assertEquals(12, slow.position());
+  }
+}
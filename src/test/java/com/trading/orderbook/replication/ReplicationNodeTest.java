@@ -0,0 +1,209 @@
+package com.trading.orderbook.replication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.journal.CommandJournal;
+import com.trading.orderbook.journal.FsyncPolicy;
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplicationNodeTest {
+
+  @TempDir Path directory;
+
+  private final List<Node> nodes = new ArrayList<>();
+
+  /** A node as the application wires it, with its own journal and order books. */
+  private final class Node implements AutoCloseable {
+    final CommandJournal journal;
+    final OrderService orderService = new OrderService(new OrderBookService());
+    final ReplicationNode replication;
+
+    Node(String name, ReplicationProperties properties) {
+      journal =
+          new CommandJournal(
+              directory.resolve(name + ".journal"), 4096, FsyncPolicy.SYNC, 1, Duration.ZERO);
+      journal.replay(orderService::replay);
+      orderService.setJournal(journal);
+      replication = new ReplicationNode(properties, journal, orderService);
+      replication.start();
+      nodes.add(this);
+    }
+
+    @Override
+    public void close() {
+      if (nodes.remove(this)) {
+        replication.stop();
+        journal.close();
+      }
+    }
+  }
+
+  private static ReplicationProperties primary(int quorum, Duration ackTimeout) {
+    return new ReplicationProperties(
+        true,
+        ReplicationRole.PRIMARY,
+        "localhost",
+        0,
+        "localhost",
+        0,
+        quorum,
+        ackTimeout,
+        Duration.ofMillis(20),
+        Duration.ZERO);
+  }
+
+  private static ReplicationProperties backup(Node primary, Duration failoverTimeout) {
+    return new ReplicationProperties(
+        true,
+        ReplicationRole.BACKUP,
+        "localhost",
+        0,
+        "localhost",
+        primary.replication.getPort(),
+        0,
+        Duration.ofSeconds(1),
+        Duration.ofMillis(20),
+        failoverTimeout);
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "Timed out");
+      Thread.sleep(5);
+    }
+  }
+
+  @AfterEach
+  void closeNodes() {
+    new ArrayList<>(nodes).forEach(Node::close);
+  }
+
+  @Test
+  void backupAppliesTheCommandsOfThePrimary() throws Exception {
+    Node primary = new Node("primary", primary(1, Duration.ofSeconds(5)));
+    Node backup = new Node("backup", backup(primary, Duration.ZERO));
+    await(() -> primary.replication.getStatus().backups().size() == 1);
+
+    Order resting =
+        primary.orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(99), 5));
+    Order bid = primary.orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 10));
+    primary.orderService.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 4));
+    primary.orderService.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(101), 3));
+    primary.orderService.cancelOrder(resting.getId().toString());
+    primary.orderService.amendOrder(bid.getId().toString(), BigDecimal.valueOf(100), 8);
+
+    // every command returned only after the backup confirmed it
+    assertEquals(primary.journal.lastSequence(), backup.journal.lastSequence());
+    assertEquals(
+        primary.orderService.getDepth("AAPL", null), backup.orderService.getDepth("AAPL", null));
+    assertEquals(
+        primary.orderService.getAllOrders().size(), backup.orderService.getAllOrders().size());
+    Order replicated = backup.orderService.getOrderById(bid.getId().toString());
+    assertEquals(4, replicated.getUnfilledQuantity());
+  }
+
+  @Test
+  void commandsFailWithoutTheQuorum() {
+    Node primary = new Node("primary", primary(1, Duration.ofMillis(50)));
+
+    ReplicationTimeoutException e =
+        assertThrows(
+            ReplicationTimeoutException.class,
+            () ->
+                primary.orderService.createOrder(
+                    new BidOrder("AAPL", BigDecimal.valueOf(100), 10)));
+    assertEquals(1, e.getSequence());
+  }
+
+  @Test
+  void backupAcceptsCommandsOnlyOncePromoted() throws Exception {
+    Node primary = new Node("primary", primary(1, Duration.ofSeconds(5)));
+    Node backup = new Node("backup", backup(primary, Duration.ZERO));
+    await(() -> primary.replication.getStatus().backups().size() == 1);
+    Order bid = primary.orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 10));
+
+    NotPrimaryException e =
+        assertThrows(
+            NotPrimaryException.class,
+            () -> backup.orderService.cancelOrder(bid.getId().toString()));
+    assertEquals("localhost:" + primary.replication.getPort(), e.getPrimary());
+
+    primary.close();
+    backup.replication.promote();
+    assertEquals(ReplicationRole.PRIMARY, backup.replication.getRole());
+    backup.orderService.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 4));
+    assertEquals(6, backup.orderService.getOrderById(bid.getId().toString()).getUnfilledQuantity());
+    assertEquals(2, backup.journal.lastSequence());
+  }
+
+  @Test
+  void backupPromotesItselfAfterTheFailoverTimeout() throws Exception {
+    Node primary = new Node("primary", primary(1, Duration.ofSeconds(5)));
+    Node backup = new Node("backup", backup(primary, Duration.ofMillis(200)));
+    await(() -> primary.replication.getStatus().backups().size() == 1);
+    primary.orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 10));
+
+    primary.close();
+    await(() -> backup.replication.getRole() == ReplicationRole.PRIMARY);
+    assertTrue(backup.replication.getPort() > 0);
+    assertEquals(1, backup.orderService.getAllOrders().size());
+  }
+
+  @Test
+  void backupCatchesUpAfterReconnecting() throws Exception {
+    Node primary = new Node("primary", primary(0, Duration.ofSeconds(5)));
+    Node backup = new Node("backup", backup(primary, Duration.ZERO));
+    await(() -> primary.replication.getStatus().backups().size() == 1);
+    for (int i = 0; i < 10; i++) {
+      primary.orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(90 + i), i + 1));
+    }
+    await(() -> backup.journal.lastSequence() == 10);
+    backup.close();
+
+    for (int i = 0; i < 10; i++) {
+      primary.orderService.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(95 + i), i + 1));
+    }
+    Node restarted = new Node("backup", backup(primary, Duration.ZERO));
+    await(() -> restarted.journal.lastSequence() == 20);
+
+    assertEquals(
+        primary.orderService.getDepth("AAPL", null), restarted.orderService.getDepth("AAPL", null));
+    ReplicationStatus status = primary.replication.getStatus();
+    assertNotNull(status.backups().getFirst().address());
+    await(() -> primary.replication.getStatus().backups().getFirst().ackedSequence() == 20);
+  }
+
+  @Test
+  void divergedBackupIsRefused() throws Exception {
+    Node primary = new Node("primary", primary(0, Duration.ofSeconds(5)));
+    primary.orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 10));
+    try (CommandJournal ahead =
+        new CommandJournal(
+            directory.resolve("backup.journal"), 4096, FsyncPolicy.SYNC, 1, Duration.ZERO)) {
+      ahead.appendNewOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 1));
+      ahead.appendNewOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 2));
+    }
+
+    Node backup = new Node("backup", backup(primary, Duration.ZERO));
+    Thread.sleep(200);
+    assertEquals(2, backup.journal.lastSequence());
+    assertEquals(0, primary.replication.getStatus().backups().size());
+  }
+}
@@ -0,0 +1,176 @@
+package com.trading.orderbook.risk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.controller.RiskExceptionHandler;
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderKind;
+import com.trading.orderbook.model.OrderResult;
+import com.trading.orderbook.model.OrderState;
+import com.trading.orderbook.model.OrderStatus;
+import com.trading.orderbook.model.TimeInForce;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+class RiskEngineTest {
+
+  private final OrderBookService orderBookService = new OrderBookService();
+  private final OrderService orderService = new OrderService(orderBookService);
+
+  private RiskEngine enable(RiskLimits limits, Map<String, RiskLimits> accounts) {
+    RiskEngine riskEngine =
+        new RiskEngine(new RiskProperties(true, limits, accounts), orderBookService);
+    orderService.setRiskEngine(riskEngine);
+    return riskEngine;
+  }
+
+  private static Order buy(String account, int price, int quantity) {
+    Order order = new BidOrder("AAPL", BigDecimal.valueOf(price), quantity);
+    order.setAccount(account);
+    return order;
+  }
+
+  private static Order sell(String account, int price, int quantity) {
+    Order order = new OfferOrder("AAPL", BigDecimal.valueOf(price), quantity);
+    order.setAccount(account);
+    return order;
+  }
+
+  private static RiskCheck failedCheck(Runnable command) {
+    return assertThrows(RiskRejectedException.class, command::run).getCheck();
+  }
+
+  @Test
+  void ordersBeyondTheOrderLimitsAreRejected() {
+    enable(
+        new RiskLimits(100, BigDecimal.valueOf(5_000), 0, 0, new BigDecimal("0.1")),
+        Map.of("BIG", RiskLimits.none()));
+
+    assertEquals(
+        RiskCheck.ORDER_QUANTITY, failedCheck(() -> orderService.createOrder(buy("A", 1, 101))));
+    assertEquals(
+        RiskCheck.ORDER_NOTIONAL, failedCheck(() -> orderService.createOrder(buy("A", 60, 100))));
+    // accounts with limits of their own are not held to the default ones
+    orderService.createOrder(buy("BIG", 60, 101));
+
+    // the price band applies once the book has traded, here at 60
+    orderService.createOrder(sell("A", 50, 1));
+    assertEquals(
+        RiskCheck.PRICE_BAND, failedCheck(() -> orderService.createOrder(sell("A", 53, 1))));
+    orderService.createOrder(sell("A", 54, 1));
+    // market orders are valued at the last trade price
+    Order market = new OfferOrder(UUID.randomUUID(), "AAPL", OrderKind.MARKET, null, null, 99);
+    assertEquals(RiskCheck.ORDER_NOTIONAL, failedCheck(() -> orderService.createOrder(market)));
+    assertTrue(orderService.getAllOrders().stream().noneMatch(order -> order == market));
+  }
+
+  @Test
+  void exposureFollowsFillsCancelsExpiriesAndAmends() {
+    RiskEngine riskEngine = enable(RiskLimits.none(), Map.of());
+    Order resting = orderService.createOrder(buy("A", 100, 10));
+    orderService.createOrder(sell("B", 99, 4));
+    assertEquals(List.of(new AccountExposure("AAPL", 4, 6, 0)), riskEngine.getExposure("A"));
+    assertEquals(List.of(new AccountExposure("AAPL", -4, 0, 0)), riskEngine.getExposure("B"));
+
+    orderService.amendOrder(resting.getId().toString(), BigDecimal.valueOf(100), 12);
+    assertEquals(List.of(new AccountExposure("AAPL", 4, 8, 0)), riskEngine.getExposure("A"));
+
+    // an IOC order that only fills in part no longer counts once it is done
+    Order ioc = sell("B", 100, 10);
+    ioc.setTimeInForce(TimeInForce.IOC);
+    orderService.createOrder(ioc);
+    assertEquals(List.of(new AccountExposure("AAPL", -12, 0, 0)), riskEngine.getExposure("B"));
+
+    Order stop = new OfferOrder(UUID.randomUUID(), "AAPL", OrderKind.STOP, null, BigDecimal.ONE, 3);
+    stop.setAccount("B");
+    orderService.createOrder(stop);
+    Order timed = sell("B", 200, 5);
+    timed.setTimeInForce(TimeInForce.GTD);
+    timed.setExpireTime(System.currentTimeMillis() + 60_000);
+    orderService.createOrder(timed);
+    assertEquals(List.of(new AccountExposure("AAPL", -12, 0, 8)), riskEngine.getExposure("B"));
+    orderService.cancelOrder(stop.getId().toString());
+    orderService.expireOrders(timed.getExpireTime());
+    assertEquals(List.of(new AccountExposure("AAPL", -12, 0, 0)), riskEngine.getExposure("B"));
+
+    // cancelling a partially filled order releases what was left of it
+    orderService.cancelOrder(resting.getId().toString());
+    assertEquals(List.of(new AccountExposure("AAPL", 12, 0, 0)), riskEngine.getExposure("A"));
+    assertEquals(List.of(), riskEngine.getExposure("C"));
+  }
+
+  @Test
+  void positionAndOpenQuantityCountWorkingOrders() {
+    enable(new RiskLimits(0, BigDecimal.ZERO, 10, 15, BigDecimal.ZERO), Map.of());
+    Order resting = orderService.createOrder(buy("A", 100, 6));
+    // filling every working buy would take the position to 11
+    assertEquals(RiskCheck.POSITION, failedCheck(() -> orderService.createOrder(buy("A", 99, 5))));
+    assertEquals(
+        RiskCheck.POSITION,
+        failedCheck(() -> orderService.amendOrder(resting.getId().toString(), BigDecimal.ONE, 11)));
+    orderService.createOrder(sell("A", 101, 9));
+    assertEquals(
+        RiskCheck.OPEN_QUANTITY, failedCheck(() -> orderService.createOrder(sell("A", 101, 1))));
+    // other accounts and other symbols have counters of their own
+    orderService.createOrder(buy("B", 99, 10));
+    Order other = new BidOrder("MSFT", BigDecimal.ONE, 10);
+    other.setAccount("A");
+    orderService.createOrder(other);
+
+    // a fill moves quantity from working to position
+    orderService.createOrder(sell("C", 100, 6));
+    assertEquals(RiskCheck.POSITION, failedCheck(() -> orderService.createOrder(buy("A", 99, 5))));
+    orderService.createOrder(buy("A", 99, 4));
+  }
+
+  @Test
+  void rejectedOrdersOfABatchAreReportedWithoutStoppingIt() {
+    enable(new RiskLimits(10, BigDecimal.ZERO, 0, 0, BigDecimal.ZERO), Map.of());
+    List<OrderResult> results =
+        orderService.createOrders(List.of(buy("A", 100, 5), buy("A", 100, 11), sell("B", 100, 5)));
+
+    assertEquals(OrderStatus.FILLED, results.get(0).order().getStatus());
+    assertEquals(OrderStatus.REJECTED, results.get(1).order().getStatus());
+    assertTrue(results.get(1).fills().isEmpty());
+    assertEquals(OrderStatus.FILLED, results.get(2).order().getStatus());
+    assertEquals(2, orderService.getAllOrders().size());
+
+    ResponseEntity<Map<String, String>> response =
+        new RiskExceptionHandler()
+            .handleRejected(new RiskRejectedException(RiskCheck.POSITION, "Too long"));
+    assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+    assertEquals("POSITION", response.getBody().get("check"));
+  }
+
+  @Test
+  void restoredOrdersRebuildTheExposure() {
+    RiskEngine riskEngine = enable(RiskLimits.none(), Map.of());
+    orderService.createOrder(buy("A", 100, 10));
+    orderService.createOrder(sell("A", 105, 3));
+    orderService.createOrder(sell("B", 100, 4));
+
+    OrderBookService restoredBooks = new OrderBookService();
+    OrderService restored = new OrderService(restoredBooks);
+    RiskEngine restoredEngine =
+        new RiskEngine(new RiskProperties(true, RiskLimits.none(), Map.of()), restoredBooks);
+    restored.setRiskEngine(restoredEngine);
+    for (Order order : orderService.getAllOrders()) {
+      restored.restoreOrder(OrderState.of(order).toOrder());
+    }
+
+    assertEquals(List.of(new AccountExposure("AAPL", 4, 6, 3)), riskEngine.getExposure("A"));
+    assertEquals(riskEngine.getExposure("A"), restoredEngine.getExposure("A"));
+    assertEquals(riskEngine.getExposure("B"), restoredEngine.getExposure("B"));
+  }
+}
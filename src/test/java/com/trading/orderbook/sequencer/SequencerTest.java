@@ -0,0 +1,202 @@
+package com.trading.orderbook.sequencer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.DefaultOrderBook;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.model.PriceLadderOrderBook;
+import com.trading.orderbook.service.OrderBookService;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SequencerTest {
+
+  private Sequencer sequencer;
+
+  @BeforeEach
+  void setUp() {
+    sequencer = new Sequencer(new SequencerProperties(true, 2, 64, Duration.ZERO, 0.2));
+    sequencer.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    sequencer.stop();
+  }
+
+  @Test
+  void ringRunsCommandsInPublicationOrder() {
+    CommandRingBuffer ring = new CommandRingBuffer(8);
+    OrderBook orderBook = new DefaultOrderBook("AAPL");
+    List<Integer> executed = new ArrayList<>();
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      int index = i;
+      futures.add(
+          ring.publish(
+              orderBook,
+              book -> {
+                executed.add(index);
+                return index;
+              }));
+    }
+
+    assertEquals(5, ring.backlog());
+    assertEquals(5, ring.drain());
+    assertEquals(List.of(0, 1, 2, 3, 4), executed);
+    assertEquals(4, futures.get(4).join());
+    assertEquals(0, ring.backlog());
+  }
+
+  @Test
+  void concurrentProducersAcrossSymbolsMatchEveryOrder() throws Exception {
+    List<OrderBook> orderBooks =
+        List.of(
+            new DefaultOrderBook("AAPL"),
+            new DefaultOrderBook("MSFT"),
+            new DefaultOrderBook("IBM"),
+            new PriceLadderOrderBook("TSLA", new BigDecimal("0.01"), 64));
+    int producers = 4;
+    int ordersPerProducer = 5_000;
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    List<Future<?>> results = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      boolean buyer = p % 2 == 0;
+      results.add(
+          executor.submit(
+              () -> {
+                for (int i = 0; i < ordersPerProducer; i++) {
+                  OrderBook orderBook = orderBooks.get(i % orderBooks.size());
+                  String symbol = orderBook.getSymbol();
+                  BigDecimal price = new BigDecimal("100.00");
+                  sequencer.execute(
+                      orderBook,
+                      book ->
+                          book.addOrder(
+                              buyer
+                                  ? new BidOrder(symbol, price, 1)
+                                  : new OfferOrder(symbol, price, 1)));
+                }
+              }));
+    }
+    for (Future<?> result : results) {
+      result.get();
+    }
+    executor.shutdown();
+
+    for (OrderBook orderBook : orderBooks) {
+      assertTrue(
+          sequencer.execute(orderBook, OrderBook::orderbookDepth).isEmpty(), orderBook.getSymbol());
+    }
+  }
+
+  @Test
+  void commandFailuresAreRethrownToTheCaller() {
+    OrderBook orderBook = new PriceLadderOrderBook("TSLA", new BigDecimal("0.01"), 64);
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            sequencer.execute(
+                orderBook,
+                book -> book.addOrder(new BidOrder("TSLA", new BigDecimal("100.001"), 1))));
+  }
+
+  @Test
+  void hotSymbolsMoveToTheIdlestShard() {
+    OrderBookService orderBookService = new OrderBookService();
+    OrderBook aapl = orderBookService.getOrderBook("AAPL");
+    OrderBook msft = orderBookService.getOrderBook("MSFT");
+    OrderBook ibm = orderBookService.getOrderBook("IBM");
+    assertEquals(2, orderBookService.getSymbolId("IBM"));
+    assertSame(msft, orderBookService.getOrderBook(1));
+    assertEquals(List.of("AAPL", "MSFT", "IBM"), orderBookService.getSymbols());
+
+    run(aapl, 60);
+    run(msft, 10);
+    run(ibm, 50);
+    assertEquals(0, sequencer.shardIndex(aapl));
+    assertEquals(1, sequencer.shardIndex(msft));
+    assertEquals(0, sequencer.shardIndex(ibm));
+
+    // moving AAPL narrows the gap between 110 and 10 commands the most
+    assertEquals("AAPL", sequencer.rebalance());
+    assertEquals(1, sequencer.shardIndex(aapl));
+    assertNull(sequencer.rebalance());
+
+    run(aapl, 1);
+    List<ShardStats> stats = sequencer.getShardStats();
+    assertEquals(Map.of("IBM", 50L), stats.get(0).symbols());
+    assertEquals(Map.of("AAPL", 61L, "MSFT", 10L), stats.get(1).symbols());
+  }
+
+  @Test
+  void commandsKeepRunningWhileTheirSymbolMoves() throws Exception {
+    OrderBook orderBook = new OrderBookService().getOrderBook("AAPL");
+    int producers = 4;
+    int ordersPerProducer = 5_000;
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    List<Future<?>> results = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      boolean buyer = p % 2 == 0;
+      results.add(
+          executor.submit(
+              () -> {
+                for (int i = 0; i < ordersPerProducer; i++) {
+                  BigDecimal price = new BigDecimal("100.00");
+                  sequencer.execute(
+                      orderBook,
+                      book ->
+                          book.addOrder(
+                              buyer
+                                  ? new BidOrder("AAPL", price, 1)
+                                  : new OfferOrder("AAPL", price, 1)));
+                }
+              }));
+    }
+    AtomicBoolean done = new AtomicBoolean();
+    Thread mover =
+        new Thread(
+            () -> {
+              for (int shard = 1; !done.get(); shard = 1 - shard) {
+                sequencer.move("AAPL", shard);
+              }
+            });
+    mover.start();
+    for (Future<?> result : results) {
+      result.get();
+    }
+    done.set(true);
+    mover.join();
+    executor.shutdown();
+
+    assertTrue(sequencer.execute(orderBook, OrderBook::orderbookDepth).isEmpty());
+    assertEquals(
+        producers * ordersPerProducer + 1,
+        sequencer.getShardStats().stream()
+            .mapToLong(s -> s.symbols().getOrDefault("AAPL", 0L))
+            .sum());
+  }
+
+  private void run(OrderBook orderBook, int commands) {
+    for (int i = 0; i < commands; i++) {
+      sequencer.execute(orderBook, OrderBook::getVersion);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package com.trading.orderbook.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.trading.orderbook.engine.MatchingEngine;
+import com.trading.orderbook.engine.OrderStorage;
+import com.trading.orderbook.journal.CommandJournal;
+import com.trading.orderbook.journal.FsyncPolicy;
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.EngineOrderBook;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.model.OrderState;
+import com.trading.orderbook.model.OrderStatus;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EngineOrderBookServiceTest {
+
+  @TempDir Path directory;
+
+  private final OrderBookService orderBookService =
+      new OrderBookService(
+          PriceLadderProperties.none(),
+          MarketOrderProperties.none(),
+          new EngineProperties(Map.of("ENG", new BigDecimal("0.01")), Map.of(), 1024, 64));
+  private final OrderService orderService = new OrderService(orderBookService);
+
+  @Test
+  void configuredSymbolsGetAnEngineBook() {
+    assertInstanceOf(EngineOrderBook.class, orderBookService.getOrderBook("ENG"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OrderBookService(
+                new PriceLadderProperties(Map.of("ENG", BigDecimal.ONE), 64),
+                MarketOrderProperties.none(),
+                new EngineProperties(Map.of("ENG", BigDecimal.ONE), Map.of(), 1024, 64)));
+  }
+
+  @Test
+  void ordersAreLookedUpCancelledAndAmendedThroughCopies() {
+    Order resting = orderService.createOrder(new BidOrder("ENG", new BigDecimal("100.00"), 5));
+    Order other = orderService.createOrder(new BidOrder("ENG", new BigDecimal("99.00"), 5));
+
+    Order found = orderService.getOrderById(resting.getId().toString());
+    assertNotSame(resting, found);
+    assertEquals(5, found.getUnfilledQuantity());
+    assertEquals(2, orderService.getAllOrders().size());
+
+    Order amended = orderService.amendOrder(other.getId().toString(), new BigDecimal("100.00"), 3);
+    assertEquals(new BigDecimal("100.00"), amended.getPrice());
+    assertEquals(2, orderBookService.getOrderBook("ENG").stats().restingOrders());
+
+    Order taker = orderService.createOrder(new OfferOrder("ENG", new BigDecimal("100.00"), 6));
+    assertEquals(OrderStatus.FILLED, taker.getStatus());
+    assertEquals(2, orderService.getOrderById(other.getId().toString()).getUnfilledQuantity());
+    // filled orders are not retained by an engine book
+    assertNull(orderService.getOrderById(resting.getId().toString()));
+    assertNull(orderService.getOrderById(taker.getId().toString()));
+
+    orderService.cancelOrder(other.getId().toString());
+    assertNull(orderService.getOrderById(other.getId().toString()));
+    assertEquals(0, orderService.getAllOrders().size());
+  }
+
+  @Test
+  void ordersTheEngineCannotTakeAreRefusedBeforeTheyAreJournaled() {
+    OrderService smallOrders =
+        new OrderService(
+            new OrderBookService(
+                PriceLadderProperties.none(),
+                MarketOrderProperties.none(),
+                new EngineProperties(Map.of("ENG", new BigDecimal("0.01")), Map.of(), 2, 64)));
+    try (CommandJournal journal =
+        new CommandJournal(
+            directory.resolve("commands.journal"), 4096, FsyncPolicy.NONE, 1, Duration.ZERO)) {
+      smallOrders.setJournal(journal);
+      Order low = smallOrders.createOrder(new BidOrder("ENG", new BigDecimal("1.00"), 5));
+      BigDecimal far =
+          new BigDecimal("0.01").multiply(BigDecimal.valueOf(100 + MatchingEngine.MAX_PRICE_SPAN));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> smallOrders.createOrder(new BidOrder("ENG", far, 5)));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> smallOrders.amendOrder(low.getId().toString(), far, 5));
+      smallOrders.createOrder(new BidOrder("ENG", new BigDecimal("1.01"), 5));
+      assertThrows(
+          IllegalStateException.class,
+          () -> smallOrders.createOrder(new OfferOrder("ENG", new BigDecimal("1.01"), 1)));
+      assertEquals(2, journal.lastSequence());
+    }
+  }
+
+  @Test
+  void offHeapEngineBooksHandOutCopiesAndAreClosedWithTheRegistry() {
+    OrderService offHeapOrders;
+    try (OrderBookService offHeapBooks =
+        new OrderBookService(
+            PriceLadderProperties.none(),
+            MarketOrderProperties.none(),
+            new EngineProperties(
+                Map.of("OFF", new BigDecimal("0.01")),
+                Map.of("OFF", OrderStorage.OFF_HEAP),
+                1024,
+                64))) {
+      offHeapOrders = new OrderService(offHeapBooks);
+      OrderBook offHeap = offHeapBooks.getOrderBook("OFF");
+      Order resting = offHeapOrders.createOrder(new BidOrder("OFF", new BigDecimal("100.00"), 5));
+      offHeapOrders.createOrder(new OfferOrder("OFF", new BigDecimal("100.00"), 2));
+
+      Order found = offHeapOrders.getOrderById(resting.getId().toString());
+      assertEquals(3, found.getUnfilledQuantity());
+      assertEquals(List.of(OrderState.of(found)), offHeap.restingOrders());
+    }
+    assertThrows(
+        IllegalStateException.class,
+        () -> offHeapOrders.createOrder(new OfferOrder("OFF", new BigDecimal("100.00"), 1)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OrderBookService(
+                PriceLadderProperties.none(),
+                MarketOrderProperties.none(),
+                new EngineProperties(Map.of(), Map.of("OFF", OrderStorage.OFF_HEAP), 1024, 64)));
+  }
+}
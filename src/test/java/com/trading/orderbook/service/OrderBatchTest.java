@@ -0,0 +1,82 @@
+package com.trading.orderbook.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.trading.orderbook.journal.CommandJournal;
+import com.trading.orderbook.journal.FsyncPolicy;
+import com.trading.orderbook.journal.JournalEntry;
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderResult;
+import com.trading.orderbook.model.OrderStatus;
+import com.trading.orderbook.model.TimeInForce;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OrderBatchTest {
+
+  @TempDir Path directory;
+
+  private final OrderBookService orderBookService =
+      new OrderBookService(new PriceLadderProperties(Map.of("LAD", new BigDecimal("0.5")), 64));
+  private final OrderService orderService = new OrderService(orderBookService);
+
+  @Test
+  void invalidOrdersOfABatchAreRejectedBeforeTheyAreJournaled() {
+    Order expired = new BidOrder("AAPL", BigDecimal.ONE, 1);
+    expired.setTimeInForce(TimeInForce.GTD);
+    expired.setExpireTime(1);
+    List<JournalEntry> entries = new ArrayList<>();
+    List<UUID> valid;
+    try (CommandJournal journal = open()) {
+      orderService.setJournal(journal);
+      List<OrderResult> results =
+          orderService.createOrders(
+              List.of(
+                  new BidOrder("LAD", new BigDecimal("100"), 5),
+                  new BidOrder("LAD", new BigDecimal("100.25"), 5),
+                  expired,
+                  new OfferOrder("LAD", new BigDecimal("100"), 5)));
+
+      assertEquals(OrderStatus.FILLED, results.get(0).order().getStatus());
+      assertEquals(OrderStatus.REJECTED, results.get(1).order().getStatus());
+      assertEquals(List.of(), results.get(1).fills());
+      assertEquals(OrderStatus.REJECTED, results.get(2).order().getStatus());
+      assertEquals(OrderStatus.FILLED, results.get(3).order().getStatus());
+      assertEquals(1, results.get(3).fills().size());
+      valid = List.of(results.get(0).order().getId(), results.get(3).order().getId());
+      journal.replay(entries::add);
+    }
+    assertEquals(
+        valid,
+        entries.stream().map(JournalEntry::orderId).toList(),
+        "only the valid orders are journaled");
+  }
+
+  @Test
+  void anOffTickAmendIsRefusedBeforeItIsJournaled() {
+    try (CommandJournal journal = open()) {
+      orderService.setJournal(journal);
+      Order resting = orderService.createOrder(new BidOrder("LAD", new BigDecimal("100"), 5));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> orderService.amendOrder(resting.getId().toString(), new BigDecimal("100.25"), 5));
+      assertEquals(1, journal.lastSequence());
+      assertEquals(new BigDecimal("100"), resting.getPrice());
+    }
+  }
+
+  private CommandJournal open() {
+    return new CommandJournal(
+        directory.resolve("commands.journal"), 4096, FsyncPolicy.SYNC, 1, Duration.ZERO);
+  }
+}
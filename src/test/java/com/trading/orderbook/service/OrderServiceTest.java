@@ -7,8 +7,11 @@ import static org.mockito.Mockito.*;
 import com.trading.orderbook.model.*;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.InstantSource;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -17,6 +20,8 @@ import org.mockito.MockitoAnnotations;
 
 class OrderServiceTest {
 
+  private static final long NOW = 1_700_000_000_000L;
+
   @Mock private OrderBookService orderBookService;
 
   @Mock private OrderBook orderBook;
@@ -27,6 +32,8 @@ class OrderServiceTest {
   void setUp() {
     MockitoAnnotations.openMocks(this);
     when(orderBookService.getOrderBook(anyString())).thenReturn(orderBook);
+    when(orderBook.getLock()).thenReturn(new ReentrantLock());
+    orderService.setClock(InstantSource.fixed(Instant.ofEpochMilli(NOW)));
   }
 
   @Test
@@ -38,33 +45,33 @@ class OrderServiceTest {
   @Test
   void createBidOrderSuccessfully() {
     BidOrder order = new BidOrder("AAPL", BigDecimal.valueOf(100), 10);
-    when(orderBook.addOrder(order)).thenReturn(order);
+    when(orderBook.addOrder(order, NOW)).thenReturn(order);
 
     BidOrder createdOrder = (BidOrder) orderService.createOrder(order);
 
     assertEquals(order, createdOrder);
     assertEquals(1, orderService.getAllOrders().size());
     verify(orderBookService).getOrderBook("AAPL");
-    verify(orderBook).addOrder(order);
+    verify(orderBook).addOrder(order, NOW);
   }
 
   @Test
   void createOfferOrderSuccessfully() {
     OfferOrder order = new OfferOrder("AAPL", BigDecimal.valueOf(200), 5);
-    when(orderBook.addOrder(order)).thenReturn(order);
+    when(orderBook.addOrder(order, NOW)).thenReturn(order);
 
     OfferOrder createdOrder = (OfferOrder) orderService.createOrder(order);
 
     assertEquals(order, createdOrder);
     assertEquals(1, orderService.getAllOrders().size());
     verify(orderBookService).getOrderBook("AAPL");
-    verify(orderBook).addOrder(order);
+    verify(orderBook).addOrder(order, NOW);
   }
 
   @Test
   void getOrderByIdReturnsBidOrder() {
     BidOrder order = new BidOrder("AAPL", BigDecimal.valueOf(100), 10);
-    when(orderBook.addOrder(order)).thenReturn(order);
+    when(orderBook.addOrder(order, NOW)).thenReturn(order);
     orderService.createOrder(order);
 
     BidOrder foundOrder = (BidOrder) orderService.getOrderById(order.getId().toString());
@@ -75,7 +82,7 @@ class OrderServiceTest {
   @Test
   void getOrderByIdReturnsOfferOrder() {
     OfferOrder order = new OfferOrder("AAPL", BigDecimal.valueOf(200), 5);
-    when(orderBook.addOrder(order)).thenReturn(order);
+    when(orderBook.addOrder(order, NOW)).thenReturn(order);
     orderService.createOrder(order);
 
     OfferOrder foundOrder = (OfferOrder) orderService.getOrderById(order.getId().toString());
@@ -92,7 +99,7 @@ class OrderServiceTest {
   @Test
   void deleteBidOrderSuccessfully() {
     BidOrder order = new BidOrder("AAPL", BigDecimal.valueOf(100), 10);
-    when(orderBook.addOrder(order)).thenReturn(order);
+    when(orderBook.addOrder(order, NOW)).thenReturn(order);
     orderService.createOrder(order);
 
     orderService.cancelOrder(order.getId().toString());
@@ -103,7 +110,7 @@ class OrderServiceTest {
   @Test
   void deleteOfferOrderSuccessfully() {
     OfferOrder order = new OfferOrder("AAPL", BigDecimal.valueOf(200), 5);
-    when(orderBook.addOrder(order)).thenReturn(order);
+    when(orderBook.addOrder(order, NOW)).thenReturn(order);
     orderService.createOrder(order);
 
     orderService.cancelOrder(order.getId().toString());
@@ -127,7 +134,7 @@ class OrderServiceTest {
   @Test
   void cancelBidOrderSuccessfully() {
     BidOrder order = new BidOrder("AAPL", BigDecimal.valueOf(100), 10);
-    when(orderBook.addOrder(order)).thenReturn(order);
+    when(orderBook.addOrder(order, NOW)).thenReturn(order);
     when(orderBook.orderbookDepth()).thenReturn(emptyList());
     doNothing().when(orderBookService).cancelOrder(order);
     doNothing().when(orderBook).cancelOrder(order);
@@ -136,13 +143,13 @@ class OrderServiceTest {
     orderService.cancelOrder(order.getId().toString());
 
     assertTrue(orderService.getAllOrders().isEmpty());
-    verify(orderBook).addOrder(order);
+    verify(orderBook).addOrder(order, NOW);
   }
 
   @Test
   void cancelOfferOrderSuccessfully() {
     OfferOrder order = new OfferOrder("AAPL", BigDecimal.valueOf(200), 5);
-    when(orderBook.addOrder(order)).thenReturn(order);
+    when(orderBook.addOrder(order, NOW)).thenReturn(order);
     when(orderBook.orderbookDepth()).thenReturn(emptyList());
     doNothing().when(orderBook).cancelOrder(order);
     orderService.createOrder(order);
@@ -150,15 +157,15 @@ class OrderServiceTest {
     orderService.cancelOrder(order.getId().toString());
 
     assertTrue(orderService.getAllOrders().isEmpty());
-    verify(orderBook).addOrder(order);
+    verify(orderBook).addOrder(order, NOW);
   }
 
   @Test
   void cancelPartiallyFilledOrderSuccessfully() {
     BidOrder bidOrder = new BidOrder("AAPL", BigDecimal.valueOf(100), 10);
     OfferOrder offerOrder = new OfferOrder("AAPL", BigDecimal.valueOf(100), 4);
-    when(orderBook.addOrder(bidOrder)).thenReturn(bidOrder);
-    when(orderBook.addOrder(offerOrder)).thenReturn(offerOrder);
+    when(orderBook.addOrder(bidOrder, NOW)).thenReturn(bidOrder);
+    when(orderBook.addOrder(offerOrder, NOW)).thenReturn(offerOrder);
     when(orderBook.orderbookDepth()).thenReturn(emptyList());
     doNothing().when(orderBook).cancelOrder(bidOrder);
 
@@ -179,6 +186,16 @@ class OrderServiceTest {
     assertEquals(4, bidOrder.getQuantity());
     assertEquals(OrderStatus.FILLED, bidOrder.getStatus());
 
-    verify(orderBook).addOrder(bidOrder);
+    verify(orderBook).addOrder(bidOrder, NOW);
+  }
+
+  @Test
+  void freshServicesOnTheSameClockHandOutTheSameIds() {
+    OrderService other = new OrderService(orderBookService);
+    other.setClock(InstantSource.fixed(Instant.ofEpochMilli(NOW)));
+
+    assertEquals(other.nextOrderId(), orderService.nextOrderId());
+    assertEquals(other.nextOrderId(), orderService.nextOrderId());
+    assertEquals(NOW, orderService.nextOrderId().getMostSignificantBits());
   }
 }
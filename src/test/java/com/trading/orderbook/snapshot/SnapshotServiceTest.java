@@ -0,0 +1,323 @@
+package com.trading.orderbook.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trading.orderbook.journal.CommandJournal;
+import com.trading.orderbook.journal.FsyncPolicy;
+import com.trading.orderbook.journal.JournalReplayer;
+import com.trading.orderbook.model.BidOrder;
+import com.trading.orderbook.model.OfferOrder;
+import com.trading.orderbook.model.Order;
+import com.trading.orderbook.model.OrderBook;
+import com.trading.orderbook.model.OrderKind;
+import com.trading.orderbook.model.OrderState;
+import com.trading.orderbook.model.OrderStatus;
+import com.trading.orderbook.service.EngineProperties;
+import com.trading.orderbook.service.MarketOrderProperties;
+import com.trading.orderbook.service.OrderBookService;
+import com.trading.orderbook.service.OrderService;
+import com.trading.orderbook.service.PriceLadderProperties;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotServiceTest {
+
+  @TempDir Path directory;
+
+  private final OrderBookService orderBookService = new OrderBookService();
+  private final OrderService orderService = new OrderService(orderBookService);
+
+  private SnapshotService snapshotService(
+      OrderBookService orderBookService, OrderService orderService) {
+    return new SnapshotService(
+        new SnapshotProperties(true, directory, Duration.ZERO, 2), orderBookService, orderService);
+  }
+
+  private CommandJournal journal() {
+    return new CommandJournal(
+        directory.resolve("commands.journal"), 4096, FsyncPolicy.NONE, 1, Duration.ZERO);
+  }
+
+  private static OrderBookService engineBooks() {
+    return new OrderBookService(
+        PriceLadderProperties.none(),
+        MarketOrderProperties.none(),
+        new EngineProperties(Map.of("ENG", new BigDecimal("0.01")), Map.of(), 1024, 64));
+  }
+
+  private long snapshotCount() throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.getFileName().toString().endsWith(".bin")).count();
+    }
+  }
+
+  @Test
+  void restoredBooksKeepDepthOrdersAndTimePriority() {
+    Order first = new BidOrder("AAPL", new BigDecimal("100.0"), 5);
+    first.setAccount("ACME");
+    orderService.createOrder(first);
+    Order second = orderService.createOrder(new BidOrder("AAPL", new BigDecimal("100.00"), 7));
+    orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(99), 3));
+    Order filled = orderService.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 2));
+    Order partial = orderService.createOrder(new OfferOrder("MSFT", BigDecimal.valueOf(300), 4));
+    orderService.createOrder(new BidOrder("MSFT", BigDecimal.valueOf(300), 1));
+    orderService.cancelOrder(partial.getId().toString());
+    snapshotService(orderBookService, orderService).snapshot();
+
+    OrderBookService restoredBooks = new OrderBookService();
+    OrderService restored = new OrderService(restoredBooks);
+    snapshotService(restoredBooks, restored).start();
+
+    OrderBook aapl = restoredBooks.getOrderBook("AAPL");
+    assertEquals(orderBookService.getOrderBook("AAPL").orderbookDepth(), aapl.orderbookDepth());
+    assertEquals(
+        orderBookService.getOrderBook("MSFT").orderbookDepth(),
+        restoredBooks.getOrderBook("MSFT").orderbookDepth());
+    assertEquals(orderService.getAllOrders().size(), restored.getAllOrders().size());
+    assertEquals("ACME", restored.getOrderById(first.getId().toString()).getAccount());
+    assertEquals(0, restored.getOrderById(filled.getId().toString()).getUnfilledQuantity());
+    assertEquals(1, restored.getOrderById(partial.getId().toString()).getQuantity());
+    assertEquals(1, aapl.getTrades().nextSequence());
+    assertEquals(1, restoredBooks.getOrderBook("MSFT").getTrades().nextSequence());
+
+    restored.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 4));
+    assertEquals(0, restored.getOrderById(first.getId().toString()).getUnfilledQuantity());
+    assertEquals(6, restored.getOrderById(second.getId().toString()).getUnfilledQuantity());
+    assertEquals(3, aapl.getTrades().nextSequence());
+  }
+
+  @Test
+  void restoredEngineBooksKeepTheirOrdersAndTimePriority() {
+    OrderBookService engineBooks = engineBooks();
+    OrderService engineOrders = new OrderService(engineBooks);
+    Order first = new OfferOrder("ENG", new BigDecimal("100.00"), 5);
+    first.setAccount("ACME");
+    engineOrders.createOrder(first);
+    Order second = engineOrders.createOrder(new OfferOrder("ENG", new BigDecimal("100.00"), 5));
+    engineOrders.createOrder(new BidOrder("ENG", new BigDecimal("100.00"), 2));
+    snapshotService(engineBooks, engineOrders).snapshot();
+
+    OrderBookService restoredBooks = engineBooks();
+    OrderService restored = new OrderService(restoredBooks);
+    snapshotService(restoredBooks, restored).start();
+
+    OrderBook eng = restoredBooks.getOrderBook("ENG");
+    assertEquals(engineBooks.getOrderBook("ENG").restingOrders(), eng.restingOrders());
+    assertEquals(new BigDecimal("100.00"), eng.getLastTradePrice());
+    assertEquals("ACME", restored.getOrderById(first.getId().toString()).getAccount());
+    assertEquals(1, eng.getTrades().nextSequence());
+
+    restored.createOrder(new BidOrder("ENG", new BigDecimal("100.00"), 4));
+    assertNull(restored.getOrderById(first.getId().toString()));
+    assertEquals(4, restored.getOrderById(second.getId().toString()).getUnfilledQuantity());
+  }
+
+  @Test
+  void completedOrdersAreKeptPerSymbol() {
+    Order filled = orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 2));
+    Order taker = orderService.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 2));
+    orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(99), 1));
+    Order cancelled = orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(98), 1));
+    orderService.cancelOrder(cancelled.getId().toString());
+    orderService.createOrder(new BidOrder("MSFT", BigDecimal.valueOf(300), 1));
+    orderService.createOrder(new OfferOrder("MSFT", BigDecimal.valueOf(300), 1));
+
+    assertEquals(
+        List.of(filled.getId(), taker.getId()),
+        orderService.completedOrders("AAPL").stream().map(OrderState::id).toList());
+    assertEquals(2, orderService.completedOrders("MSFT").size());
+    assertEquals(List.of(), orderService.completedOrders("TSLA"));
+  }
+
+  @Test
+  void pendingStopsAndTheLastTradePriceAreRestored() {
+    orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 1));
+    orderService.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 1));
+    orderService.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(103), 5));
+    Order stop =
+        orderService.createOrder(
+            new BidOrder(
+                UUID.randomUUID(), "AAPL", OrderKind.STOP, null, new BigDecimal("101"), 2));
+    Order stopLimit =
+        orderService.createOrder(
+            new BidOrder(
+                UUID.randomUUID(),
+                "AAPL",
+                OrderKind.STOP_LIMIT,
+                new BigDecimal("103"),
+                new BigDecimal("102"),
+                1));
+    snapshotService(orderBookService, orderService).snapshot();
+
+    OrderBookService restoredBooks = new OrderBookService();
+    OrderService restored = new OrderService(restoredBooks);
+    snapshotService(restoredBooks, restored).start();
+
+    OrderBook aapl = restoredBooks.getOrderBook("AAPL");
+    assertEquals(BigDecimal.valueOf(100), aapl.getLastTradePrice());
+    assertEquals(orderBookService.getOrderBook("AAPL").pendingStops(), aapl.pendingStops());
+    Order restoredStop = restored.getOrderById(stop.getId().toString());
+    assertEquals(OrderStatus.PENDING, restoredStop.getStatus());
+
+    // a trade at 101 triggers the stop, whose fill at 103 triggers the stop-limit
+    restored.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(101), 1));
+    restored.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(101), 1));
+    assertTrue(restoredStop.isTriggered());
+    assertEquals(0, restoredStop.getUnfilledQuantity());
+    assertEquals(0, restored.getOrderById(stopLimit.getId().toString()).getUnfilledQuantity());
+    assertTrue(aapl.pendingStops().isEmpty());
+  }
+
+  @Test
+  void startupReplaysOnlyTheJournalTail() {
+    Order cancelledAfterSnapshot;
+    try (CommandJournal journal = journal()) {
+      orderService.setJournal(journal);
+      SnapshotService snapshotService = snapshotService(orderBookService, orderService);
+      snapshotService.setJournal(journal);
+      orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 5));
+      cancelledAfterSnapshot =
+          orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(99), 2));
+      snapshotService.snapshot();
+      orderService.createOrder(new OfferOrder("AAPL", BigDecimal.valueOf(100), 3));
+      orderService.cancelOrder(cancelledAfterSnapshot.getId().toString());
+    }
+
+    OrderBookService restoredBooks = new OrderBookService();
+    OrderService restored = new OrderService(restoredBooks);
+    try (CommandJournal journal = journal()) {
+      SnapshotService snapshotService = snapshotService(restoredBooks, restored);
+      snapshotService.start();
+      JournalReplayer replayer = new JournalReplayer(journal, restored);
+      replayer.setSnapshotService(snapshotService);
+      replayer.start();
+    }
+
+    assertEquals(
+        orderBookService.getOrderBook("AAPL").orderbookDepth(),
+        restoredBooks.getOrderBook("AAPL").orderbookDepth());
+    assertEquals(orderService.getAllOrders().size(), restored.getAllOrders().size());
+    assertNull(restored.getOrderById(cancelledAfterSnapshot.getId().toString()));
+  }
+
+  @Test
+  void commandsOnOrdersGoneBeforeTheSnapshotAreNotReplayed() {
+    OrderBookService engineBooks = engineBooks();
+    OrderService engineOrders = new OrderService(engineBooks);
+    Order cancelled;
+    try (CommandJournal journal = journal()) {
+      engineOrders.setJournal(journal);
+      SnapshotService snapshotService = snapshotService(engineBooks, engineOrders);
+      snapshotService.setJournal(journal);
+      cancelled = engineOrders.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(99), 2));
+      engineOrders.cancelOrder(cancelled.getId().toString());
+      Order amended = engineOrders.createOrder(new BidOrder("ENG", new BigDecimal("1.00"), 2));
+      engineOrders.amendOrder(amended.getId().toString(), new BigDecimal("1.01"), 2);
+      engineOrders.createOrder(new OfferOrder("ENG", new BigDecimal("1.01"), 2));
+      snapshotService.snapshot();
+    }
+
+    OrderBookService restoredBooks = engineBooks();
+    OrderService restored = new OrderService(restoredBooks);
+    try (CommandJournal journal = journal()) {
+      SnapshotService snapshotService = snapshotService(restoredBooks, restored);
+      snapshotService.start();
+      JournalReplayer replayer = new JournalReplayer(journal, restored);
+      replayer.setSnapshotService(snapshotService);
+      replayer.start();
+      assertTrue(replayer.isRunning());
+    }
+    assertNull(restored.getOrderById(cancelled.getId().toString()));
+    assertEquals(List.of(), restoredBooks.getOrderBook("ENG").restingOrders());
+  }
+
+  @Test
+  void oldSnapshotsAreDeletedAndACorruptNewestIsSkipped() throws Exception {
+    SnapshotService snapshotService = snapshotService(orderBookService, orderService);
+    orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 5));
+    snapshotService.snapshot();
+    Thread.sleep(2);
+    orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 6));
+    snapshotService.snapshot();
+    Thread.sleep(2);
+    orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 7));
+    Path newest = snapshotService.snapshot();
+    assertEquals(2, snapshotCount());
+
+    try (RandomAccessFile file = new RandomAccessFile(newest.toFile(), "rw")) {
+      file.seek(file.length() / 2);
+      int flipped = file.readByte() ^ 0xFF;
+      file.seek(file.length() / 2);
+      file.write(flipped);
+    }
+
+    OrderBookService restoredBooks = new OrderBookService();
+    OrderService restored = new OrderService(restoredBooks);
+    snapshotService(restoredBooks, restored).start();
+    assertEquals(2, restored.getAllOrders().size());
+  }
+
+  @Test
+  void longAccountsAreRestored() throws Exception {
+    Order bid = new BidOrder("AAPL", BigDecimal.valueOf(100), 5);
+    bid.setAccount("A".repeat(70_000));
+    orderService.createOrder(bid);
+    Path path = snapshotService(orderBookService, orderService).snapshot();
+
+    OrderState restored = SnapshotFile.read(path).get(0).restingOrders().get(0);
+    assertEquals(bid.getAccount(), restored.account());
+  }
+
+  @Test
+  void aNewestSnapshotThatCannotBeParsedIsSkipped() throws Exception {
+    SnapshotService snapshotService = snapshotService(orderBookService, orderService);
+    orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 5));
+    snapshotService.snapshot();
+    Thread.sleep(2);
+    orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 6));
+    Path newest = snapshotService.snapshot();
+
+    // claim more books than the file holds, behind a valid checksum
+    ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(newest));
+    file.putInt(14, 1000);
+    CRC32C checksum = new CRC32C();
+    checksum.update(file.array(), 0, file.capacity() - 4);
+    file.putInt(file.capacity() - 4, (int) checksum.getValue());
+    Files.write(newest, file.array());
+
+    OrderBookService restoredBooks = new OrderBookService();
+    OrderService restored = new OrderService(restoredBooks);
+    snapshotService(restoredBooks, restored).start();
+    assertEquals(1, restored.getAllOrders().size());
+  }
+
+  @Test
+  void snapshotsOfAnotherVersionAreRefused() throws Exception {
+    orderService.createOrder(new BidOrder("AAPL", BigDecimal.valueOf(100), 5));
+    Path path = snapshotService(orderBookService, orderService).snapshot();
+    ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path));
+    file.putShort(4, (short) (SnapshotFile.VERSION + 1));
+    CRC32C checksum = new CRC32C();
+    checksum.update(file.array(), 0, file.capacity() - 4);
+    file.putInt(file.capacity() - 4, (int) checksum.getValue());
+    Files.write(path, file.array());
+
+    IOException refused = assertThrows(IOException.class, () -> SnapshotFile.read(path));
+    assertTrue(refused.getMessage().contains("unsupported version"));
+  }
+}